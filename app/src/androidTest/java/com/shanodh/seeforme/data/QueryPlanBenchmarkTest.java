@@ -0,0 +1,146 @@
+package com.shanodh.seeforme.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Query plan and latency benchmark for the notes indices.
+ *
+ * Seeds an in-memory copy of the schema with synthetic notes for two users, then runs the hot
+ * DAO queries twice: as written, and with "NOT INDEXED" so SQLite has to fall back to a table
+ * scan. Each indexed query must be answered from an index without a temporary sort; the plans
+ * and mean time per query are logged under QueryPlanBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanBenchmarkTest {
+    private static final String TAG = "QueryPlanBenchmark";
+    private static final int NOTE_COUNT = 20000;
+    private static final int ITERATIONS = 200;
+    private static final long BASE_TIMESTAMP = 1_700_000_000_000L;
+    private static final int UNSYNCED_EVERY = 50;
+    private static final String USER_ID = "user-a";
+    private static final String OTHER_USER_ID = "user-b";
+
+    // %s is replaced with the table reference, with or without NOT INDEXED
+    private static final String[][] QUERIES = {
+            {"unsynced count", "SELECT COUNT(*) FROM %s WHERE isSynced = 0"},
+            {"firestoreId lookup", "SELECT * FROM %s WHERE firestoreId = ?"},
+            {"newest page", "SELECT * FROM %s WHERE userId = ? ORDER BY timestamp DESC LIMIT 30"},
+            {"synced window", "SELECT * FROM %s WHERE userId = ? AND firestoreId IS NOT NULL "
+                    + "AND isSynced = 1 AND timestamp > ? AND timestamp < ?"},
+    };
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        seed(database.noteDao(), NOTE_COUNT);
+        db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("ANALYZE");
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void hotQueriesUseIndices() {
+        long middle = BASE_TIMESTAMP + (NOTE_COUNT / 2) * 1000L;
+        Object[][] args = {
+                {},
+                {"doc" + (NOTE_COUNT / 3)},
+                {USER_ID},
+                {USER_ID, middle, middle + 30_000L},
+        };
+
+        StringBuilder report = new StringBuilder(String.format(Locale.US,
+                "notes=%d iterations=%d%n", NOTE_COUNT, ITERATIONS));
+        for (int i = 0; i < QUERIES.length; i++) {
+            String indexed = String.format(QUERIES[i][1], "notes");
+            String scanned = String.format(QUERIES[i][1], "notes NOT INDEXED");
+            String indexedPlan = plan(indexed, args[i]);
+            double indexedMicros = time(indexed, args[i]);
+            double scannedMicros = time(scanned, args[i]);
+            report.append(String.format(Locale.US, "%-18s indexed %8.1fus  [%s]%n",
+                    QUERIES[i][0], indexedMicros, indexedPlan));
+            report.append(String.format(Locale.US, "%-18s scan    %8.1fus  [%s]  x%.1f%n",
+                    "", scannedMicros, plan(scanned, args[i]), scannedMicros / indexedMicros));
+
+            assertTrue(QUERIES[i][0] + ": " + indexedPlan, indexedPlan.contains("INDEX"));
+            assertFalse(QUERIES[i][0] + ": " + indexedPlan, indexedPlan.contains("TEMP B-TREE"));
+        }
+        Log.i(TAG, report.toString());
+    }
+
+    private static void seed(NoteDao noteDao, int noteCount) {
+        List<Note> batch = new ArrayList<>(1000);
+        for (int i = 0; i < noteCount; i++) {
+            Note note = new Note("Note " + i, "Synthetic note body " + i + " for the query plan benchmark");
+            note.setFirestoreId("doc" + i);
+            note.setTimestamp(BASE_TIMESTAMP + i * 1000L);
+            note.setSynced(i % UNSYNCED_EVERY != 0);
+            note.setUserId(i % 2 == 0 ? USER_ID : OTHER_USER_ID);
+            batch.add(note);
+            if (batch.size() == 1000) {
+                noteDao.insertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            noteDao.insertAll(batch);
+        }
+    }
+
+    private String plan(String sql, Object[] args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                if (plan.length() > 0) {
+                    plan.append("; ");
+                }
+                plan.append(cursor.getString(detail));
+            }
+        }
+        return plan.toString();
+    }
+
+    private double time(String sql, Object[] args) {
+        // Warm the page cache and statement cache first
+        drain(sql, args);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            drain(sql, args);
+        }
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+    }
+
+    private void drain(String sql, Object[] args) {
+        try (Cursor cursor = db.query(sql, args)) {
+            while (cursor.moveToNext()) {
+                cursor.getLong(0);
+            }
+        }
+    }
+}
@@ -28,7 +28,11 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.shanodh.seeforme.auth.FirebaseAuthManager;
+import com.shanodh.seeforme.data.StorageMaintenance;
 import com.shanodh.seeforme.firebase.FirestoreNotesManager;
+import com.shanodh.seeforme.network.WearableDiscovery;
+import com.shanodh.seeforme.network.WearableHealthMonitor;
+import com.shanodh.seeforme.sync.SyncService;
 import com.shanodh.seeforme.ui.fragments.SimpleAssistFragment;
 import com.shanodh.seeforme.ui.fragments.HomeFragment;
 import com.shanodh.seeforme.ui.fragments.ProfileFragment;
@@ -38,6 +42,7 @@ import com.shanodh.seeforme.ui.ViewNotesActivity;
 import com.shanodh.seeforme.ui.AddFaceActivity;
 import com.shanodh.seeforme.voice.TextToSpeechHelper;
 import com.shanodh.seeforme.voice.VoiceCommandHelper;
+import com.shanodh.seeforme.voice.WearableEventAnnouncer;
 
 import java.util.ArrayList;
 import java.util.Map;
@@ -89,6 +94,14 @@ public class MainActivity extends AppCompatActivity implements
         
         // Initialize Firebase services
         notesManager = new FirestoreNotesManager();
+        SyncService.getInstance(this).schedulePeriodicSync();
+        WearableDiscovery.restoreLastKnownDevice(this);
+        // Nothing to watch until a wearable has been paired; ConnectDeviceActivity starts both then
+        if (WearableDiscovery.getLastKnownDevice(this) != null) {
+            WearableHealthMonitor.getInstance().monitorWhileInForeground();
+            WearableEventAnnouncer.getInstance(this).announceWhileInForeground();
+        }
+        StorageMaintenance.schedule(this);
         
         setContentView(R.layout.activity_main);
 
@@ -1,23 +1,37 @@
 package com.shanodh.seeforme.adapters;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.card.MaterialCardView;
 import com.shanodh.seeforme.R;
 import com.shanodh.seeforme.models.FamiliarFace;
+import com.shanodh.seeforme.utils.FaceThumbnailCache;
 import java.util.List;
+import java.util.Objects;
 
-public class FamiliarFacesAdapter extends RecyclerView.Adapter<FamiliarFacesAdapter.FaceViewHolder> {
+public class FamiliarFacesAdapter extends ListAdapter<FamiliarFace, FamiliarFacesAdapter.FaceViewHolder> {
+
+    private static final DiffUtil.ItemCallback<FamiliarFace> DIFF_CALLBACK = new DiffUtil.ItemCallback<FamiliarFace>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull FamiliarFace oldItem, @NonNull FamiliarFace newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull FamiliarFace oldItem, @NonNull FamiliarFace newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getImagePath(), newItem.getImagePath());
+        }
+    };
     
-    private List<FamiliarFace> faces;
     private Context context;
     private OnFaceClickListener onFaceClickListener;
 
@@ -27,17 +41,20 @@ public class FamiliarFacesAdapter extends RecyclerView.Adapter<FamiliarFacesAdap
     }
 
     public FamiliarFacesAdapter(Context context, List<FamiliarFace> faces) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.faces = faces;
+        submitList(faces);
     }
 
     public void setOnFaceClickListener(OnFaceClickListener listener) {
         this.onFaceClickListener = listener;
     }
 
+    /**
+     * Diff the new list against the current one in the background and update only changed rows
+     */
     public void updateFaces(List<FamiliarFace> newFaces) {
-        this.faces = newFaces;
-        notifyDataSetChanged();
+        submitList(newFaces);
     }
 
     @NonNull
@@ -49,15 +66,10 @@ public class FamiliarFacesAdapter extends RecyclerView.Adapter<FamiliarFacesAdap
 
     @Override
     public void onBindViewHolder(@NonNull FaceViewHolder holder, int position) {
-        FamiliarFace face = faces.get(position);
+        FamiliarFace face = getItem(position);
         holder.bind(face, position);
     }
 
-    @Override
-    public int getItemCount() {
-        return faces != null ? faces.size() : 0;
-    }
-
     class FaceViewHolder extends RecyclerView.ViewHolder {
         private MaterialCardView cardView;
         private ImageView imageView;
@@ -73,32 +85,25 @@ public class FamiliarFacesAdapter extends RecyclerView.Adapter<FamiliarFacesAdap
         public void bind(FamiliarFace face, int position) {
             nameTextView.setText(face.getName());
             
-            // Load face image
-            if (face.getImagePath() != null) {
-                try {
-                    Bitmap bitmap = BitmapFactory.decodeFile(face.getImagePath());
-                    if (bitmap != null) {
-                        imageView.setImageBitmap(bitmap);
-                    } else {
-                        imageView.setImageResource(R.drawable.ic_person);
-                    }
-                } catch (Exception e) {
-                    imageView.setImageResource(R.drawable.ic_person);
-                }
+            // Thumbnails are keyed by face ID, the same as on the faces screen
+            if (face.getFirebaseId() != null && face.getImagePath() != null) {
+                FaceThumbnailCache.getInstance(context)
+                        .load(face.getFirebaseId(), face.getImagePath(), imageView, R.drawable.ic_person);
             } else {
+                FaceThumbnailCache.getInstance(context).unbind(imageView);
                 imageView.setImageResource(R.drawable.ic_person);
             }
 
             // Set click listeners
             cardView.setOnClickListener(v -> {
                 if (onFaceClickListener != null) {
-                    onFaceClickListener.onFaceClick(face, position);
+                    onFaceClickListener.onFaceClick(face, getAdapterPosition());
                 }
             });
 
             cardView.setOnLongClickListener(v -> {
                 if (onFaceClickListener != null) {
-                    onFaceClickListener.onFaceLongClick(face, position);
+                    onFaceClickListener.onFaceLongClick(face, getAdapterPosition());
                 }
                 return true;
             });
@@ -1,6 +1,7 @@
 package com.shanodh.seeforme.auth;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
 
@@ -21,6 +22,7 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.GoogleAuthProvider;
 import com.shanodh.seeforme.R;
+import com.shanodh.seeforme.sync.WearableNoteSync;
 
 /**
  * Firebase Authentication Manager for handling user authentication
@@ -29,6 +31,7 @@ public class FirebaseAuthManager {
     private static final String TAG = "FirebaseAuthManager";
     public static final int RC_SIGN_IN = 9001;
 
+    private final Context appContext;
     private FirebaseAuth mAuth;
     private GoogleSignInClient mGoogleSignInClient;
     private MutableLiveData<FirebaseUser> userLiveData;
@@ -40,6 +43,7 @@ public class FirebaseAuthManager {
     }
 
     public FirebaseAuthManager(Activity activity) {
+        appContext = activity.getApplicationContext();
         mAuth = FirebaseAuth.getInstance();
         userLiveData = new MutableLiveData<>();
         errorLiveData = new MutableLiveData<>();
@@ -169,10 +173,11 @@ public class FirebaseAuthManager {
     }
 
     /**
-     * Sign out
+     * Sign out, and take the user's notes off the wearable
      */
     public void signOut(AuthCallback callback) {
         mAuth.signOut();
+        WearableNoteSync.requestSync(appContext);
         mGoogleSignInClient.signOut().addOnCompleteListener(new OnCompleteListener<Void>() {
             @Override
             public void onComplete(@NonNull Task<Void> task) {
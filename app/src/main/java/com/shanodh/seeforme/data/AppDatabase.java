@@ -1,8 +1,6 @@
 package com.shanodh.seeforme.data;
 
 import android.content.Context;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 
 import androidx.room.Database;
 import androidx.room.Room;
@@ -11,17 +9,28 @@ import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Room database for the SeeForMe app
+ * Room database for the SeeForMe app. This is the only database; faces from the old
+ * "seeforme_database" file are imported on first open by LegacyDatabaseImport.
  */
-@Database(entities = {Note.class, FamiliarFace.class}, version = 2, exportSchema = false)
+@Database(entities = {Note.class, NoteFts.class, FamiliarFace.class, SyncChange.class}, version = 8, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
     private static final String DATABASE_NAME = "seeforme_db";
+    private static final long JOURNAL_SIZE_LIMIT_BYTES = 4L * 1024 * 1024;
     private static AppDatabase instance;
 
+    // Held by the sync engine and storage maintenance so heavy background writes never overlap
+    private static final ReentrantLock BACKGROUND_WRITER_LOCK = new ReentrantLock();
+    // One thread for every notes screen, so screens do not each start and leak their own
+    private static final Executor NOTES_EXECUTOR = Executors.newSingleThreadExecutor();
+
     public abstract NoteDao noteDao();
     public abstract FamiliarFaceDao familiarFaceDao();
+    public abstract SyncChangeDao syncChangeDao();
 
     // Migration from version 1 to 2: Add firestoreId to notes and firebaseId to familiar_faces
     static final Migration MIGRATION_1_2 = new Migration(1, 2) {
@@ -34,6 +43,129 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    // Migration from version 2 to 3: faces become user-scoped and indexed for local-first reads
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE familiar_faces ADD COLUMN userId TEXT");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS index_familiar_faces_firebaseId ON familiar_faces (firebaseId)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_familiar_faces_userId_timestamp ON familiar_faces (userId, timestamp)");
+        }
+    };
+
+    // Migration from version 3 to 4: full-text index over notes, kept in sync by triggers
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4("
+                    + "`title` TEXT, `content` TEXT, `category` TEXT, tokenize=unicode61, content=`notes`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `notes` BEGIN DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `content`, `category`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`, NEW.`category`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `notes` BEGIN INSERT INTO `notes_fts`(`docid`, `title`, `content`, `category`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`, NEW.`category`); END");
+            // Index the notes that already exist
+            database.execSQL("INSERT INTO notes_fts(notes_fts) VALUES('rebuild')");
+        }
+    };
+
+    // Migration from version 4 to 5: change log for the sync engine, seeded with notes not yet pushed
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `sync_changes` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`entityType` TEXT, `entityId` INTEGER NOT NULL, `operation` TEXT, `firestoreId` TEXT, "
+                    + "`createdAt` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_sync_changes_entityType_entityId` "
+                    + "ON `sync_changes` (`entityType`, `entityId`)");
+            createSyncTriggers(database);
+            database.execSQL("INSERT INTO sync_changes (entityType, entityId, operation, firestoreId, createdAt) "
+                    + "SELECT 'note', id, 'upsert', firestoreId, timestamp FROM notes WHERE isSynced = 0 ORDER BY timestamp");
+        }
+    };
+
+    /**
+     * Log every unsynced insert or edit of a note. Notes written by the Firestore feed arrive
+     * with isSynced = 1 and are not echoed back, and the sync engine assigning a Firestore ID
+     * is not an edit.
+     */
+    static void createSyncTriggers(SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS sync_log_notes_AFTER_INSERT AFTER INSERT ON `notes` "
+                + "WHEN NEW.isSynced = 0 BEGIN INSERT INTO sync_changes (entityType, entityId, operation, firestoreId, createdAt) "
+                + "VALUES ('note', NEW.id, 'upsert', NEW.firestoreId, CAST(strftime('%s', 'now') AS INTEGER) * 1000); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS sync_log_notes_AFTER_UPDATE AFTER UPDATE ON `notes` "
+                + "WHEN NEW.isSynced = 0 AND OLD.firestoreId IS NEW.firestoreId BEGIN INSERT INTO sync_changes (entityType, entityId, operation, firestoreId, createdAt) "
+                + "VALUES ('note', NEW.id, 'upsert', NEW.firestoreId, CAST(strftime('%s', 'now') AS INTEGER) * 1000); END");
+    }
+
+    // Migration from version 5 to 6: indices for the sync, lookup and ordering predicates
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_firestoreId` ON `notes` (`firestoreId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_timestamp` ON `notes` (`timestamp`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_isSynced_timestamp` ON `notes` (`isSynced`, `timestamp`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_familiar_faces_isSynced` ON `familiar_faces` (`isSynced`)");
+            database.execSQL("ANALYZE");
+        }
+    };
+
+    // Migration from version 6 to 7: notes become user-scoped, like familiar faces
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE notes ADD COLUMN userId TEXT");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_userId_timestamp` ON `notes` (`userId`, `timestamp`)");
+        }
+    };
+
+    // Migration from version 7 to 8: one row per Firestore document. Of any duplicates the
+    // pending local edit is kept, otherwise the oldest row; the others were pulled twice.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("DELETE FROM notes WHERE firestoreId IS NOT NULL AND EXISTS ("
+                    + "SELECT 1 FROM notes AS kept WHERE kept.firestoreId = notes.firestoreId "
+                    + "AND (kept.isSynced < notes.isSynced OR (kept.isSynced = notes.isSynced AND kept.id < notes.id)))");
+            database.execSQL("DELETE FROM sync_changes WHERE entityType = 'note' AND operation = 'upsert' "
+                    + "AND entityId NOT IN (SELECT id FROM notes)");
+            database.execSQL("DROP INDEX IF EXISTS `index_notes_firestoreId`");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_notes_firestoreId` ON `notes` (`firestoreId`)");
+        }
+    };
+
+    /**
+     * Creates the sync triggers on a fresh install, and on every open tunes the connection and
+     * pulls in the legacy database if one is still on disk
+     */
+    private static final class SetupCallback extends RoomDatabase.Callback {
+        private final Context context;
+
+        SetupCallback(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onCreate(SupportSQLiteDatabase database) {
+            createSyncTriggers(database);
+        }
+
+        @Override
+        public void onOpen(SupportSQLiteDatabase database) {
+            // WAL makes fsync at commit unnecessary for durability against app crashes
+            database.execSQL("PRAGMA synchronous = NORMAL");
+            database.execSQL("PRAGMA temp_store = MEMORY");
+            // Keep the WAL file from growing without bound after a large sync
+            database.query("PRAGMA journal_size_limit = " + JOURNAL_SIZE_LIMIT_BYTES).close();
+            LegacyDatabaseImport.importIfPresent(context, database);
+        }
+    }
+
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
             instance = Room.databaseBuilder(
@@ -41,51 +173,48 @@ public abstract class AppDatabase extends RoomDatabase {
                     AppDatabase.class,
                     DATABASE_NAME
             )
-            .addMigrations(MIGRATION_1_2)
+            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+                    MIGRATION_7_8)
+            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+            .addCallback(new SetupCallback(context.getApplicationContext()))
             .build();
         }
         return instance;
     }
 
+    public static ReentrantLock backgroundWriterLock() {
+        return BACKGROUND_WRITER_LOCK;
+    }
+
+    /**
+     * Runs the notes screens' reads and writes in the order they were submitted
+     */
+    public static Executor notesExecutor() {
+        return NOTES_EXECUTOR;
+    }
+
     /**
      * Get the size of the database in bytes
      */
     public static long getDatabaseSize(Context context) {
         File dbFile = context.getDatabasePath(DATABASE_NAME);
-        return dbFile.exists() ? dbFile.length() : 0;
+        File walFile = new File(dbFile.getPath() + "-wal");
+        return (dbFile.exists() ? dbFile.length() : 0) + (walFile.exists() ? walFile.length() : 0);
     }
 
     /**
-     * Get the number of records in each table
+     * Get the number of records in each table and the space they use. Reads through Room's
+     * connection; must not be called on the main thread.
      */
     public static String getDatabaseStats(Context context) {
-        SQLiteDatabase db = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null);
-        StringBuilder stats = new StringBuilder();
-        
-        // Get notes count
-        Cursor notesCursor = db.rawQuery("SELECT COUNT(*) FROM notes", null);
-        if (notesCursor.moveToFirst()) {
-            stats.append("Notes: ").append(notesCursor.getInt(0)).append("\n");
-        }
-        notesCursor.close();
-        
-        // Get faces count
-        Cursor facesCursor = db.rawQuery("SELECT COUNT(*) FROM familiar_faces", null);
-        if (facesCursor.moveToFirst()) {
-            stats.append("Familiar Faces: ").append(facesCursor.getInt(0));
-        }
-        facesCursor.close();
-        
-        db.close();
-        return stats.toString();
+        return StorageMaintenance.getInstance(context).getStats().toString();
     }
 
     /**
-     * Vacuum the database to reclaim space
+     * Reclaim space in the background. Uses incremental vacuum, so it never blocks writers
+     * for long and never runs on the calling thread.
      */
     public static void optimizeStorage(Context context) {
-        SQLiteDatabase db = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null);
-        db.execSQL("VACUUM");
-        db.close();
+        StorageMaintenance.requestMaintenance(context);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,260 @@
+package com.shanodh.seeforme.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.shanodh.seeforme.models.FaceData;
+import com.shanodh.seeforme.network.FaceUploader;
+import com.shanodh.seeforme.network.WearableDiscovery;
+import com.shanodh.seeforme.utils.FaceImageStore;
+import com.shanodh.seeforme.utils.FaceThumbnailCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local-first repository for familiar faces.
+ *
+ * Reads are served straight from the familiar_faces table. Firestore is reconciled into it
+ * in the background, and new faces are written locally first and uploaded afterwards, so
+ * no screen ever waits on the network to show faces.
+ */
+public class FaceDatabaseManager {
+    private static final String TAG = "FaceDatabaseManager";
+    private static final String COLLECTION_FACES = "faces";
+    private static final String LEGACY_METADATA_PREFS = "faces_metadata";
+
+    private static FaceDatabaseManager instance;
+
+    private final Context context;
+    private final FamiliarFaceDao faceDao;
+    private final FirebaseFirestore db;
+    private final FirebaseAuth auth;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    public interface FaceCallback<T> {
+        void onSuccess(T data);
+        void onError(String error);
+    }
+
+    public static synchronized FaceDatabaseManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new FaceDatabaseManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FaceDatabaseManager(Context context) {
+        this.context = context;
+        this.faceDao = AppDatabase.getInstance(context).familiarFaceDao();
+        this.db = FirebaseFirestore.getInstance();
+        this.auth = FirebaseAuth.getInstance();
+    }
+
+    /**
+     * The current user's faces, newest first. Emits the local copy immediately and again
+     * whenever the background cloud refresh changes it.
+     */
+    public LiveData<List<FamiliarFace>> getFaces() {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            return new MutableLiveData<>(Collections.emptyList());
+        }
+        String userId = currentUser.getUid();
+        executor.execute(() -> faceDao.claimUnownedFaces(userId));
+        refreshFromCloud();
+        return faceDao.getFacesForUser(userId);
+    }
+
+    /**
+     * The current user's faces from the local table. Must not be called on the main thread.
+     */
+    public List<FamiliarFace> getFacesNow() {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            return Collections.emptyList();
+        }
+        return faceDao.getFacesForUserNow(currentUser.getUid());
+    }
+
+    /**
+     * Save a new face locally and upload it in the background. The callback fires as soon as
+     * the local write is done; a failed upload is retried on the next refresh.
+     */
+    public void addFace(String faceId, String name, String relationship, String imagePath,
+                        FaceCallback<FamiliarFace> callback) {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            if (callback != null) callback.onError("User not authenticated");
+            return;
+        }
+
+        FamiliarFace face = new FamiliarFace(name, relationship, imagePath);
+        face.setFirebaseId(faceId);
+        face.setUserId(currentUser.getUid());
+
+        executor.execute(() -> {
+            try {
+                face.setId((int) faceDao.insert(face));
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving face locally", e);
+                if (callback != null) callback.onError(e.getMessage() != null ? e.getMessage() : "Unknown error");
+                return;
+            }
+            if (callback != null) callback.onSuccess(face);
+            uploadFace(face);
+            sendToWearable(Collections.singletonList(face));
+        });
+    }
+
+    /**
+     * Send all of the user's faces to the wearable, e.g. one that has just been paired, so it
+     * can recognise them on its own
+     */
+    public void enrollOnWearable() {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            return;
+        }
+        String userId = currentUser.getUid();
+        executor.execute(() -> sendToWearable(faceDao.getFacesForUserNow(userId)));
+    }
+
+    /**
+     * Delete a face and everything derived from it: the row, the image, its thumbnail,
+     * its embedding and the cloud document.
+     */
+    public void deleteFace(String faceId) {
+        executor.execute(() -> {
+            FamiliarFace face = faceDao.getFaceByFirebaseId(faceId);
+            faceDao.deleteByFirebaseId(faceId);
+
+            // Identical photos share one stored file; keep it while another face uses it
+            if (face != null && face.getImagePath() != null
+                    && faceDao.countFacesWithImagePath(face.getImagePath()) == 0
+                    && !FaceImageStore.getInstance(context).delete(face.getImagePath())) {
+                Log.w(TAG, "Could not delete face image " + face.getImagePath());
+            }
+            FaceThumbnailCache.getInstance(context).remove(faceId);
+            FaceEmbeddingStore.getInstance(context).deleteAsync(faceId);
+
+            // Older builds kept face metadata in preferences
+            SharedPreferences prefs = context.getSharedPreferences(LEGACY_METADATA_PREFS, Context.MODE_PRIVATE);
+            prefs.edit()
+                    .remove(faceId + "_name")
+                    .remove(faceId + "_relationship")
+                    .remove(faceId + "_timestamp")
+                    .apply();
+
+            // Firestore queues the delete while offline
+            db.collection(COLLECTION_FACES).document(faceId).delete()
+                    .addOnFailureListener(e -> Log.w(TAG, "Failed to delete face from Firestore", e));
+        });
+    }
+
+    /**
+     * Pull the user's faces from Firestore and reconcile them into the local table, then
+     * upload any faces that were saved while offline. Concurrent calls are coalesced.
+     */
+    public void refreshFromCloud() {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        String userId = currentUser.getUid();
+
+        db.collection(COLLECTION_FACES)
+                .whereEqualTo("userId", userId)
+                .get()
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    List<FamiliarFace> remoteFaces = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        try {
+                            remoteFaces.add(fromFaceData(document.getId(), document.toObject(FaceData.class)));
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error reading face document " + document.getId(), e);
+                        }
+                    }
+                    executor.execute(() -> {
+                        try {
+                            int changes = faceDao.reconcile(userId, remoteFaces);
+                            Log.d(TAG, "Reconciled " + remoteFaces.size() + " cloud faces, " + changes + " local changes");
+                            for (FamiliarFace pending : faceDao.getUnsyncedFacesForUser(userId)) {
+                                uploadFace(pending);
+                            }
+                        } finally {
+                            refreshing.set(false);
+                        }
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Cloud refresh failed, serving local faces", e);
+                    refreshing.set(false);
+                });
+    }
+
+    private void uploadFace(FamiliarFace face) {
+        FaceData faceData = new FaceData(face.getFirebaseId(), face.getName(), face.getRelationship(),
+                face.getImagePath(), face.getUserId());
+        faceData.setTimestamp(face.getTimestamp());
+
+        db.collection(COLLECTION_FACES)
+                .document(face.getFirebaseId())
+                .set(faceData)
+                .addOnSuccessListener(aVoid -> executor.execute(() -> faceDao.markAsSyncedByFirebaseId(face.getFirebaseId())))
+                .addOnFailureListener(e -> Log.w(TAG, "Face upload failed, will retry: " + face.getName(), e));
+    }
+
+    /**
+     * Uploads run one after another on FaceUploader's thread; the wearable keeps partial
+     * uploads, so a face that fails resumes where it stopped the next time it is sent
+     */
+    private void sendToWearable(List<FamiliarFace> faces) {
+        if (faces.isEmpty() || WearableDiscovery.getLastKnownDevice(context) == null) {
+            return;
+        }
+        FaceUploader.getInstance().enroll(faces, new FaceUploader.UploadListener() {
+            @Override
+            public void onProgress(FamiliarFace face, long bytesSent, long totalBytes) {
+            }
+
+            @Override
+            public void onUploaded(FamiliarFace face) {
+                Log.d(TAG, "Sent " + face.getName() + " to the wearable");
+            }
+
+            @Override
+            public void onFailed(FamiliarFace face, String error) {
+                Log.w(TAG, "Could not send " + face.getName() + " to the wearable: " + error);
+            }
+
+            @Override
+            public void onEnrollFinished(int uploaded, int failed) {
+                Log.d(TAG, "Wearable enroll: " + uploaded + " sent, " + failed + " failed");
+            }
+        });
+    }
+
+    private static FamiliarFace fromFaceData(String documentId, FaceData data) {
+        FamiliarFace face = new FamiliarFace(data.getPersonName(),
+                data.getRelationship() != null ? data.getRelationship() : "Unknown",
+                data.getLocalImagePath());
+        face.setFirebaseId(documentId);
+        face.setUserId(data.getUserId());
+        face.setTimestamp(data.getTimestamp());
+        return face;
+    }
+}
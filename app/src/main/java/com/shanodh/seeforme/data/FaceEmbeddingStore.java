@@ -0,0 +1,461 @@
+package com.shanodh.seeforme.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compact binary store of familiar face embeddings.
+ *
+ * File layout (little endian):
+ * <pre>
+ *   header  : magic, version, dim, rowCount, tombstones, reserved (32 bytes)
+ *   row[i]  : id length (short), id UTF-8 (62 bytes padded), flags (int), dim floats
+ * </pre>
+ * Rows have a fixed stride, so a row is appended by writing it past the last committed row and
+ * then bumping rowCount in the header; a crash between the two leaves the store unchanged.
+ * Replacing a face commits the new row before tombstoning the old one, so a crash in between
+ * leaves both live; the later row wins when the store is reopened and the earlier is tombstoned.
+ * Deletes only flip the row's flags to a tombstone, and compaction rewrites the live rows into
+ * a new file in the background. Reads go through a read-only memory mapping.
+ */
+public class FaceEmbeddingStore {
+    private static final String TAG = "FaceEmbeddingStore";
+    private static final String FILE_NAME = "face_embeddings.bin";
+
+    private static final int MAGIC = 0x454D4653; // "SFME"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int OFFSET_DIM = 8;
+    private static final int OFFSET_ROW_COUNT = 12;
+    private static final int OFFSET_TOMBSTONES = 16;
+
+    private static final int ID_BYTES = 64;
+    private static final int MAX_ID_LENGTH = ID_BYTES - 2;
+    private static final int FLAGS_BYTES = 4;
+    private static final int FLAG_LIVE = 0;
+    private static final int FLAG_DELETED = 1;
+
+    // Compact once this share of rows are tombstones
+    private static final float COMPACTION_RATIO = 0.25f;
+    private static final int MIN_TOMBSTONES_FOR_COMPACTION = 8;
+
+    private static FaceEmbeddingStore instance;
+
+    private final File file;
+    private final ExecutorService maintenanceExecutor = Executors.newSingleThreadExecutor();
+
+    // Guarded by "this"
+    private int dim;
+    private int rowCount;
+    private int tombstones;
+    private final Map<String, Integer> liveRows = new HashMap<>();
+    // When each face's row was appended, for rows appended since this process started
+    private final Map<String, Long> appendedAt = new HashMap<>();
+
+    private volatile MappedByteBuffer mapping;
+
+    /**
+     * Live embeddings copied out of the mapping in one pass, rows of {@code dim} floats
+     */
+    public static class Snapshot {
+        public final String[] ids;
+        public final float[] matrix;
+        public final int dim;
+
+        Snapshot(String[] ids, float[] matrix, int dim) {
+            this.ids = ids;
+            this.matrix = matrix;
+            this.dim = dim;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    public static synchronized FaceEmbeddingStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new FaceEmbeddingStore(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    FaceEmbeddingStore(File file) {
+        this.file = file;
+        open();
+    }
+
+    private synchronized void open() {
+        dim = 0;
+        rowCount = 0;
+        tombstones = 0;
+        liveRows.clear();
+        mapping = null;
+
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            raf.getChannel().read(header, 0);
+            int magic = header.getInt(0);
+            int version = header.getInt(4);
+            if (magic != MAGIC || version != VERSION) {
+                Log.w(TAG, "Unrecognised embedding store (version " + version + "), starting fresh");
+                discardFile();
+                return;
+            }
+            dim = header.getInt(OFFSET_DIM);
+            tombstones = header.getInt(OFFSET_TOMBSTONES);
+
+            // Rows past the committed count (or past the end of a short file) are ignored
+            int committed = header.getInt(OFFSET_ROW_COUNT);
+            long available = (file.length() - HEADER_SIZE) / stride();
+            rowCount = (int) Math.min(committed, available);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open embedding store", e);
+            return;
+        }
+
+        remap();
+        List<Integer> superseded = indexRows();
+        if (!superseded.isEmpty()) {
+            tombstoneSuperseded(superseded);
+        }
+        Log.i(TAG, "Opened embedding store: " + liveRows.size() + " faces, " + tombstones + " tombstones");
+    }
+
+    /**
+     * Index live rows by face ID. Returns earlier live rows for an ID that appears again later,
+     * left behind by a crash while a face was being replaced.
+     */
+    private List<Integer> indexRows() {
+        List<Integer> superseded = new ArrayList<>();
+        MappedByteBuffer buffer = mapping;
+        if (buffer == null) {
+            return superseded;
+        }
+        byte[] idBytes = new byte[MAX_ID_LENGTH];
+        for (int row = 0; row < rowCount; row++) {
+            int offset = rowOffset(row);
+            if (buffer.getInt(offset + ID_BYTES) != FLAG_LIVE) {
+                continue;
+            }
+            Integer earlier = liveRows.put(readId(buffer, offset, idBytes), row);
+            if (earlier != null) {
+                superseded.add(earlier);
+            }
+        }
+        return superseded;
+    }
+
+    private void tombstoneSuperseded(List<Integer> rows) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            for (int row : rows) {
+                markDeleted(channel, row);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to tombstone superseded embeddings", e);
+        }
+        remap();
+        Log.w(TAG, "Tombstoned " + rows.size() + " superseded embedding(s)");
+    }
+
+    public synchronized boolean contains(String faceId) {
+        return liveRows.containsKey(faceId);
+    }
+
+    public synchronized int size() {
+        return liveRows.size();
+    }
+
+    /**
+     * Append an embedding for a face. An existing embedding for the same face is tombstoned.
+     */
+    public synchronized boolean append(String faceId, float[] embedding) {
+        byte[] idBytes = faceId.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > MAX_ID_LENGTH) {
+            Log.e(TAG, "Face id too long for embedding store: " + faceId);
+            return false;
+        }
+        if (dim != 0 && embedding.length != dim) {
+            Log.e(TAG, "Embedding size " + embedding.length + " does not match store size " + dim);
+            return false;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            if (dim == 0) {
+                dim = embedding.length;
+                writeHeader(channel, dim, 0, 0);
+            }
+
+            ByteBuffer row = ByteBuffer.allocate(stride()).order(ByteOrder.LITTLE_ENDIAN);
+            row.putShort((short) idBytes.length);
+            row.put(idBytes);
+            row.position(ID_BYTES);
+            row.putInt(FLAG_LIVE);
+            for (float value : embedding) {
+                row.putFloat(value);
+            }
+            row.flip();
+            channel.write(row, rowOffset(rowCount));
+            channel.force(false);
+
+            // Commit point: the row only becomes visible once the count covers it
+            writeInt(channel, OFFSET_ROW_COUNT, rowCount + 1);
+            channel.force(false);
+
+            // Only now retire the old row; until here it is still the face's embedding
+            Integer previous = liveRows.get(faceId);
+            if (previous != null) {
+                markDeleted(channel, previous);
+                channel.force(false);
+            }
+            liveRows.put(faceId, rowCount);
+            appendedAt.put(faceId, System.currentTimeMillis());
+            rowCount++;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append embedding for " + faceId, e);
+            return false;
+        }
+
+        remap();
+        return true;
+    }
+
+    /**
+     * Tombstone a face's embedding
+     */
+    public synchronized boolean delete(String faceId) {
+        Integer row = liveRows.get(faceId);
+        if (row == null) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            markDeleted(raf.getChannel(), row);
+            raf.getChannel().force(false);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to delete embedding for " + faceId, e);
+            return false;
+        }
+        appendedAt.remove(faceId);
+        remap();
+        return true;
+    }
+
+    /**
+     * Tombstone a face off the calling thread and compact if enough rows are dead
+     */
+    public void deleteAsync(String faceId) {
+        maintenanceExecutor.execute(() -> {
+            if (delete(faceId)) {
+                compactIfNeeded();
+            }
+        });
+    }
+
+    private void markDeleted(FileChannel channel, int row) throws IOException {
+        writeInt(channel, rowOffset(row) + ID_BYTES, FLAG_DELETED);
+        tombstones++;
+        writeInt(channel, OFFSET_TOMBSTONES, tombstones);
+        liveRows.values().remove(row);
+    }
+
+    /**
+     * Copy every live embedding out of the mapping into one contiguous matrix
+     */
+    public synchronized Snapshot snapshot() {
+        MappedByteBuffer buffer = mapping;
+        int liveCount = liveRows.size();
+        if (buffer == null || liveCount == 0) {
+            return new Snapshot(new String[0], new float[0], dim);
+        }
+
+        String[] ids = new String[liveCount];
+        float[] matrix = new float[liveCount * dim];
+        byte[] idBytes = new byte[MAX_ID_LENGTH];
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        int index = 0;
+        for (int row = 0; row < rowCount && index < liveCount; row++) {
+            int offset = rowOffset(row);
+            if (view.getInt(offset + ID_BYTES) != FLAG_LIVE) {
+                continue;
+            }
+            String id = readId(view, offset, idBytes);
+            // Skip a superseded row that could not be tombstoned on open
+            Integer current = liveRows.get(id);
+            if (current == null || current != row) {
+                continue;
+            }
+            ids[index] = id;
+            view.position(offset + ID_BYTES + FLAGS_BYTES);
+            FloatBuffer floats = view.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            floats.get(matrix, index * dim, dim);
+            index++;
+        }
+        return new Snapshot(ids, matrix, dim);
+    }
+
+    /**
+     * Schedule compaction on the maintenance thread when tombstones pile up
+     */
+    public void scheduleCompaction() {
+        maintenanceExecutor.execute(this::compactIfNeeded);
+    }
+
+    private void compactIfNeeded() {
+        synchronized (this) {
+            if (tombstones < MIN_TOMBSTONES_FOR_COMPACTION || tombstones < rowCount * COMPACTION_RATIO) {
+                return;
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Rewrite live rows into a fresh file and atomically swap it in
+     */
+    public synchronized void compact() {
+        if (tombstones == 0) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Snapshot live = snapshot();
+        File tmp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            writeHeader(channel, dim, live.size(), 0);
+
+            ByteBuffer row = ByteBuffer.allocate(stride()).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < live.size(); i++) {
+                byte[] idBytes = live.ids[i].getBytes(StandardCharsets.UTF_8);
+                row.clear();
+                row.putShort((short) idBytes.length);
+                row.put(idBytes);
+                row.position(ID_BYTES);
+                row.putInt(FLAG_LIVE);
+                for (int j = 0; j < dim; j++) {
+                    row.putFloat(live.matrix[i * dim + j]);
+                }
+                row.flip();
+                channel.write(row, rowOffset(i));
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Log.e(TAG, "Compaction failed, keeping existing store", e);
+            tmp.delete();
+            return;
+        }
+
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Could not swap in compacted store");
+            tmp.delete();
+            return;
+        }
+        open();
+        Log.i(TAG, "Compacted embedding store to " + live.size() + " rows in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private void remap() {
+        if (!file.exists()) {
+            mapping = null;
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = HEADER_SIZE + (long) rowCount * stride();
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            mapping = buffer;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to map embedding store", e);
+            mapping = null;
+        }
+    }
+
+    private void discardFile() {
+        File corrupt = new File(file.getParentFile(), FILE_NAME + ".corrupt");
+        if (!file.renameTo(corrupt)) {
+            file.delete();
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, int dim, int rowCount, int tombstones) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(dim);
+        header.putInt(rowCount);
+        header.putInt(tombstones);
+        header.rewind();
+        channel.write(header, 0);
+    }
+
+    private static void writeInt(FileChannel channel, long position, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(value);
+        buffer.flip();
+        channel.write(buffer, position);
+    }
+
+    private static String readId(ByteBuffer buffer, int offset, byte[] scratch) {
+        int length = Math.min(buffer.getShort(offset), MAX_ID_LENGTH);
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int stride() {
+        return ID_BYTES + FLAGS_BYTES + dim * 4;
+    }
+
+    private int rowOffset(int row) {
+        return HEADER_SIZE + row * stride();
+    }
+
+    /**
+     * Ids of all live embeddings
+     */
+    public synchronized List<String> getIds() {
+        return new ArrayList<>(liveRows.keySet());
+    }
+
+    /**
+     * Ids of live embeddings appended before cutoff. Rows from an earlier run of the app count
+     * as old; the row for a face that is still being saved was appended in this one.
+     */
+    public synchronized List<String> getIdsAppendedBefore(long cutoff) {
+        List<String> ids = new ArrayList<>(liveRows.size());
+        for (String faceId : liveRows.keySet()) {
+            Long time = appendedAt.get(faceId);
+            if (time == null || time < cutoff) {
+                ids.add(faceId);
+            }
+        }
+        return ids;
+    }
+}
@@ -2,12 +2,19 @@ package com.shanodh.seeforme.data;
 
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
- * Entity representing a familiar face in the database
+ * Entity representing a familiar face in the database.
+ * This table is the source of truth for faces; Firestore is reconciled into it in the background.
  */
-@Entity(tableName = "familiar_faces")
+@Entity(tableName = "familiar_faces",
+        indices = {
+                @Index(value = "firebaseId", unique = true),
+                @Index(value = {"userId", "timestamp"}),
+                @Index(value = "isSynced")
+        })
 public class FamiliarFace {
     @PrimaryKey(autoGenerate = true)
     private int id;
@@ -17,7 +24,8 @@ public class FamiliarFace {
     private String imagePath;
     private boolean isSynced;
     private long timestamp;
-    private String firebaseId; // For cloud storage reference
+    private String firebaseId; // For cloud storage reference, also the face's stable ID
+    private String userId; // Owner, so several accounts can share a device
 
     // Default constructor for Room
     public FamiliarFace() {
@@ -88,4 +96,12 @@ public class FamiliarFace {
     public void setFirebaseId(String firebaseId) {
         this.firebaseId = firebaseId;
     }
-}
\ No newline at end of file
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+}
@@ -4,10 +4,16 @@ import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Data Access Object for FamiliarFace entity
@@ -23,6 +29,35 @@ public interface FamiliarFaceDao {
     @Delete
     void delete(FamiliarFace face);
 
+    /** Insert many faces in one transaction; faces already present by firebaseId are skipped */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertAll(List<FamiliarFace> faces);
+
+    /** Update many faces in one transaction */
+    @Update
+    int updateAll(List<FamiliarFace> faces);
+
+    @Query("UPDATE familiar_faces SET isSynced = 1 WHERE id IN (:ids)")
+    int markSyncedChunk(List<Integer> ids);
+
+    /**
+     * Mark faces synced in one transaction, chunked to stay under SQLite's bound-variable limit
+     */
+    @Transaction
+    default int markSyncedIn(List<Integer> ids) {
+        int updated = 0;
+        for (int start = 0; start < ids.size(); start += NoteDao.MAX_BIND_ARGS) {
+            updated += markSyncedChunk(ids.subList(start, Math.min(ids.size(), start + NoteDao.MAX_BIND_ARGS)));
+        }
+        return updated;
+    }
+
+    /**
+     * Give faces imported from older builds, which had no owner, to the signed-in user
+     */
+    @Query("UPDATE familiar_faces SET userId = :userId WHERE userId IS NULL")
+    int claimUnownedFaces(String userId);
+
     @Query("SELECT * FROM familiar_faces ORDER BY timestamp DESC")
     LiveData<List<FamiliarFace>> getAllFaces();
 
@@ -37,4 +72,81 @@ public interface FamiliarFaceDao {
 
     @Query("SELECT * FROM familiar_faces WHERE firebaseId = :firebaseId")
     FamiliarFace getFaceByFirebaseId(String firebaseId);
+
+    @Query("SELECT * FROM familiar_faces WHERE userId = :userId ORDER BY timestamp DESC")
+    LiveData<List<FamiliarFace>> getFacesForUser(String userId);
+
+    @Query("SELECT * FROM familiar_faces WHERE userId = :userId ORDER BY timestamp DESC")
+    List<FamiliarFace> getFacesForUserNow(String userId);
+
+    @Query("SELECT * FROM familiar_faces WHERE userId = :userId AND isSynced = 0")
+    List<FamiliarFace> getUnsyncedFacesForUser(String userId);
+
+    @Query("UPDATE familiar_faces SET isSynced = 1 WHERE firebaseId = :firebaseId")
+    void markAsSyncedByFirebaseId(String firebaseId);
+
+    @Query("DELETE FROM familiar_faces WHERE firebaseId = :firebaseId")
+    void deleteByFirebaseId(String firebaseId);
+
+    @Query("SELECT COUNT(*) FROM familiar_faces")
+    int getFaceCount();
+
+    @Query("SELECT firebaseId FROM familiar_faces WHERE firebaseId IS NOT NULL")
+    List<String> getAllFirebaseIds();
+
+    @Query("SELECT imagePath FROM familiar_faces WHERE imagePath IS NOT NULL")
+    List<String> getAllImagePaths();
+
+    @Query("SELECT COUNT(*) FROM familiar_faces WHERE imagePath = :imagePath")
+    int countFacesWithImagePath(String imagePath);
+
+    /**
+     * Apply the user's cloud faces to the local table in one transaction, touching only rows
+     * that differ. Faces not yet uploaded are kept; synced faces missing from the cloud were
+     * deleted on another device and are removed. Returns the number of rows changed.
+     */
+    @Transaction
+    default int reconcile(String userId, List<FamiliarFace> remoteFaces) {
+        Map<String, FamiliarFace> local = new HashMap<>();
+        for (FamiliarFace face : getFacesForUserNow(userId)) {
+            local.put(face.getFirebaseId(), face);
+        }
+
+        List<FamiliarFace> inserts = new ArrayList<>();
+        List<FamiliarFace> updates = new ArrayList<>();
+        for (FamiliarFace remote : remoteFaces) {
+            FamiliarFace existing = local.remove(remote.getFirebaseId());
+            remote.setUserId(userId);
+            remote.setSynced(true);
+            if (existing == null) {
+                inserts.add(remote);
+            } else if (!sameContent(existing, remote)) {
+                remote.setId(existing.getId());
+                updates.add(remote);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            insertAll(inserts);
+        }
+        if (!updates.isEmpty()) {
+            updateAll(updates);
+        }
+
+        int changes = inserts.size() + updates.size();
+        for (FamiliarFace stale : local.values()) {
+            if (stale.isSynced()) {
+                delete(stale);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    static boolean sameContent(FamiliarFace a, FamiliarFace b) {
+        return a.isSynced() == b.isSynced()
+                && a.getTimestamp() == b.getTimestamp()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getRelationship(), b.getRelationship())
+                && Objects.equals(a.getImagePath(), b.getImagePath());
+    }
 }
\ No newline at end of file
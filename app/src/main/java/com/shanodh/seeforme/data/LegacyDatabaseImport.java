@@ -0,0 +1,77 @@
+package com.shanodh.seeforme.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.io.File;
+import java.util.UUID;
+
+/**
+ * One-off import of the old "seeforme_database" file into the main database.
+ *
+ * Older builds kept a second Room database with its own familiar_faces table (name, imagePath,
+ * description, createdAt). Its rows are copied in as unsynced faces without an owner; the
+ * face repository gives them to the signed-in user and uploads them. The old file is deleted
+ * once the copy has committed, so a successful import runs only once per install.
+ */
+final class LegacyDatabaseImport {
+    private static final String TAG = "LegacyDatabaseImport";
+    static final String LEGACY_DATABASE_NAME = "seeforme_database";
+
+    private LegacyDatabaseImport() {
+    }
+
+    static void importIfPresent(Context context, SupportSQLiteDatabase target) {
+        File legacyFile = context.getDatabasePath(LEGACY_DATABASE_NAME);
+        if (!legacyFile.exists()) {
+            return;
+        }
+
+        int imported = 0;
+        try (SQLiteDatabase legacy = SQLiteDatabase.openDatabase(legacyFile.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY)) {
+            // A file that was created but never used has no table to copy
+            if (hasFacesTable(legacy)) {
+                try (Cursor cursor = legacy.rawQuery(
+                        "SELECT name, imagePath, description, createdAt FROM familiar_faces", null)) {
+                    target.beginTransaction();
+                    try {
+                        while (cursor.moveToNext()) {
+                            ContentValues values = new ContentValues();
+                            values.put("name", cursor.getString(0));
+                            values.put("imagePath", cursor.getString(1));
+                            values.put("relationship", cursor.getString(2));
+                            values.put("timestamp", cursor.getLong(3));
+                            values.put("isSynced", 0);
+                            values.put("firebaseId", UUID.randomUUID().toString());
+                            target.insert("familiar_faces", SQLiteDatabase.CONFLICT_IGNORE, values);
+                            imported++;
+                        }
+                        target.setTransactionSuccessful();
+                    } finally {
+                        target.endTransaction();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Keep the file so the import is retried on the next open
+            Log.w(TAG, "Could not import legacy database", e);
+            return;
+        }
+
+        context.deleteDatabase(LEGACY_DATABASE_NAME);
+        Log.i(TAG, "Imported " + imported + " faces from the legacy database");
+    }
+
+    private static boolean hasFacesTable(SQLiteDatabase legacy) {
+        try (Cursor cursor = legacy.rawQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'familiar_faces'", null)) {
+            return cursor.moveToFirst();
+        }
+    }
+}
@@ -2,18 +2,26 @@ package com.shanodh.seeforme.data;
 
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * Entity representing a note in the database
  * Now supports both Room (local) and Firestore (cloud) storage
  */
-@Entity(tableName = "notes")
+@Entity(tableName = "notes",
+        indices = {
+                @Index(value = "firestoreId", unique = true),
+                @Index(value = "timestamp"),
+                @Index(value = {"isSynced", "timestamp"}),
+                @Index(value = {"userId", "timestamp"})
+        })
 public class Note {
     @PrimaryKey(autoGenerate = true)
     private int id;
 
     private String firestoreId; // For Firestore document ID
+    private String userId; // Owner, so several accounts can share a device
 
     private String title;
     private String content;
@@ -81,6 +89,14 @@ public class Note {
         this.firestoreId = firebaseId;
     }
 
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
     public String getTitle() {
         return title;
     }
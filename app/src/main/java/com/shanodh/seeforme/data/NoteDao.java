@@ -1,19 +1,28 @@
 package com.shanodh.seeforme.data;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Data Access Object for Note entity
  */
 @Dao
 public interface NoteDao {
+    /** SQLite on older Android versions allows at most 999 bound variables per statement */
+    int MAX_BIND_ARGS = 900;
+
     @Insert
     long insert(Note note);
 
@@ -23,8 +32,34 @@ public interface NoteDao {
     @Delete
     void delete(Note note);
 
-    @Query("SELECT * FROM notes ORDER BY timestamp DESC")
-    LiveData<List<Note>> getAllNotes();
+    /** Insert many notes in one transaction */
+    @Insert
+    List<Long> insertAll(List<Note> notes);
+
+    /** Update many notes in one transaction */
+    @Update
+    int updateAll(List<Note> notes);
+
+    @Query("UPDATE notes SET isSynced = 1 WHERE id IN (:ids)")
+    int markSyncedChunk(List<Integer> ids);
+
+    /**
+     * Mark notes synced in one transaction, chunked to stay under SQLite's bound-variable limit
+     */
+    @Transaction
+    default int markSyncedIn(List<Integer> ids) {
+        int updated = 0;
+        for (int start = 0; start < ids.size(); start += MAX_BIND_ARGS) {
+            updated += markSyncedChunk(ids.subList(start, Math.min(ids.size(), start + MAX_BIND_ARGS)));
+        }
+        return updated;
+    }
+
+    @Query("SELECT * FROM notes WHERE userId = :userId ORDER BY timestamp DESC")
+    LiveData<List<Note>> getAllNotes(String userId);
+
+    @Query("SELECT * FROM notes WHERE userId = :userId ORDER BY timestamp DESC")
+    PagingSource<Integer, Note> getNotesPaged(String userId);
 
     @Query("SELECT * FROM notes WHERE id = :id")
     LiveData<Note> getNoteById(int id);
@@ -32,15 +67,189 @@ public interface NoteDao {
     @Query("UPDATE notes SET isDetected = 1 WHERE id = :id")
     void markAsDetected(int id);
 
-    @Query("SELECT * FROM notes WHERE isDetected = 0")
-    List<Note> getUndetectedNotes();
+    /** Every note of a user, for building the wearable's note digest. Must not be called on the main thread. */
+    @Query("SELECT * FROM notes WHERE userId = :userId")
+    List<Note> getAllNotesList(String userId);
+
+    @Query("SELECT * FROM notes WHERE userId = :userId AND isDetected = 0")
+    List<Note> getUndetectedNotes(String userId);
 
     @Query("SELECT * FROM notes WHERE isSynced = 0")
     List<Note> getUnsyncedNotes();
 
+    @Query("SELECT * FROM notes WHERE id IN (:ids)")
+    List<Note> getNotesByIds(List<Integer> ids);
+
+    @Query("SELECT * FROM notes WHERE id = :id")
+    Note findById(int id);
+
     @Query("SELECT * FROM notes WHERE firestoreId = :firebaseId")
     Note getNoteByFirebaseId(String firebaseId);
 
     @Query("SELECT COUNT(*) FROM notes WHERE isSynced = 0")
     int getUnsyncedNotesCount();
-}
\ No newline at end of file
+
+    @Query("SELECT * FROM notes WHERE userId = :userId AND firestoreId IS NOT NULL AND isSynced = 1 "
+            + "AND timestamp > :after AND timestamp < :before")
+    List<Note> getSyncedNotesBetween(String userId, long after, long before);
+
+    @Query("DELETE FROM notes WHERE firestoreId = :firestoreId")
+    void deleteByFirestoreId(String firestoreId);
+
+    @Query("SELECT COUNT(*) FROM notes")
+    int getNoteCount();
+
+    @Query("SELECT COUNT(*) FROM notes WHERE userId = :userId")
+    int getNoteCountForUser(String userId);
+
+    @Query("DELETE FROM notes WHERE userId IS NULL AND isSynced = 1")
+    int deleteUnownedSyncedNotes();
+
+    @Query("UPDATE notes SET userId = :userId WHERE userId IS NULL")
+    int assignUnownedNotes(String userId);
+
+    /** Re-queue a user's unpushed notes whose change was dropped while another account was signed in */
+    @Query("INSERT INTO sync_changes (entityType, entityId, operation, firestoreId, createdAt) "
+            + "SELECT 'note', id, 'upsert', firestoreId, timestamp FROM notes WHERE userId = :userId AND isSynced = 0 "
+            + "AND NOT EXISTS (SELECT 1 FROM sync_changes WHERE entityType = 'note' AND entityId = notes.id) "
+            + "ORDER BY timestamp")
+    void requeueUnsyncedNotes(String userId);
+
+    /**
+     * Notes from before they had an owner: synced ones are dropped, since the notes feed
+     * downloads them again for whoever owns them, and unsynced ones were written on this
+     * device and go to the signed-in user. Also re-queues that user's unpushed notes.
+     */
+    @Transaction
+    default void claimUnownedNotes(String userId) {
+        deleteUnownedSyncedNotes();
+        assignUnownedNotes(userId);
+        requeueUnsyncedNotes(userId);
+    }
+
+    @Insert
+    long logChange(SyncChange change);
+
+    /**
+     * Delete a note on this device and queue the matching Firestore delete.
+     * Inserts and edits are queued by the notes triggers; deletes need the Firestore ID,
+     * which is only known here.
+     */
+    @Transaction
+    default void deleteLocal(Note note) {
+        // Re-read the row: the sync engine may have given it a Firestore ID since it was loaded
+        Note current = findById(note.getId());
+        if (current == null) {
+            return;
+        }
+        if (current.getFirestoreId() != null) {
+            logChange(SyncChange.noteDeleted(current));
+        }
+        delete(current);
+    }
+
+    /**
+     * Give a note its Firestore document ID before it is pushed, so a retried push writes the
+     * same document instead of creating a duplicate
+     */
+    @Query("UPDATE notes SET firestoreId = :firestoreId WHERE id = :id AND firestoreId IS NULL")
+    void assignFirestoreId(int id, String firestoreId);
+
+    /**
+     * Mark pushed notes as synced in one statement, skipping any that were edited again after
+     * the last change that was pushed
+     */
+    @Query("UPDATE notes SET isSynced = 1 WHERE id IN (:ids) AND NOT EXISTS ("
+            + "SELECT 1 FROM sync_changes WHERE entityType = 'note' AND entityId = notes.id AND seq > :ackedSeq)")
+    void acknowledgeSynced(List<Integer> ids, long ackedSeq);
+
+    /**
+     * Apply incremental changes from the Firestore notes feed in one transaction.
+     * Returns the number of rows inserted, updated or deleted.
+     */
+    @Transaction
+    default int applyCloudChanges(List<Note> upserts, List<String> deletedIds) {
+        int changes = 0;
+        for (Note remote : upserts) {
+            changes += upsertCloudNote(remote);
+        }
+        for (String firestoreId : deletedIds) {
+            if (getNoteByFirebaseId(firestoreId) != null) {
+                deleteByFirestoreId(firestoreId);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Apply one complete page of cloud notes covering the timestamps strictly between after and
+     * before. Synced notes in that range that are missing from the page were deleted elsewhere.
+     */
+    @Transaction
+    default int applyCloudPage(String userId, List<Note> page, long after, long before) {
+        Map<String, Note> local = new HashMap<>();
+        for (Note note : getSyncedNotesBetween(userId, after, before)) {
+            local.put(note.getFirestoreId(), note);
+        }
+        int changes = 0;
+        for (Note remote : page) {
+            local.remove(remote.getFirestoreId());
+            changes += upsertCloudNote(remote);
+        }
+        for (Note stale : local.values()) {
+            delete(stale);
+            changes++;
+        }
+        return changes;
+    }
+
+    /**
+     * Insert or update a note from Firestore, writing only when something changed so the
+     * paged list is invalidated only when there is something new to show. A local edit that
+     * has not been pushed yet wins; the sync engine overwrites the document with it.
+     */
+    @Transaction
+    default int upsertCloudNote(Note remote) {
+        remote.setSynced(true);
+        Note existing = getNoteByFirebaseId(remote.getFirestoreId());
+        if (existing == null) {
+            insert(remote);
+            return 1;
+        }
+        if (!existing.isSynced() || sameContent(existing, remote)) {
+            return 0;
+        }
+        remote.setId(existing.getId());
+        remote.setDetected(existing.isDetected());
+        update(remote);
+        return 1;
+    }
+
+    static boolean sameContent(Note a, Note b) {
+        return a.getTimestamp() == b.getTimestamp()
+                && a.isVoiceNote() == b.isVoiceNote()
+                && a.isSynced() == b.isSynced()
+                && Objects.equals(a.getUserId(), b.getUserId())
+                && Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getContent(), b.getContent())
+                && Objects.equals(a.getCategory(), b.getCategory());
+    }
+
+    @Query("SELECT notes.*, matchinfo(notes_fts, 'pcx') AS matchInfo FROM notes "
+            + "JOIN notes_fts ON notes.id = notes_fts.docid WHERE notes_fts MATCH :matchQuery "
+            + "AND notes.userId = :userId")
+    List<NoteSearch.NoteMatch> matchNotes(String userId, String matchQuery);
+
+    /**
+     * Offline search-as-you-type over title, content and category, best matches first.
+     * Every word is treated as a prefix. Must not be called on the main thread.
+     */
+    default List<Note> search(String userId, String userQuery, int limit) {
+        String matchQuery = NoteSearch.toMatchQuery(userQuery);
+        if (matchQuery == null) {
+            return new ArrayList<>();
+        }
+        return NoteSearch.rank(matchNotes(userId, matchQuery), limit);
+    }
+}
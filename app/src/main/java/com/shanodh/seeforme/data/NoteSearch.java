@@ -0,0 +1,114 @@
+package com.shanodh.seeforme.data;
+
+import androidx.room.Embedded;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds FTS queries from what the user typed and ranks the matches.
+ *
+ * Every word is matched as a prefix so results appear while the user is still typing.
+ * Ranking uses FTS4 matchinfo: hits in a column are weighted by how rare the word is across
+ * all notes, and title hits count more than content or category hits.
+ */
+public final class NoteSearch {
+    // Column order of notes_fts: title, content, category
+    private static final float[] COLUMN_WEIGHTS = {2.0f, 1.0f, 0.5f};
+
+    /**
+     * A matching note with the raw matchinfo('pcx') blob used for ranking
+     */
+    public static class NoteMatch {
+        @Embedded
+        public Note note;
+
+        public byte[] matchInfo;
+    }
+
+    private NoteSearch() {
+    }
+
+    /**
+     * Turn free text into an FTS MATCH expression of prefix terms, e.g. "front do" becomes
+     * "front* do*". Returns null when there is nothing searchable.
+     */
+    public static String toMatchQuery(String userInput) {
+        if (userInput == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        // Splitting on anything that is not a letter or digit also strips FTS operators and quotes
+        for (String token : userInput.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append(token).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /**
+     * Order matches by relevance, newest first on ties, and keep at most limit notes
+     */
+    public static List<Note> rank(List<NoteMatch> matches, int limit) {
+        int size = matches.size();
+        float[] scores = new float[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = score(matches.get(i).matchInfo);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Float.compare(scores[b], scores[a]);
+            if (byScore != 0) {
+                return byScore;
+            }
+            return Long.compare(matches.get(b).note.getTimestamp(), matches.get(a).note.getTimestamp());
+        });
+
+        int count = Math.min(limit, size);
+        List<Note> ranked = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ranked.add(matches.get(order[i]).note);
+        }
+        return ranked;
+    }
+
+    /**
+     * Score one row from matchinfo('pcx'): p phrases, c columns, then for each phrase and
+     * column the hits in this row, hits in all rows and rows with a hit.
+     */
+    static float score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0f;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        if (matchInfo.length < 4 * (2 + 3 * phrases * columns)) {
+            return 0f;
+        }
+
+        float score = 0f;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 4 * (2 + 3 * (phrase * columns + column));
+                int hitsThisRow = buffer.getInt(base);
+                int hitsAllRows = buffer.getInt(base + 4);
+                if (hitsThisRow > 0 && hitsAllRows > 0) {
+                    float weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1f;
+                    score += weight * hitsThisRow / (float) hitsAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,312 @@
+package com.shanodh.seeforme.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import com.shanodh.seeforme.utils.FaceImageStore;
+import com.shanodh.seeforme.utils.FaceThumbnailCache;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Storage statistics and housekeeping for the local database and face files.
+ *
+ * Everything goes through Room's own connection, so it queues behind the app's queries instead
+ * of opening a second handle on the file. Space is reclaimed with incremental vacuum in small
+ * steps, each taken only when the sync engine is not writing, and the run stops at a time
+ * budget. The periodic run is scheduled for when the device is charging and idle; that is
+ * also the only time the one-off switch to incremental auto-vacuum (a full VACUUM) happens.
+ */
+public class StorageMaintenance {
+    private static final String TAG = "StorageMaintenance";
+    private static final String PERIODIC_WORK_NAME = "seeforme_storage_maintenance";
+    private static final String ONE_TIME_WORK_NAME = "seeforme_storage_maintenance_now";
+    // Folders older builds wrote face images to; FaceImageStore tracks its own files
+    private static final String[] FACE_IMAGE_FOLDERS = {"faces", "face_images"};
+
+    // Files younger than this may belong to a face that is still being saved
+    private static final long ORPHAN_GRACE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    private static final int VACUUM_STEP_PAGES = 128;
+    private static final long VACUUM_BUDGET_MS = 2000;
+
+    private static StorageMaintenance instance;
+
+    private final Context context;
+    private final AppDatabase database;
+
+    /**
+     * Counts and sizes for the storage screen and logs
+     */
+    public static class StorageStats {
+        public int noteCount;
+        public int faceCount;
+        public int pendingChanges;
+        public long databaseBytes;
+        public long freeBytes;
+        public long walBytes;
+        public long imageBytes;
+        public long thumbnailBytes;
+
+        @Override
+        public String toString() {
+            return "Notes: " + noteCount + "\n"
+                    + "Familiar Faces: " + faceCount + "\n"
+                    + "Pending sync changes: " + pendingChanges + "\n"
+                    + "Database: " + formatBytes(databaseBytes + walBytes)
+                    + " (" + formatBytes(freeBytes) + " reclaimable)\n"
+                    + "Face images: " + formatBytes(imageBytes + thumbnailBytes);
+        }
+    }
+
+    /**
+     * What one maintenance run cleaned up
+     */
+    public static class Result {
+        public int prunedChanges;
+        public int orphanedImages;
+        public long freedFileBytes;
+        public int orphanedEmbeddings;
+        public long vacuumedPages;
+        public boolean convertedToIncremental;
+        // False when the run yielded to the sync writer or ran out of time
+        public boolean complete = true;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "changes=%d images=%d files=%s embeddings=%d pages=%d converted=%b complete=%b",
+                    prunedChanges, orphanedImages, formatBytes(freedFileBytes), orphanedEmbeddings,
+                    vacuumedPages, convertedToIncremental, complete);
+        }
+    }
+
+    public static synchronized StorageMaintenance getInstance(Context context) {
+        if (instance == null) {
+            instance = new StorageMaintenance(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StorageMaintenance(Context context) {
+        this.context = context;
+        this.database = AppDatabase.getInstance(context);
+    }
+
+    /**
+     * Must not be called on the main thread
+     */
+    public StorageStats getStats() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getReadableDatabase();
+        StorageStats stats = new StorageStats();
+        stats.noteCount = database.noteDao().getNoteCount();
+        stats.faceCount = database.familiarFaceDao().getFaceCount();
+        stats.pendingChanges = database.syncChangeDao().getPendingCount();
+
+        long pageSize = pragmaLong(db, "page_size");
+        stats.databaseBytes = pragmaLong(db, "page_count") * pageSize;
+        stats.freeBytes = pragmaLong(db, "freelist_count") * pageSize;
+        File walFile = new File(db.getPath() + "-wal");
+        stats.walBytes = walFile.exists() ? walFile.length() : 0;
+
+        stats.imageBytes = FaceImageStore.getInstance(context).getTotalBytes();
+        for (String folder : FACE_IMAGE_FOLDERS) {
+            stats.imageBytes += directorySize(new File(context.getFilesDir(), folder));
+        }
+        stats.thumbnailBytes = FaceThumbnailCache.getInstance(context).getDiskSize();
+        return stats;
+    }
+
+    /**
+     * Prune orphaned rows and files, then reclaim free pages. Pass idleWindow only when the
+     * device is idle, which allows the one-off full VACUUM. Must not be called on the main thread.
+     */
+    public Result run(boolean idleWindow) {
+        Result result = new Result();
+        ReentrantLock writerLock = AppDatabase.backgroundWriterLock();
+
+        if (writerLock.tryLock()) {
+            try {
+                result.prunedChanges = database.syncChangeDao().deleteOrphanedUpserts();
+            } finally {
+                writerLock.unlock();
+            }
+        } else {
+            result.complete = false;
+        }
+
+        // A face's image, thumbnail and embedding are written before its row, so only files
+        // older than the grace period count as orphans
+        long cutoff = System.currentTimeMillis() - ORPHAN_GRACE_MS;
+        FamiliarFaceDao faceDao = database.familiarFaceDao();
+        Set<String> liveIds = new HashSet<>(faceDao.getAllFirebaseIds());
+        Set<String> livePaths = new HashSet<>(faceDao.getAllImagePaths());
+        pruneImages(livePaths, cutoff, result);
+        result.freedFileBytes += FaceImageStore.getInstance(context).retainOnly(livePaths, cutoff);
+        result.freedFileBytes += FaceThumbnailCache.getInstance(context).pruneExcept(liveIds, cutoff);
+        pruneEmbeddings(liveIds, cutoff, result);
+
+        vacuum(idleWindow, result);
+        Log.d(TAG, "🧹 Maintenance finished: " + result);
+        return result;
+    }
+
+    private void pruneImages(Set<String> livePaths, long cutoff, Result result) {
+        for (String folder : FACE_IMAGE_FOLDERS) {
+            pruneImages(new File(context.getFilesDir(), folder), livePaths, cutoff, result);
+        }
+    }
+
+    private void pruneImages(File dir, Set<String> livePaths, long cutoff, Result result) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                // face_images keeps one folder per user
+                pruneImages(file, livePaths, cutoff, result);
+                continue;
+            }
+            if (file.lastModified() > cutoff || livePaths.contains(file.getAbsolutePath())) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                result.orphanedImages++;
+                result.freedFileBytes += length;
+            }
+        }
+    }
+
+    private void pruneEmbeddings(Set<String> liveIds, long cutoff, Result result) {
+        FaceEmbeddingStore store = FaceEmbeddingStore.getInstance(context);
+        for (String faceId : store.getIdsAppendedBefore(cutoff)) {
+            if (!liveIds.contains(faceId) && store.delete(faceId)) {
+                result.orphanedEmbeddings++;
+            }
+        }
+        // Rewrite the file without tombstones, however few there are
+        store.compact();
+    }
+
+    private void vacuum(boolean idleWindow, Result result) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        ReentrantLock writerLock = AppDatabase.backgroundWriterLock();
+
+        if (pragmaLong(db, "auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            // The mode only changes with a full VACUUM; do it once, while nobody is using the app
+            if (!idleWindow || !writerLock.tryLock()) {
+                result.complete = false;
+                return;
+            }
+            try {
+                db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                db.execSQL("VACUUM");
+                result.convertedToIncremental = true;
+            } finally {
+                writerLock.unlock();
+            }
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + VACUUM_BUDGET_MS;
+        long freePages;
+        while ((freePages = pragmaLong(db, "freelist_count")) > 0) {
+            if (System.currentTimeMillis() > deadline || !writerLock.tryLock()) {
+                result.complete = false;
+                break;
+            }
+            try {
+                drain(db, "PRAGMA incremental_vacuum(" + VACUUM_STEP_PAGES + ")");
+            } finally {
+                writerLock.unlock();
+            }
+            result.vacuumedPages += Math.min(freePages, VACUUM_STEP_PAGES);
+        }
+        // Fold the WAL back into the database without waiting on readers
+        drain(db, "PRAGMA wal_checkpoint(PASSIVE)");
+    }
+
+    /**
+     * Schedule the daily maintenance run for when the device is charging and idle
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                StorageMaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder()
+                        .putBoolean(StorageMaintenanceWorker.KEY_IDLE_WINDOW, true)
+                        .build())
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Run maintenance soon, off the calling thread, without the full VACUUM
+     */
+    public static void requestMaintenance(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(StorageMaintenanceWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiresBatteryNotLow(true)
+                        .build())
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(ONE_TIME_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    private static long pragmaLong(SupportSQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.query("PRAGMA " + pragma)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    private static void drain(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            while (cursor.moveToNext()) {
+                // Stepping the statement is what does the work
+            }
+        }
+    }
+
+    private static long directorySize(File dir) {
+        File[] files = dir.listFiles();
+        long total = 0;
+        if (files != null) {
+            for (File file : files) {
+                total += file.isDirectory() ? directorySize(file) : file.length();
+            }
+        }
+        return total;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,27 @@
+package com.shanodh.seeforme.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * WorkManager entry point for StorageMaintenance
+ */
+public class StorageMaintenanceWorker extends Worker {
+    static final String KEY_IDLE_WINDOW = "idle_window";
+
+    public StorageMaintenanceWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        boolean idleWindow = getInputData().getBoolean(KEY_IDLE_WINDOW, false);
+        // An incomplete run is not retried; the next window picks up where it stopped
+        StorageMaintenance.getInstance(getApplicationContext()).run(idleWindow);
+        return Result.success();
+    }
+}
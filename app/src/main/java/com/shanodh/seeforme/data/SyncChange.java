@@ -0,0 +1,92 @@
+package com.shanodh.seeforme.data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One pending local change waiting to be pushed to Firestore.
+ * Rows are appended by triggers on the notes table (see AppDatabase) and by NoteDao.deleteLocal,
+ * so seq is monotonic and the sync engine only ever reads changes after the last one it acked.
+ */
+@Entity(tableName = "sync_changes",
+        indices = {@Index(value = {"entityType", "entityId"})})
+public class SyncChange {
+    public static final String ENTITY_NOTE = "note";
+    public static final String OP_UPSERT = "upsert";
+    public static final String OP_DELETE = "delete";
+
+    @PrimaryKey(autoGenerate = true)
+    private long seq;
+
+    private String entityType;
+    private int entityId;
+    private String operation;
+    private String firestoreId; // Needed for deletes, the local row is gone by then
+    private long createdAt;
+
+    public SyncChange() {
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public static SyncChange noteDeleted(Note note) {
+        SyncChange change = new SyncChange();
+        change.entityType = ENTITY_NOTE;
+        change.entityId = note.getId();
+        change.operation = OP_DELETE;
+        change.firestoreId = note.getFirestoreId();
+        return change;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(int entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getFirestoreId() {
+        return firestoreId;
+    }
+
+    public void setFirestoreId(String firestoreId) {
+        this.firestoreId = firestoreId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public boolean isDelete() {
+        return OP_DELETE.equals(operation);
+    }
+}
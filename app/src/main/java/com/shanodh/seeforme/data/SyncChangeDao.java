@@ -0,0 +1,45 @@
+package com.shanodh.seeforme.data;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Data Access Object for the sync change log
+ */
+@Dao
+public interface SyncChangeDao {
+    @Insert
+    long insert(SyncChange change);
+
+    /**
+     * Oldest pending changes first, so Firestore sees them in the order they were made
+     */
+    @Query("SELECT * FROM sync_changes ORDER BY seq LIMIT :limit")
+    List<SyncChange> getPending(int limit);
+
+    @Query("SELECT COUNT(*) FROM sync_changes")
+    int getPendingCount();
+
+    @Query("SELECT COUNT(*) FROM sync_changes")
+    LiveData<Integer> observePendingCount();
+
+    @Query("SELECT COUNT(*) FROM sync_changes WHERE entityType = :entityType AND entityId = :entityId AND seq > :afterSeq")
+    int countChangesAfter(String entityType, int entityId, long afterSeq);
+
+    /**
+     * Drop queued upserts for notes that were deleted before they were ever pushed
+     */
+    @Query("DELETE FROM sync_changes WHERE entityType = 'note' AND operation = 'upsert' "
+            + "AND entityId NOT IN (SELECT id FROM notes)")
+    int deleteOrphanedUpserts();
+
+    /**
+     * Drop every change up to and including an acknowledged sequence number
+     */
+    @Query("DELETE FROM sync_changes WHERE seq <= :seq")
+    int deleteUpTo(long seq);
+}
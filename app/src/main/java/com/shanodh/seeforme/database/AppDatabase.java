@@ -1,42 +0,0 @@
-package com.shanodh.seeforme.database;
-
-import androidx.room.Database;
-import androidx.room.Room;
-import androidx.room.RoomDatabase;
-import android.content.Context;
-
-import com.shanodh.seeforme.models.FamiliarFace;
-
-@Database(
-    entities = {FamiliarFace.class},
-    version = 1,
-    exportSchema = false
-)
-public abstract class AppDatabase extends RoomDatabase {
-    
-    private static final String DATABASE_NAME = "seeforme_database";
-    private static volatile AppDatabase INSTANCE;
-
-    public abstract FamiliarFaceDao familiarFaceDao();
-
-    public static AppDatabase getInstance(Context context) {
-        if (INSTANCE == null) {
-            synchronized (AppDatabase.class) {
-                if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
-                            context.getApplicationContext(),
-                            AppDatabase.class,
-                            DATABASE_NAME
-                    )
-                    .fallbackToDestructiveMigration()
-                    .build();
-                }
-            }
-        }
-        return INSTANCE;
-    }
-
-    public static void destroyInstance() {
-        INSTANCE = null;
-    }
-}
@@ -71,13 +71,7 @@ public class FirestoreNotesManager {
         }
 
         // Create note data
-        Map<String, Object> noteData = new HashMap<>();
-        noteData.put("title", note.getTitle());
-        noteData.put("content", note.getContent());
-        noteData.put("timestamp", note.getTimestamp());
-        noteData.put("userId", currentUser.getUid());
-        noteData.put("isVoiceNote", note.isVoiceNote());
-        noteData.put("category", note.getCategory() != null ? note.getCategory() : "");
+        Map<String, Object> noteData = toDocument(note, currentUser.getUid());
 
         db.collection(COLLECTION_NOTES)
                 .add(noteData)
@@ -86,7 +80,6 @@ public class FirestoreNotesManager {
                     public void onSuccess(DocumentReference documentReference) {
                         Log.d(TAG, "Note added with ID: " + documentReference.getId());
                         if (callback != null) callback.onSuccess(documentReference.getId());
-                        loadUserNotes(); // Refresh the list
                     }
                 })
                 .addOnFailureListener(new OnFailureListener() {
@@ -100,6 +93,20 @@ public class FirestoreNotesManager {
                 });
     }
 
+    /**
+     * Firestore fields for a note owned by userId
+     */
+    public static Map<String, Object> toDocument(Note note, String userId) {
+        Map<String, Object> noteData = new HashMap<>();
+        noteData.put("title", note.getTitle());
+        noteData.put("content", note.getContent());
+        noteData.put("timestamp", note.getTimestamp());
+        noteData.put("userId", userId);
+        noteData.put("isVoiceNote", note.isVoiceNote());
+        noteData.put("category", note.getCategory() != null ? note.getCategory() : "");
+        return noteData;
+    }
+
     /**
      * Update an existing note
      */
@@ -126,7 +133,6 @@ public class FirestoreNotesManager {
                     public void onSuccess(Void aVoid) {
                         Log.d(TAG, "Note updated successfully");
                         if (callback != null) callback.onSuccess(null);
-                        loadUserNotes(); // Refresh the list
                     }
                 })
                 .addOnFailureListener(new OnFailureListener() {
@@ -163,7 +169,6 @@ public class FirestoreNotesManager {
                     public void onSuccess(Void aVoid) {
                         Log.d(TAG, "Note deleted successfully");
                         if (callback != null) callback.onSuccess(null);
-                        loadUserNotes(); // Refresh the list
                     }
                 })
                 .addOnFailureListener(new OnFailureListener() {
@@ -294,10 +299,11 @@ public class FirestoreNotesManager {
     /**
      * Convert Firestore document to Note object
      */
-    private Note documentToNote(DocumentSnapshot document) {
+    static Note documentToNote(DocumentSnapshot document) {
         try {
             Note note = new Note();
             note.setFirestoreId(document.getId());
+            note.setUserId(document.getString("userId"));
             note.setTitle(document.getString("title"));
             note.setContent(document.getString("content"));
             
@@ -327,7 +333,10 @@ public class FirestoreNotesManager {
 
     /**
      * Search notes by content
+     * @deprecated Downloads every note per query. Use {@link com.shanodh.seeforme.data.NoteDao#search}
+     * against the local full-text index instead, which works offline.
      */
+    @Deprecated
     public void searchNotes(String searchQuery, FirestoreCallback<List<Note>> callback) {
         FirebaseUser currentUser = auth.getCurrentUser();
         if (currentUser == null) {
@@ -0,0 +1,216 @@
+package com.shanodh.seeforme.firebase;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.shanodh.seeforme.data.Note;
+import com.shanodh.seeforme.data.NoteDao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Incremental Firestore notes feed backed by the local notes table.
+ *
+ * The UI always reads notes from Room, so cached notes show immediately. This feed listens to
+ * the newest page of the user's notes and applies only the document changes Firestore reports,
+ * then pages older notes in on demand with timestamp cursors. Opening the notes screen costs one
+ * page plus whatever changed, not a download of every note.
+ *
+ * Requires a composite index on notes (userId ASC, timestamp DESC).
+ */
+public class NotesFeed {
+    private static final String TAG = "NotesFeed";
+    private static final String COLLECTION_NOTES = "notes";
+    public static final int DEFAULT_PAGE_SIZE = 30;
+
+    private final FirebaseFirestore db;
+    private final NoteDao noteDao;
+    private final Executor executor;
+    private final int pageSize;
+
+    private ListenerRegistration registration;
+    private String userId;
+    private DocumentSnapshot oldestLoaded;
+    private boolean headReconciled;
+    private volatile boolean hasMore = true;
+    private volatile boolean loadingOlder;
+
+    public interface FeedListener {
+        /** Local notes were updated; fromCache is true until the server has answered */
+        void onFeedUpdated(int changes, boolean fromCache);
+        void onFeedError(String error);
+    }
+
+    public NotesFeed(NoteDao noteDao, Executor executor) {
+        this(FirebaseFirestore.getInstance(), noteDao, executor, DEFAULT_PAGE_SIZE);
+    }
+
+    public NotesFeed(FirebaseFirestore db, NoteDao noteDao, Executor executor, int pageSize) {
+        this.db = db;
+        this.noteDao = noteDao;
+        this.executor = executor;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Start listening to the newest page of the user's notes. Snapshots are processed on the
+     * executor, never on the main thread.
+     */
+    public synchronized void start(String userId, FeedListener listener) {
+        stop();
+        this.userId = userId;
+        headReconciled = false;
+        registration = baseQuery(userId)
+                .limit(pageSize)
+                .addSnapshotListener(executor, (snapshot, error) -> {
+                    if (error != null) {
+                        Log.w(TAG, "Notes feed error", error);
+                        listener.onFeedError(error.getMessage() != null ? error.getMessage() : "Unknown error");
+                        return;
+                    }
+                    if (snapshot != null) {
+                        int changes = applyHead(userId, snapshot);
+                        listener.onFeedUpdated(changes, snapshot.getMetadata().isFromCache());
+                    }
+                });
+    }
+
+    public synchronized void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Fetch the next page of older notes after the oldest one loaded so far
+     */
+    public void loadOlder(FeedListener listener) {
+        DocumentSnapshot cursor;
+        String currentUser;
+        synchronized (this) {
+            if (loadingOlder || !hasMore || oldestLoaded == null) {
+                return;
+            }
+            loadingOlder = true;
+            cursor = oldestLoaded;
+            currentUser = userId;
+        }
+
+        baseQuery(currentUser)
+                .startAfter(cursor)
+                .limit(pageSize)
+                .get()
+                .addOnSuccessListener(executor, page -> {
+                    List<Note> notes = toNotes(page.getDocuments());
+                    boolean reachedEnd = page.size() < pageSize;
+                    long before = timestampOf(cursor);
+                    long after = reachedEnd || notes.isEmpty() ? Long.MIN_VALUE
+                            : notes.get(notes.size() - 1).getTimestamp();
+                    int changes = noteDao.applyCloudPage(currentUser, notes, after, before);
+                    synchronized (this) {
+                        if (!page.isEmpty()) {
+                            oldestLoaded = page.getDocuments().get(page.size() - 1);
+                        }
+                        hasMore = !reachedEnd;
+                        loadingOlder = false;
+                    }
+                    listener.onFeedUpdated(changes, page.getMetadata().isFromCache());
+                })
+                .addOnFailureListener(executor, e -> {
+                    loadingOlder = false;
+                    Log.w(TAG, "Failed to load older notes", e);
+                    listener.onFeedError(e.getMessage() != null ? e.getMessage() : "Unknown error");
+                });
+    }
+
+    private Query baseQuery(String userId) {
+        return db.collection(COLLECTION_NOTES)
+                .whereEqualTo("userId", userId)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Apply a snapshot of the newest page. The first server snapshot is reconciled as a whole
+     * page, which also catches deletions made while the app was closed; after that only the
+     * reported document changes are applied.
+     */
+    private int applyHead(String userId, QuerySnapshot snapshot) {
+        List<DocumentSnapshot> window = snapshot.getDocuments();
+        boolean windowFull = window.size() >= pageSize;
+        synchronized (this) {
+            if (oldestLoaded == null || !windowFull) {
+                oldestLoaded = window.isEmpty() ? null : window.get(window.size() - 1);
+            }
+            if (!windowFull) {
+                hasMore = false;
+            }
+        }
+
+        if (!headReconciled && !snapshot.getMetadata().isFromCache()) {
+            headReconciled = true;
+            long after = windowFull ? timestampOf(window.get(window.size() - 1)) : Long.MIN_VALUE;
+            return noteDao.applyCloudPage(userId, toNotes(window), after, Long.MAX_VALUE);
+        }
+
+        long oldestInWindow = window.isEmpty() ? Long.MIN_VALUE : timestampOf(window.get(window.size() - 1));
+        List<Note> upserts = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            DocumentSnapshot document = change.getDocument();
+            switch (change.getType()) {
+                case ADDED:
+                case MODIFIED:
+                    Note note = FirestoreNotesManager.documentToNote(document);
+                    if (note != null) {
+                        upserts.add(note);
+                    }
+                    break;
+                case REMOVED:
+                    // A note pushed out of the limited window by a newer one is older than
+                    // everything left in it; anything else leaving the window was deleted
+                    if (!windowFull || timestampOf(document) > oldestInWindow) {
+                        deletedIds.add(document.getId());
+                    }
+                    break;
+            }
+        }
+        if (upserts.isEmpty() && deletedIds.isEmpty()) {
+            return 0;
+        }
+        return noteDao.applyCloudChanges(upserts, deletedIds);
+    }
+
+    private static List<Note> toNotes(List<DocumentSnapshot> documents) {
+        List<Note> notes = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            Note note = FirestoreNotesManager.documentToNote(document);
+            if (note != null) {
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
+
+    private static long timestampOf(DocumentSnapshot document) {
+        Object timestamp = document.get("timestamp");
+        if (timestamp instanceof Long) {
+            return (Long) timestamp;
+        } else if (timestamp instanceof Date) {
+            return ((Date) timestamp).getTime();
+        }
+        return 0L;
+    }
+}
@@ -14,6 +14,7 @@ public class Detection {
     private float centerY;
     private float imageWidth;
     private float imageHeight;
+    private String identity; // Name of a recognised familiar face, if any
 
     public Detection(String label, float confidence, float left, float top, 
                     float right, float bottom, float imageWidth, float imageHeight) {
@@ -44,6 +45,8 @@ public class Detection {
     public float getRelativeSize() { return relativeSize; }
     public float getImageWidth() { return imageWidth; }
     public float getImageHeight() { return imageHeight; }
+    public String getIdentity() { return identity; }
+    public void setIdentity(String identity) { this.identity = identity; }
     
     public float getArea() {
         return boundingBox.width() * boundingBox.height();
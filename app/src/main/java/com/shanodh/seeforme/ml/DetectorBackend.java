@@ -0,0 +1,14 @@
+package com.shanodh.seeforme.ml;
+
+import android.graphics.Bitmap;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Somewhere a frame can be sent for object detection: the phone's own YOLO11 model or the
+ * wearable's NPU. Detections come back in the frame's pixel coordinates, best first or unsorted.
+ */
+public interface DetectorBackend {
+    List<Detection> detect(Bitmap frame) throws IOException;
+}
@@ -0,0 +1,576 @@
+package com.shanodh.seeforme.ml;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Approximate nearest-neighbour index over unit-length face embeddings (HNSW graph).
+ *
+ * Similarity is the dot product, i.e. cosine similarity for normalised embeddings. Galleries
+ * small enough to scan in well under a millisecond are searched exactly; larger ones walk the
+ * layered graph. Removal marks a node deleted so it still routes searches but is never
+ * returned; once deleted nodes outnumber live ones needsCompaction() says so, and the owner
+ * rebuilds the graph off the search path.
+ */
+public class FaceIndex {
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int VERSION = 1;
+
+    // Below this many live faces a linear scan is both exact and faster than the graph
+    public static final int EXACT_SEARCH_THRESHOLD = 1024;
+
+    private static final int DEFAULT_M = 16;
+    private static final int DEFAULT_EF_CONSTRUCTION = 100;
+    private static final int DEFAULT_EF_SEARCH = 64;
+
+    private final int dim;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private int efSearch = DEFAULT_EF_SEARCH;
+    private int exactSearchThreshold = EXACT_SEARCH_THRESHOLD;
+
+    // Node storage, node i owns vectors[i * dim, (i + 1) * dim)
+    private float[] vectors;
+    private String[] ids;
+    private boolean[] deleted;
+    private int[][][] links; // links[node][level] = neighbour nodes
+    private int nodeCount;
+    private int liveCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private final Map<String, Integer> nodeById = new HashMap<>();
+
+    // Search scratch space, reused between queries
+    private int[] visited = new int[0];
+    private int visitEpoch;
+    private final Heap candidates = new Heap(false);
+    private final Heap results = new Heap(true);
+
+    /**
+     * A face id with its similarity to the query
+     */
+    public static class Result {
+        private final String id;
+        private final float similarity;
+
+        Result(String id, float similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public String getId() { return id; }
+        public float getSimilarity() { return similarity; }
+    }
+
+    public FaceIndex(int dim) {
+        this(dim, DEFAULT_M, DEFAULT_EF_CONSTRUCTION);
+    }
+
+    public FaceIndex(int dim, int m, int efConstruction) {
+        this.dim = dim;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        allocate(64);
+    }
+
+    public int getDimension() {
+        return dim;
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    public synchronized boolean contains(String id) {
+        return nodeById.containsKey(id);
+    }
+
+    public synchronized void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(1, efSearch);
+    }
+
+    public synchronized void setExactSearchThreshold(int threshold) {
+        this.exactSearchThreshold = threshold;
+    }
+
+    /**
+     * Insert a face embedding, replacing any previous embedding with the same id
+     */
+    public synchronized void insert(String id, float[] vector) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("Expected " + dim + "-d vector, got " + vector.length);
+        }
+        removeNode(id);
+
+        int node = nodeCount;
+        if (node == ids.length) {
+            allocate(ids.length * 2);
+        }
+        System.arraycopy(vector, 0, vectors, node * dim, dim);
+        ids[node] = id;
+        deleted[node] = false;
+        nodeCount++;
+        liveCount++;
+        nodeById.put(id, node);
+
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[0];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vectors, node * dim, current, l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            searchLayer(vectors, node * dim, current, efConstruction, l, false);
+            int[] neighbours = results.drainClosest(l == 0 ? maxM0 : m);
+            links[node][l] = neighbours;
+            for (int neighbour : neighbours) {
+                connect(neighbour, node, l);
+            }
+            if (neighbours.length > 0) {
+                current = neighbours[0];
+            }
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Remove a face by marking its node deleted, which is cheap enough to do while searches
+     * wait. Returns false if it was not indexed.
+     */
+    public synchronized boolean remove(String id) {
+        return removeNode(id);
+    }
+
+    /**
+     * Whether deleted nodes now outnumber live ones in a graph large enough to search, so
+     * searches walk mostly tombstones and the index is worth rebuilding
+     */
+    public synchronized boolean needsCompaction() {
+        return nodeCount - liveCount > liveCount && nodeCount > exactSearchThreshold;
+    }
+
+    private boolean removeNode(String id) {
+        Integer node = nodeById.remove(id);
+        if (node == null) {
+            return false;
+        }
+        deleted[node] = true;
+        liveCount--;
+        return true;
+    }
+
+    /**
+     * Find the k most similar live faces, most similar first
+     */
+    public synchronized List<Result> search(float[] query, int k) {
+        List<Result> found = new ArrayList<>(k);
+        if (liveCount == 0 || query.length != dim) {
+            return found;
+        }
+        if (liveCount <= exactSearchThreshold) {
+            return exactSearch(query, k);
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(query, 0, current, l);
+        }
+        searchLayer(query, 0, current, Math.max(efSearch, k), 0, true);
+
+        int[] nodes = results.drainClosest(k);
+        for (int node : nodes) {
+            found.add(new Result(ids[node], dot(query, 0, vectors, node * dim)));
+        }
+        return found;
+    }
+
+    /**
+     * Brute-force scan over all live faces
+     */
+    public synchronized List<Result> exactSearch(float[] query, int k) {
+        results.clear();
+        for (int node = 0; node < nodeCount; node++) {
+            if (deleted[node]) {
+                continue;
+            }
+            float distance = 1f - dot(query, 0, vectors, node * dim);
+            if (results.size() < k) {
+                results.push(distance, node);
+            } else if (distance < results.peekDistance()) {
+                results.pop();
+                results.push(distance, node);
+            }
+        }
+        List<Result> found = new ArrayList<>(k);
+        for (int node : results.drainClosest(k)) {
+            found.add(new Result(ids[node], dot(query, 0, vectors, node * dim)));
+        }
+        return found;
+    }
+
+    /**
+     * Rebuild the graph from live nodes only, dropping tombstones
+     */
+    public synchronized void rebuild() {
+        int count = nodeCount;
+        float[] oldVectors = vectors;
+        String[] oldIds = ids;
+        boolean[] oldDeleted = deleted;
+
+        nodeById.clear();
+        nodeCount = 0;
+        liveCount = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        vectors = null;
+        ids = null;
+        deleted = null;
+        links = null;
+        allocate(Math.max(64, liveCountIn(oldDeleted, count) * 2));
+
+        float[] vector = new float[dim];
+        for (int node = 0; node < count; node++) {
+            if (!oldDeleted[node]) {
+                System.arraycopy(oldVectors, node * dim, vector, 0, dim);
+                insert(oldIds[node], vector);
+            }
+        }
+    }
+
+    private static int liveCountIn(boolean[] deletedFlags, int count) {
+        int live = 0;
+        for (int i = 0; i < count; i++) {
+            if (!deletedFlags[i]) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, int start, int level) {
+        int current = start;
+        float currentDistance = 1f - dot(query, queryOffset, vectors, current * dim);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : links[current][level]) {
+                float distance = 1f - dot(query, queryOffset, vectors, neighbour * dim);
+                if (distance < currentDistance) {
+                    currentDistance = distance;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer. Leaves the ef closest nodes in {@link #results}.
+     */
+    private void searchLayer(float[] query, int queryOffset, int start, int ef, int level, boolean liveOnly) {
+        if (++visitEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            visitEpoch = 1;
+        }
+        candidates.clear();
+        results.clear();
+
+        float startDistance = 1f - dot(query, queryOffset, vectors, start * dim);
+        visited[start] = visitEpoch;
+        candidates.push(startDistance, start);
+        if (!liveOnly || !deleted[start]) {
+            results.push(startDistance, start);
+        }
+
+        while (candidates.size() > 0) {
+            float distance = candidates.peekDistance();
+            if (results.size() >= ef && distance > results.peekDistance()) {
+                break;
+            }
+            int node = candidates.pop();
+            if (level >= links[node].length) {
+                continue;
+            }
+            for (int neighbour : links[node][level]) {
+                if (visited[neighbour] == visitEpoch) {
+                    continue;
+                }
+                visited[neighbour] = visitEpoch;
+                float neighbourDistance = 1f - dot(query, queryOffset, vectors, neighbour * dim);
+                if (results.size() < ef || neighbourDistance < results.peekDistance()) {
+                    candidates.push(neighbourDistance, neighbour);
+                    if (!liveOnly || !deleted[neighbour]) {
+                        results.push(neighbourDistance, neighbour);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] existing = links[from][level];
+        int limit = level == 0 ? maxM0 : m;
+        int[] grown = Arrays.copyOf(existing, existing.length + 1);
+        grown[existing.length] = to;
+        if (grown.length <= limit) {
+            links[from][level] = grown;
+            return;
+        }
+
+        // Over capacity: keep the closest neighbours of "from"
+        results.clear();
+        for (int neighbour : grown) {
+            results.push(1f - dot(vectors, from * dim, vectors, neighbour * dim), neighbour);
+            if (results.size() > limit) {
+                results.pop();
+            }
+        }
+        links[from][level] = results.drainClosest(limit);
+    }
+
+    private void allocate(int capacity) {
+        vectors = vectors == null ? new float[capacity * dim] : Arrays.copyOf(vectors, capacity * dim);
+        ids = ids == null ? new String[capacity] : Arrays.copyOf(ids, capacity);
+        deleted = deleted == null ? new boolean[capacity] : Arrays.copyOf(deleted, capacity);
+        links = links == null ? new int[capacity][][] : Arrays.copyOf(links, capacity);
+        visited = Arrays.copyOf(visited, capacity);
+    }
+
+    private float dot(float[] a, int aOffset, float[] b, int bOffset) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int limit = dim & ~3;
+        for (; i < limit; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < dim; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Write the index next to the face data, via a temp file renamed into place. The index is
+     * only locked while it is serialised in memory, not during the disk write.
+     */
+    public void save(File file) throws IOException {
+        byte[] bytes = serialize();
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private synchronized byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(nodeCount * (dim * 4 + 64) + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dim);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(nodeCount);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < nodeCount; node++) {
+                out.writeUTF(ids[node]);
+                out.writeBoolean(deleted[node]);
+                for (int i = 0; i < dim; i++) {
+                    out.writeFloat(vectors[node * dim + i]);
+                }
+                out.writeInt(links[node].length);
+                for (int[] levelLinks : links[node]) {
+                    out.writeInt(levelLinks.length);
+                    for (int neighbour : levelLinks) {
+                        out.writeInt(neighbour);
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read an index written by {@link #save}. Returns null if the file is missing or was
+     * written by an incompatible version.
+     */
+    public static FaceIndex load(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int dim = in.readInt();
+            int m = in.readInt();
+            int efConstruction = in.readInt();
+            FaceIndex index = new FaceIndex(dim, m, efConstruction);
+
+            int count = in.readInt();
+            index.allocate(Math.max(64, count));
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            for (int node = 0; node < count; node++) {
+                index.ids[node] = in.readUTF();
+                index.deleted[node] = in.readBoolean();
+                for (int i = 0; i < dim; i++) {
+                    index.vectors[node * dim + i] = in.readFloat();
+                }
+                int levels = in.readInt();
+                index.links[node] = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int[] levelLinks = new int[in.readInt()];
+                    for (int j = 0; j < levelLinks.length; j++) {
+                        levelLinks[j] = in.readInt();
+                    }
+                    index.links[node][l] = levelLinks;
+                }
+                if (!index.deleted[node]) {
+                    index.nodeById.put(index.ids[node], node);
+                    index.liveCount++;
+                }
+            }
+            index.nodeCount = count;
+            return index;
+        }
+    }
+
+    /**
+     * Binary heap of (distance, node) pairs, max-heap or min-heap on distance
+     */
+    private static final class Heap {
+        private final boolean maxHeap;
+        private float[] distances = new float[64];
+        private int[] nodes = new int[64];
+        private int size;
+
+        Heap(boolean maxHeap) {
+            this.maxHeap = maxHeap;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        float peekDistance() {
+            return distances[0];
+        }
+
+        void push(float distance, int node) {
+            if (size == distances.length) {
+                distances = Arrays.copyOf(distances, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(distance, distances[parent])) {
+                    break;
+                }
+                distances[i] = distances[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            distances[i] = distance;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                float distance = distances[size];
+                int node = nodes[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && before(distances[child + 1], distances[child])) {
+                        child++;
+                    }
+                    if (!before(distances[child], distance)) {
+                        break;
+                    }
+                    distances[i] = distances[child];
+                    nodes[i] = nodes[child];
+                    i = child;
+                }
+                distances[i] = distance;
+                nodes[i] = node;
+            }
+            return top;
+        }
+
+        /**
+         * Empty the heap, returning up to {@code limit} nodes ordered closest first
+         */
+        int[] drainClosest(int limit) {
+            int[] ordered = new int[size];
+            if (maxHeap) {
+                for (int i = ordered.length - 1; i >= 0; i--) {
+                    ordered[i] = pop();
+                }
+            } else {
+                for (int i = 0; i < ordered.length; i++) {
+                    ordered[i] = pop();
+                }
+            }
+            return ordered.length <= limit ? ordered : Arrays.copyOf(ordered, limit);
+        }
+
+        private boolean before(float a, float b) {
+            return maxHeap ? a > b : a < b;
+        }
+    }
+}
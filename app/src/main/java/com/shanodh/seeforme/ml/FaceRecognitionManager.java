@@ -0,0 +1,657 @@
+package com.shanodh.seeforme.ml;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.Log;
+
+import com.shanodh.seeforme.data.FaceEmbeddingStore;
+import com.shanodh.seeforme.data.FamiliarFace;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * On-device familiar face recognition.
+ *
+ * A compact face embedding model (MobileFaceNet, 112x112 input) turns a face crop into an
+ * L2-normalised vector. Enrolled faces are kept as one contiguous row-major float matrix so a
+ * lookup is a single cache-friendly cosine similarity scan over all rows.
+ *
+ * Gallery changes take galleryLock, never "this", so they don't hold up inference. Building
+ * and saving the approximate index happen on indexExecutor against a gallery snapshot, and the
+ * finished index is swapped in.
+ */
+public class FaceRecognitionManager {
+    private static final String TAG = "FaceRecognition";
+
+    // Model Configuration
+    private static final String MODEL_PATH = "mobilefacenet.tflite";
+    private static final int INPUT_SIZE = 112;
+    private static final float IMAGE_MEAN = 127.5f;
+    private static final float IMAGE_STD = 128.0f;
+
+    // Cosine similarity above which two embeddings are considered the same person
+    private static final float MATCH_THRESHOLD = 0.62f;
+    // Approximate nearest-neighbour index persisted next to the embedding store
+    private static final String INDEX_FILE = "face_index.hnsw";
+
+    // Person boxes smaller than this (in pixels) leave too few face pixels to recognise
+    private static final int MIN_FACE_PIXELS = 40;
+
+    private final Context context;
+    private Interpreter model;
+    private int embeddingSize;
+    private boolean isInitialized = false;
+
+    // Reused for every inference, guarded by "this"
+    private ByteBuffer inputBuffer;
+    private float[][] outputBuffer;
+    private final int[] pixels = new int[INPUT_SIZE * INPUT_SIZE];
+    private final Bitmap faceBitmap = Bitmap.createBitmap(INPUT_SIZE, INPUT_SIZE, Bitmap.Config.ARGB_8888);
+    private final Canvas faceCanvas = new Canvas(faceBitmap);
+    private final Paint filterPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect srcRect = new Rect();
+    private final Rect dstRect = new Rect(0, 0, INPUT_SIZE, INPUT_SIZE);
+
+    // Published atomically so the scan never sees a half-updated gallery
+    private volatile Gallery gallery = Gallery.EMPTY;
+    // Only built once the gallery is too large for an exact scan per frame
+    private volatile FaceIndex index;
+    // Guards gallery and index updates; separate from "this" so frames keep flowing
+    private final Object galleryLock = new Object();
+    // Loads the gallery, and builds and saves the index, off the gallery lock one job at a time
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean persistPending = new AtomicBoolean();
+
+    /**
+     * Result of matching a face against the enrolled gallery
+     */
+    public static class Recognition {
+        private final String faceId;
+        private final String name;
+        private final float similarity;
+
+        Recognition(String faceId, String name, float similarity) {
+            this.faceId = faceId;
+            this.name = name;
+            this.similarity = similarity;
+        }
+
+        public String getFaceId() { return faceId; }
+        public String getName() { return name; }
+        public float getSimilarity() { return similarity; }
+    }
+
+    /**
+     * Immutable snapshot of enrolled embeddings, rows of {@code dim} floats
+     */
+    static final class Gallery {
+        static final Gallery EMPTY = new Gallery(new float[0], new String[0], new String[0], 0);
+
+        final float[] matrix;
+        final String[] ids;
+        final String[] names;
+        final int dim;
+        final Map<String, Integer> rowById;
+
+        Gallery(float[] matrix, String[] ids, String[] names, int dim) {
+            this.matrix = matrix;
+            this.ids = ids;
+            this.names = names;
+            this.dim = dim;
+            this.rowById = new HashMap<>(ids.length * 2);
+            for (int row = 0; row < ids.length; row++) {
+                rowById.put(ids[row], row);
+            }
+        }
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    public FaceRecognitionManager(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Load the embedding model. Call from a background thread.
+     */
+    public boolean initializeModel() {
+        try {
+            Interpreter.Options options = new Interpreter.Options();
+            options.setNumThreads(2); // Leave cores for the object detector
+            options.setUseXNNPACK(true);
+            options.setAllowFp16PrecisionForFp32(true);
+
+            model = new Interpreter(loadModelFromAssets(), options);
+
+            int[] outputShape = model.getOutputTensor(0).shape();
+            embeddingSize = outputShape[outputShape.length - 1];
+
+            inputBuffer = ByteBuffer.allocateDirect(INPUT_SIZE * INPUT_SIZE * 3 * 4);
+            inputBuffer.order(ByteOrder.nativeOrder());
+            outputBuffer = new float[1][embeddingSize];
+
+            Log.i(TAG, "Face embedding model ready: " + embeddingSize + "-d, output "
+                    + Arrays.toString(outputShape));
+            isInitialized = true;
+            return true;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to initialize face embedding model", e);
+            isInitialized = false;
+            return false;
+        }
+    }
+
+    private MappedByteBuffer loadModelFromAssets() throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(MODEL_PATH);
+             FileInputStream stream = new FileInputStream(fd.getFileDescriptor())) {
+            return stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    fd.getStartOffset(), fd.getDeclaredLength());
+        }
+    }
+
+    public boolean isReady() {
+        return isInitialized && model != null;
+    }
+
+    public int getEmbeddingSize() {
+        return embeddingSize;
+    }
+
+    public int getGallerySize() {
+        return gallery.size();
+    }
+
+    /**
+     * Compute the L2-normalised embedding of a whole face image (enrollment photos)
+     */
+    public float[] computeEmbedding(Bitmap faceImage) {
+        int side = Math.min(faceImage.getWidth(), faceImage.getHeight());
+        int left = (faceImage.getWidth() - side) / 2;
+        int top = (faceImage.getHeight() - side) / 2;
+        return computeEmbedding(faceImage, new Rect(left, top, left + side, top + side));
+    }
+
+    /**
+     * Compute the L2-normalised embedding of a region of a frame
+     */
+    public synchronized float[] computeEmbedding(Bitmap frame, Rect region) {
+        if (!isReady()) {
+            return null;
+        }
+
+        srcRect.set(region);
+        faceCanvas.drawBitmap(frame, srcRect, dstRect, filterPaint);
+        faceBitmap.getPixels(pixels, 0, INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
+
+        inputBuffer.rewind();
+        for (int pixel : pixels) {
+            inputBuffer.putFloat((((pixel >> 16) & 0xFF) - IMAGE_MEAN) / IMAGE_STD);
+            inputBuffer.putFloat((((pixel >> 8) & 0xFF) - IMAGE_MEAN) / IMAGE_STD);
+            inputBuffer.putFloat(((pixel & 0xFF) - IMAGE_MEAN) / IMAGE_STD);
+        }
+        inputBuffer.rewind();
+
+        try {
+            model.run(inputBuffer, outputBuffer);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Tensor error: " + e.getMessage());
+            return null;
+        }
+
+        float[] embedding = outputBuffer[0].clone();
+        normalize(embedding);
+        return embedding;
+    }
+
+    /**
+     * Estimate the face region at the top of a "person" box, clamped to the frame
+     */
+    public static Rect estimateFaceRegion(Detection person, int frameWidth, int frameHeight) {
+        RectF box = person.getBoundingBox();
+        float side = Math.min(box.width() * 0.6f, box.height() * 0.35f);
+        if (side < MIN_FACE_PIXELS) {
+            return null;
+        }
+        float centerX = box.centerX();
+        float top = box.top + box.height() * 0.02f;
+
+        int left = Math.max(0, Math.round(centerX - side / 2f));
+        int right = Math.min(frameWidth, Math.round(centerX + side / 2f));
+        int faceTop = Math.max(0, Math.round(top));
+        int bottom = Math.min(frameHeight, Math.round(top + side));
+        if (right - left < MIN_FACE_PIXELS || bottom - faceTop < MIN_FACE_PIXELS) {
+            return null;
+        }
+        return new Rect(left, faceTop, right, bottom);
+    }
+
+    /**
+     * Recognise the face of a detected person. Returns null for non-person detections,
+     * faces too small to embed, or people who are not enrolled.
+     */
+    public Recognition recognizePerson(Bitmap frame, Detection person) {
+        if (!"person".equals(person.getLabel()) || gallery.size() == 0) {
+            return null;
+        }
+        Rect faceRegion = estimateFaceRegion(person, frame.getWidth(), frame.getHeight());
+        if (faceRegion == null) {
+            return null;
+        }
+        float[] embedding = computeEmbedding(frame, faceRegion);
+        return embedding != null ? findBestMatch(embedding) : null;
+    }
+
+    /**
+     * Find the enrolled face most similar to an embedding. Large galleries go through the
+     * approximate index, small ones are scanned exactly.
+     */
+    public Recognition findBestMatch(float[] embedding) {
+        Gallery snapshot = gallery;
+        if (snapshot.size() == 0 || embedding.length != snapshot.dim) {
+            return null;
+        }
+        FaceIndex currentIndex = index;
+        if (currentIndex != null && snapshot.size() > FaceIndex.EXACT_SEARCH_THRESHOLD) {
+            List<FaceIndex.Result> results = currentIndex.search(embedding, 1);
+            if (results.isEmpty() || results.get(0).getSimilarity() <= MATCH_THRESHOLD) {
+                return null;
+            }
+            FaceIndex.Result best = results.get(0);
+            Integer row = snapshot.rowById.get(best.getId());
+            return row != null ? new Recognition(best.getId(), snapshot.names[row], best.getSimilarity()) : null;
+        }
+        return exactMatch(snapshot, embedding);
+    }
+
+    /**
+     * Cosine similarity scan over the whole gallery. Embeddings are unit length, so cosine
+     * similarity is a plain dot product over each contiguous row.
+     */
+    private static Recognition exactMatch(Gallery snapshot, float[] embedding) {
+        int dim = snapshot.dim;
+        float[] matrix = snapshot.matrix;
+        int bestRow = -1;
+        float bestScore = MATCH_THRESHOLD;
+        int limit = dim & ~3;
+
+        for (int row = 0, offset = 0; row < snapshot.size(); row++, offset += dim) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            for (; i < limit; i += 4) {
+                s0 += matrix[offset + i] * embedding[i];
+                s1 += matrix[offset + i + 1] * embedding[i + 1];
+                s2 += matrix[offset + i + 2] * embedding[i + 2];
+                s3 += matrix[offset + i + 3] * embedding[i + 3];
+            }
+            for (; i < dim; i++) {
+                s0 += matrix[offset + i] * embedding[i];
+            }
+            float score = (s0 + s1) + (s2 + s3);
+            if (score > bestScore) {
+                bestScore = score;
+                bestRow = row;
+            }
+        }
+
+        if (bestRow < 0) {
+            return null;
+        }
+        return new Recognition(snapshot.ids[bestRow], snapshot.names[bestRow], bestScore);
+    }
+
+    /**
+     * Enroll (or replace) a single face from its embedding
+     */
+    public void addToGallery(String faceId, String name, float[] embedding) {
+        synchronized (galleryLock) {
+            Gallery current = gallery;
+            int dim = embedding.length;
+            if (current.size() > 0 && current.dim != dim) {
+                Log.w(TAG, "Embedding size mismatch, ignoring " + faceId);
+                return;
+            }
+
+            int existing = indexOf(current, faceId);
+            if (existing >= 0) {
+                float[] matrix = current.matrix.clone();
+                System.arraycopy(embedding, 0, matrix, existing * dim, dim);
+                String[] names = current.names.clone();
+                names[existing] = name;
+                gallery = new Gallery(matrix, current.ids, names, dim);
+            } else {
+                int size = current.size();
+                float[] matrix = Arrays.copyOf(current.matrix, (size + 1) * dim);
+                System.arraycopy(embedding, 0, matrix, size * dim, dim);
+                String[] ids = Arrays.copyOf(current.ids, size + 1);
+                String[] names = Arrays.copyOf(current.names, size + 1);
+                ids[size] = faceId;
+                names[size] = name;
+                gallery = new Gallery(matrix, ids, names, dim);
+            }
+
+            FaceIndex currentIndex = index;
+            if (currentIndex != null) {
+                currentIndex.insert(faceId, embedding);
+                if (currentIndex.needsCompaction()) {
+                    scheduleRebuild();
+                    return;
+                }
+            } else if (gallery.size() > FaceIndex.EXACT_SEARCH_THRESHOLD) {
+                scheduleRebuild();
+                return;
+            }
+        }
+        schedulePersist();
+    }
+
+    /**
+     * Remove a face from the gallery
+     */
+    public void removeFromGallery(String faceId) {
+        synchronized (galleryLock) {
+            Gallery current = gallery;
+            int removed = indexOf(current, faceId);
+            if (removed < 0) {
+                return;
+            }
+            int dim = current.dim;
+            int size = current.size();
+            float[] matrix = new float[(size - 1) * dim];
+            String[] ids = new String[size - 1];
+            String[] names = new String[size - 1];
+
+            System.arraycopy(current.matrix, 0, matrix, 0, removed * dim);
+            System.arraycopy(current.matrix, (removed + 1) * dim, matrix, removed * dim, (size - removed - 1) * dim);
+            System.arraycopy(current.ids, 0, ids, 0, removed);
+            System.arraycopy(current.ids, removed + 1, ids, removed, size - removed - 1);
+            System.arraycopy(current.names, 0, names, 0, removed);
+            System.arraycopy(current.names, removed + 1, names, removed, size - removed - 1);
+            gallery = new Gallery(matrix, ids, names, dim);
+
+            // Only tombstoned here; compacting the graph happens on indexExecutor
+            FaceIndex currentIndex = index;
+            if (currentIndex == null || !currentIndex.remove(faceId)) {
+                return;
+            }
+            if (currentIndex.needsCompaction()) {
+                scheduleRebuild();
+                return;
+            }
+        }
+        schedulePersist();
+    }
+
+    public void clearGallery() {
+        synchronized (galleryLock) {
+            gallery = Gallery.EMPTY;
+            index = null;
+        }
+    }
+
+    /**
+     * The persisted index if it matches the snapshot exactly, otherwise null
+     */
+    private FaceIndex loadSavedIndex(Gallery snapshot) {
+        File indexFile = new File(context.getFilesDir(), INDEX_FILE);
+        try {
+            FaceIndex saved = FaceIndex.load(indexFile);
+            if (saved != null && saved.getDimension() == snapshot.dim && saved.size() == snapshot.size()
+                    && containsAll(saved, snapshot.ids)) {
+                Log.i(TAG, "Loaded face index with " + saved.size() + " faces");
+                return saved;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable face index", e);
+        }
+        return null;
+    }
+
+    private static FaceIndex buildIndex(Gallery snapshot) {
+        long startTime = System.currentTimeMillis();
+        FaceIndex built = new FaceIndex(snapshot.dim);
+        float[] row = new float[snapshot.dim];
+        for (int i = 0; i < snapshot.size(); i++) {
+            System.arraycopy(snapshot.matrix, i * snapshot.dim, row, 0, snapshot.dim);
+            built.insert(snapshot.ids[i], row);
+        }
+        Log.i(TAG, "Built face index for " + snapshot.size() + " faces in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+        return built;
+    }
+
+    /**
+     * Build the index for the current gallery on indexExecutor and swap it in. If the gallery
+     * changes during the build, build again from the newer snapshot. A gallery that has shrunk
+     * to an exact scan drops the index instead.
+     */
+    private void scheduleRebuild() {
+        if (indexExecutor.isShutdown()) {
+            return;
+        }
+        indexExecutor.execute(() -> {
+            while (true) {
+                Gallery snapshot = gallery;
+                if (snapshot.size() <= FaceIndex.EXACT_SEARCH_THRESHOLD) {
+                    synchronized (galleryLock) {
+                        if (gallery == snapshot) {
+                            index = null;
+                        }
+                    }
+                    return;
+                }
+                FaceIndex built = buildIndex(snapshot);
+                synchronized (galleryLock) {
+                    if (gallery == snapshot) {
+                        index = built;
+                        break;
+                    }
+                }
+            }
+            persistIndex();
+        });
+    }
+
+    /**
+     * Save the current index on indexExecutor. Requests made while one is queued are folded
+     * into it.
+     */
+    private void schedulePersist() {
+        if (!indexExecutor.isShutdown() && persistPending.compareAndSet(false, true)) {
+            indexExecutor.execute(() -> {
+                persistPending.set(false);
+                persistIndex();
+            });
+        }
+    }
+
+    private void persistIndex() {
+        FaceIndex currentIndex = index;
+        if (currentIndex == null) {
+            return;
+        }
+        try {
+            currentIndex.save(new File(context.getFilesDir(), INDEX_FILE));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save face index", e);
+        }
+    }
+
+    private static boolean containsAll(FaceIndex faceIndex, String[] ids) {
+        for (String id : ids) {
+            if (!faceIndex.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Load the gallery on this manager's own thread, so reading every embedding does not hold
+     * up frame analysis
+     */
+    public void loadGalleryAsync(FaceEmbeddingStore store, List<FamiliarFace> faces) {
+        if (!indexExecutor.isShutdown()) {
+            indexExecutor.execute(() -> loadGallery(store, faces));
+        }
+    }
+
+    /**
+     * Build the gallery for the given familiar faces. Embeddings come from the persistent store;
+     * faces enrolled before the store existed are embedded from their image once and appended.
+     * Call from a background thread.
+     */
+    public void loadGallery(FaceEmbeddingStore store, List<FamiliarFace> faces) {
+        if (!isReady()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        int migrated = 0;
+
+        for (FamiliarFace face : faces) {
+            if (store.contains(face.getFirebaseId())) {
+                continue;
+            }
+            float[] embedding = embedImageFile(face.getImagePath());
+            if (embedding != null && store.append(face.getFirebaseId(), embedding)) {
+                migrated++;
+            } else {
+                Log.w(TAG, "Could not embed face image for " + face.getName());
+            }
+        }
+
+        Map<String, String> namesById = new HashMap<>();
+        for (FamiliarFace face : faces) {
+            namesById.put(face.getFirebaseId(), face.getName());
+        }
+
+        // Only faces that still exist for this user make it into the gallery
+        FaceEmbeddingStore.Snapshot snapshot = store.snapshot();
+        int dim = snapshot.dim;
+        float[] matrix = new float[snapshot.matrix.length];
+        String[] ids = new String[snapshot.size()];
+        String[] names = new String[snapshot.size()];
+        int count = 0;
+        for (int row = 0; row < snapshot.size(); row++) {
+            String name = namesById.get(snapshot.ids[row]);
+            if (name == null || dim != embeddingSize) {
+                continue;
+            }
+            System.arraycopy(snapshot.matrix, row * dim, matrix, count * dim, dim);
+            ids[count] = snapshot.ids[row];
+            names[count] = name;
+            count++;
+        }
+        Gallery loaded = new Gallery(Arrays.copyOf(matrix, count * dim), Arrays.copyOf(ids, count),
+                Arrays.copyOf(names, count), dim);
+        // The index is loaded or built before taking the lock, then published with the gallery
+        FaceIndex prepared = null;
+        boolean built = false;
+        if (loaded.size() > FaceIndex.EXACT_SEARCH_THRESHOLD) {
+            prepared = loadSavedIndex(loaded);
+            if (prepared == null) {
+                prepared = buildIndex(loaded);
+                built = true;
+            }
+        }
+        synchronized (galleryLock) {
+            gallery = loaded;
+            index = prepared;
+        }
+        if (built) {
+            schedulePersist();
+        }
+
+        Log.i(TAG, "Loaded " + count + " familiar faces (" + migrated + " newly embedded) in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Decode a stored face image and compute its embedding
+     */
+    public float[] embedImageFile(String imagePath) {
+        Bitmap bitmap = decodeForEmbedding(imagePath);
+        if (bitmap == null) {
+            return null;
+        }
+        float[] embedding = computeEmbedding(bitmap);
+        bitmap.recycle();
+        return embedding;
+    }
+
+    private static Bitmap decodeForEmbedding(String imagePath) {
+        if (imagePath == null) {
+            return null;
+        }
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(imagePath, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+
+        // Decode close to the model input size, never below it
+        int sampleSize = 1;
+        while (Math.min(bounds.outWidth, bounds.outHeight) / (sampleSize * 2) >= INPUT_SIZE * 2) {
+            sampleSize *= 2;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeFile(imagePath, options);
+    }
+
+    private static int indexOf(Gallery snapshot, String faceId) {
+        Integer row = snapshot.rowById.get(faceId);
+        return row != null ? row : -1;
+    }
+
+    static void normalize(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum <= 0f) {
+            return;
+        }
+        float inverse = (float) (1.0 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inverse;
+        }
+    }
+
+    /**
+     * Waits for an embedding in progress, so the model is never closed under it
+     */
+    public synchronized void shutdown() {
+        if (model != null) {
+            model.close();
+            model = null;
+        }
+        isInitialized = false;
+        clearGallery();
+        indexExecutor.shutdown();
+    }
+}
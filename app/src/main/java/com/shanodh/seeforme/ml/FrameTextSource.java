@@ -0,0 +1,87 @@
+package com.shanodh.seeforme.ml;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads text off camera frames with ML Kit's on-device recogniser, for NoteDetectionEngine.
+ *
+ * Frames are offered by the assist pipeline as they arrive. At most one is recognised at a time
+ * and no more often than every MIN_INTERVAL_MS; the rest are skipped. Each frame's lines are
+ * reported top to bottom, and every frame starts a new scene, so a note is never stitched
+ * together from words seen in two different frames.
+ */
+public class FrameTextSource implements NoteDetectionEngine.TextSource {
+    private static final String TAG = "FrameTextSource";
+    static final long MIN_INTERVAL_MS = 1000;
+
+    private final TextRecognizer recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile NoteDetectionEngine.LineCallback callback;
+    private volatile long lastStartMs;
+
+    @Override
+    public void start(NoteDetectionEngine.LineCallback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void stop() {
+        callback = null;
+    }
+
+    /**
+     * Recognise text on a frame if the source is started and not busy. The bitmap must not be
+     * recycled by the caller.
+     */
+    public void offer(Bitmap frame) {
+        long now = SystemClock.elapsedRealtime();
+        if (callback == null || now - lastStartMs < MIN_INTERVAL_MS || !busy.compareAndSet(false, true)) {
+            return;
+        }
+        lastStartMs = now;
+        recognizer.process(InputImage.fromBitmap(frame, 0))
+                .addOnSuccessListener(this::deliver)
+                .addOnFailureListener(e -> Log.w(TAG, "Text recognition failed", e))
+                .addOnCompleteListener(task -> busy.set(false));
+    }
+
+    public void close() {
+        stop();
+        recognizer.close();
+    }
+
+    private void deliver(Text text) {
+        NoteDetectionEngine.LineCallback current = callback;
+        if (current == null) {
+            return;
+        }
+        List<Text.Line> lines = new ArrayList<>();
+        for (Text.TextBlock block : text.getTextBlocks()) {
+            lines.addAll(block.getLines());
+        }
+        lines.sort((a, b) -> Integer.compare(top(a), top(b)));
+
+        current.onSceneChanged();
+        for (Text.Line line : lines) {
+            current.onLine(line.getText());
+        }
+    }
+
+    private static int top(Text.Line line) {
+        Rect box = line.getBoundingBox();
+        return box != null ? box.top : Integer.MAX_VALUE;
+    }
+}
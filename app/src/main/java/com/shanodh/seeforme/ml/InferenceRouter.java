@@ -0,0 +1,194 @@
+package com.shanodh.seeforme.ml;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import com.shanodh.seeforme.network.InferenceResponse;
+import com.shanodh.seeforme.network.WearableHealthMonitor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Chooses, frame by frame, whether detection runs on the phone or on the wearable.
+ *
+ * It keeps a moving average of local inference time and remote round trip, and reads the
+ * wearable's queue depth and battery from each reply and the phone's battery every minute.
+ * A frame goes to whichever side is faster, unless the wearable is backed up or low on
+ * battery (phone) or the phone is low and the wearable is not (wearable). Every PROBE_EVERY
+ * frames the other side is tried so its estimate does not go stale. A remote call that misses
+ * its deadline or fails is rerun locally straight away; after repeated failures the wearable
+ * is left alone for a cool-down period. While the health monitor reports the wearable as
+ * unreachable, every frame stays on the phone.
+ *
+ * Meant to be called from one inference thread.
+ */
+public class InferenceRouter implements DetectorBackend {
+    private static final String TAG = "InferenceRouter";
+
+    public enum Route { LOCAL, REMOTE }
+
+    private static final double EWMA_ALPHA = 0.2;
+    static final int PROBE_EVERY = 20;
+    static final int MAX_REMOTE_QUEUE = 2;
+    static final int LOW_PHONE_BATTERY = 20;
+    static final int LOW_WEARABLE_BATTERY = 15;
+    static final long MIN_DEADLINE_MS = 120;
+    static final long MAX_DEADLINE_MS = 600;
+    static final int FAILURES_BEFORE_COOLDOWN = 3;
+    static final long REMOTE_COOLDOWN_MS = 30_000;
+    private static final long BATTERY_SAMPLE_MS = 60_000;
+
+    private final DetectorBackend local;
+    private final RemoteDetectorBackend remote;
+    private final IntSupplier phoneBattery;
+    private final BooleanSupplier wearableAvailable;
+
+    // -1 until measured
+    private double localMs = -1;
+    private double remoteMs = -1;
+    private int remoteQueue;
+    private int remoteBattery = -1;
+    private int phoneBatteryPercent = -1;
+    private long batterySampledAt;
+
+    private int consecutiveFailures;
+    private long remoteRetryAt;
+    private long frames;
+    private long localFrames;
+    private long remoteFrames;
+    private long fallbacks;
+
+    public InferenceRouter(DetectorBackend local, RemoteDetectorBackend remote, IntSupplier phoneBattery) {
+        this(local, remote, phoneBattery, () -> true);
+    }
+
+    public InferenceRouter(DetectorBackend local, RemoteDetectorBackend remote, IntSupplier phoneBattery,
+                           BooleanSupplier wearableAvailable) {
+        this.local = local;
+        this.remote = remote;
+        this.phoneBattery = phoneBattery;
+        this.wearableAvailable = wearableAvailable;
+    }
+
+    /**
+     * Router reading the phone's battery from BatteryManager and reachability from
+     * WearableHealthMonitor
+     */
+    public static InferenceRouter create(Context context, DetectorBackend local, RemoteDetectorBackend remote) {
+        BatteryManager batteryManager = (BatteryManager) context.getApplicationContext()
+                .getSystemService(Context.BATTERY_SERVICE);
+        WearableHealthMonitor health = WearableHealthMonitor.getInstance();
+        return new InferenceRouter(local, remote, () -> batteryManager != null
+                ? batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY)
+                : -1, health::isAvailable);
+    }
+
+    @Override
+    public List<Detection> detect(Bitmap frame) throws IOException {
+        long now = System.currentTimeMillis();
+        if (choose(now) == Route.REMOTE) {
+            long deadline = remoteDeadlineMs();
+            long start = System.nanoTime();
+            try {
+                List<Detection> detections = remote.detect(frame, deadline);
+                onRemoteSuccess((System.nanoTime() - start) / 1_000_000.0, remote.getLastResponse());
+                return detections;
+            } catch (IOException e) {
+                onRemoteFailure(now, deadline, e);
+            }
+        }
+        long start = System.nanoTime();
+        List<Detection> detections = local.detect(frame);
+        localMs = ewma(localMs, (System.nanoTime() - start) / 1_000_000.0);
+        localFrames++;
+        return detections;
+    }
+
+    Route choose(long now) {
+        frames++;
+        if (now < remoteRetryAt || !wearableAvailable.getAsBoolean()) {
+            return Route.LOCAL;
+        }
+        boolean probe = frames % PROBE_EVERY == 0;
+        if (remoteMs < 0) {
+            return Route.REMOTE;
+        }
+        if (remoteBattery >= 0 && remoteBattery <= LOW_WEARABLE_BATTERY) {
+            return probe ? Route.REMOTE : Route.LOCAL;
+        }
+        if (remoteQueue >= MAX_REMOTE_QUEUE) {
+            return probe ? Route.REMOTE : Route.LOCAL;
+        }
+        int phone = samplePhoneBattery(now);
+        if (phone >= 0 && phone <= LOW_PHONE_BATTERY) {
+            return Route.REMOTE;
+        }
+        if (localMs < 0) {
+            return Route.LOCAL;
+        }
+        Route faster = remoteMs < localMs ? Route.REMOTE : Route.LOCAL;
+        if (probe) {
+            return faster == Route.REMOTE ? Route.LOCAL : Route.REMOTE;
+        }
+        return faster;
+    }
+
+    /**
+     * Long enough for a normal round trip, short enough that falling back still beats waiting
+     */
+    long remoteDeadlineMs() {
+        if (remoteMs < 0 && localMs < 0) {
+            return RemoteDetectorBackend.DEFAULT_DEADLINE_MS;
+        }
+        double budget = Math.max(remoteMs * 2, localMs);
+        return Math.max(MIN_DEADLINE_MS, Math.min(MAX_DEADLINE_MS, (long) budget));
+    }
+
+    private void onRemoteSuccess(double elapsedMs, InferenceResponse response) {
+        remoteMs = ewma(remoteMs, elapsedMs);
+        consecutiveFailures = 0;
+        remoteFrames++;
+        if (response != null) {
+            remoteQueue = response.getQueueDepth();
+            remoteBattery = response.getBatteryPercent();
+        }
+    }
+
+    private void onRemoteFailure(long now, long deadline, IOException e) {
+        fallbacks++;
+        // A miss counts as a round trip at least as slow as the deadline
+        remoteMs = ewma(remoteMs, deadline);
+        if (++consecutiveFailures >= FAILURES_BEFORE_COOLDOWN) {
+            consecutiveFailures = 0;
+            remoteRetryAt = now + REMOTE_COOLDOWN_MS;
+            Log.w(TAG, "❌ Wearable inference failing, using the phone for "
+                    + REMOTE_COOLDOWN_MS / 1000 + " s", e);
+        } else {
+            Log.d(TAG, "Wearable inference missed its " + deadline + " ms deadline, running locally");
+        }
+    }
+
+    private int samplePhoneBattery(long now) {
+        if (phoneBatteryPercent < 0 || now - batterySampledAt >= BATTERY_SAMPLE_MS) {
+            phoneBatteryPercent = phoneBattery.getAsInt();
+            batterySampledAt = now;
+        }
+        return phoneBatteryPercent;
+    }
+
+    private static double ewma(double current, double sample) {
+        return current < 0 ? sample : current + EWMA_ALPHA * (sample - current);
+    }
+
+    public String getStats() {
+        return String.format(Locale.US,
+                "local %d frames @ %.0f ms, remote %d frames @ %.0f ms (queue %d, battery %d%%), %d fallbacks",
+                localFrames, localMs, remoteFrames, remoteMs, remoteQueue, remoteBattery, fallbacks);
+    }
+}
@@ -0,0 +1,174 @@
+package com.shanodh.seeforme.ml;
+
+import android.util.Log;
+
+import com.shanodh.seeforme.data.Note;
+import com.shanodh.seeforme.data.NoteDao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Watches a stream of recognised text for the user's undetected notes.
+ *
+ * The matcher is compiled from NoteDao.getUndetectedNotes and kept in step with the notes
+ * table by refreshNotes(). Each line from the text source is matched in one pass; a hit marks
+ * the note as detected, drops it from the matcher and is reported to the listener.
+ */
+public class NoteDetectionEngine {
+    private static final String TAG = "NoteDetectionEngine";
+
+    private final NoteDao noteDao;
+    // Only this user's notes are matched
+    private final String userId;
+    private final NoteTextMatcher matcher = new NoteTextMatcher();
+    private final Map<Integer, Note> notesById = new HashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private TextSource textSource;
+    private NoteDetectionListener listener;
+
+    /**
+     * Produces recognised text one line at a time, e.g. OCR on camera frames
+     */
+    public interface TextSource {
+        void start(LineCallback callback);
+        void stop();
+    }
+
+    public interface LineCallback {
+        void onLine(String line);
+
+        /** The source moved to a different scene; partial matches should be dropped */
+        default void onSceneChanged() {}
+    }
+
+    public interface NoteDetectionListener {
+        void onNoteDetected(Note note, String line);
+    }
+
+    /**
+     * Text source that replays fixed lines, standing in for OCR in tests and demos
+     */
+    public static class LocalTextSource implements TextSource {
+        private final List<String> lines;
+        private final long lineDelayMs;
+        private volatile Thread thread;
+
+        public LocalTextSource(List<String> lines, long lineDelayMs) {
+            this.lines = new ArrayList<>(lines);
+            this.lineDelayMs = lineDelayMs;
+        }
+
+        @Override
+        public void start(LineCallback callback) {
+            thread = new Thread(() -> {
+                try {
+                    for (String line : lines) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        callback.onLine(line);
+                        if (lineDelayMs > 0) {
+                            Thread.sleep(lineDelayMs);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "LocalTextSource");
+            thread.start();
+        }
+
+        @Override
+        public void stop() {
+            Thread running = thread;
+            if (running != null) {
+                running.interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public NoteDetectionEngine(NoteDao noteDao, String userId) {
+        this.noteDao = noteDao;
+        this.userId = userId;
+    }
+
+    public void setListener(NoteDetectionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Load undetected notes and start matching lines from the source
+     */
+    public void start(TextSource source) {
+        stop();
+        textSource = source;
+        refreshNotes();
+        source.start(new LineCallback() {
+            @Override
+            public void onLine(String line) {
+                executor.execute(() -> processLine(line));
+            }
+
+            @Override
+            public void onSceneChanged() {
+                // Queued behind the lines already seen, so they still match together
+                executor.execute(matcher::reset);
+            }
+        });
+    }
+
+    public void stop() {
+        if (textSource != null) {
+            textSource.stop();
+            textSource = null;
+        }
+    }
+
+    /**
+     * Re-read undetected notes and update the matcher incrementally. Call when notes change.
+     */
+    public void refreshNotes() {
+        executor.execute(() -> {
+            List<Note> undetected = noteDao.getUndetectedNotes(userId);
+            Map<Integer, String> texts = new HashMap<>();
+            notesById.clear();
+            for (Note note : undetected) {
+                String text = note.getContent() != null ? note.getContent() : note.getTitle();
+                if (text != null) {
+                    texts.put(note.getId(), text);
+                    notesById.put(note.getId(), note);
+                }
+            }
+            matcher.sync(texts);
+            Log.d(TAG, "Matching " + matcher.size() + " undetected notes");
+        });
+    }
+
+    public void shutdown() {
+        stop();
+        executor.shutdown();
+    }
+
+    private void processLine(String line) {
+        for (NoteTextMatcher.Hit hit : matcher.feed(line)) {
+            Note note = notesById.remove(hit.noteId);
+            if (note == null) {
+                continue;
+            }
+            matcher.removeNote(hit.noteId);
+            noteDao.markAsDetected(hit.noteId);
+            note.setDetected(true);
+            Log.i(TAG, "📝 Note detected: " + note.getTitle());
+            NoteDetectionListener current = listener;
+            if (current != null) {
+                current.onNoteDetected(note, line);
+            }
+        }
+    }
+}
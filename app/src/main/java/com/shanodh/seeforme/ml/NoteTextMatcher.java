@@ -0,0 +1,419 @@
+package com.shanodh.seeforme.ml;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming phrase matcher for finding the user's notes in recognised text.
+ *
+ * Note texts are normalised into word tokens and compiled into a single Aho-Corasick automaton
+ * over token ids, so each recognised line is matched against every note in one linear pass.
+ * The automaton state is carried across lines, so a note split over two lines of text is still
+ * found. OCR mistakes are tolerated per word: a recognised word that is not in the notes'
+ * vocabulary is snapped to the single vocabulary word within one edit of it.
+ *
+ * Notes can be added and removed at any time. Additions extend the trie and removals only
+ * detach the note from its final state; failure links are recomputed lazily before the next
+ * line, and the trie is compacted once most of it belongs to removed notes.
+ */
+public class NoteTextMatcher {
+    private static final int UNKNOWN = -1;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    /**
+     * A note whose text was found in the stream
+     */
+    public static final class Hit {
+        public final int noteId;
+        public final int lineIndex;
+
+        Hit(int noteId, int lineIndex) {
+            this.noteId = noteId;
+            this.lineIndex = lineIndex;
+        }
+    }
+
+    // Vocabulary: word -> token id, plus single-deletion variants for fuzzy lookup
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final Map<String, int[]> deletionIndex = new HashMap<>();
+
+    // Trie over token ids; transitions keyed by (state << 32 | token)
+    private final Map<Long, Integer> transitions = new HashMap<>();
+    private int[] fail = new int[16];
+    private int[] outputLink = new int[16];
+    private int[][] outputs = new int[16][];
+    private int stateCount = 1;
+
+    // Registered notes and the trie state each one ends in
+    private final Map<Integer, String> activeNotes = new HashMap<>();
+    private final Map<Integer, Integer> terminals = new HashMap<>();
+    private int removedSinceCompaction = 0;
+
+    private boolean linksDirty = false;
+    private int state = 0;
+    private int lineIndex = 0;
+
+    /**
+     * Register or replace a note. Text that normalises to nothing is ignored.
+     */
+    public synchronized void addNote(int noteId, String text) {
+        String existing = activeNotes.get(noteId);
+        if (existing != null) {
+            if (existing.equals(text)) {
+                return;
+            }
+            removeNote(noteId);
+        }
+        String[] tokens = tokenize(text);
+        if (tokens.length == 0) {
+            return;
+        }
+        activeNotes.put(noteId, text);
+
+        int node = 0;
+        for (String token : tokens) {
+            int id = internWord(token);
+            long key = transitionKey(node, id);
+            Integer next = transitions.get(key);
+            if (next == null) {
+                next = newState();
+                transitions.put(key, next);
+            }
+            node = next;
+        }
+        outputs[node] = append(outputs[node], noteId);
+        terminals.put(noteId, node);
+        linksDirty = true;
+    }
+
+    /**
+     * Stop matching a note. The trie is compacted once removed notes dominate it.
+     */
+    public synchronized void removeNote(int noteId) {
+        if (activeNotes.remove(noteId) == null) {
+            return;
+        }
+        Integer terminal = terminals.remove(noteId);
+        if (terminal != null) {
+            outputs[terminal] = without(outputs[terminal], noteId);
+        }
+        removedSinceCompaction++;
+        if (removedSinceCompaction > activeNotes.size() && removedSinceCompaction >= 8) {
+            compact();
+        }
+    }
+
+    /**
+     * Bring the registered notes in line with the given id -> text map, touching only notes
+     * that were added, removed or edited.
+     */
+    public synchronized void sync(Map<Integer, String> notes) {
+        for (Integer noteId : new ArrayList<>(activeNotes.keySet())) {
+            if (!notes.containsKey(noteId)) {
+                removeNote(noteId);
+            }
+        }
+        for (Map.Entry<Integer, String> entry : notes.entrySet()) {
+            addNote(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized int size() {
+        return activeNotes.size();
+    }
+
+    /**
+     * Forget partial matches, e.g. when the camera moves to a different scene
+     */
+    public synchronized void reset() {
+        state = 0;
+    }
+
+    /**
+     * Consume one recognised line and return the notes whose full text ended in it
+     */
+    public synchronized List<Hit> feed(String line) {
+        if (linksDirty) {
+            buildLinks();
+        }
+        List<Hit> hits = new ArrayList<>();
+        int currentLine = lineIndex++;
+        for (String token : tokenize(line)) {
+            int id = lookup(token);
+            state = id == UNKNOWN ? 0 : step(state, id);
+            for (int node = state; node > 0; node = outputLink[node]) {
+                int[] noteIds = outputs[node];
+                if (noteIds == null) {
+                    continue;
+                }
+                for (int noteId : noteIds) {
+                    hits.add(new Hit(noteId, currentLine));
+                }
+            }
+        }
+        return hits;
+    }
+
+    private int step(int from, int token) {
+        int node = from;
+        while (true) {
+            Integer next = transitions.get(transitionKey(node, token));
+            if (next != null) {
+                return next;
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = fail[node];
+        }
+    }
+
+    /**
+     * Breadth-first pass computing failure links and output links (nearest state on the
+     * failure chain that ends a note)
+     */
+    private void buildLinks() {
+        List<List<long[]>> childrenByState = new ArrayList<>(stateCount);
+        for (int i = 0; i < stateCount; i++) {
+            childrenByState.add(null);
+        }
+        for (Map.Entry<Long, Integer> entry : transitions.entrySet()) {
+            int parent = (int) (entry.getKey() >>> 32);
+            List<long[]> children = childrenByState.get(parent);
+            if (children == null) {
+                children = new ArrayList<>(2);
+                childrenByState.set(parent, children);
+            }
+            children.add(new long[]{entry.getKey() & 0xFFFFFFFFL, entry.getValue()});
+        }
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        fail[0] = 0;
+        outputLink[0] = 0;
+        List<long[]> rootChildren = childrenByState.get(0);
+        if (rootChildren != null) {
+            for (long[] child : rootChildren) {
+                int node = (int) child[1];
+                fail[node] = 0;
+                outputLink[node] = 0;
+                queue.add(node);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int parent = queue.poll();
+            List<long[]> children = childrenByState.get(parent);
+            if (children == null) {
+                continue;
+            }
+            for (long[] child : children) {
+                int token = (int) child[0];
+                int node = (int) child[1];
+                int link = parent == 0 ? 0 : step(fail[parent], token);
+                fail[node] = link;
+                outputLink[node] = outputs[link] != null ? link : outputLink[link];
+                queue.add(node);
+            }
+        }
+        linksDirty = false;
+    }
+
+    /**
+     * Rebuild the trie and vocabulary from the active notes only
+     */
+    private void compact() {
+        Map<Integer, String> keep = new HashMap<>(activeNotes);
+        vocabulary.clear();
+        words.clear();
+        deletionIndex.clear();
+        transitions.clear();
+        Arrays.fill(outputs, null);
+        stateCount = 1;
+        activeNotes.clear();
+        terminals.clear();
+        removedSinceCompaction = 0;
+        state = 0;
+        for (Map.Entry<Integer, String> entry : keep.entrySet()) {
+            addNote(entry.getKey(), entry.getValue());
+        }
+        linksDirty = true;
+    }
+
+    private int newState() {
+        if (stateCount == fail.length) {
+            int capacity = fail.length * 2;
+            fail = Arrays.copyOf(fail, capacity);
+            outputLink = Arrays.copyOf(outputLink, capacity);
+            outputs = Arrays.copyOf(outputs, capacity);
+        }
+        return stateCount++;
+    }
+
+    private int internWord(String word) {
+        Integer id = vocabulary.get(word);
+        if (id != null) {
+            return id;
+        }
+        id = words.size();
+        words.add(word);
+        vocabulary.put(word, id);
+        if (word.length() >= MIN_FUZZY_LENGTH) {
+            for (String variant : deletions(word)) {
+                deletionIndex.put(variant, append(deletionIndex.get(variant), id));
+            }
+            deletionIndex.put(word, append(deletionIndex.get(word), id));
+        }
+        return id;
+    }
+
+    /**
+     * Map a recognised word to a token id, allowing one insertion, deletion or substitution
+     * for longer words. Ambiguous corrections are rejected.
+     */
+    private int lookup(String token) {
+        Integer exact = vocabulary.get(token);
+        if (exact != null) {
+            return exact;
+        }
+        if (token.length() < MIN_FUZZY_LENGTH - 1) {
+            return UNKNOWN;
+        }
+        int candidate = UNKNOWN;
+        // A vocabulary word within one edit shares a single-deletion variant with the token
+        for (String variant : withDeletions(token)) {
+            int[] ids = deletionIndex.get(variant);
+            if (ids == null) {
+                continue;
+            }
+            for (int id : ids) {
+                if (id == candidate) {
+                    continue;
+                }
+                if (!withinOneEdit(token, words.get(id))) {
+                    continue;
+                }
+                if (candidate != UNKNOWN) {
+                    return UNKNOWN;
+                }
+                candidate = id;
+            }
+        }
+        return candidate;
+    }
+
+    private static List<String> deletions(String word) {
+        List<String> variants = new ArrayList<>(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            variants.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        return variants;
+    }
+
+    private static List<String> withDeletions(String word) {
+        List<String> variants = deletions(word);
+        variants.add(word);
+        return variants;
+    }
+
+    static boolean withinOneEdit(String a, String b) {
+        int lengthDifference = a.length() - b.length();
+        if (Math.abs(lengthDifference) > 1) {
+            return false;
+        }
+        int i = 0;
+        int j = 0;
+        boolean edited = false;
+        while (i < a.length() && j < b.length()) {
+            if (a.charAt(i) == b.charAt(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            if (edited) {
+                return false;
+            }
+            edited = true;
+            if (lengthDifference > 0) {
+                i++;
+            } else if (lengthDifference < 0) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return !edited || (i == a.length() && j == b.length());
+    }
+
+    /**
+     * Lower-case, strip accents, undo common OCR digit/letter confusions inside words and
+     * split on anything that is not a letter or digit
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        String[] raw = normalized.split("[^\\p{L}\\p{Nd}]+");
+        List<String> tokens = new ArrayList<>(raw.length);
+        for (String token : raw) {
+            if (!token.isEmpty()) {
+                tokens.add(fixOcrDigits(token));
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static String fixOcrDigits(String token) {
+        boolean hasLetter = false;
+        boolean hasDigit = false;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (Character.isLetter(c)) {
+                hasLetter = true;
+            } else if (Character.isDigit(c)) {
+                hasDigit = true;
+            }
+        }
+        // Only mixed tokens are treated as misreads; real numbers are left alone
+        if (!hasLetter || !hasDigit) {
+            return token;
+        }
+        return token.replace('0', 'o').replace('1', 'l').replace('5', 's').replace('8', 'b');
+    }
+
+    private static long transitionKey(int state, int token) {
+        return ((long) state << 32) | (token & 0xFFFFFFFFL);
+    }
+
+    private static int[] without(int[] values, int value) {
+        if (values == null) {
+            return null;
+        }
+        int[] kept = new int[values.length];
+        int count = 0;
+        for (int v : values) {
+            if (v != value) {
+                kept[count++] = v;
+            }
+        }
+        return count == 0 ? null : Arrays.copyOf(kept, count);
+    }
+
+    private static int[] append(int[] values, int value) {
+        if (values == null) {
+            return new int[]{value};
+        }
+        int[] grown = Arrays.copyOf(values, values.length + 1);
+        grown[values.length] = value;
+        return grown;
+    }
+}
@@ -0,0 +1,158 @@
+package com.shanodh.seeforme.ml;
+
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Associates "person" detections across frames by bounding box overlap and caches the
+ * recognised identity per tracked person, so face recognition only runs when it can change
+ * the answer: a person appears, their box grows enough to give a better face crop, or the
+ * cached identity has gone stale.
+ */
+public class PersonTracker {
+    private static final float MIN_IOU = 0.25f;
+    private static final long TRACK_EXPIRY_MS = 2500;
+    private static final long IDENTITY_TIMEOUT_MS = 10000;
+    private static final long UNKNOWN_RETRY_MS = 3000;
+    private static final float GROWTH_FOR_REVERIFY = 1.5f;
+
+    private final List<Track> tracks = new ArrayList<>();
+    private int nextTrackId = 1;
+
+    /**
+     * One person followed across frames
+     */
+    public static class Track {
+        private final int id;
+        private final RectF box = new RectF();
+        private long lastSeen;
+        private String identity;
+        private float verifiedArea;
+        private long verifiedAt;
+        private boolean verified;
+        private boolean announced;
+
+        Track(int id) {
+            this.id = id;
+        }
+
+        public int getId() { return id; }
+        public String getIdentity() { return identity; }
+        public boolean isAnnounced() { return announced; }
+        public void markAnnounced() { announced = true; }
+    }
+
+    /**
+     * Callback used to recognise a person only when the cache cannot answer
+     */
+    public interface Recognizer {
+        /** Returns the recognised name, or null if the person is not familiar */
+        String recognize(Detection person);
+    }
+
+    /**
+     * Match this frame's person detections to tracks, re-verify identities where needed and
+     * copy the cached identity onto each detection.
+     */
+    public synchronized void update(List<Detection> detections, long now, Recognizer recognizer) {
+        expire(now);
+
+        List<Track> unmatched = new ArrayList<>(tracks);
+        for (Detection detection : detections) {
+            if (!"person".equals(detection.getLabel())) {
+                continue;
+            }
+            RectF box = detection.getBoundingBox();
+            Track track = bestOverlap(unmatched, box);
+            if (track == null) {
+                track = new Track(nextTrackId++);
+                tracks.add(track);
+            } else {
+                unmatched.remove(track);
+            }
+            track.box.set(box);
+            track.lastSeen = now;
+
+            if (needsVerification(track, area(box), now)) {
+                String identity = recognizer.recognize(detection);
+                if (identity != null && !identity.equals(track.identity)) {
+                    track.announced = false;
+                }
+                // Keep a known identity through a single failed re-check (e.g. head turned)
+                if (identity != null || !track.verified || now - track.verifiedAt >= IDENTITY_TIMEOUT_MS) {
+                    track.identity = identity;
+                }
+                track.verified = true;
+                track.verifiedAt = now;
+                track.verifiedArea = area(box);
+            }
+            detection.setIdentity(track.identity);
+        }
+    }
+
+    /**
+     * The track a detection was assigned to in the last update, if any
+     */
+    public synchronized Track trackFor(Detection detection) {
+        if (!"person".equals(detection.getLabel())) {
+            return null;
+        }
+        return bestOverlap(tracks, detection.getBoundingBox());
+    }
+
+    public synchronized void clear() {
+        tracks.clear();
+    }
+
+    private static boolean needsVerification(Track track, float currentArea, long now) {
+        if (!track.verified) {
+            return true;
+        }
+        long timeout = track.identity != null ? IDENTITY_TIMEOUT_MS : UNKNOWN_RETRY_MS;
+        if (now - track.verifiedAt >= timeout) {
+            return true;
+        }
+        return currentArea >= track.verifiedArea * GROWTH_FOR_REVERIFY;
+    }
+
+    private void expire(long now) {
+        Iterator<Track> iterator = tracks.iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastSeen > TRACK_EXPIRY_MS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Track bestOverlap(List<Track> candidates, RectF box) {
+        Track best = null;
+        float bestIoU = MIN_IOU;
+        for (Track track : candidates) {
+            float overlap = iou(track.box, box);
+            if (overlap >= bestIoU) {
+                bestIoU = overlap;
+                best = track;
+            }
+        }
+        return best;
+    }
+
+    static float iou(RectF a, RectF b) {
+        float left = Math.max(a.left, b.left);
+        float top = Math.max(a.top, b.top);
+        float right = Math.min(a.right, b.right);
+        float bottom = Math.min(a.bottom, b.bottom);
+        if (left >= right || top >= bottom) {
+            return 0f;
+        }
+        float intersection = (right - left) * (bottom - top);
+        return intersection / (area(a) + area(b) - intersection);
+    }
+
+    private static float area(RectF box) {
+        return Math.max(0f, box.right - box.left) * Math.max(0f, box.bottom - box.top);
+    }
+}
@@ -0,0 +1,92 @@
+package com.shanodh.seeforme.ml;
+
+import android.graphics.Bitmap;
+
+import com.shanodh.seeforme.network.ApiService;
+import com.shanodh.seeforme.network.InferenceResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Runs detection on the wearable's NPU. Frames are downscaled and sent as JPEG, which is a
+ * few tens of KB against several MB for the float tensor the phone model takes; the
+ * wearable letterboxes and runs YOLO itself. Every call carries a hard deadline so a slow
+ * wearable costs at most that long before the caller falls back to the phone.
+ */
+public class RemoteDetectorBackend implements DetectorBackend {
+    private static final MediaType JPEG = MediaType.get("image/jpeg");
+    private static final int MAX_DIMENSION = 640;
+    private static final int JPEG_QUALITY = 70;
+    static final long DEFAULT_DEADLINE_MS = 500;
+
+    private final ApiService api;
+    private volatile InferenceResponse lastResponse;
+
+    public RemoteDetectorBackend(ApiService api) {
+        this.api = api;
+    }
+
+    @Override
+    public List<Detection> detect(Bitmap frame) throws IOException {
+        return detect(frame, DEFAULT_DEADLINE_MS);
+    }
+
+    /**
+     * Detect with a deadline covering the upload, inference on the wearable and the reply
+     */
+    public List<Detection> detect(Bitmap frame, long deadlineMs) throws IOException {
+        Call<InferenceResponse> call = api.infer(RequestBody.create(encode(frame), JPEG));
+        call.timeout().timeout(deadlineMs, TimeUnit.MILLISECONDS);
+        Response<InferenceResponse> response = call.execute();
+        InferenceResponse body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            throw new IOException("Wearable inference failed: HTTP " + response.code());
+        }
+        lastResponse = body;
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        List<Detection> detections = new ArrayList<>(body.getDetections().size());
+        for (InferenceResponse.Box box : body.getDetections()) {
+            detections.add(new Detection(box.getLabel(), box.getConfidence(),
+                    box.getLeft() * width, box.getTop() * height,
+                    box.getRight() * width, box.getBottom() * height,
+                    width, height));
+        }
+        return detections;
+    }
+
+    /**
+     * Load figures from the most recent successful call, or null before the first one
+     */
+    public InferenceResponse getLastResponse() {
+        return lastResponse;
+    }
+
+    private static byte[] encode(Bitmap frame) {
+        int longest = Math.max(frame.getWidth(), frame.getHeight());
+        Bitmap scaled = frame;
+        if (longest > MAX_DIMENSION) {
+            float scale = (float) MAX_DIMENSION / longest;
+            scaled = Bitmap.createScaledBitmap(frame,
+                    Math.max(1, Math.round(frame.getWidth() * scale)),
+                    Math.max(1, Math.round(frame.getHeight() * scale)),
+                    true);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        scaled.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        if (scaled != frame) {
+            scaled.recycle();
+        }
+        return out.toByteArray();
+    }
+}
@@ -8,6 +8,8 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Vibrator;
 
+import com.shanodh.seeforme.network.ApiClient;
+
 import org.tensorflow.lite.Interpreter;
 
 import java.io.IOException;
@@ -37,6 +39,9 @@ public class SimpleObjectDetectionManager {
     // Timing Configuration  
     private static final long DETECTION_INTERVAL = 1000; // 1 second - simple timing
     
+    // Default SharedPreferences key for the "Use Wearable for Detection" setting
+    public static final String PREF_WEARABLE_INFERENCE = "wearable_inference";
+    
     // Context and ML Components
     private Context context;
     private Interpreter model;
@@ -44,6 +49,10 @@ public class SimpleObjectDetectionManager {
     private Vibrator vibrator;
     private ExecutorService inferenceThread;
     private Handler mainThread;
+    private FaceRecognitionManager faceRecognitionManager;
+    private final PersonTracker personTracker = new PersonTracker();
+    // The phone model, or a router that may send frames to the wearable instead
+    private volatile DetectorBackend backend = this::runYOLO11Inference;
     
     // State Management  
     private long lastDetectionTime;
@@ -111,6 +120,24 @@ public class SimpleObjectDetectionManager {
         }
     }
     
+    /**
+     * Attach a face recogniser so detected people are announced by name
+     */
+    public void setFaceRecognitionManager(FaceRecognitionManager faceRecognitionManager) {
+        this.faceRecognitionManager = faceRecognitionManager;
+    }
+    
+    /**
+     * Let frames run on the wearable's NPU when that is faster or saves the phone's battery.
+     * The phone model stays loaded as the fallback.
+     */
+    public void setWearableInference(boolean enabled) {
+        backend = enabled
+                ? InferenceRouter.create(context, this::runYOLO11Inference,
+                        new RemoteDetectorBackend(ApiClient.getApiService()))
+                : this::runYOLO11Inference;
+    }
+    
     private MappedByteBuffer loadModelFromAssets() throws IOException {
         return context.getAssets().openFd(MODEL_PATH).createInputStream().getChannel()
                 .map(FileChannel.MapMode.READ_ONLY, 
@@ -135,12 +162,15 @@ public class SimpleObjectDetectionManager {
             try {
                 long startTime = System.currentTimeMillis();
                 
-                // Run YOLO11 inference
-                List<Detection> detections = runYOLO11Inference(cameraFrame);
+                // Run YOLO11 inference, here or on the wearable
+                List<Detection> detections = backend.detect(cameraFrame);
                 
                 // Apply Non-Maximum Suppression
                 List<Detection> filteredDetections = applyNMS(detections);
                 
+                // Put names to familiar people
+                recognizeFaces(cameraFrame, filteredDetections);
+                
                 // Generate announcements for detected objects
                 processAnnouncements(filteredDetections);
                 
@@ -324,6 +354,27 @@ public class SimpleObjectDetectionManager {
         return detections;
     }
 
+    /**
+     * Name familiar people. Identities are cached per tracked person, so the face model only
+     * runs when someone appears, comes noticeably closer, or their identity goes stale.
+     */
+    private void recognizeFaces(Bitmap frame, List<Detection> detections) {
+        if (faceRecognitionManager == null || !faceRecognitionManager.isReady()
+                || faceRecognitionManager.getGallerySize() == 0) {
+            return;
+        }
+        personTracker.update(detections, System.currentTimeMillis(), person -> {
+            FaceRecognitionManager.Recognition recognition =
+                    faceRecognitionManager.recognizePerson(frame, person);
+            if (recognition == null) {
+                return null;
+            }
+            Log.d(TAG, "👤 Recognised " + recognition.getName() + " ("
+                    + String.format(Locale.US, "%.2f", recognition.getSimilarity()) + ")");
+            return recognition.getName();
+        });
+    }
+
        private void processAnnouncements(List<Detection> detections) {
         if (detections.isEmpty()) {
             // Nothing detected - stay silent
@@ -331,28 +382,54 @@ public class SimpleObjectDetectionManager {
             return;
         }
         
-        // Get the best detection and announce it
-        Detection bestDetection = detections.get(0);
-        String objectName = bestDetection.getLabel();
-        String direction = getDirection(bestDetection);
-        String message = objectName + " to the " + direction;
-        
-        speakMessage(message);
-        Log.i(TAG, "🔊 " + message);
+        // Announce the most confident detection that still has something new to say
+        for (Detection detection : detections) {
+            String direction = getDirection(detection);
+            String message;
+            if (detection.getIdentity() != null) {
+                // Familiar people are announced once per appearance, not on every frame
+                PersonTracker.Track track = personTracker.trackFor(detection);
+                if (track != null && track.isAnnounced()) {
+                    continue;
+                }
+                if (track != null) {
+                    track.markAnnounced();
+                }
+                message = "center".equals(direction)
+                        ? detection.getIdentity() + " ahead"
+                        : detection.getIdentity() + " to the " + direction;
+            } else {
+                message = detection.getLabel() + " to the " + direction;
+            }
+            
+            speakMessage(message);
+            Log.i(TAG, "🔊 " + message);
+            return;
+        }
     } 
 
     /**
-     * SIMPLE NMS - Just take the best detection and announce it
+     * Non-maximum suppression: most confident first, dropping boxes that overlap a kept box of
+     * the same label, so every distinct object stays in the list
      */
     private List<Detection> applyNMS(List<Detection> detections) {
         if (detections.isEmpty()) return detections;
         
-        // Sort by confidence and just take the top one
         detections.sort((a, b) -> Float.compare(b.getConfidence(), a.getConfidence()));
         
         List<Detection> result = new ArrayList<>();
-        if (!detections.isEmpty()) {
-            result.add(detections.get(0)); // Just take the most confident detection
+        for (Detection candidate : detections) {
+            boolean suppressed = false;
+            for (Detection kept : result) {
+                if (kept.getLabel().equals(candidate.getLabel())
+                        && calculateIoU(kept, candidate) > NMS_THRESHOLD) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                result.add(candidate);
+            }
         }
         
         return result;
@@ -435,6 +512,7 @@ public class SimpleObjectDetectionManager {
      */
     public void clearDetectionState() {
         lastDetectionTime = 0;
+        personTracker.clear();
         if (tts != null) {
             tts.stop(); // Stop any ongoing speech
         }
@@ -445,8 +523,13 @@ public class SimpleObjectDetectionManager {
      * Get current detection statistics
      */
     public String getDetectionStats() {
-        return "Optimized YOLO11 Manager - Confidence: " + DETECTION_CONFIDENCE + 
+        String stats = "Optimized YOLO11 Manager - Confidence: " + DETECTION_CONFIDENCE + 
                ", Simple immediate announcements enabled";
+        DetectorBackend current = backend;
+        if (current instanceof InferenceRouter) {
+            stats += ", " + ((InferenceRouter) current).getStats();
+        }
+        return stats;
     }
 
     /**
@@ -1,13 +1,11 @@
 package com.shanodh.seeforme.models;
 
-import androidx.room.Entity;
-import androidx.room.Ignore;
-import androidx.room.PrimaryKey;
-
-@Entity(tableName = "familiar_faces")
+/**
+ * Familiar face as shown by FamiliarFacesAdapter. Stored faces live in data.FamiliarFace.
+ */
 public class FamiliarFace {
-    @PrimaryKey(autoGenerate = true)
     private int id;
+    private String firebaseId; // Face ID of the stored face, which also keys its thumbnail
     private String name;
     private String imagePath;
     private String description;
@@ -17,7 +15,6 @@ public class FamiliarFace {
         this.createdAt = System.currentTimeMillis();
     }
 
-    @Ignore
     public FamiliarFace(String name, String imagePath) {
         this.name = name;
         this.imagePath = imagePath;
@@ -33,6 +30,14 @@ public class FamiliarFace {
         this.id = id;
     }
 
+    public String getFirebaseId() {
+        return firebaseId;
+    }
+
+    public void setFirebaseId(String firebaseId) {
+        this.firebaseId = firebaseId;
+    }
+
     public String getName() {
         return name;
     }
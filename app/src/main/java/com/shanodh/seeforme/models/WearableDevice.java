@@ -9,6 +9,8 @@ public class WearableDevice {
     private String type;
     private String macAddress;
     private boolean isSelected;
+    private String host;
+    private int port;
     
     public WearableDevice(int id, String name, String type, String macAddress) {
         this.id = id;
@@ -18,6 +20,35 @@ public class WearableDevice {
         this.isSelected = false;
     }
     
+    /**
+     * A wearable found on the network; the address stands in for the MAC in the list
+     */
+    public WearableDevice(int id, String name, String type, String host, int port) {
+        this(id, name, type, host + ":" + port);
+        this.host = host;
+        this.port = port;
+    }
+    
+    /**
+     * Base URL of the wearable's API, or null if it was not found on the network
+     */
+    public String getBaseUrl() {
+        if (host == null) {
+            return null;
+        }
+        // IPv6 literals need brackets in a URL
+        String urlHost = host.indexOf(':') >= 0 ? "[" + host + "]" : host;
+        return "http://" + urlHost + ":" + port + "/";
+    }
+    
+    public String getHost() {
+        return host;
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
     public int getId() {
         return id;
     }
@@ -2,46 +2,137 @@ package com.shanodh.seeforme.network;
 
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
- * Retrofit client for API communication
+ * Retrofit client for API communication.
+ *
+ * One OkHttp client and connection pool serve every call to the wearable, so requests reuse
+ * warm keep-alive connections, and responses are gzip-decoded transparently. Changing the base
+ * URL only repoints BaseUrlInterceptor; nothing is rebuilt. Timeouts are short by default and
+ * raised per endpoint with EndpointTimeout, and idempotent calls are retried on transient failures.
+ * While the wearable is unreachable a circuit breaker fails calls at once with
+ * WearableUnavailableException; WearableHealthMonitor closes it when the wearable answers again.
+ * Logging is off unless setLogLevel is called; it never logs bodies, which would buffer every
+ * uploaded face image. Responses are requested as CBOR (WearableCodec) with JSON as the fallback.
  */
 public class ApiClient {
     private static final String DEFAULT_BASE_URL = "http://192.168.1.100:5000/";
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_RETRIES = 2;
+    private static final long RETRY_BASE_DELAY_MS = 250;
+    private static final long BREAKER_OPEN_MS = 2_000;
+    private static final long BREAKER_MAX_OPEN_MS = 30_000;
+    // JSON stays acceptable so older firmware can answer the way it always has
+    static final String ACCEPT_BINARY = WearableCodec.CONTENT_TYPE + ", application/json;q=0.5";
+
+    private static final HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+    private static final BaseUrlInterceptor baseUrlInterceptor =
+            new BaseUrlInterceptor(HttpUrl.get(DEFAULT_BASE_URL));
+    private static final CircuitBreaker circuitBreaker =
+            new CircuitBreaker(BREAKER_OPEN_MS, BREAKER_MAX_OPEN_MS);
+    private static OkHttpClient httpClient = null;
     private static Retrofit retrofit = null;
-    private static String baseUrl = DEFAULT_BASE_URL;
+    private static ApiService apiService = null;
+    private static volatile boolean binaryProtocolEnabled = true;
 
-    public static Retrofit getClient() {
-        if (retrofit == null) {
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+    static {
+        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.NONE);
+    }
 
-            OkHttpClient client = new OkHttpClient.Builder()
+    /**
+     * Shared OkHttp client; derive variants with newBuilder() so they reuse its pool
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
                     .addInterceptor(loggingInterceptor)
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
+                    .connectTimeout(5, TimeUnit.SECONDS)
+                    .readTimeout(15, TimeUnit.SECONDS)
+                    .writeTimeout(15, TimeUnit.SECONDS)
                     .build();
+        }
+        return httpClient;
+    }
+
+    public static synchronized Retrofit getClient() {
+        if (retrofit == null) {
+            OkHttpClient.Builder builder = getHttpClient().newBuilder();
+            // Ahead of logging: rewrite the host, check the breaker once per call, then retry,
+            // then time each attempt
+            builder.interceptors().add(0, baseUrlInterceptor);
+            builder.interceptors().add(1, new CircuitBreakerInterceptor(circuitBreaker));
+            builder.interceptors().add(2, new RetryInterceptor(MAX_RETRIES, RETRY_BASE_DELAY_MS));
+            builder.interceptors().add(3, new EndpointTimeoutInterceptor());
+            builder.interceptors().add(4, chain -> chain.proceed(
+                    binaryProtocolEnabled && chain.request().header("Accept") == null
+                            ? chain.request().newBuilder().header("Accept", ACCEPT_BINARY).build()
+                            : chain.request()));
+            OkHttpClient client = builder.build();
 
             retrofit = new Retrofit.Builder()
-                    .baseUrl(baseUrl)
+                    .baseUrl(DEFAULT_BASE_URL)
                     .client(client)
+                    .addConverterFactory(CborConverterFactory.create())
                     .addConverterFactory(GsonConverterFactory.create())
                     .build();
         }
         return retrofit;
     }
 
+    /**
+     * Breaker shared by every Retrofit call to the wearable
+     */
+    static CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public static String getBaseUrl() {
+        return baseUrlInterceptor.getBaseUrl().toString();
+    }
+
+    /**
+     * Point calls at a different wearable. Connections to the old address stay pooled until idle.
+     */
     public static void setBaseUrl(String url) {
-        baseUrl = url;
-        retrofit = null; // Reset the retrofit instance to create a new one with the new URL
+        baseUrlInterceptor.setBaseUrl(HttpUrl.get(url));
+        // Failures of the old address say nothing about the new one
+        circuitBreaker.reset();
+    }
+
+    /**
+     * Whether to offer the wearable the CBOR encoding. It answers in JSON either way if its
+     * firmware predates it.
+     */
+    public static void setBinaryProtocolEnabled(boolean enabled) {
+        binaryProtocolEnabled = enabled;
+    }
+
+    public static boolean isBinaryProtocolEnabled() {
+        return binaryProtocolEnabled;
     }
 
-    public static ApiService getApiService() {
-        return getClient().create(ApiService.class);
+    /**
+     * Level.HEADERS for debugging; Level.BODY is not allowed
+     */
+    public static void setLogLevel(HttpLoggingInterceptor.Level level) {
+        if (level == HttpLoggingInterceptor.Level.BODY) {
+            throw new IllegalArgumentException("Body logging buffers uploads; use HEADERS");
+        }
+        loggingInterceptor.setLevel(level);
+    }
+
+    public static synchronized ApiService getApiService() {
+        if (apiService == null) {
+            apiService = getClient().create(ApiService.class);
+        }
+        return apiService;
     }
-} 
\ No newline at end of file
+}
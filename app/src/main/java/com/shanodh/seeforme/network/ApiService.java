@@ -6,31 +6,50 @@ import java.util.Map;
 import okhttp3.MultipartBody;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
+import okhttp3.RequestBody;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
+import retrofit2.http.PUT;
 import retrofit2.http.Part;
+import retrofit2.http.Path;
 
 /**
  * Retrofit interface for API calls to the Orange Pi 5 wearable device
  */
 public interface ApiService {
     /**
-     * Add a note to the wearable device for OCR matching
+     * Add a note to the wearable device for OCR matching. Keeping the whole note set
+     * current is done in one batch with syncNotes.
      * @param note Note object containing the text to match
      * @return API response
      */
+    @EndpointTimeout(readMs = 10_000)
     @POST("/add-note")
     Call<ApiResponse> addNote(@Body Map<String, String> note);
 
     /**
-     * Add a familiar face to the wearable device
+     * Apply a batch of note changes computed against the wearable's note digest. Answers 200
+     * either way; when the digest no longer matches, nothing is applied and the response
+     * carries the wearable's note versions. WearableNoteSync builds these requests.
+     * @param request Changed and deleted notes with the digests before and after
+     * @return Whether the batch was applied
+     */
+    @EndpointTimeout(writeMs = 15_000, readMs = 15_000)
+    @POST("/notes/sync")
+    Call<NoteSyncResponse> syncNotes(@Body NoteSyncRequest request);
+
+    /**
+     * Add a familiar face to the wearable device. Build the image part from a
+     * FileRegionRequestBody so it streams from disk; FaceUploader does resumable uploads.
      * @param image Image file part
      * @param name Name of the person
      * @return API response
      */
     @Multipart
+    @EndpointTimeout(writeMs = 60_000, readMs = 30_000)
     @POST("/add-face")
     Call<ApiResponse> addFace(
             @Part MultipartBody.Part image,
@@ -42,13 +61,51 @@ public interface ApiService {
      * Get the status of the wearable device
      * @return Status response
      */
+    @EndpointTimeout(readMs = 3_000)
     @GET("/status")
     Call<ApiResponse> getStatus();
 
     /**
-     * Get notifications from the wearable device
+     * Get notifications from the wearable device. For live events use WearableEventStream
+     * instead of polling this.
      * @return List of notifications
      */
+    @EndpointTimeout(readMs = 10_000)
     @GET("/notifications")
     Call<List<NotificationResponse>> getNotifications();
-} 
\ No newline at end of file
+
+    /**
+     * Start a resumable face upload, or find the one already started for the same image.
+     * The metadata carries sha256, size, contentType, faceId, name and relationship.
+     * @return Session with the offset the wearable already holds
+     */
+    @EndpointTimeout(readMs = 10_000)
+    @POST("/uploads")
+    Call<UploadSession> startUpload(@Body Map<String, Object> metadata);
+
+    /**
+     * Ask how much of an upload the wearable has received
+     */
+    @EndpointTimeout(readMs = 5_000)
+    @GET("/uploads/{uploadId}")
+    Call<UploadSession> getUpload(@Path("uploadId") String uploadId);
+
+    /**
+     * Send the bytes starting at offset. The wearable rejects a chunk whose offset does not
+     * match what it holds, which makes a repeated PUT harmless.
+     * @return Session with the new acknowledged offset
+     */
+    @EndpointTimeout(writeMs = 60_000, readMs = 30_000)
+    @PUT("/uploads/{uploadId}")
+    Call<UploadSession> uploadChunk(@Path("uploadId") String uploadId,
+                                    @Header("Upload-Offset") long offset,
+                                    @Body RequestBody chunk);
+
+    /**
+     * Run object detection on the wearable's NPU
+     * @param frame JPEG-encoded camera frame
+     * @return Detections normalised to the frame, with the wearable's queue depth and battery
+     */
+    @POST("/infer")
+    Call<InferenceResponse> infer(@Body RequestBody frame);
+}
@@ -0,0 +1,30 @@
+package com.shanodh.seeforme.network;
+
+import java.util.Random;
+
+/**
+ * Full-jitter exponential backoff for reconnecting to the wearable: each delay is random up to
+ * a doubling, capped bound, so a wearable that restarts is not hit by every stream at once.
+ * Not thread safe.
+ */
+class Backoff {
+    private final long initialMs;
+    private final long maxMs;
+    private final Random random = new Random();
+    private int failures;
+
+    Backoff(long initialMs, long maxMs) {
+        this.initialMs = initialMs;
+        this.maxMs = maxMs;
+    }
+
+    long nextDelayMs() {
+        int exponent = Math.min(failures++, 16);
+        long bound = Math.min(maxMs, initialMs << exponent);
+        return initialMs / 2 + (long) (random.nextDouble() * (bound - initialMs / 2));
+    }
+
+    void reset() {
+        failures = 0;
+    }
+}
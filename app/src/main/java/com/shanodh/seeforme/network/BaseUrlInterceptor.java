@@ -0,0 +1,46 @@
+package com.shanodh.seeforme.network;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Points requests at the current wearable address. Retrofit is built once against a fixed
+ * base URL and this rewrites the scheme, host and port, so changing the wearable address does
+ * not rebuild the client or drop its connection pool.
+ */
+class BaseUrlInterceptor implements Interceptor {
+    private volatile HttpUrl baseUrl;
+
+    BaseUrlInterceptor(HttpUrl baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    void setBaseUrl(HttpUrl baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    HttpUrl getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl target = baseUrl;
+        HttpUrl url = request.url();
+        if (url.host().equals(target.host()) && url.port() == target.port()
+                && url.scheme().equals(target.scheme())) {
+            return chain.proceed(request);
+        }
+        HttpUrl rewritten = url.newBuilder()
+                .scheme(target.scheme())
+                .host(target.host())
+                .port(target.port())
+                .build();
+        return chain.proceed(request.newBuilder().url(rewritten).build());
+    }
+}
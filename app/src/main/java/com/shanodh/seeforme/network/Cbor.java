@@ -0,0 +1,334 @@
+package com.shanodh.seeforme.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal CBOR (RFC 8949) reader and writer for WearableCodec.
+ *
+ * Covers what the wearable protocol uses: integers, text and byte strings, definite-length
+ * arrays and maps, booleans, null and floats. Indefinite lengths and tags are rejected.
+ */
+final class Cbor {
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_SIMPLE = 7;
+
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int FLOAT16 = 0xF9;
+    private static final int FLOAT32 = 0xFA;
+    private static final int FLOAT64 = 0xFB;
+
+    private Cbor() {
+    }
+
+    static final class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+        Writer mapHeader(int entries) {
+            writeHead(MAJOR_MAP, entries);
+            return this;
+        }
+
+        Writer arrayHeader(int items) {
+            writeHead(MAJOR_ARRAY, items);
+            return this;
+        }
+
+        Writer writeLong(long value) {
+            if (value >= 0) {
+                writeHead(MAJOR_UNSIGNED, value);
+            } else {
+                writeHead(MAJOR_NEGATIVE, -1 - value);
+            }
+            return this;
+        }
+
+        Writer writeString(String value) {
+            if (value == null) {
+                return writeNull();
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeHead(MAJOR_TEXT, bytes.length);
+            out.write(bytes, 0, bytes.length);
+            return this;
+        }
+
+        Writer writeBoolean(boolean value) {
+            out.write(value ? TRUE : FALSE);
+            return this;
+        }
+
+        Writer writeNull() {
+            out.write(NULL);
+            return this;
+        }
+
+        Writer writeDouble(double value) {
+            float narrowed = (float) value;
+            if (narrowed == value) {
+                out.write(FLOAT32);
+                writeBigEndian(Float.floatToIntBits(narrowed) & 0xFFFFFFFFL, 4);
+            } else {
+                out.write(FLOAT64);
+                writeBigEndian(Double.doubleToLongBits(value), 8);
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void writeHead(int major, long argument) {
+            int type = major << 5;
+            if (argument < 24) {
+                out.write(type | (int) argument);
+            } else if (argument <= 0xFF) {
+                out.write(type | 24);
+                writeBigEndian(argument, 1);
+            } else if (argument <= 0xFFFF) {
+                out.write(type | 25);
+                writeBigEndian(argument, 2);
+            } else if (argument <= 0xFFFFFFFFL) {
+                out.write(type | 26);
+                writeBigEndian(argument, 4);
+            } else {
+                out.write(type | 27);
+                writeBigEndian(argument, 8);
+            }
+        }
+
+        private void writeBigEndian(long value, int bytes) {
+            for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+                out.write((int) (value >>> shift) & 0xFF);
+            }
+        }
+    }
+
+    static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        boolean hasMore() {
+            return pos < data.length;
+        }
+
+        /**
+         * Consume a null if that is what comes next
+         */
+        boolean readNullIfPresent() throws IOException {
+            if (peek() == NULL) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        int readMapHeader() throws IOException {
+            return readLength(MAJOR_MAP);
+        }
+
+        int readArrayHeader() throws IOException {
+            return readLength(MAJOR_ARRAY);
+        }
+
+        long readLong() throws IOException {
+            int major = peek() >>> 5;
+            long argument = readHead(major == MAJOR_NEGATIVE ? MAJOR_NEGATIVE : MAJOR_UNSIGNED);
+            // Arguments above 2^63 - 1 come back negative and do not fit a long
+            if (argument < 0) {
+                throw new IOException("Integer out of range");
+            }
+            return major == MAJOR_NEGATIVE ? -1 - argument : argument;
+        }
+
+        String readString() throws IOException {
+            if (readNullIfPresent()) {
+                return null;
+            }
+            int length = readLength(MAJOR_TEXT);
+            require(length);
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        boolean readBoolean() throws IOException {
+            int initial = next();
+            if (initial == TRUE) {
+                return true;
+            } else if (initial == FALSE) {
+                return false;
+            }
+            throw new IOException("Expected boolean, got 0x" + Integer.toHexString(initial));
+        }
+
+        /**
+         * Any float width, or an integer
+         */
+        double readDouble() throws IOException {
+            int initial = peek();
+            int major = initial >>> 5;
+            if (major == MAJOR_UNSIGNED || major == MAJOR_NEGATIVE) {
+                return readLong();
+            }
+            pos++;
+            switch (initial) {
+                case FLOAT16:
+                    return halfToFloat((int) readBigEndian(2));
+                case FLOAT32:
+                    return Float.intBitsToFloat((int) readBigEndian(4));
+                case FLOAT64:
+                    return Double.longBitsToDouble(readBigEndian(8));
+                default:
+                    throw new IOException("Expected number, got 0x" + Integer.toHexString(initial));
+            }
+        }
+
+        /**
+         * Decode whatever comes next into Maps, Lists, Longs, Doubles, Strings, Booleans,
+         * byte arrays or null, the same shapes Gson produces for an untyped field
+         */
+        Object readAny() throws IOException {
+            int initial = peek();
+            switch (initial >>> 5) {
+                case MAJOR_UNSIGNED:
+                case MAJOR_NEGATIVE:
+                    return readLong();
+                case MAJOR_BYTES: {
+                    int length = readLength(MAJOR_BYTES);
+                    require(length);
+                    byte[] bytes = new byte[length];
+                    System.arraycopy(data, pos, bytes, 0, length);
+                    pos += length;
+                    return bytes;
+                }
+                case MAJOR_TEXT:
+                    return readString();
+                case MAJOR_ARRAY: {
+                    int count = readArrayHeader();
+                    List<Object> list = new ArrayList<>(Math.min(count, 64));
+                    for (int i = 0; i < count; i++) {
+                        list.add(readAny());
+                    }
+                    return list;
+                }
+                case MAJOR_MAP: {
+                    int count = readMapHeader();
+                    Map<Object, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i < count; i++) {
+                        Object key = readAny();
+                        map.put(key, readAny());
+                    }
+                    return map;
+                }
+                case MAJOR_SIMPLE:
+                    if (initial == TRUE || initial == FALSE) {
+                        return readBoolean();
+                    } else if (initial == NULL) {
+                        pos++;
+                        return null;
+                    }
+                    return readDouble();
+                default:
+                    throw new IOException("Unsupported CBOR item 0x" + Integer.toHexString(initial));
+            }
+        }
+
+        /**
+         * Skip one item, for keys a newer wearable sends that this build does not know
+         */
+        void skip() throws IOException {
+            readAny();
+        }
+
+        /**
+         * A string length or item count; anything past Integer.MAX_VALUE cannot be in the buffer
+         */
+        private int readLength(int expectedMajor) throws IOException {
+            long length = readHead(expectedMajor);
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("CBOR length " + Long.toUnsignedString(length) + " too large");
+            }
+            return (int) length;
+        }
+
+        private long readHead(int expectedMajor) throws IOException {
+            int initial = next();
+            if (initial >>> 5 != expectedMajor) {
+                throw new IOException("Expected major type " + expectedMajor + ", got 0x"
+                        + Integer.toHexString(initial));
+            }
+            int info = initial & 0x1F;
+            if (info < 24) {
+                return info;
+            }
+            switch (info) {
+                case 24:
+                    return readBigEndian(1);
+                case 25:
+                    return readBigEndian(2);
+                case 26:
+                    return readBigEndian(4);
+                case 27:
+                    return readBigEndian(8);
+                default:
+                    throw new IOException("Indefinite or reserved length not supported");
+            }
+        }
+
+        private long readBigEndian(int bytes) throws IOException {
+            require(bytes);
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value = (value << 8) | (data[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        private int peek() throws IOException {
+            require(1);
+            return data[pos] & 0xFF;
+        }
+
+        private int next() throws IOException {
+            require(1);
+            return data[pos++] & 0xFF;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (bytes < 0 || bytes > data.length - pos) {
+                throw new IOException("Truncated CBOR");
+            }
+        }
+
+        private static float halfToFloat(int half) {
+            int sign = (half & 0x8000) << 16;
+            int exponent = (half >>> 10) & 0x1F;
+            int mantissa = half & 0x3FF;
+            if (exponent == 0) {
+                float value = mantissa * (1f / (1 << 24));
+                return sign == 0 ? value : -value;
+            } else if (exponent == 0x1F) {
+                return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+            }
+            return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.shanodh.seeforme.network;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Decodes wearable responses sent as CBOR and hands everything else to the next converter,
+ * so firmware that only speaks JSON keeps working. Register it ahead of the Gson factory.
+ */
+class CborConverterFactory extends Converter.Factory {
+
+    interface Decoder<T> {
+        T decode(byte[] bytes) throws IOException;
+    }
+
+    static CborConverterFactory create() {
+        return new CborConverterFactory();
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        Decoder<?> decoder = decoderFor(type);
+        if (decoder == null) {
+            return null;
+        }
+        Converter<ResponseBody, ?> fallback = retrofit.nextResponseBodyConverter(this, type, annotations);
+        return body -> {
+            if (!isCbor(body.contentType())) {
+                return fallback.convert(body);
+            }
+            try {
+                return decoder.decode(body.bytes());
+            } finally {
+                body.close();
+            }
+        };
+    }
+
+    private static Decoder<?> decoderFor(Type type) {
+        if (type == ApiResponse.class) {
+            return WearableCodec::decodeApiResponse;
+        } else if (type == NotificationResponse.class) {
+            return WearableCodec::decodeNotification;
+        } else if (type == UploadSession.class) {
+            return WearableCodec::decodeUploadSession;
+        } else if (type == InferenceResponse.class) {
+            return WearableCodec::decodeInferenceResponse;
+        } else if (type == NoteSyncResponse.class) {
+            return WearableCodec::decodeNoteSyncResponse;
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            if (parameterized.getRawType() == List.class
+                    && parameterized.getActualTypeArguments()[0] == NotificationResponse.class) {
+                return WearableCodec::decodeNotificationList;
+            }
+        }
+        return null;
+    }
+
+    static boolean isCbor(MediaType contentType) {
+        return contentType != null && "application".equals(contentType.type())
+                && "cbor".equals(contentType.subtype());
+    }
+}
@@ -0,0 +1,130 @@
+package com.shanodh.seeforme.network;
+
+/**
+ * Fails wearable calls fast once the wearable has stopped answering.
+ *
+ * After FAILURE_THRESHOLD consecutive failures the breaker opens and calls are refused without
+ * touching the network. Once the open period has passed, one trial call is let through
+ * (half-open): success closes the breaker, failure opens it again for twice as long, up to
+ * maxOpenMs. WearableHealthMonitor's probes bypass the breaker and close it as soon as the
+ * wearable answers. Times are passed in so the breaker can be driven by a fake clock.
+ */
+class CircuitBreaker {
+    static final int FAILURE_THRESHOLD = 3;
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    interface Listener {
+        void onStateChanged(State state);
+    }
+
+    private final long initialOpenMs;
+    private final long maxOpenMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openMs;
+    private long openUntil;
+    private boolean trialInFlight;
+    private volatile Listener listener;
+
+    CircuitBreaker(long initialOpenMs, long maxOpenMs) {
+        this.initialOpenMs = initialOpenMs;
+        this.maxOpenMs = maxOpenMs;
+        this.openMs = initialOpenMs;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Whether a call may go out now. In the half-open state only one trial call is allowed
+     * until its outcome is recorded.
+     */
+    boolean allowRequest(long now) {
+        State changed = null;
+        boolean allowed;
+        synchronized (this) {
+            if (state == State.OPEN && now >= openUntil) {
+                changed = setState(State.HALF_OPEN);
+                trialInFlight = false;
+            }
+            if (state == State.CLOSED) {
+                allowed = true;
+            } else if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                allowed = true;
+            } else {
+                allowed = false;
+            }
+        }
+        notifyListener(changed);
+        return allowed;
+    }
+
+    void recordSuccess() {
+        State changed;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            openMs = initialOpenMs;
+            trialInFlight = false;
+            changed = setState(State.CLOSED);
+        }
+        notifyListener(changed);
+    }
+
+    void recordFailure(long now) {
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN) {
+                openMs = Math.min(maxOpenMs, openMs * 2);
+                changed = open(now);
+            } else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+                changed = open(now);
+            }
+        }
+        notifyListener(changed);
+    }
+
+    /**
+     * Forget past failures, e.g. after switching to a different wearable
+     */
+    void reset() {
+        recordSuccess();
+    }
+
+    /**
+     * A call that ended without telling us anything, e.g. it was cancelled
+     */
+    synchronized void recordIgnored() {
+        trialInFlight = false;
+    }
+
+    private State open(long now) {
+        openUntil = now + openMs;
+        trialInFlight = false;
+        return setState(State.OPEN);
+    }
+
+    // Returns the new state if it changed, for notifying outside the lock
+    private State setState(State newState) {
+        if (state == newState) {
+            return null;
+        }
+        state = newState;
+        return newState;
+    }
+
+    private void notifyListener(State changed) {
+        Listener current = listener;
+        if (changed != null && current != null) {
+            current.onStateChanged(changed);
+        }
+    }
+}
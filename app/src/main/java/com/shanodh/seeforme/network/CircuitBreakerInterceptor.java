@@ -0,0 +1,44 @@
+package com.shanodh.seeforme.network;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Refuses calls while the breaker is open and reports each call's outcome to it. Any HTTP
+ * response means the wearable is reachable. Network errors and socket timeouts count as
+ * failures; a caller's own deadline (RemoteDetectorBackend's) or a cancel says nothing about
+ * the link and is not counted.
+ */
+class CircuitBreakerInterceptor implements Interceptor {
+    private final CircuitBreaker breaker;
+
+    CircuitBreakerInterceptor(CircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (!breaker.allowRequest(System.currentTimeMillis())) {
+            throw new WearableUnavailableException("Wearable unreachable, not calling "
+                    + chain.request().url().encodedPath());
+        }
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            boolean linkFailure = !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+            if (linkFailure && !chain.call().isCanceled()) {
+                breaker.recordFailure(System.currentTimeMillis());
+            } else {
+                breaker.recordIgnored();
+            }
+            throw e;
+        }
+        breaker.recordSuccess();
+        return response;
+    }
+}
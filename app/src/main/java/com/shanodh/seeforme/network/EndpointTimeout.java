@@ -0,0 +1,20 @@
+package com.shanodh.seeforme.network;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Per-endpoint timeouts for ApiService methods, in milliseconds. Zero keeps the client default.
+ * Applied by EndpointTimeoutInterceptor.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EndpointTimeout {
+    int connectMs() default 0;
+    int readMs() default 0;
+    int writeMs() default 0;
+}
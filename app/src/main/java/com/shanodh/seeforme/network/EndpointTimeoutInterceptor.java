@@ -0,0 +1,36 @@
+package com.shanodh.seeforme.network;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+/**
+ * Applies the EndpointTimeout of the ApiService method that made the request
+ */
+class EndpointTimeoutInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Invocation invocation = chain.request().tag(Invocation.class);
+        EndpointTimeout timeout = invocation != null
+                ? invocation.method().getAnnotation(EndpointTimeout.class)
+                : null;
+        if (timeout == null) {
+            return chain.proceed(chain.request());
+        }
+        Chain tuned = chain;
+        if (timeout.connectMs() > 0) {
+            tuned = tuned.withConnectTimeout(timeout.connectMs(), TimeUnit.MILLISECONDS);
+        }
+        if (timeout.readMs() > 0) {
+            tuned = tuned.withReadTimeout(timeout.readMs(), TimeUnit.MILLISECONDS);
+        }
+        if (timeout.writeMs() > 0) {
+            tuned = tuned.withWriteTimeout(timeout.writeMs(), TimeUnit.MILLISECONDS);
+        }
+        return tuned.proceed(chain.request());
+    }
+}
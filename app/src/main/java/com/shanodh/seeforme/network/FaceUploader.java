@@ -0,0 +1,221 @@
+package com.shanodh.seeforme.network;
+
+import android.util.Log;
+
+import com.shanodh.seeforme.data.FamiliarFace;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.MediaType;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Uploads face images to the wearable from their stored files.
+ *
+ * Each image is sent through a resumable session keyed by its SHA-256: the wearable reports
+ * how many bytes it already holds and every chunk is a file-backed body starting at that
+ * offset, so nothing is compressed into memory and a dropped link costs at most one chunk.
+ * If a chunk fails, the acknowledged offset is fetched again and the upload carries on from
+ * there. Uploads run one at a time on a single thread, so a bulk enroll reuses one keep-alive
+ * connection from ApiClient's pool instead of opening one per face.
+ */
+public class FaceUploader {
+    private static final String TAG = "FaceUploader";
+    static final int CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_RESUMES = 5;
+    private static final long RESUME_BASE_DELAY_MS = 500;
+    private static final int HTTP_CONFLICT = 409;
+    private static final MediaType WEBP = MediaType.get("image/webp");
+    private static final MediaType JPEG = MediaType.get("image/jpeg");
+
+    private static FaceUploader instance;
+
+    private final ApiService api;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Random random = new Random();
+
+    /**
+     * Callbacks run on the upload thread
+     */
+    public interface UploadListener {
+        void onProgress(FamiliarFace face, long bytesSent, long totalBytes);
+        void onUploaded(FamiliarFace face);
+        void onFailed(FamiliarFace face, String error);
+        /** Every face in the batch has been attempted */
+        void onEnrollFinished(int uploaded, int failed);
+    }
+
+    public static synchronized FaceUploader getInstance() {
+        if (instance == null) {
+            instance = new FaceUploader(ApiClient.getApiService());
+        }
+        return instance;
+    }
+
+    public FaceUploader(ApiService api) {
+        this.api = api;
+    }
+
+    public void upload(FamiliarFace face, UploadListener listener) {
+        enroll(Collections.singletonList(face), listener);
+    }
+
+    /**
+     * Upload many faces back to back over the same connection. A face that fails does not
+     * stop the rest.
+     */
+    public void enroll(List<FamiliarFace> faces, UploadListener listener) {
+        executor.execute(() -> {
+            int uploaded = 0;
+            int failed = 0;
+            for (FamiliarFace face : faces) {
+                try {
+                    uploadBlocking(face, listener);
+                    uploaded++;
+                    listener.onUploaded(face);
+                } catch (IOException e) {
+                    failed++;
+                    Log.e(TAG, "❌ Upload failed for " + face.getName(), e);
+                    listener.onFailed(face, e.getMessage());
+                }
+            }
+            Log.d(TAG, "✅ Enroll finished: " + uploaded + " uploaded, " + failed + " failed");
+            listener.onEnrollFinished(uploaded, failed);
+        });
+    }
+
+    /**
+     * Upload one face on the calling thread, resuming from the wearable's offset
+     */
+    public void uploadBlocking(FamiliarFace face, UploadListener listener) throws IOException {
+        if (face.getImagePath() == null) {
+            throw new FileNotFoundException("Face has no image");
+        }
+        File file = new File(face.getImagePath());
+        if (!file.isFile()) {
+            throw new FileNotFoundException(face.getImagePath());
+        }
+        long size = file.length();
+        MediaType contentType = file.getName().endsWith(".webp") ? WEBP : JPEG;
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("sha256", contentHash(file));
+        metadata.put("size", size);
+        metadata.put("contentType", contentType.toString());
+        metadata.put("faceId", face.getFirebaseId());
+        metadata.put("name", face.getName());
+        metadata.put("relationship", face.getRelationship());
+
+        UploadSession session = execute(api.startUpload(metadata));
+        String uploadId = session.getUploadId();
+        long offset = session.getOffset();
+        if (offset > 0 && !session.isComplete()) {
+            Log.d(TAG, "Resuming " + face.getName() + " at " + offset + "/" + size);
+        }
+
+        int resumes = 0;
+        while (!session.isComplete() && offset < size) {
+            long length = Math.min(CHUNK_SIZE, size - offset);
+            try {
+                session = execute(api.uploadChunk(uploadId, offset,
+                        new FileRegionRequestBody(file, offset, length, contentType)));
+                if (session.getOffset() <= offset) {
+                    throw new IOException("Wearable did not acknowledge chunk at " + offset);
+                }
+                offset = session.getOffset();
+                listener.onProgress(face, offset, size);
+            } catch (IOException e) {
+                if (!isResumable(e) || ++resumes > MAX_RESUMES) {
+                    throw e;
+                }
+                Log.w(TAG, "Chunk at " + offset + " failed, resuming", e);
+                sleepBeforeResume(resumes);
+                session = execute(api.getUpload(uploadId));
+                offset = session.getOffset();
+            }
+        }
+    }
+
+    private static <T> T execute(Call<T> call) throws IOException {
+        Response<T> response = call.execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new HttpStatusException(response.code(), response.message());
+        }
+        return response.body();
+    }
+
+    /**
+     * Network errors, offset conflicts and server errors can be resumed; anything else is a
+     * request the wearable will keep rejecting
+     */
+    private static boolean isResumable(IOException e) {
+        if (e instanceof HttpStatusException) {
+            int code = ((HttpStatusException) e).code;
+            return code == HTTP_CONFLICT || code >= 500;
+        }
+        return !(e instanceof FileNotFoundException);
+    }
+
+    private void sleepBeforeResume(int attempt) throws IOException {
+        long bound = RESUME_BASE_DELAY_MS << Math.min(attempt, 6);
+        try {
+            Thread.sleep((long) (random.nextDouble() * bound));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        }
+    }
+
+    /**
+     * Files in FaceImageStore are already named by their hash; anything else is hashed here
+     */
+    static String contentHash(File file) throws IOException {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        if (stem.matches("[0-9a-f]{64}")) {
+            return stem;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int code;
+
+        HttpStatusException(int code, String message) {
+            super("HTTP " + code + " " + message);
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.shanodh.seeforme.network;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Request body that streams a byte range of a file, so uploads never hold the image in memory.
+ * It reopens the file on every write, so OkHttp can replay it on a retry.
+ */
+public class FileRegionRequestBody extends RequestBody {
+    private final File file;
+    private final long offset;
+    private final long length;
+    private final MediaType contentType;
+
+    public FileRegionRequestBody(File file, long offset, long length, MediaType contentType) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.contentType = contentType;
+    }
+
+    /**
+     * The whole file
+     */
+    public static FileRegionRequestBody of(File file, MediaType contentType) {
+        return new FileRegionRequestBody(file, 0, file.length(), contentType);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+            source.skip(offset);
+            sink.write(source, length);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.shanodh.seeforme.network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of running object detection on the wearable, plus the load figures the phone uses to
+ * decide where the next frame should go
+ */
+public class InferenceResponse {
+    private List<Box> detections = new ArrayList<>();
+    private long inferenceMs;
+    private int queueDepth;
+    // -1 when the wearable does not report it
+    private int batteryPercent = -1;
+
+    /**
+     * One detection, with coordinates normalised to 0..1 of the frame that was sent
+     */
+    public static class Box {
+        private String label;
+        private float confidence;
+        private float left;
+        private float top;
+        private float right;
+        private float bottom;
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        public void setConfidence(float confidence) {
+            this.confidence = confidence;
+        }
+
+        public float getLeft() {
+            return left;
+        }
+
+        public void setLeft(float left) {
+            this.left = left;
+        }
+
+        public float getTop() {
+            return top;
+        }
+
+        public void setTop(float top) {
+            this.top = top;
+        }
+
+        public float getRight() {
+            return right;
+        }
+
+        public void setRight(float right) {
+            this.right = right;
+        }
+
+        public float getBottom() {
+            return bottom;
+        }
+
+        public void setBottom(float bottom) {
+            this.bottom = bottom;
+        }
+    }
+
+    public List<Box> getDetections() {
+        return detections;
+    }
+
+    public void setDetections(List<Box> detections) {
+        this.detections = detections;
+    }
+
+    public long getInferenceMs() {
+        return inferenceMs;
+    }
+
+    public void setInferenceMs(long inferenceMs) {
+        this.inferenceMs = inferenceMs;
+    }
+
+    /**
+     * Frames waiting on the wearable when this one finished
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public int getBatteryPercent() {
+        return batteryPercent;
+    }
+
+    public void setBatteryPercent(int batteryPercent) {
+        this.batteryPercent = batteryPercent;
+    }
+}
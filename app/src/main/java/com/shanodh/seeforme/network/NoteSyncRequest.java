@@ -0,0 +1,88 @@
+package com.shanodh.seeforme.network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One batched change to the wearable's note set. The wearable applies it only when its own
+ * digest still equals baseDigest, so a batch computed against a stale view is never half applied.
+ */
+public class NoteSyncRequest {
+    private String baseDigest;
+    private String digest;
+    private List<Entry> upserts = new ArrayList<>();
+    private List<String> deletes = new ArrayList<>();
+
+    /**
+     * A note the wearable is missing or holds an older version of
+     */
+    public static class Entry {
+        private String id;
+        private String version;
+        private String title;
+        private String content;
+        private String category;
+
+        public Entry(String id, String version, String title, String content, String category) {
+            this.id = id;
+            this.version = version;
+            this.title = title;
+            this.content = content;
+            this.category = category;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+    }
+
+    /**
+     * Digest of the note set the changes were computed against
+     */
+    public String getBaseDigest() {
+        return baseDigest;
+    }
+
+    public void setBaseDigest(String baseDigest) {
+        this.baseDigest = baseDigest;
+    }
+
+    /**
+     * Digest the wearable's note set has once the changes are applied
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public List<Entry> getUpserts() {
+        return upserts;
+    }
+
+    public List<String> getDeletes() {
+        return deletes;
+    }
+
+    public boolean isEmpty() {
+        return upserts.isEmpty() && deletes.isEmpty();
+    }
+}
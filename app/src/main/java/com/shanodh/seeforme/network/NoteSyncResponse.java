@@ -0,0 +1,37 @@
+package com.shanodh.seeforme.network;
+
+import java.util.Map;
+
+/**
+ * The wearable's answer to a NoteSyncRequest. When the batch was not applied, versions holds
+ * the wearable's whole note set (note ID to version) so the phone can recompute the difference.
+ */
+public class NoteSyncResponse {
+    private boolean applied;
+    private String digest;
+    private Map<String, String> versions;
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public Map<String, String> getVersions() {
+        return versions;
+    }
+
+    public void setVersions(Map<String, String> versions) {
+        this.versions = versions;
+    }
+}
@@ -0,0 +1,75 @@
+package com.shanodh.seeforme.network;
+
+import java.util.Map;
+
+/**
+ * Typed body of a wearable notification. Which fields are set depends on the type:
+ * note_detected carries noteId and text, face_recognized carries faceId and name.
+ */
+public class NotificationPayload {
+    private String faceId;
+    private String name;
+    private String noteId;
+    private String text;
+    private float confidence;
+
+    public String getFaceId() {
+        return faceId;
+    }
+
+    public void setFaceId(String faceId) {
+        this.faceId = faceId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(String noteId) {
+        this.noteId = noteId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(float confidence) {
+        this.confidence = confidence;
+    }
+
+    /**
+     * Read the untyped map Gson produces from older, JSON-only firmware
+     */
+    static NotificationPayload fromMap(Map<?, ?> map) {
+        NotificationPayload payload = new NotificationPayload();
+        payload.faceId = stringOrNull(map.get("faceId"));
+        payload.name = stringOrNull(map.get("name"));
+        payload.noteId = stringOrNull(map.get("noteId"));
+        payload.text = stringOrNull(map.get("text"));
+        Object confidence = map.get("confidence");
+        if (confidence instanceof Number) {
+            payload.confidence = ((Number) confidence).floatValue();
+        }
+        return payload;
+    }
+
+    private static String stringOrNull(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -1,13 +1,23 @@
 package com.shanodh.seeforme.network;
 
+import java.util.Map;
+
 /**
- * Notification response from the wearable device
+ * Notification response from the wearable device.
+ * Binary responses fill payload directly; JSON ones leave the untyped data map, which
+ * getPayload() converts on first use.
  */
 public class NotificationResponse {
+    public static final String TYPE_NOTE_DETECTED = "note_detected";
+    public static final String TYPE_FACE_RECOGNIZED = "face_recognized";
+    // Keep-alive frames on the event stream; never delivered to listeners
+    public static final String TYPE_HEARTBEAT = "heartbeat";
+
     private String type;
     private String message;
     private long timestamp;
     private Object data;
+    private transient NotificationPayload payload;
 
     public String getType() {
         return type;
@@ -40,4 +50,18 @@ public class NotificationResponse {
     public void setData(Object data) {
         this.data = data;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Typed payload, or null if the notification has none
+     */
+    public NotificationPayload getPayload() {
+        if (payload == null && data instanceof Map) {
+            payload = NotificationPayload.fromMap((Map<?, ?>) data);
+        }
+        return payload;
+    }
+
+    public void setPayload(NotificationPayload payload) {
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,86 @@
+package com.shanodh.seeforme.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Retries idempotent requests that failed on the network or got a 502/503/504, with full-jitter
+ * exponential backoff. POSTs are never retried: the wearable may already have acted on them.
+ */
+class RetryInterceptor implements Interceptor {
+    private static final String TAG = "RetryInterceptor";
+
+    private final int maxRetries;
+    private final long baseDelayMs;
+    private final Random random = new Random();
+
+    RetryInterceptor(int maxRetries, long baseDelayMs) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMs = baseDelayMs;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isIdempotent(request.method())) {
+            return chain.proceed(request);
+        }
+        for (int attempt = 0; ; attempt++) {
+            boolean lastAttempt = attempt >= maxRetries;
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (InterruptedIOException e) {
+                // Timeouts and cancellation; retrying would only stack more waiting on top
+                throw e;
+            } catch (IOException e) {
+                if (lastAttempt || chain.call().isCanceled()) {
+                    throw e;
+                }
+                Log.w(TAG, request.url().encodedPath() + " failed, retry " + (attempt + 1), e);
+                backoff(attempt);
+                continue;
+            }
+            if (lastAttempt || !isTransient(response.code()) || chain.call().isCanceled()) {
+                return response;
+            }
+            response.close();
+            Log.w(TAG, request.url().encodedPath() + " returned " + response.code() + ", retry " + (attempt + 1));
+            backoff(attempt);
+        }
+    }
+
+    private void backoff(int attempt) throws IOException {
+        long bound = baseDelayMs << Math.min(attempt, 10);
+        try {
+            Thread.sleep((long) (random.nextDouble() * bound));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+
+    private static boolean isIdempotent(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+            case "PUT":
+            case "DELETE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isTransient(int code) {
+        return code == 502 || code == 503 || code == 504;
+    }
+}
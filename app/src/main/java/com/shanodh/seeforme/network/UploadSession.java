@@ -0,0 +1,46 @@
+package com.shanodh.seeforme.network;
+
+/**
+ * State of a resumable upload as acknowledged by the wearable
+ */
+public class UploadSession {
+    private String uploadId;
+    private long offset;
+    private long size;
+    private boolean complete;
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * Bytes the wearable has durably received; the next chunk starts here
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
@@ -0,0 +1,266 @@
+package com.shanodh.seeforme.network;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary wire format for the wearable API: CBOR maps keyed by small integers.
+ *
+ * This class is the schema. Field numbers are never reused; a new field gets the next number
+ * and readers skip numbers they do not know, so either side can be upgraded first. Encoding and
+ * decoding are written out per type, with no reflection.
+ *
+ * ApiResponse          0 success (bool), 1 message (text), 2 data (any)
+ * NotificationResponse 0 type (text), 1 message (text), 2 timestamp (int), 3 payload (map)
+ * NotificationPayload  0 faceId, 1 name, 2 noteId, 3 text (all text), 4 confidence (float)
+ * UploadSession        0 uploadId (text), 1 offset (int), 2 size (int), 3 complete (bool)
+ * InferenceResponse    0 detections (array of Box), 1 inferenceMs (int), 2 queueDepth (int),
+ *                      3 batteryPercent (int)
+ * InferenceResponse.Box 0 label (text), 1 confidence, 2 left, 3 top, 4 right, 5 bottom (floats)
+ * NoteSyncResponse     0 applied (bool), 1 digest (text), 2 versions (map of text to text)
+ * Notification lists are a CBOR array of NotificationResponse maps.
+ */
+public final class WearableCodec {
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    private WearableCodec() {
+    }
+
+    // ApiResponse
+
+    public static ApiResponse decodeApiResponse(byte[] bytes) throws IOException {
+        Cbor.Reader reader = new Cbor.Reader(bytes);
+        ApiResponse response = new ApiResponse();
+        int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            switch ((int) reader.readLong()) {
+                case 0:
+                    response.setSuccess(reader.readBoolean());
+                    break;
+                case 1:
+                    response.setMessage(reader.readString());
+                    break;
+                case 2:
+                    response.setData(reader.readAny());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return response;
+    }
+
+    // NotificationResponse
+
+    public static byte[] encodeNotification(NotificationResponse notification) {
+        Cbor.Writer writer = new Cbor.Writer();
+        writeNotification(writer, notification);
+        return writer.toByteArray();
+    }
+
+    public static NotificationResponse decodeNotification(byte[] bytes) throws IOException {
+        return readNotification(new Cbor.Reader(bytes));
+    }
+
+    public static List<NotificationResponse> decodeNotificationList(byte[] bytes) throws IOException {
+        Cbor.Reader reader = new Cbor.Reader(bytes);
+        int count = reader.readArrayHeader();
+        List<NotificationResponse> notifications = new ArrayList<>(Math.min(count, 256));
+        for (int i = 0; i < count; i++) {
+            notifications.add(readNotification(reader));
+        }
+        return notifications;
+    }
+
+    private static void writeNotification(Cbor.Writer writer, NotificationResponse notification) {
+        NotificationPayload payload = notification.getPayload();
+        writer.mapHeader(payload != null ? 4 : 3);
+        writer.writeLong(0).writeString(notification.getType());
+        writer.writeLong(1).writeString(notification.getMessage());
+        writer.writeLong(2).writeLong(notification.getTimestamp());
+        if (payload != null) {
+            writer.writeLong(3).mapHeader(5);
+            writer.writeLong(0).writeString(payload.getFaceId());
+            writer.writeLong(1).writeString(payload.getName());
+            writer.writeLong(2).writeString(payload.getNoteId());
+            writer.writeLong(3).writeString(payload.getText());
+            writer.writeLong(4).writeDouble(payload.getConfidence());
+        }
+    }
+
+    private static NotificationResponse readNotification(Cbor.Reader reader) throws IOException {
+        NotificationResponse notification = new NotificationResponse();
+        int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            switch ((int) reader.readLong()) {
+                case 0:
+                    notification.setType(reader.readString());
+                    break;
+                case 1:
+                    notification.setMessage(reader.readString());
+                    break;
+                case 2:
+                    notification.setTimestamp(reader.readLong());
+                    break;
+                case 3:
+                    if (!reader.readNullIfPresent()) {
+                        notification.setPayload(readPayload(reader));
+                    }
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return notification;
+    }
+
+    private static NotificationPayload readPayload(Cbor.Reader reader) throws IOException {
+        NotificationPayload payload = new NotificationPayload();
+        int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            switch ((int) reader.readLong()) {
+                case 0:
+                    payload.setFaceId(reader.readString());
+                    break;
+                case 1:
+                    payload.setName(reader.readString());
+                    break;
+                case 2:
+                    payload.setNoteId(reader.readString());
+                    break;
+                case 3:
+                    payload.setText(reader.readString());
+                    break;
+                case 4:
+                    payload.setConfidence((float) reader.readDouble());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return payload;
+    }
+
+    // UploadSession
+
+    public static UploadSession decodeUploadSession(byte[] bytes) throws IOException {
+        Cbor.Reader reader = new Cbor.Reader(bytes);
+        UploadSession session = new UploadSession();
+        int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            switch ((int) reader.readLong()) {
+                case 0:
+                    session.setUploadId(reader.readString());
+                    break;
+                case 1:
+                    session.setOffset(reader.readLong());
+                    break;
+                case 2:
+                    session.setSize(reader.readLong());
+                    break;
+                case 3:
+                    session.setComplete(reader.readBoolean());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return session;
+    }
+
+    // InferenceResponse
+
+    public static InferenceResponse decodeInferenceResponse(byte[] bytes) throws IOException {
+        Cbor.Reader reader = new Cbor.Reader(bytes);
+        InferenceResponse response = new InferenceResponse();
+        int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            switch ((int) reader.readLong()) {
+                case 0: {
+                    int count = reader.readArrayHeader();
+                    List<InferenceResponse.Box> boxes = new ArrayList<>(Math.min(count, 64));
+                    for (int j = 0; j < count; j++) {
+                        boxes.add(readBox(reader));
+                    }
+                    response.setDetections(boxes);
+                    break;
+                }
+                case 1:
+                    response.setInferenceMs(reader.readLong());
+                    break;
+                case 2:
+                    response.setQueueDepth((int) reader.readLong());
+                    break;
+                case 3:
+                    response.setBatteryPercent((int) reader.readLong());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return response;
+    }
+
+    private static InferenceResponse.Box readBox(Cbor.Reader reader) throws IOException {
+        InferenceResponse.Box box = new InferenceResponse.Box();
+        int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            switch ((int) reader.readLong()) {
+                case 0:
+                    box.setLabel(reader.readString());
+                    break;
+                case 1:
+                    box.setConfidence((float) reader.readDouble());
+                    break;
+                case 2:
+                    box.setLeft((float) reader.readDouble());
+                    break;
+                case 3:
+                    box.setTop((float) reader.readDouble());
+                    break;
+                case 4:
+                    box.setRight((float) reader.readDouble());
+                    break;
+                case 5:
+                    box.setBottom((float) reader.readDouble());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return box;
+    }
+
+    // NoteSyncResponse
+
+    public static NoteSyncResponse decodeNoteSyncResponse(byte[] bytes) throws IOException {
+        Cbor.Reader reader = new Cbor.Reader(bytes);
+        NoteSyncResponse response = new NoteSyncResponse();
+        int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            switch ((int) reader.readLong()) {
+                case 0:
+                    response.setApplied(reader.readBoolean());
+                    break;
+                case 1:
+                    response.setDigest(reader.readString());
+                    break;
+                case 2: {
+                    int count = reader.readMapHeader();
+                    Map<String, String> versions = new HashMap<>(Math.min(count, 1024) * 2);
+                    for (int j = 0; j < count; j++) {
+                        versions.put(reader.readString(), reader.readString());
+                    }
+                    response.setVersions(versions);
+                    break;
+                }
+                default:
+                    reader.skip();
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,382 @@
+package com.shanodh.seeforme.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.LinkAddress;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.nsd.NsdManager;
+import android.net.nsd.NsdServiceInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.shanodh.seeforme.models.WearableDevice;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Finds SeeForMe wearables on the local network.
+ *
+ * Three searches start together and report into one de-duplicated stream: the last paired
+ * address is checked first, DNS-SD browses for _seeforme._tcp, and every host on the Wi-Fi
+ * subnet (at most a /24) is probed on GET /status with short timeouts and up to
+ * MAX_PARALLEL_PROBES requests in flight. A probe only counts when it answers with a
+ * successful ApiResponse, so other HTTP servers on port 5000 are not mistaken for a wearable.
+ * The search ends after DISCOVERY_TIMEOUT_MS whatever is still outstanding.
+ *
+ * Listener callbacks run on the main thread.
+ */
+public class WearableDiscovery {
+    private static final String TAG = "WearableDiscovery";
+    private static final String SERVICE_TYPE = "_seeforme._tcp.";
+    private static final String PREFS_NAME = "wearable_prefs";
+    private static final String KEY_LAST_HOST = "last_host";
+    private static final String KEY_LAST_PORT = "last_port";
+    private static final String KEY_LAST_NAME = "last_name";
+    private static final String DEVICE_TYPE = "SeeForMe Wearable";
+    private static final String DEFAULT_NAME = "SeeForMe";
+
+    public static final int DEFAULT_PORT = 5000;
+    static final long DISCOVERY_TIMEOUT_MS = 1500;
+    private static final int MAX_PARALLEL_PROBES = 128;
+    private static final long PROBE_CONNECT_TIMEOUT_MS = 400;
+    private static final long PROBE_CALL_TIMEOUT_MS = 900;
+    private static final int MIN_SUBNET_PREFIX = 24;
+
+    public interface DiscoveryListener {
+        void onDeviceFound(WearableDevice device);
+        void onDiscoveryFinished(int devicesFound);
+    }
+
+    private final Context context;
+    private final OkHttpClient probeClient;
+    private final int port;
+    private final Handler mainThread = new Handler(Looper.getMainLooper());
+    private final Executor callbacks;
+    private final Gson gson = new Gson();
+
+    private final Set<String> seen = new HashSet<>();
+    private final ArrayDeque<NsdServiceInfo> resolveQueue = new ArrayDeque<>();
+    private NsdManager nsdManager;
+    private NsdManager.DiscoveryListener nsdListener;
+    private DiscoveryListener listener;
+    private boolean resolving;
+    private boolean running;
+    private int nextId;
+
+    public WearableDiscovery(Context context) {
+        this(context, ApiClient.getHttpClient(), DEFAULT_PORT);
+    }
+
+    /**
+     * Probe a different port, for stand-in wearables in tests
+     */
+    public WearableDiscovery(Context context, OkHttpClient baseClient, int port) {
+        this(context, baseClient, port, null);
+    }
+
+    /**
+     * Deliver onDeviceFound on callbackExecutor instead, or on the main thread when it is null
+     */
+    WearableDiscovery(Context context, OkHttpClient baseClient, int port, Executor callbackExecutor) {
+        this.context = context.getApplicationContext();
+        this.port = port;
+        this.callbacks = callbackExecutor != null ? callbackExecutor : mainThread::post;
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_PARALLEL_PROBES);
+        dispatcher.setMaxRequestsPerHost(1);
+        this.probeClient = baseClient.newBuilder()
+                .dispatcher(dispatcher)
+                .connectTimeout(PROBE_CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .callTimeout(PROBE_CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    /**
+     * Start searching. Call from the main thread.
+     */
+    public void start(DiscoveryListener listener) {
+        stop();
+        this.listener = listener;
+        running = true;
+        synchronized (seen) {
+            seen.clear();
+        }
+        nextId = 0;
+
+        WearableDevice lastKnown = getLastKnownDevice(context);
+        if (lastKnown != null) {
+            probe(lastKnown.getHost(), lastKnown.getPort());
+        }
+        startNsd();
+        probeSubnet();
+        mainThread.postDelayed(this::finish, DISCOVERY_TIMEOUT_MS);
+    }
+
+    /**
+     * Stop searching without reporting onDiscoveryFinished
+     */
+    public void stop() {
+        mainThread.removeCallbacksAndMessages(null);
+        if (!running) {
+            return;
+        }
+        running = false;
+        probeClient.dispatcher().cancelAll();
+        if (nsdManager != null && nsdListener != null) {
+            try {
+                nsdManager.stopServiceDiscovery(nsdListener);
+            } catch (IllegalArgumentException e) {
+                // Discovery never started
+            }
+        }
+        nsdListener = null;
+        resolveQueue.clear();
+        resolving = false;
+    }
+
+    private void finish() {
+        if (!running) {
+            return;
+        }
+        DiscoveryListener current = listener;
+        stop();
+        int found;
+        synchronized (seen) {
+            found = seen.size();
+        }
+        Log.d(TAG, "🔍 Discovery finished, " + found + " wearable(s)");
+        if (current != null) {
+            current.onDiscoveryFinished(found);
+        }
+    }
+
+    // DNS-SD
+
+    private void startNsd() {
+        nsdManager = (NsdManager) context.getSystemService(Context.NSD_SERVICE);
+        if (nsdManager == null) {
+            return;
+        }
+        nsdListener = new NsdManager.DiscoveryListener() {
+            @Override
+            public void onServiceFound(NsdServiceInfo serviceInfo) {
+                mainThread.post(() -> {
+                    if (running) {
+                        resolveQueue.add(serviceInfo);
+                        resolveNext();
+                    }
+                });
+            }
+
+            @Override
+            public void onStartDiscoveryFailed(String serviceType, int errorCode) {
+                Log.w(TAG, "DNS-SD browse failed: " + errorCode);
+            }
+
+            @Override
+            public void onDiscoveryStarted(String serviceType) {
+            }
+
+            @Override
+            public void onServiceLost(NsdServiceInfo serviceInfo) {
+            }
+
+            @Override
+            public void onDiscoveryStopped(String serviceType) {
+            }
+
+            @Override
+            public void onStopDiscoveryFailed(String serviceType, int errorCode) {
+            }
+        };
+        nsdManager.discoverServices(SERVICE_TYPE, NsdManager.PROTOCOL_DNS_SD, nsdListener);
+    }
+
+    /**
+     * NsdManager resolves one service at a time on older releases, so resolves are queued
+     */
+    @SuppressWarnings("deprecation")
+    private void resolveNext() {
+        if (resolving || resolveQueue.isEmpty()) {
+            return;
+        }
+        resolving = true;
+        nsdManager.resolveService(resolveQueue.poll(), new NsdManager.ResolveListener() {
+            @Override
+            public void onServiceResolved(NsdServiceInfo info) {
+                InetAddress host = info.getHost();
+                if (host != null) {
+                    report(info.getServiceName(), host.getHostAddress(), info.getPort());
+                }
+                mainThread.post(() -> {
+                    resolving = false;
+                    if (running) {
+                        resolveNext();
+                    }
+                });
+            }
+
+            @Override
+            public void onResolveFailed(NsdServiceInfo info, int errorCode) {
+                mainThread.post(() -> {
+                    resolving = false;
+                    if (running) {
+                        resolveNext();
+                    }
+                });
+            }
+        });
+    }
+
+    // Subnet probe
+
+    private void probeSubnet() {
+        for (String host : subnetHosts()) {
+            probe(host, port);
+        }
+    }
+
+    /**
+     * Every other address on the active network's IPv4 subnet, capped at a /24 around this
+     * device so a large corporate subnet does not mean thousands of probes
+     */
+    private List<String> subnetHosts() {
+        List<String> hosts = new ArrayList<>();
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        Network network = cm != null ? cm.getActiveNetwork() : null;
+        LinkProperties link = network != null ? cm.getLinkProperties(network) : null;
+        if (link == null) {
+            return hosts;
+        }
+        for (LinkAddress linkAddress : link.getLinkAddresses()) {
+            if (!(linkAddress.getAddress() instanceof Inet4Address)) {
+                continue;
+            }
+            byte[] bytes = linkAddress.getAddress().getAddress();
+            int self = ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16)
+                    | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+            int prefix = Math.max(MIN_SUBNET_PREFIX, linkAddress.getPrefixLength());
+            int hostBits = 32 - prefix;
+            int network32 = self & (-1 << hostBits);
+            for (int i = 1; i < (1 << hostBits) - 1; i++) {
+                int address = network32 | i;
+                if (address != self) {
+                    hosts.add(((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+                            + ((address >>> 8) & 0xFF) + "." + (address & 0xFF));
+                }
+            }
+            break;
+        }
+        return hosts;
+    }
+
+    void probe(String host, int probePort) {
+        Request request = new Request.Builder()
+                .url("http://" + host + ":" + probePort + "/status")
+                .header("Accept", "application/json")
+                .build();
+        probeClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                // Nothing there; most of the subnet ends up here
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful() || body == null) {
+                        return;
+                    }
+                    ApiResponse status = gson.fromJson(body.charStream(), ApiResponse.class);
+                    if (status != null && status.isSuccess()) {
+                        report(nameFrom(status), host, probePort);
+                    }
+                } catch (JsonParseException e) {
+                    // Some other HTTP server
+                }
+            }
+        });
+    }
+
+    private static String nameFrom(ApiResponse status) {
+        if (status.getData() instanceof Map) {
+            Object name = ((Map<?, ?>) status.getData()).get("name");
+            if (name != null) {
+                return name.toString();
+            }
+        }
+        return DEFAULT_NAME;
+    }
+
+    private void report(String name, String host, int devicePort) {
+        synchronized (seen) {
+            if (!seen.add(host + ":" + devicePort)) {
+                return;
+            }
+        }
+        callbacks.execute(() -> {
+            if (running && listener != null) {
+                Log.d(TAG, "📡 Found " + name + " at " + host + ":" + devicePort);
+                listener.onDeviceFound(new WearableDevice(++nextId, name, DEVICE_TYPE, host, devicePort));
+            }
+        });
+    }
+
+    // Last paired device
+
+    /**
+     * Remember the paired wearable and point ApiClient at it
+     */
+    public static void rememberDevice(Context context, WearableDevice device) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_LAST_HOST, device.getHost())
+                .putInt(KEY_LAST_PORT, device.getPort())
+                .putString(KEY_LAST_NAME, device.getName())
+                .apply();
+        ApiClient.setBaseUrl(device.getBaseUrl());
+    }
+
+    public static WearableDevice getLastKnownDevice(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String host = prefs.getString(KEY_LAST_HOST, null);
+        if (host == null) {
+            return null;
+        }
+        return new WearableDevice(0, prefs.getString(KEY_LAST_NAME, DEFAULT_NAME), DEVICE_TYPE,
+                host, prefs.getInt(KEY_LAST_PORT, DEFAULT_PORT));
+    }
+
+    /**
+     * Point ApiClient at the last paired wearable, if any, so the app talks to it straight away
+     */
+    public static void restoreLastKnownDevice(Context context) {
+        WearableDevice device = getLastKnownDevice(context);
+        if (device != null) {
+            ApiClient.setBaseUrl(device.getBaseUrl());
+        }
+    }
+}
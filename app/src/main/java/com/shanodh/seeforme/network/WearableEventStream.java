@@ -0,0 +1,219 @@
+package com.shanodh.seeforme.network;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * Live notifications from the wearable over a WebSocket on /events.
+ *
+ * Replaces polling GET /notifications: the wearable pushes each event as soon as it happens,
+ * as a JSON text frame shaped like NotificationResponse or a binary WearableCodec frame. OkHttp
+ * pings the socket every PING_INTERVAL_SECONDS and fails it when a pong does not come back, so
+ * a wearable that walked out of Wi-Fi range is noticed within one interval rather than at the
+ * next TCP timeout. Dropped
+ * connections are retried with jittered exponential backoff, and the reconnect asks for events
+ * since the last one delivered so nothing is missed while the socket was down.
+ *
+ * Callbacks run on the executor passed in. The constructor taking a client and base URL exists
+ * so the stream can be pointed at a local mock server.
+ */
+public class WearableEventStream {
+    private static final String TAG = "WearableEventStream";
+    private static final String EVENTS_PATH = "events";
+    private static final String SINCE_PARAM = "since";
+    private static final int NORMAL_CLOSURE = 1000;
+
+    static final long PING_INTERVAL_SECONDS = 15;
+    static final long INITIAL_BACKOFF_MS = 1000;
+    static final long MAX_BACKOFF_MS = 60_000;
+
+    public enum State { CONNECTING, CONNECTED, DISCONNECTED, CLOSED }
+
+    public interface EventListener {
+        void onEvent(NotificationResponse event);
+        void onStateChanged(State state);
+    }
+
+    private final OkHttpClient client;
+    private final HttpUrl eventsUrl;
+    private final EventListener listener;
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Gson gson = new Gson();
+    private final Backoff backoff = new Backoff(INITIAL_BACKOFF_MS, MAX_BACKOFF_MS);
+
+    private WebSocket socket;
+    private State state = State.DISCONNECTED;
+    // Bumped on every connect so callbacks from a socket we gave up on are ignored
+    private int generation;
+    private long lastEventTimestamp;
+
+    /**
+     * Stream from the wearable ApiClient currently points at
+     */
+    public WearableEventStream(EventListener listener, Executor callbackExecutor) {
+        this(ApiClient.getHttpClient(), ApiClient.getBaseUrl(), listener, callbackExecutor);
+    }
+
+    public WearableEventStream(OkHttpClient baseClient, String baseUrl,
+                               EventListener listener, Executor callbackExecutor) {
+        this.client = baseClient.newBuilder()
+                .pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                // Liveness comes from the pings; a quiet wearable is not a dead one
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        this.eventsUrl = HttpUrl.get(baseUrl).newBuilder().addPathSegment(EVENTS_PATH).build();
+        this.listener = listener;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Open the stream; it then stays open, reconnecting as needed, until close()
+     */
+    public synchronized void start() {
+        if (state == State.CLOSED || socket != null) {
+            return;
+        }
+        connect();
+    }
+
+    /**
+     * Close the socket and stop reconnecting. The stream cannot be restarted.
+     */
+    public synchronized void close() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        generation++;
+        if (socket != null) {
+            socket.close(NORMAL_CLOSURE, null);
+            socket = null;
+        }
+        scheduler.shutdownNow();
+        setState(State.CLOSED);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void connect() {
+        HttpUrl.Builder url = eventsUrl.newBuilder();
+        if (lastEventTimestamp > 0) {
+            url.addQueryParameter(SINCE_PARAM, Long.toString(lastEventTimestamp));
+        }
+        Request.Builder request = new Request.Builder().url(url.build());
+        if (ApiClient.isBinaryProtocolEnabled()) {
+            // Firmware that understands it answers with binary CBOR frames
+            request.header("Accept", ApiClient.ACCEPT_BINARY);
+        }
+        final int connectGeneration = ++generation;
+        setState(State.CONNECTING);
+        socket = client.newWebSocket(request.build(), new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                synchronized (WearableEventStream.this) {
+                    if (connectGeneration != generation) {
+                        return;
+                    }
+                    backoff.reset();
+                    Log.d(TAG, "📡 Event stream connected");
+                    setState(State.CONNECTED);
+                }
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                NotificationResponse event;
+                try {
+                    event = gson.fromJson(text, NotificationResponse.class);
+                } catch (JsonParseException e) {
+                    Log.w(TAG, "Ignoring malformed event: " + text, e);
+                    return;
+                }
+                handleEvent(connectGeneration, event);
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, ByteString bytes) {
+                NotificationResponse event;
+                try {
+                    event = WearableCodec.decodeNotification(bytes.toByteArray());
+                } catch (IOException e) {
+                    Log.w(TAG, "Ignoring malformed binary event", e);
+                    return;
+                }
+                handleEvent(connectGeneration, event);
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(NORMAL_CLOSURE, null);
+                onDisconnected(connectGeneration, "closed by wearable (" + code + ")");
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                onDisconnected(connectGeneration, t.getMessage());
+            }
+        });
+    }
+
+    private void handleEvent(int connectGeneration, NotificationResponse event) {
+        if (event == null || NotificationResponse.TYPE_HEARTBEAT.equals(event.getType())) {
+            return;
+        }
+        synchronized (this) {
+            if (connectGeneration != generation) {
+                return;
+            }
+            // A replay after reconnect may overlap what was already delivered
+            if (event.getTimestamp() < lastEventTimestamp) {
+                return;
+            }
+            lastEventTimestamp = event.getTimestamp();
+        }
+        callbackExecutor.execute(() -> listener.onEvent(event));
+    }
+
+    private synchronized void onDisconnected(int connectGeneration, String reason) {
+        if (connectGeneration != generation || state == State.CLOSED) {
+            return;
+        }
+        socket = null;
+        long delay = backoff.nextDelayMs();
+        Log.w(TAG, "❌ Event stream lost: " + reason + ", retrying in " + delay + " ms");
+        setState(State.DISCONNECTED);
+        scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void reconnect() {
+        if (state == State.DISCONNECTED && socket == null) {
+            connect();
+        }
+    }
+
+    private void setState(State newState) {
+        if (state == newState) {
+            return;
+        }
+        state = newState;
+        callbackExecutor.execute(() -> listener.onStateChanged(newState));
+    }
+}
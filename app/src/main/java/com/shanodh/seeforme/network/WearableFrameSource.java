@@ -0,0 +1,374 @@
+package com.shanodh.seeforme.network;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * Camera frames from the wearable, as a source for the same detectors CameraX feeds.
+ *
+ * The wearable streams its camera over a WebSocket on /camera, one binary message per frame:
+ * a 13-byte header (format, capture time in microseconds on the wearable's clock, width and
+ * height, big-endian) followed by a JPEG or an NV21 image. Payloads are copied into a small
+ * pool of reused buffers, and only the newest frame waits for the decoder, the way CameraX's
+ * KEEP_ONLY_LATEST works: a detector that falls behind skips frames instead of queueing them.
+ *
+ * Jitter is handled from the capture timestamps. Arrival time minus capture time is the transit
+ * delay plus an unknown clock offset; its minimum over recent frames is the best path, and a
+ * frame that arrives more than MAX_LATENESS_MS behind that (a burst flushed after a Wi-Fi
+ * stall) is dropped as stale rather than detected late. Frames older than the last one
+ * delivered are dropped too.
+ *
+ * Frames are delivered on the decode thread and state changes on whichever thread caused them,
+ * so listeners post to the UI themselves. Like WearableEventStream it reconnects with
+ * backoff until closed, and cannot be restarted after close().
+ */
+public class WearableFrameSource {
+    private static final String TAG = "WearableFrameSource";
+    private static final String CAMERA_PATH = "camera";
+    private static final int NORMAL_CLOSURE = 1000;
+
+    static final int HEADER_BYTES = 13;
+    static final int FORMAT_JPEG = 0;
+    static final int FORMAT_NV21 = 1;
+
+    private static final long MAX_LATENESS_MS = 250;
+    private static final int OFFSET_WINDOW_FRAMES = 90;
+    private static final int BUFFER_POOL_SIZE = 3;
+    private static final int MAX_DECODE_DIMENSION = 1280;
+    private static final long PING_INTERVAL_SECONDS = 5;
+
+    public interface FrameListener {
+        void onFrame(Bitmap frame, long captureTimeMs);
+        void onStateChanged(WearableEventStream.State state);
+    }
+
+    static final class Frame {
+        byte[] data;
+        int length;
+        int format;
+        int width;
+        int height;
+        long captureTimeMs;
+    }
+
+    private final OkHttpClient client;
+    private final HttpUrl cameraUrl;
+    private final FrameListener listener;
+    private final LongSupplier clock;
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Backoff backoff = new Backoff(500, 10_000);
+
+    // Newest frame not yet taken by the decoder
+    private final AtomicReference<Frame> pending = new AtomicReference<>();
+    private final ArrayDeque<Frame> pool = new ArrayDeque<>(BUFFER_POOL_SIZE);
+    // Decode thread only
+    private int[] argb;
+
+    private WebSocket socket;
+    private WearableEventStream.State state = WearableEventStream.State.DISCONNECTED;
+    private volatile int generation;
+
+    // Reader thread only
+    private long windowMinOffset = Long.MAX_VALUE;
+    private long previousMinOffset = Long.MAX_VALUE;
+    private int windowFrames;
+    private long lastTransit = Long.MIN_VALUE;
+    private long lastCaptureTimeMs = Long.MIN_VALUE;
+
+    // Written on the reader thread, read by getStats from any thread
+    private volatile double jitterMs;
+    volatile long received;
+    volatile long droppedLate;
+    volatile long droppedSuperseded;
+
+    /**
+     * Camera of the wearable ApiClient currently points at
+     */
+    public WearableFrameSource(FrameListener listener) {
+        this(ApiClient.getHttpClient(), ApiClient.getBaseUrl(), listener);
+    }
+
+    public WearableFrameSource(OkHttpClient baseClient, String baseUrl, FrameListener listener) {
+        this(baseClient, baseUrl, listener, SystemClock::elapsedRealtime);
+    }
+
+    WearableFrameSource(OkHttpClient baseClient, String baseUrl, FrameListener listener, LongSupplier clock) {
+        this.client = baseClient.newBuilder()
+                .pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        this.cameraUrl = HttpUrl.get(baseUrl).newBuilder().addPathSegment(CAMERA_PATH).build();
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    public synchronized void start() {
+        if (state == WearableEventStream.State.CLOSED || socket != null) {
+            return;
+        }
+        connect();
+    }
+
+    public synchronized void close() {
+        if (state == WearableEventStream.State.CLOSED) {
+            return;
+        }
+        generation++;
+        if (socket != null) {
+            socket.close(NORMAL_CLOSURE, null);
+            socket = null;
+        }
+        scheduler.shutdownNow();
+        decoder.shutdown();
+        setState(WearableEventStream.State.CLOSED);
+    }
+
+    public String getStats() {
+        return String.format(Locale.US, "%d frames, %d late, %d skipped, jitter %.1f ms",
+                received, droppedLate, droppedSuperseded, jitterMs);
+    }
+
+    private void connect() {
+        final int connectGeneration = ++generation;
+        setState(WearableEventStream.State.CONNECTING);
+        resetTiming();
+        socket = client.newWebSocket(new Request.Builder().url(cameraUrl).build(), new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                synchronized (WearableFrameSource.this) {
+                    if (connectGeneration == generation) {
+                        backoff.reset();
+                        Log.d(TAG, "📷 Wearable camera connected");
+                        setState(WearableEventStream.State.CONNECTED);
+                    }
+                }
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, ByteString bytes) {
+                if (connectGeneration == generation) {
+                    onFrameMessage(bytes.asByteBuffer());
+                }
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(NORMAL_CLOSURE, null);
+                onDisconnected(connectGeneration, "closed by wearable (" + code + ")");
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                onDisconnected(connectGeneration, t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Runs on the socket's reader thread
+     */
+    void onFrameMessage(ByteBuffer message) {
+        if (message.remaining() <= HEADER_BYTES) {
+            return;
+        }
+        received++;
+        int format = message.get() & 0xFF;
+        long captureTimeMs = message.getLong() / 1000;
+        int width = message.getShort() & 0xFFFF;
+        int height = message.getShort() & 0xFFFF;
+        if (format != FORMAT_JPEG && format != FORMAT_NV21) {
+            return;
+        }
+        if (captureTimeMs <= lastCaptureTimeMs || isLate(captureTimeMs)) {
+            droppedLate++;
+            return;
+        }
+        lastCaptureTimeMs = captureTimeMs;
+
+        Frame frame = obtainFrame(message.remaining());
+        frame.length = message.remaining();
+        message.get(frame.data, 0, frame.length);
+        frame.format = format;
+        frame.width = width;
+        frame.height = height;
+        frame.captureTimeMs = captureTimeMs;
+
+        Frame superseded = pending.getAndSet(frame);
+        if (superseded != null) {
+            droppedSuperseded++;
+            recycle(superseded);
+        } else if (!decoder.isShutdown()) {
+            decoder.execute(this::decodeLatest);
+        }
+    }
+
+    /**
+     * Track the best transit seen over the last two windows and reject frames that took much
+     * longer. Two windows let the baseline follow clock drift without forgetting it every time
+     * a window rolls over. Also keeps an RFC 3550 style jitter estimate for the stats.
+     */
+    private boolean isLate(long captureTimeMs) {
+        long transit = clock.getAsLong() - captureTimeMs;
+        if (lastTransit != Long.MIN_VALUE) {
+            jitterMs += (Math.abs(transit - lastTransit) - jitterMs) / 16.0;
+        }
+        lastTransit = transit;
+
+        windowMinOffset = Math.min(windowMinOffset, transit);
+        if (++windowFrames >= OFFSET_WINDOW_FRAMES) {
+            previousMinOffset = windowMinOffset;
+            windowMinOffset = Long.MAX_VALUE;
+            windowFrames = 0;
+        }
+        long baseline = Math.min(previousMinOffset, Math.min(windowMinOffset, transit));
+        return transit - baseline > MAX_LATENESS_MS;
+    }
+
+    private void resetTiming() {
+        // A new connection may come from a rebooted wearable with a different clock
+        windowMinOffset = Long.MAX_VALUE;
+        previousMinOffset = Long.MAX_VALUE;
+        windowFrames = 0;
+        lastTransit = Long.MIN_VALUE;
+        lastCaptureTimeMs = Long.MIN_VALUE;
+    }
+
+    private void decodeLatest() {
+        Frame frame = pending.getAndSet(null);
+        if (frame == null) {
+            return;
+        }
+        try {
+            Bitmap bitmap = decode(frame);
+            if (bitmap != null) {
+                listener.onFrame(bitmap, frame.captureTimeMs);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Dropping undecodable frame", e);
+        } finally {
+            recycle(frame);
+        }
+    }
+
+    /**
+     * Runs on the decode thread
+     */
+    Bitmap decode(Frame frame) {
+        return frame.format == FORMAT_JPEG ? decodeJpeg(frame) : decodeNv21(frame);
+    }
+
+    private static Bitmap decodeJpeg(Frame frame) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inSampleSize = 1;
+        // The detectors work at 640 px; there is no point decoding a 4K frame at full size
+        int longest = Math.max(frame.width, frame.height);
+        while (longest / options.inSampleSize > MAX_DECODE_DIMENSION) {
+            options.inSampleSize *= 2;
+        }
+        return BitmapFactory.decodeByteArray(frame.data, 0, frame.length, options);
+    }
+
+    private Bitmap decodeNv21(Frame frame) {
+        int width = frame.width;
+        int height = frame.height;
+        int pixels = width * height;
+        if (width == 0 || height == 0 || frame.length < pixels + pixels / 2) {
+            return null;
+        }
+        if (argb == null || argb.length < pixels) {
+            argb = new int[pixels];
+        }
+        byte[] nv21 = frame.data;
+        for (int y = 0; y < height; y++) {
+            int uvRow = pixels + (y >> 1) * width;
+            for (int x = 0; x < width; x++) {
+                int luma = Math.max(0, (nv21[y * width + x] & 0xFF) - 16);
+                int uv = uvRow + (x & ~1);
+                int v = (nv21[uv] & 0xFF) - 128;
+                int u = (nv21[uv + 1] & 0xFF) - 128;
+                // BT.601 in 10-bit fixed point
+                int y1192 = 1192 * luma;
+                int r = clamp(y1192 + 1634 * v);
+                int g = clamp(y1192 - 833 * v - 400 * u);
+                int b = clamp(y1192 + 2066 * u);
+                argb[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.setPixels(argb, 0, width, 0, 0, width, height);
+        return bitmap;
+    }
+
+    private static int clamp(int fixed) {
+        return Math.max(0, Math.min(255, fixed >> 10));
+    }
+
+    private Frame obtainFrame(int size) {
+        Frame frame;
+        synchronized (pool) {
+            frame = pool.poll();
+        }
+        if (frame == null) {
+            frame = new Frame();
+        }
+        if (frame.data == null || frame.data.length < size) {
+            // Headroom so a slightly bigger JPEG does not reallocate again
+            frame.data = new byte[size + size / 4];
+        }
+        return frame;
+    }
+
+    private void recycle(Frame frame) {
+        synchronized (pool) {
+            if (pool.size() < BUFFER_POOL_SIZE) {
+                pool.push(frame);
+            }
+        }
+    }
+
+    private synchronized void onDisconnected(int connectGeneration, String reason) {
+        if (connectGeneration != generation || state == WearableEventStream.State.CLOSED) {
+            return;
+        }
+        socket = null;
+        long delay = backoff.nextDelayMs();
+        Log.w(TAG, "❌ Wearable camera lost: " + reason + ", retrying in " + delay + " ms");
+        setState(WearableEventStream.State.DISCONNECTED);
+        scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void reconnect() {
+        if (state == WearableEventStream.State.DISCONNECTED && socket == null) {
+            connect();
+        }
+    }
+
+    private void setState(WearableEventStream.State newState) {
+        if (state != newState) {
+            state = newState;
+            listener.onStateChanged(newState);
+        }
+    }
+}
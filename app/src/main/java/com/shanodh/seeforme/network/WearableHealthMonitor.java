@@ -0,0 +1,310 @@
+package com.shanodh.seeforme.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Watches the link to the wearable by probing GET /status, and owns the circuit breaker's
+ * recovery.
+ *
+ * Probes are slow while the link is healthy (HEALTHY_INTERVAL_MS) and fast while it is degraded
+ * (DEGRADED_INTERVAL_MS), so a problem is confirmed or cleared within seconds without costing
+ * battery the rest of the time. Probe failures count towards the breaker like failed calls do;
+ * once it is open, probes back off up to DOWN_MAX_INTERVAL_MS and the first one that gets an
+ * answer closes it again. Round-trip time is smoothed the way TCP does it, and loss is the share
+ * of the last LOSS_WINDOW probes that went unanswered.
+ *
+ * Listeners run on the monitor thread and hear about changes of Health; the latest LinkQuality
+ * can be read at any time.
+ */
+public class WearableHealthMonitor {
+    private static final String TAG = "WearableHealthMonitor";
+    private static final String STATUS_PATH = "status";
+
+    static final long HEALTHY_INTERVAL_MS = 30_000;
+    static final long DEGRADED_INTERVAL_MS = 2_000;
+    static final long DOWN_MAX_INTERVAL_MS = 15_000;
+    static final long PROBE_TIMEOUT_MS = 2_000;
+    static final int LOSS_WINDOW = 20;
+    // Beyond either of these the link is degraded even though probes are answered
+    static final float MAX_HEALTHY_LOSS = 0.1f;
+    static final long MAX_HEALTHY_RTT_MS = 300;
+
+    private static WearableHealthMonitor instance;
+
+    public enum Health { UNKNOWN, HEALTHY, DEGRADED, DOWN }
+
+    public interface HealthListener {
+        void onHealthChanged(LinkQuality quality);
+    }
+
+    /**
+     * Snapshot of the link; rttMs and rttVarMs are -1 until a probe has been answered
+     */
+    public static final class LinkQuality {
+        public final Health health;
+        public final long rttMs;
+        public final long rttVarMs;
+        public final float loss;
+        public final long lastSeenMs;
+
+        LinkQuality(Health health, long rttMs, long rttVarMs, float loss, long lastSeenMs) {
+            this.health = health;
+            this.rttMs = rttMs;
+            this.rttVarMs = rttVarMs;
+            this.loss = loss;
+            this.lastSeenMs = lastSeenMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s, rtt %d ms (±%d), loss %.0f%%",
+                    health, rttMs, rttVarMs, loss * 100);
+        }
+    }
+
+    private final OkHttpClient client;
+    // Null to follow ApiClient as the wearable is re-paired
+    private final String fixedBaseUrl;
+    private final CircuitBreaker breaker;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<HealthListener> listeners = new CopyOnWriteArrayList<>();
+    private final Backoff downBackoff = new Backoff(DEGRADED_INTERVAL_MS, DOWN_MAX_INTERVAL_MS);
+
+    private final boolean[] lostWindow = new boolean[LOSS_WINDOW];
+    private int windowSize;
+    private int windowPos;
+    private int windowLost;
+    private double srttMs = -1;
+    private double rttVarMs = -1;
+    private long lastSeenMs;
+    private Health health = Health.UNKNOWN;
+
+    private ScheduledFuture<?> nextProbe;
+    private boolean running;
+    private boolean lifecycleAttached;
+
+    public static synchronized WearableHealthMonitor getInstance() {
+        if (instance == null) {
+            instance = new WearableHealthMonitor(ApiClient.getHttpClient(), null, ApiClient.getCircuitBreaker());
+        }
+        return instance;
+    }
+
+    /**
+     * Monitor a fixed address with its own breaker, e.g. a fake wearable in tests
+     */
+    public WearableHealthMonitor(OkHttpClient baseClient, String baseUrl) {
+        this(baseClient, baseUrl, new CircuitBreaker(DEGRADED_INTERVAL_MS, DOWN_MAX_INTERVAL_MS));
+    }
+
+    WearableHealthMonitor(OkHttpClient baseClient, String baseUrl, CircuitBreaker breaker) {
+        this.client = baseClient.newBuilder()
+                .callTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+        this.fixedBaseUrl = baseUrl;
+        this.breaker = breaker;
+        breaker.setListener(this::onBreakerStateChanged);
+    }
+
+    /**
+     * Probe while any of the app's screens is visible and stop when it goes to the background.
+     * Call from the main thread; repeated calls do nothing.
+     */
+    public synchronized void monitorWhileInForeground() {
+        if (lifecycleAttached) {
+            return;
+        }
+        lifecycleAttached = true;
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                start();
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                stop();
+            }
+        });
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduleProbe(0);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (nextProbe != null) {
+            nextProbe.cancel(false);
+            nextProbe = null;
+        }
+    }
+
+    public void addListener(HealthListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(HealthListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * False while the breaker is open; calls would fail straight away
+     */
+    public boolean isAvailable() {
+        return breaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    public synchronized LinkQuality getLinkQuality() {
+        return new LinkQuality(health, Math.round(srttMs), Math.round(rttVarMs),
+                windowSize == 0 ? 0 : (float) windowLost / windowSize, lastSeenMs);
+    }
+
+    /**
+     * Probe once on the calling thread and update the link figures
+     */
+    LinkQuality probe() {
+        String baseUrl = fixedBaseUrl != null ? fixedBaseUrl : ApiClient.getBaseUrl();
+        Request request = new Request.Builder()
+                .url(HttpUrl.get(baseUrl).newBuilder().addPathSegment(STATUS_PATH).build())
+                .header("Accept", "application/json")
+                .build();
+        long start = System.nanoTime();
+        boolean answered;
+        boolean ok;
+        try (Response response = client.newCall(request).execute()) {
+            answered = true;
+            ok = response.isSuccessful();
+        } catch (IOException e) {
+            answered = false;
+            ok = false;
+        }
+        double rtt = (System.nanoTime() - start) / 1_000_000.0;
+        long now = System.currentTimeMillis();
+
+        // Any answer shows the wearable is reachable, even an error status
+        if (answered) {
+            breaker.recordSuccess();
+        } else {
+            breaker.recordFailure(now);
+        }
+
+        LinkQuality quality;
+        Health previous;
+        synchronized (this) {
+            recordLoss(!answered);
+            if (answered) {
+                updateRtt(rtt);
+                lastSeenMs = now;
+            }
+            previous = health;
+            health = evaluate(ok);
+            quality = getLinkQuality();
+        }
+        if (quality.health != previous) {
+            Log.d(TAG, (quality.health == Health.DOWN ? "❌" : "📡") + " Wearable link " + quality);
+            for (HealthListener listener : listeners) {
+                listener.onHealthChanged(quality);
+            }
+        }
+        return quality;
+    }
+
+    private Health evaluate(boolean lastProbeOk) {
+        if (breaker.getState() == CircuitBreaker.State.OPEN) {
+            return Health.DOWN;
+        }
+        float loss = windowSize == 0 ? 0 : (float) windowLost / windowSize;
+        if (!lastProbeOk || loss > MAX_HEALTHY_LOSS || srttMs > MAX_HEALTHY_RTT_MS) {
+            return Health.DEGRADED;
+        }
+        return Health.HEALTHY;
+    }
+
+    private void recordLoss(boolean lost) {
+        if (windowSize == LOSS_WINDOW) {
+            if (lostWindow[windowPos]) {
+                windowLost--;
+            }
+        } else {
+            windowSize++;
+        }
+        lostWindow[windowPos] = lost;
+        if (lost) {
+            windowLost++;
+        }
+        windowPos = (windowPos + 1) % LOSS_WINDOW;
+    }
+
+    // RFC 6298 smoothing
+    private void updateRtt(double rtt) {
+        if (srttMs < 0) {
+            srttMs = rtt;
+            rttVarMs = rtt / 2;
+        } else {
+            rttVarMs = 0.75 * rttVarMs + 0.25 * Math.abs(srttMs - rtt);
+            srttMs = 0.875 * srttMs + 0.125 * rtt;
+        }
+    }
+
+    private void runProbe() {
+        Health result = probe().health;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            if (result == Health.DOWN) {
+                scheduleProbe(downBackoff.nextDelayMs());
+            } else {
+                downBackoff.reset();
+                scheduleProbe(result == Health.HEALTHY ? HEALTHY_INTERVAL_MS : DEGRADED_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void scheduleProbe(long delayMs) {
+        if (nextProbe != null) {
+            nextProbe.cancel(false);
+        }
+        nextProbe = scheduler.schedule(this::runProbe, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Failed calls can open the breaker between slow probes; check the link soon rather than
+     * at the next healthy interval
+     */
+    private void onBreakerStateChanged(CircuitBreaker.State state) {
+        if (state != CircuitBreaker.State.OPEN) {
+            return;
+        }
+        synchronized (this) {
+            if (running && health == Health.HEALTHY) {
+                scheduleProbe(DEGRADED_INTERVAL_MS);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.shanodh.seeforme.network;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a call while the circuit breaker is open, i.e. the wearable has
+ * recently stopped answering. Nothing was sent.
+ */
+public class WearableUnavailableException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public WearableUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,54 @@
+package com.shanodh.seeforme.sync;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SyncRemote backed by Firestore write batches. Pass a FirebaseFirestore configured with
+ * useEmulator(host, port) to run the sync engine against the local emulator.
+ */
+public class FirestoreSyncRemote implements SyncRemote {
+    private static final String COLLECTION_NOTES = "notes";
+    private static final long COMMIT_TIMEOUT_SECONDS = 30;
+
+    private final FirebaseFirestore db;
+
+    public FirestoreSyncRemote() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    public FirestoreSyncRemote(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public String newNoteId() {
+        return db.collection(COLLECTION_NOTES).document().getId();
+    }
+
+    /**
+     * Must be called off the main thread; waits for the server to acknowledge the batch
+     */
+    @Override
+    public void commit(List<Write> writes) throws Exception {
+        if (writes.size() > MAX_WRITES_PER_COMMIT) {
+            throw new IllegalArgumentException("Too many writes for one batch: " + writes.size());
+        }
+        WriteBatch batch = db.batch();
+        for (Write write : writes) {
+            DocumentReference document = db.collection(write.collection).document(write.documentId);
+            if (write.isDelete()) {
+                batch.delete(document);
+            } else {
+                batch.set(document, write.data, SetOptions.merge());
+            }
+        }
+        Tasks.await(batch.commit(), COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,150 @@
+package com.shanodh.seeforme.sync;
+
+import android.util.Log;
+
+import com.shanodh.seeforme.data.AppDatabase;
+import com.shanodh.seeforme.data.Note;
+import com.shanodh.seeforme.data.NoteDao;
+import com.shanodh.seeforme.data.SyncChange;
+import com.shanodh.seeforme.data.SyncChangeDao;
+import com.shanodh.seeforme.firebase.FirestoreNotesManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes local changes to the remote store in batches.
+ *
+ * Changes are read from the sync_changes log in sequence order, collapsed so each note is
+ * written once per round, and sent as a single atomic commit of up to 500 writes. Once the
+ * commit is acknowledged the notes are marked synced and the log is trimmed in one Room
+ * transaction. A failed commit leaves the log untouched, so the next run resends the same
+ * changes to the same document IDs.
+ *
+ * All methods block and must run off the main thread.
+ */
+public class SyncEngine {
+    private static final String TAG = "SyncEngine";
+    private static final String COLLECTION_NOTES = "notes";
+
+    private final AppDatabase database;
+    private final NoteDao noteDao;
+    private final SyncChangeDao changeDao;
+    private final SyncRemote remote;
+
+    public interface ProgressListener {
+        void onBatchPushed(int pushed, int remaining);
+    }
+
+    public SyncEngine(AppDatabase database, SyncRemote remote) {
+        this.database = database;
+        this.noteDao = database.noteDao();
+        this.changeDao = database.syncChangeDao();
+        this.remote = remote;
+    }
+
+    public int getPendingCount() {
+        return changeDao.getPendingCount();
+    }
+
+    /**
+     * Push every pending change for userId. Returns the number of remote writes made.
+     * Throws if a commit fails; changes acknowledged before the failure stay acknowledged.
+     */
+    public int pushPending(String userId, ProgressListener listener) throws Exception {
+        // Manual and background syncs must not push the same changes concurrently, and
+        // storage maintenance waits for the push to finish
+        ReentrantLock lock = AppDatabase.backgroundWriterLock();
+        lock.lock();
+        try {
+            int pushed = 0;
+            while (true) {
+                List<SyncChange> changes = changeDao.getPending(SyncRemote.MAX_WRITES_PER_COMMIT);
+                if (changes.isEmpty()) {
+                    return pushed;
+                }
+                pushed += pushRound(userId, changes);
+                if (listener != null) {
+                    listener.onBatchPushed(pushed, changeDao.getPendingCount());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int pushRound(String userId, List<SyncChange> changes) throws Exception {
+        long ackedSeq = changes.get(changes.size() - 1).getSeq();
+
+        // Collapse the round: one write per edited note, one delete per removed document
+        Set<Integer> upsertIds = new LinkedHashSet<>();
+        Set<String> deletedIds = new LinkedHashSet<>();
+        for (SyncChange change : changes) {
+            if (!SyncChange.ENTITY_NOTE.equals(change.getEntityType())) {
+                continue;
+            }
+            if (change.isDelete()) {
+                if (change.getFirestoreId() != null) {
+                    deletedIds.add(change.getFirestoreId());
+                }
+            } else {
+                upsertIds.add(change.getEntityId());
+            }
+        }
+
+        // Notes deleted since they were logged are simply gone from this list. Notes of another
+        // account stay unsynced and are queued again when that account next opens its notes.
+        List<Note> notes = new ArrayList<>();
+        if (!upsertIds.isEmpty()) {
+            for (Note note : noteDao.getNotesByIds(new ArrayList<>(upsertIds))) {
+                if (note.getUserId() == null || note.getUserId().equals(userId)) {
+                    notes.add(note);
+                }
+            }
+        }
+        Map<Integer, String> newIds = new LinkedHashMap<>();
+        for (Note note : notes) {
+            if (note.getFirestoreId() == null) {
+                String firestoreId = remote.newNoteId();
+                note.setFirestoreId(firestoreId);
+                newIds.put(note.getId(), firestoreId);
+            }
+        }
+        if (!newIds.isEmpty()) {
+            database.runInTransaction(() -> {
+                for (Map.Entry<Integer, String> entry : newIds.entrySet()) {
+                    noteDao.assignFirestoreId(entry.getKey(), entry.getValue());
+                }
+            });
+        }
+
+        List<SyncRemote.Write> writes = new ArrayList<>(notes.size() + deletedIds.size());
+        List<Integer> pushedIds = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            writes.add(SyncRemote.Write.set(COLLECTION_NOTES, note.getFirestoreId(),
+                    FirestoreNotesManager.toDocument(note, userId)));
+            pushedIds.add(note.getId());
+        }
+        for (String firestoreId : deletedIds) {
+            writes.add(SyncRemote.Write.delete(COLLECTION_NOTES, firestoreId));
+        }
+
+        if (!writes.isEmpty()) {
+            remote.commit(writes);
+        }
+
+        database.runInTransaction(() -> {
+            if (!pushedIds.isEmpty()) {
+                noteDao.acknowledgeSynced(pushedIds, ackedSeq);
+            }
+            changeDao.deleteUpTo(ackedSeq);
+        });
+        Log.d(TAG, "Pushed " + writes.size() + " writes for " + changes.size() + " changes up to seq " + ackedSeq);
+        return writes.size();
+    }
+}
@@ -0,0 +1,53 @@
+package com.shanodh.seeforme.sync;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remote side of the sync engine. FirestoreSyncRemote talks to Firestore (or the Firestore
+ * emulator); tests can pass an in-memory implementation to SyncEngine instead.
+ */
+public interface SyncRemote {
+    /**
+     * Upper bound on writes per commit; Firestore batches accept at most 500 operations
+     */
+    int MAX_WRITES_PER_COMMIT = 500;
+
+    /**
+     * A new document ID for a note that has never been pushed
+     */
+    String newNoteId();
+
+    /**
+     * Apply all writes atomically. Blocks until the remote has accepted or rejected them and
+     * throws on failure, in which case none of the writes took effect.
+     */
+    void commit(List<Write> writes) throws Exception;
+
+    /**
+     * One document write; data is null for a delete
+     */
+    final class Write {
+        public final String collection;
+        public final String documentId;
+        public final Map<String, Object> data;
+
+        private Write(String collection, String documentId, Map<String, Object> data) {
+            this.collection = collection;
+            this.documentId = documentId;
+            this.data = data;
+        }
+
+        public static Write set(String collection, String documentId, Map<String, Object> data) {
+            return new Write(collection, documentId, data);
+        }
+
+        public static Write delete(String collection, String documentId) {
+            return new Write(collection, documentId, null);
+        }
+
+        public boolean isDelete() {
+            return data == null;
+        }
+    }
+}
@@ -3,146 +3,147 @@ package com.shanodh.seeforme.sync;
 import android.content.Context;
 import android.util.Log;
 
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.shanodh.seeforme.data.AppDatabase;
-import com.shanodh.seeforme.data.FamiliarFace;
-import com.shanodh.seeforme.data.Note;
-import com.shanodh.seeforme.firebase.FirestoreNotesManager;
+import com.shanodh.seeforme.data.FaceDatabaseManager;
 
-import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service to synchronize local data with Firebase
+ * Service to synchronize local data with Firebase.
+ *
+ * Notes are pushed by SyncEngine from the change log; downloads are handled by NotesFeed and
+ * FaceDatabaseManager, which keep Room up to date while their screens are open.
  */
 public class SyncService {
     private static final String TAG = "SyncService";
-    
-    private Context context;
-    private FirestoreNotesManager notesManager;
-    private AppDatabase localDb;
-    private Executor executor;
-    
+    private static final String PERIODIC_WORK_NAME = "seeforme_periodic_sync";
+    private static final String ONE_TIME_WORK_NAME = "seeforme_sync_now";
+    private static final long SYNC_INTERVAL_HOURS = 6;
+    private static final long BACKOFF_SECONDS = 30;
+
+    private static SyncService instance;
+    // One thread for every instance; pushes are serialised by SyncEngine anyway
+    private static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final SyncEngine engine;
+    private final FirebaseAuth auth;
+
     public interface SyncCallback {
         void onSyncStarted();
         void onSyncCompleted(boolean success, String message);
         void onSyncProgress(String operation);
     }
-    
-    public SyncService(Context context) {
-        this.context = context;
-        this.notesManager = new FirestoreNotesManager();
-        this.localDb = AppDatabase.getInstance(context);
-        this.executor = Executors.newSingleThreadExecutor();
+
+    public static synchronized SyncService getInstance(Context context) {
+        if (instance == null) {
+            instance = new SyncService(context, new FirestoreSyncRemote());
+        }
+        return instance;
+    }
+
+    /**
+     * Use a different remote, e.g. an in-memory fake or Firestore pointed at the emulator
+     */
+    public SyncService(Context context, SyncRemote remote) {
+        this.context = context.getApplicationContext();
+        this.engine = new SyncEngine(AppDatabase.getInstance(this.context), remote);
+        this.auth = FirebaseAuth.getInstance();
     }
-    
+
+    /**
+     * Push pending changes on a background thread. The callback reports completion only after
+     * the work has actually finished.
+     */
     public void syncAllData(SyncCallback callback) {
-        // For now, skip auth check since we'll handle auth in the calling activity
         Log.d(TAG, "Starting sync process...");
         callback.onSyncStarted();
-        
-        callback.onSyncStarted();
-        // Temporarily disabled Firebase sync
-        callback.onSyncCompleted(true, "Sync disabled - Firebase not configured");
-        
-        executor.execute(() -> {
+
+        EXECUTOR.execute(() -> {
             try {
-                // Sync unsynced notes to Firebase
                 callback.onSyncProgress("Syncing notes to cloud...");
-                syncLocalNotesToFirebase();
-                
-                // Sync unsynced faces to Firebase
+                int pushed = pushNotes((written, remaining) ->
+                        callback.onSyncProgress("Synced " + written + " notes, " + remaining + " left..."));
+
                 callback.onSyncProgress("Syncing faces to cloud...");
-                syncLocalFacesToFirebase();
-                
-                // Download notes from Firebase
-                callback.onSyncProgress("Downloading notes from cloud...");
-                downloadNotesFromFirebase();
-                
-                // Download faces from Firebase
-                callback.onSyncProgress("Downloading faces from cloud...");
-                downloadFacesFromFirebase();
-                
-                callback.onSyncCompleted(true, "Sync completed successfully");
-                
+                FaceDatabaseManager.getInstance(context).refreshFromCloud();
+
+                callback.onSyncCompleted(true, pushed == 0
+                        ? "Everything is already backed up"
+                        : "Sync completed successfully");
             } catch (Exception e) {
                 Log.e(TAG, "Sync failed", e);
                 callback.onSyncCompleted(false, "Sync failed: " + e.getMessage());
+                // Let WorkManager finish the job once conditions allow
+                requestSync(context);
             }
         });
     }
-    
-    private void syncLocalNotesToFirebase() {
-        List<Note> unsyncedNotes = localDb.noteDao().getUnsyncedNotes();
-        
-        for (Note note : unsyncedNotes) {
-            // If note already has Firebase ID, update it; otherwise add it
-            if (note.getFirebaseId() != null && !note.getFirebaseId().isEmpty()) {
-                notesManager.updateNote(note.getFirebaseId(), note, new FirestoreNotesManager.FirestoreCallback<Void>() {
-                    @Override
-                    public void onSuccess(Void data) {
-                        executor.execute(() -> {
-                            note.setSynced(true);
-                            localDb.noteDao().update(note);
-                            Log.d(TAG, "Note updated in Firebase: " + note.getContent());
-                        });
-                    }
-                    
-                    @Override
-                    public void onError(String error) {
-                        Log.e(TAG, "Failed to update note in Firebase: " + error);
-                    }
-                });
-            } else {
-                notesManager.addNote(note, new FirestoreNotesManager.FirestoreCallback<String>() {
-                    @Override
-                    public void onSuccess(String firebaseId) {
-                        executor.execute(() -> {
-                            note.setFirebaseId(firebaseId);
-                            note.setSynced(true);
-                            localDb.noteDao().update(note);
-                            Log.d(TAG, "Note synced to Firebase: " + note.getContent());
-                        });
-                    }
-                    
-                    @Override
-                    public void onError(String error) {
-                        Log.e(TAG, "Failed to sync note to Firebase: " + error);
-                    }
-                });
-            }
-        }
+
+    /**
+     * Blocking sync for the background worker. Returns the number of remote writes made.
+     */
+    public int syncNow() throws Exception {
+        int pushed = pushNotes(null);
+        FaceDatabaseManager.getInstance(context).refreshFromCloud();
+        return pushed;
     }
-    
-    private void syncLocalFacesToFirebase() {
-        List<FamiliarFace> unsyncedFaces = localDb.familiarFaceDao().getUnsyncedFaces();
-        
-        for (FamiliarFace face : unsyncedFaces) {
-            // Note: For faces with images, you'd need to handle bitmap loading
-            // This is a simplified version
-            if (face.getImagePath() != null && !face.getImagePath().isEmpty()) {
-                // Load bitmap from local path and upload
-                // This would require additional image handling code
-                Log.d(TAG, "Face sync requires image handling: " + face.getName());
-            }
+
+    private int pushNotes(SyncEngine.ProgressListener listener) throws Exception {
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            Log.d(TAG, "No signed-in user, leaving " + engine.getPendingCount() + " changes queued");
+            return 0;
         }
+        return engine.pushPending(currentUser.getUid(), listener);
     }
-    
-    private void downloadNotesFromFirebase() {
-        // For now, we'll skip downloading from Firebase during sync
-        // The notes are loaded via LiveData when the user opens the notes screen
-        Log.d(TAG, "Note downloading from Firebase is handled via LiveData, not during sync");
+
+    /**
+     * Schedule the periodic background sync. Runs only with a network connection and a
+     * battery that is not low, retrying with exponential backoff. Safe to call repeatedly.
+     */
+    public void schedulePeriodicSync() {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                SyncWorker.class, SYNC_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(syncConstraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+        Log.d(TAG, "Periodic sync scheduled every " + SYNC_INTERVAL_HOURS + "h");
     }
-    
-    private void downloadFacesFromFirebase() {
-        // Since we decided to keep familiar faces in local storage only,
-        // this method is disabled for now
-        Log.d(TAG, "Familiar faces sync is disabled - local storage only");
+
+    /**
+     * Ask for a sync as soon as the device is online, coalescing with one already queued
+     */
+    public static void requestSync(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(ONE_TIME_WORK_NAME, ExistingWorkPolicy.KEEP, request);
     }
-    
-    public void schedulePeriodicSync() {
-        // This would typically use WorkManager for background sync
-        // For now, just log the intention
-        Log.d(TAG, "Periodic sync would be scheduled here using WorkManager");
+
+    private static Constraints syncConstraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
     }
 }
@@ -0,0 +1,35 @@
+package com.shanodh.seeforme.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * WorkManager entry point for background sync. A failed push is retried with the backoff
+ * policy set in SyncService; the change log keeps the pending work across retries.
+ */
+public class SyncWorker extends Worker {
+    private static final String TAG = "SyncWorker";
+    private static final int MAX_ATTEMPTS = 5;
+
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            int pushed = SyncService.getInstance(getApplicationContext()).syncNow();
+            Log.d(TAG, "Background sync pushed " + pushed + " writes");
+            return Result.success();
+        } catch (Exception e) {
+            Log.w(TAG, "Background sync failed, attempt " + getRunAttemptCount(), e);
+            // Give up for this period; the next periodic run starts from the same log
+            return getRunAttemptCount() < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.shanodh.seeforme.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.shanodh.seeforme.data.AppDatabase;
+import com.shanodh.seeforme.data.Note;
+import com.shanodh.seeforme.data.NoteDao;
+import com.shanodh.seeforme.network.ApiClient;
+import com.shanodh.seeforme.network.ApiService;
+import com.shanodh.seeforme.network.NoteSyncRequest;
+import com.shanodh.seeforme.network.NoteSyncResponse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Response;
+
+/**
+ * Keeps the wearable's OCR note set equal to the local notes table in one batched request.
+ *
+ * Every note has a version, a short hash of the fields the wearable matches on, and the whole
+ * set has a digest over the sorted ID:version pairs. The phone remembers the versions the
+ * wearable last acknowledged, so after an edit it sends only the notes whose version changed
+ * and the IDs that are gone, together with the digest they were computed against. If the
+ * wearable's digest differs (it was reset, or another phone synced) nothing is applied and it
+ * answers with its own versions; the batch is recomputed against those and sent once more.
+ */
+public class WearableNoteSync {
+    private static final String TAG = "WearableNoteSync";
+    private static final String WORK_NAME = "seeforme_wearable_notes";
+    private static final String STATE_FILE = "wearable_notes.json";
+    private static final String LOCAL_ID_PREFIX = "local-";
+    private static final int VERSION_HEX_CHARS = 16;
+    private static final int DIGEST_HEX_CHARS = 32;
+    private static final long BACKOFF_SECONDS = 10;
+
+    private static WearableNoteSync instance;
+
+    private final File stateFile;
+    private final NoteDao noteDao;
+    private final ApiService api;
+    private final Gson gson = new Gson();
+
+    /**
+     * Versions the wearable acknowledged, and which wearable that was
+     */
+    private static class AckedState {
+        String baseUrl;
+        Map<String, String> versions;
+    }
+
+    public static synchronized WearableNoteSync getInstance(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new WearableNoteSync(new File(app.getFilesDir(), STATE_FILE),
+                    AppDatabase.getInstance(app).noteDao(), ApiClient.getApiService());
+        }
+        return instance;
+    }
+
+    public WearableNoteSync(File stateFile, NoteDao noteDao, ApiService api) {
+        this.stateFile = stateFile;
+        this.noteDao = noteDao;
+        this.api = api;
+    }
+
+    /**
+     * Bring the wearable up to date with userId's notes; with no user signed in (null) its
+     * notes are all removed. Returns the number of notes sent or deleted.
+     * Must not be called on the main thread.
+     */
+    public synchronized int syncNow(String userId) throws IOException {
+        String baseUrl = ApiClient.getBaseUrl();
+        Map<String, Note> notes = new HashMap<>();
+        Map<String, String> versions = new HashMap<>();
+        List<Note> owned = userId != null ? noteDao.getAllNotesList(userId) : Collections.emptyList();
+        for (Note note : owned) {
+            String id = wearableId(note);
+            notes.put(id, note);
+            versions.put(id, version(note));
+        }
+        String digest = digest(versions);
+
+        AckedState acked = loadState();
+        boolean known = acked != null && baseUrl.equals(acked.baseUrl) && acked.versions != null;
+        Map<String, String> remote = known ? acked.versions : Collections.emptyMap();
+
+        // The second pass only happens when the wearable's set was not what we remembered
+        for (int attempt = 0; attempt < 2; attempt++) {
+            NoteSyncRequest request = diff(remote, notes, versions);
+            request.setBaseDigest(digest(remote));
+            request.setDigest(digest);
+            if (request.isEmpty() && (known || attempt > 0)) {
+                saveState(baseUrl, versions);
+                return 0;
+            }
+
+            Response<NoteSyncResponse> response = api.syncNotes(request).execute();
+            NoteSyncResponse body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Note sync failed: HTTP " + response.code());
+            }
+            if (body.isApplied()) {
+                saveState(baseUrl, versions);
+                int changed = request.getUpserts().size() + request.getDeletes().size();
+                Log.d(TAG, "📝 Wearable notes synced: " + request.getUpserts().size() + " sent, "
+                        + request.getDeletes().size() + " deleted");
+                return changed;
+            }
+            Log.d(TAG, "Wearable note digest differs, recomputing against its versions");
+            remote = body.getVersions() != null ? body.getVersions() : Collections.emptyMap();
+        }
+        throw new IOException("Wearable notes changed during sync");
+    }
+
+    /**
+     * Notes whose version the wearable does not have, and wearable notes that are gone here
+     */
+    static NoteSyncRequest diff(Map<String, String> remote, Map<String, Note> notes,
+                                Map<String, String> versions) {
+        NoteSyncRequest request = new NoteSyncRequest();
+        for (Map.Entry<String, String> entry : versions.entrySet()) {
+            String id = entry.getKey();
+            if (!entry.getValue().equals(remote.get(id))) {
+                Note note = notes.get(id);
+                request.getUpserts().add(new NoteSyncRequest.Entry(id, entry.getValue(),
+                        note.getTitle(), note.getContent(), note.getCategory()));
+            }
+        }
+        for (String id : remote.keySet()) {
+            if (!versions.containsKey(id)) {
+                request.getDeletes().add(id);
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Firestore IDs are the same on every device; notes not yet pushed fall back to the row ID
+     */
+    static String wearableId(Note note) {
+        return note.getFirestoreId() != null ? note.getFirestoreId() : LOCAL_ID_PREFIX + note.getId();
+    }
+
+    /**
+     * Hash of the fields the wearable matches on, so edits to anything else cost nothing
+     */
+    static String version(Note note) {
+        MessageDigest sha = sha256();
+        update(sha, note.getTitle());
+        update(sha, note.getContent());
+        update(sha, note.getCategory());
+        return hex(sha.digest(), VERSION_HEX_CHARS);
+    }
+
+    /**
+     * Order-independent digest of a note set
+     */
+    static String digest(Map<String, String> versions) {
+        List<String> ids = new ArrayList<>(versions.keySet());
+        Collections.sort(ids);
+        MessageDigest sha = sha256();
+        for (String id : ids) {
+            sha.update((id + ":" + versions.get(id) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return hex(sha.digest(), DIGEST_HEX_CHARS);
+    }
+
+    private static void update(MessageDigest sha, String field) {
+        if (field != null) {
+            sha.update(field.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separator, so "ab" + "c" and "a" + "bc" hash differently
+        sha.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes, int chars) {
+        StringBuilder builder = new StringBuilder(chars);
+        for (int i = 0; builder.length() < chars; i++) {
+            builder.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private AckedState loadState() {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(stateFile), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, AckedState.class);
+        } catch (IOException | JsonParseException e) {
+            // Treated as unknown; the wearable's versions come back with the first request
+            Log.w(TAG, "Discarding unreadable note sync state", e);
+            return null;
+        }
+    }
+
+    private void saveState(String baseUrl, Map<String, String> versions) throws IOException {
+        AckedState state = new AckedState();
+        state.baseUrl = baseUrl;
+        state.versions = versions;
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(state, writer);
+        }
+        if (!tmp.renameTo(stateFile)) {
+            throw new IOException("Could not write " + stateFile);
+        }
+    }
+
+    /**
+     * Sync the wearable's notes soon, off the calling thread. A request made while a sync is
+     * running queues one more run after it, so the last edit is never missed.
+     */
+    public static void requestSync(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(WearableNoteSyncWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+}
@@ -0,0 +1,39 @@
+package com.shanodh.seeforme.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.IOException;
+
+/**
+ * WorkManager entry point for WearableNoteSync. A wearable that is off or out of range is
+ * retried with the backoff set in WearableNoteSync.requestSync; the next edit asks again anyway.
+ */
+public class WearableNoteSyncWorker extends Worker {
+    private static final String TAG = "WearableNoteSyncWorker";
+    private static final int MAX_ATTEMPTS = 5;
+
+    public WearableNoteSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            WearableNoteSync.getInstance(getApplicationContext()).syncNow(user != null ? user.getUid() : null);
+            return Result.success();
+        } catch (IOException e) {
+            Log.w(TAG, "Wearable note sync failed, attempt " + getRunAttemptCount(), e);
+            return getRunAttemptCount() < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+    }
+}
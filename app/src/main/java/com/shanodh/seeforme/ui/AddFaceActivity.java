@@ -31,13 +31,15 @@ import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.shanodh.seeforme.R;
-import com.shanodh.seeforme.models.FaceData;
+import com.shanodh.seeforme.data.FaceDatabaseManager;
+import com.shanodh.seeforme.data.FaceEmbeddingStore;
+import com.shanodh.seeforme.data.FamiliarFace;
+import com.shanodh.seeforme.ml.FaceRecognitionManager;
+import com.shanodh.seeforme.utils.FaceImageStore;
+import com.shanodh.seeforme.utils.FaceThumbnailCache;
 import com.shanodh.seeforme.voice.TextToSpeechHelper;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.UUID;
@@ -55,9 +57,9 @@ public class AddFaceActivity extends AppCompatActivity implements TextToSpeechHe
     private Bitmap capturedImage;
     private TextToSpeechHelper ttsHelper;
     private final Executor executor = Executors.newSingleThreadExecutor();
+    private FaceRecognitionManager faceRecognitionManager;
     
     // Firebase
-    private FirebaseFirestore db;
     private FirebaseAuth auth;
     private FirebaseUser currentUser;
     
@@ -134,7 +136,6 @@ public class AddFaceActivity extends AppCompatActivity implements TextToSpeechHe
         setupClickListeners();
         
         // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
         currentUser = auth.getCurrentUser();
         
@@ -145,6 +146,10 @@ public class AddFaceActivity extends AppCompatActivity implements TextToSpeechHe
         }
         
         ttsHelper = new TextToSpeechHelper(this, this);
+        
+        // Load the embedding model while the user picks a photo
+        faceRecognitionManager = new FaceRecognitionManager(this);
+        executor.execute(faceRecognitionManager::initializeModel);
     }
     
     private void initializeViews() {
@@ -252,8 +257,11 @@ public class AddFaceActivity extends AppCompatActivity implements TextToSpeechHe
             try {
                 String localImagePath = saveImageLocally(capturedImage, faceId);
                 if (localImagePath != null) {
-                    // Save face data to Firebase
-                    saveFaceToFirebase(faceId, personName, relationship, localImagePath);
+                    enrollFaceEmbedding(faceId, capturedImage);
+                    FaceThumbnailCache.getInstance(this).saveThumbnail(faceId, capturedImage);
+
+                    // Save face data
+                    saveFaceToRepository(faceId, personName, relationship, localImagePath);
                 } else {
                     runOnUiThread(() -> {
                         Toast.makeText(this, "Failed to save image locally", Toast.LENGTH_SHORT).show();
@@ -270,63 +278,50 @@ public class AddFaceActivity extends AppCompatActivity implements TextToSpeechHe
     }
     
     private String saveImageLocally(Bitmap bitmap, String faceId) {
-        try {
-            // Create faces directory in app's internal storage
-            File facesDir = new File(getFilesDir(), "faces");
-            if (!facesDir.exists()) {
-                facesDir.mkdirs();
-            }
-            
-            // Create file with unique name
-            File imageFile = new File(facesDir, faceId + ".jpg");
-            
-            // Save bitmap to file
-            FileOutputStream fos = new FileOutputStream(imageFile);
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, fos);
-            fos.close();
-            
-            return imageFile.getAbsolutePath();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+        // Content-addressed, so re-adding the same photo reuses the stored file
+        return FaceImageStore.getInstance(this).put(bitmap);
+    }
+    
+    /**
+     * Compute the face embedding once at enrollment and append it to the embedding store
+     */
+    private void enrollFaceEmbedding(String faceId, Bitmap faceImage) {
+        if (faceRecognitionManager == null || !faceRecognitionManager.isReady()) {
+            android.util.Log.w(TAG, "Face model unavailable, embedding will be computed later");
+            return;
+        }
+        float[] embedding = faceRecognitionManager.computeEmbedding(faceImage);
+        if (embedding != null) {
+            FaceEmbeddingStore.getInstance(this).append(faceId, embedding);
         }
     }
     
-    private void saveFaceToFirebase(String faceId, String personName, String relationship, String localImagePath) {
-        FaceData faceData = new FaceData(faceId, personName, relationship, localImagePath, currentUser.getUid());
-        
-        // Log for debugging
-        android.util.Log.d(TAG, "Saving face to Firebase: " + personName + " for user: " + currentUser.getUid());
-        android.util.Log.d(TAG, "FaceData - ID: " + faceData.getId());
-        android.util.Log.d(TAG, "FaceData - Name: " + faceData.getPersonName());
-        android.util.Log.d(TAG, "FaceData - Relationship: " + faceData.getRelationship());
-        android.util.Log.d(TAG, "FaceData - ImagePath: " + faceData.getLocalImagePath());
-        android.util.Log.d(TAG, "FaceData - UserID: " + faceData.getUserId());
-        android.util.Log.d(TAG, "FaceData - Timestamp: " + faceData.getTimestamp());
+    private void saveFaceToRepository(String faceId, String personName, String relationship, String localImagePath) {
+        android.util.Log.d(TAG, "Saving face: " + personName + " for user: " + currentUser.getUid());
         
-        db.collection("faces")
-                .document(faceId)
-                .set(faceData)
-                .addOnSuccessListener(aVoid -> {
-                    android.util.Log.d(TAG, "Face saved successfully to Firebase");
-                    runOnUiThread(() -> {
-                        Toast.makeText(this, "Face saved successfully: " + personName, Toast.LENGTH_SHORT).show();
-                        if (ttsHelper != null) {
-                            ttsHelper.speak("Face saved for " + personName);
-                        }
-                        finish();
-                    });
-                })
-                .addOnFailureListener(e -> {
-                    android.util.Log.e(TAG, "Failed to save face to Firebase", e);
-                    runOnUiThread(() -> {
-                        String errorMsg = "Failed to save to database";
-                        if (e.getMessage() != null) {
-                            errorMsg += ": " + e.getMessage();
-                        }
-                        Toast.makeText(this, errorMsg, Toast.LENGTH_LONG).show();
-                        resetSaveButton();
-                    });
+        // Saved locally first; the repository uploads to Firestore in the background
+        FaceDatabaseManager.getInstance(this).addFace(faceId, personName, relationship, localImagePath,
+                new FaceDatabaseManager.FaceCallback<FamiliarFace>() {
+                    @Override
+                    public void onSuccess(FamiliarFace face) {
+                        android.util.Log.d(TAG, "Face saved successfully");
+                        runOnUiThread(() -> {
+                            Toast.makeText(AddFaceActivity.this, "Face saved successfully: " + personName, Toast.LENGTH_SHORT).show();
+                            if (ttsHelper != null) {
+                                ttsHelper.speak("Face saved for " + personName);
+                            }
+                            finish();
+                        });
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        android.util.Log.e(TAG, "Failed to save face: " + error);
+                        runOnUiThread(() -> {
+                            Toast.makeText(AddFaceActivity.this, "Failed to save to database: " + error, Toast.LENGTH_LONG).show();
+                            resetSaveButton();
+                        });
+                    }
                 });
     }
     
@@ -374,6 +369,11 @@ public class AddFaceActivity extends AppCompatActivity implements TextToSpeechHe
             ttsHelper.shutdown();
         }
         
+        if (faceRecognitionManager != null) {
+            // Runs after any pending save on the same executor
+            executor.execute(faceRecognitionManager::shutdown);
+        }
+        
         super.onDestroy();
     }
 }
\ No newline at end of file
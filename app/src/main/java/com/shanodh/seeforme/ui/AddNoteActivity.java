@@ -11,20 +11,27 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.shanodh.seeforme.MainActivity;
 import com.shanodh.seeforme.R;
+import com.shanodh.seeforme.data.AppDatabase;
 import com.shanodh.seeforme.data.Note;
-import com.shanodh.seeforme.firebase.FirestoreNotesManager;
+import com.shanodh.seeforme.data.NoteDao;
+import com.shanodh.seeforme.sync.SyncService;
+import com.shanodh.seeforme.sync.WearableNoteSync;
 import com.shanodh.seeforme.voice.SpeechRecognitionHelper;
 import com.shanodh.seeforme.voice.TextToSpeechHelper;
 
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 public class AddNoteActivity extends AppCompatActivity implements
         SpeechRecognitionHelper.SpeechRecognitionCallback,
         TextToSpeechHelper.TtsCallback {
 
     private static final String TAG = "AddNoteActivity";
+    // Local Room ID of the note to edit; notes not pushed yet have no Firestore ID
     public static final String EXTRA_NOTE_ID = "note_id";
     public static final String EXTRA_NOTE_TITLE = "note_title";
     public static final String EXTRA_NOTE_CONTENT = "note_content";
@@ -34,10 +41,10 @@ public class AddNoteActivity extends AppCompatActivity implements
     private TextView tvStatus;
     private SpeechRecognitionHelper speechHelper;
     private TextToSpeechHelper ttsHelper;
-    private FirestoreNotesManager notesManager;
+    private final Executor executor = AppDatabase.notesExecutor();
     
     private boolean isEditMode = false;
-    private String editingNoteId;
+    private int editingNoteId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -47,7 +54,7 @@ public class AddNoteActivity extends AppCompatActivity implements
         // Check if this is edit mode
         if (getIntent().hasExtra(EXTRA_NOTE_ID)) {
             isEditMode = true;
-            editingNoteId = getIntent().getStringExtra(EXTRA_NOTE_ID);
+            editingNoteId = getIntent().getIntExtra(EXTRA_NOTE_ID, 0);
         }
         
         // Setup toolbar with back button
@@ -77,9 +84,6 @@ public class AddNoteActivity extends AppCompatActivity implements
         btnVoiceInput = findViewById(R.id.btnVoiceInput);
         btnSaveNote = findViewById(R.id.btnSaveNote);
         tvStatus = findViewById(R.id.tvStatus);
-        
-        // Initialize Firestore manager
-        notesManager = new FirestoreNotesManager();
     }
     
     private void setupClickListeners() {
@@ -126,49 +130,53 @@ public class AddNoteActivity extends AppCompatActivity implements
         note.setContent(content);
         note.setVoiceNote(false); // Set to true if it was created via voice
         note.setTimestamp(System.currentTimeMillis());
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user != null) {
+            note.setUserId(user.getUid());
+        }
 
         // Show saving status
         tvStatus.setText(isEditMode ? "Updating note..." : "Saving note...");
         btnSaveNote.setEnabled(false);
 
-        if (isEditMode) {
-            // Update existing note
-            note.setFirestoreId(editingNoteId);
-            notesManager.updateNote(note, new FirestoreNotesManager.FirestoreCallback<Void>() {
-                @Override
-                public void onSuccess(Void result) {
-                    tvStatus.setText("Note updated successfully!");
-                    ttsHelper.speak("Note updated successfully");
-                    finish();
-                }
-
-                @Override
-                public void onError(String error) {
-                    tvStatus.setText("Failed to update note");
-                    ttsHelper.speak("Failed to update note. Please try again.");
-                    btnSaveNote.setEnabled(true);
-                    Toast.makeText(AddNoteActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
-                }
-            });
-        } else {
-            // Save new note to Firestore
-            notesManager.addNote(note, new FirestoreNotesManager.FirestoreCallback<String>() {
-                @Override
-                public void onSuccess(String noteId) {
-                    tvStatus.setText("Note saved successfully!");
-                    ttsHelper.speak("Note saved successfully");
-                    finish();
+        // Saved locally first; the sync engine pushes the change once the device is online
+        NoteDao noteDao = AppDatabase.getInstance(getApplicationContext()).noteDao();
+        executor.execute(() -> {
+            boolean saved;
+            if (isEditMode) {
+                Note existing = noteDao.findById(editingNoteId);
+                saved = existing != null;
+                if (saved) {
+                    existing.setTitle(note.getTitle());
+                    existing.setContent(note.getContent());
+                    existing.setTimestamp(note.getTimestamp());
+                    existing.setSynced(false);
+                    noteDao.update(existing);
                 }
+            } else {
+                noteDao.insert(note);
+                saved = true;
+            }
+            if (saved) {
+                SyncService.requestSync(getApplicationContext());
+                WearableNoteSync.requestSync(getApplicationContext());
+            }
+            runOnUiThread(() -> onNoteSaved(saved));
+        });
+    }
 
-                @Override
-                public void onError(String error) {
-                    tvStatus.setText("Failed to save note");
-                    ttsHelper.speak("Failed to save note. Please try again.");
-                    btnSaveNote.setEnabled(true);
-                    Toast.makeText(AddNoteActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
-                }
-            });
+    private void onNoteSaved(boolean saved) {
+        if (saved) {
+            tvStatus.setText(isEditMode ? "Note updated successfully!" : "Note saved successfully!");
+            ttsHelper.speak(isEditMode ? "Note updated successfully" : "Note saved successfully");
+            finish();
+            return;
         }
+        // The note was deleted while it was open for editing
+        tvStatus.setText("Failed to update note");
+        ttsHelper.speak("This note no longer exists.");
+        btnSaveNote.setEnabled(true);
+        Toast.makeText(this, "Note no longer exists", Toast.LENGTH_SHORT).show();
     }
 
     private String generateTitleFromContent(String content) {
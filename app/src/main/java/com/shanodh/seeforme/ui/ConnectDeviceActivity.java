@@ -17,11 +17,21 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.button.MaterialButton;
 import com.shanodh.seeforme.R;
 import com.shanodh.seeforme.adapters.DeviceAdapter;
+import com.shanodh.seeforme.data.FaceDatabaseManager;
 import com.shanodh.seeforme.models.WearableDevice;
+import com.shanodh.seeforme.network.ApiClient;
+import com.shanodh.seeforme.network.ApiResponse;
+import com.shanodh.seeforme.network.WearableDiscovery;
+import com.shanodh.seeforme.network.WearableHealthMonitor;
+import com.shanodh.seeforme.voice.WearableEventAnnouncer;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
 public class ConnectDeviceActivity extends AppCompatActivity {
 
     private TextView tvStatus;
@@ -29,6 +39,8 @@ public class ConnectDeviceActivity extends AppCompatActivity {
     private MaterialButton btnSearch, btnPair;
     private DeviceAdapter deviceAdapter;
     private List<WearableDevice> deviceList = new ArrayList<>();
+    private WearableDiscovery discovery;
+    private WearableDevice selectedDevice;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -45,11 +57,18 @@ public class ConnectDeviceActivity extends AppCompatActivity {
             getSupportActionBar().setTitle("Connect Device");
         }
         
+        discovery = new WearableDiscovery(this);
         initializeViews();
         setupRecyclerView();
         setupClickListeners();
     }
     
+    @Override
+    protected void onDestroy() {
+        discovery.stop();
+        super.onDestroy();
+    }
+    
     private void initializeViews() {
         tvStatus = findViewById(R.id.tvStatus);
         rvDevices = findViewById(R.id.rvDevices);
@@ -67,15 +86,13 @@ public class ConnectDeviceActivity extends AppCompatActivity {
         btnSearch.setOnClickListener(v -> {
             performHapticFeedback();
             tvStatus.setText("Searching for nearby devices...");
-            // Simulated search
-            simulateDeviceSearch();
+            searchForDevices();
         });
         
         btnPair.setOnClickListener(v -> {
             performHapticFeedback();
             tvStatus.setText("Pairing with selected device...");
-            // Simulated pairing
-            simulateDevicePairing();
+            pairWithSelectedDevice();
         });
     }
     
@@ -85,45 +102,95 @@ public class ConnectDeviceActivity extends AppCompatActivity {
             d.setSelected(d.getId() == device.getId());
         }
         deviceAdapter.notifyDataSetChanged();
+        selectedDevice = device;
         
         btnPair.setEnabled(true);
         tvStatus.setText("Selected: " + device.getName());
     }
     
-    private void simulateDeviceSearch() {
+    private void searchForDevices() {
         // Clear existing devices
         deviceList.clear();
+        selectedDevice = null;
         deviceAdapter.notifyDataSetChanged();
         
-        // For demo purposes, simulate a delay as if searching for devices
         btnSearch.setEnabled(false);
         btnPair.setEnabled(false);
         
-        tvStatus.postDelayed(() -> {
-            // Add simulated device findings
-            deviceList.add(new WearableDevice(1, "SeeForMe Watch", "Smart Watch", "00:11:22:33:44:55"));
-            deviceList.add(new WearableDevice(2, "SeeForMe Glass", "Smart Glasses", "66:77:88:99:AA:BB"));
-            deviceAdapter.notifyDataSetChanged();
-            
-            tvStatus.setText("Found 2 devices. Select one to pair.");
-            btnSearch.setEnabled(true);
-            performHapticFeedback();
-        }, 2000);
+        // Devices are listed as each search path finds them
+        discovery.start(new WearableDiscovery.DiscoveryListener() {
+            @Override
+            public void onDeviceFound(WearableDevice device) {
+                deviceList.add(device);
+                deviceAdapter.notifyItemInserted(deviceList.size() - 1);
+                tvStatus.setText("Found " + deviceList.size() + " device(s)...");
+            }
+
+            @Override
+            public void onDiscoveryFinished(int devicesFound) {
+                tvStatus.setText(devicesFound == 0
+                        ? "No devices found. Make sure the wearable is on the same Wi-Fi."
+                        : "Found " + devicesFound + " device(s). Select one to pair.");
+                btnSearch.setEnabled(true);
+                performHapticFeedback();
+            }
+        });
     }
     
-    private void simulateDevicePairing() {
+    private void pairWithSelectedDevice() {
+        if (selectedDevice == null || selectedDevice.getBaseUrl() == null) {
+            tvStatus.setText("Select a device first");
+            return;
+        }
         btnPair.setEnabled(false);
         btnSearch.setEnabled(false);
+        discovery.stop();
         
-        // For demo purposes, simulate a delay as if pairing with device
-        tvStatus.postDelayed(() -> {
-            tvStatus.setText("Successfully paired with device!");
-            btnSearch.setEnabled(true);
-            performHapticFeedback();
-            
-            // In a real app, we would save the paired device info
-            tvStatus.postDelayed(this::finish, 1500);
-        }, 3000);
+        WearableDevice device = selectedDevice;
+        // Put back if this one does not answer, whether or not a wearable was ever paired
+        String previousBaseUrl = ApiClient.getBaseUrl();
+        ApiClient.setBaseUrl(device.getBaseUrl());
+        ApiClient.getApiService().getStatus().enqueue(new Callback<ApiResponse>() {
+            @Override
+            public void onResponse(Call<ApiResponse> call, Response<ApiResponse> response) {
+                boolean paired = response.isSuccessful() && response.body() != null && response.body().isSuccess();
+                if (!paired) {
+                    ApiClient.setBaseUrl(previousBaseUrl);
+                }
+                if (isDestroyed()) {
+                    return;
+                }
+                if (paired) {
+                    // Saved so the next launch connects without searching
+                    WearableDiscovery.rememberDevice(ConnectDeviceActivity.this, device);
+                    // A new wearable knows none of the user's faces yet
+                    FaceDatabaseManager.getInstance(ConnectDeviceActivity.this).enrollOnWearable();
+                    // Started here on the first pairing; MainActivity starts them on later launches
+                    WearableHealthMonitor.getInstance().monitorWhileInForeground();
+                    WearableEventAnnouncer.getInstance(ConnectDeviceActivity.this).announceWhileInForeground();
+                    tvStatus.setText("Successfully paired with " + device.getName() + "!");
+                    performHapticFeedback();
+                    tvStatus.postDelayed(ConnectDeviceActivity.this::finish, 1500);
+                } else {
+                    onPairingFailed("the device did not respond as a SeeForMe wearable");
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse> call, Throwable t) {
+                ApiClient.setBaseUrl(previousBaseUrl);
+                if (isDestroyed()) {
+                    return;
+                }
+                onPairingFailed(t.getMessage());
+            }
+        });
+    }
+    
+    private void onPairingFailed(String reason) {
+        tvStatus.setText("Pairing failed: " + reason);
+        btnPair.setEnabled(true);
+        btnSearch.setEnabled(true);
     }
     
     private void performHapticFeedback() {
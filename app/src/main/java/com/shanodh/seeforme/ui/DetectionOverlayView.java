@@ -3,30 +3,51 @@ package com.shanodh.seeforme.ui;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.View;
 
+import androidx.camera.view.PreviewView;
+
 import com.shanodh.seeforme.ml.Detection;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Custom overlay view to display object detection bounding boxes
  * Color-coded by priority for demonstration purposes
+ *
+ * Boxes arrive in analysis-frame pixels and are mapped onto the view with the same scale, crop
+ * and rotation the PreviewView applies (setScaleType, setFrameRotation). Between detection
+ * updates each box glides from where it was drawn to its new position, one step per display
+ * frame, so a detector running at a few frames a second still looks smooth. Label text and
+ * colours are built once per class and score bucket when detections arrive; onDraw allocates
+ * nothing. Must be updated from the main thread.
  */
 public class DetectionOverlayView extends View {
     private static final String TAG = "DetectionOverlay";
     
-    private List<Detection> detections = new ArrayList<>();
+    private static final int MAX_BOXES = 32;
+    private static final int SCORE_BUCKET_PERCENT = 5;
+    private static final int SCORE_BUCKETS = 100 / SCORE_BUCKET_PERCENT + 1;
+    // A new box continues an old one of the same class when they overlap at least this much
+    private static final float MATCH_IOU = 0.3f;
+    private static final long MIN_GLIDE_MS = 16;
+    private static final long MAX_GLIDE_MS = 250;
+    
     private Paint boundingBoxPaint;
     private Paint textPaint;
     private Paint backgroundPaint;
+    private float textAscent;
+    private float textDescent;
     
     // Object categories for color coding (matching ObjectDetectionManager)
     private Set<String> criticalHazards;
@@ -35,6 +56,45 @@ public class DetectionOverlayView extends View {
     private Set<String> navigationBarriers;
     private Set<String> electronics;
     
+    /**
+     * Colour and prepared label text for one class
+     */
+    private static final class LabelStyle {
+        final int color;
+        final String[] text = new String[SCORE_BUCKETS];
+        final float[] width = new float[SCORE_BUCKETS];
+        
+        LabelStyle(int color) {
+            this.color = color;
+        }
+    }
+    
+    /**
+     * One box on screen, in frame pixels: it moves from 'from' to 'to' over the glide
+     */
+    private static final class Track {
+        final RectF from = new RectF();
+        final RectF to = new RectF();
+        LabelStyle style;
+        int bucket;
+        boolean matched;
+    }
+    
+    private final Map<String, LabelStyle> labelStyles = new HashMap<>();
+    private Track[] tracks = newTracks();
+    private Track[] spareTracks = newTracks();
+    private int trackCount;
+    private long glideStart;
+    private long glideMs;
+    private long lastUpdate;
+    
+    private final Matrix frameToView = new Matrix();
+    private final RectF drawRect = new RectF();
+    private PreviewView.ScaleType scaleType = PreviewView.ScaleType.FILL_CENTER;
+    private int frameRotation;
+    private float frameWidth;
+    private float frameHeight;
+    
     public DetectionOverlayView(Context context) {
         super(context);
         init();
@@ -64,10 +124,14 @@ public class DetectionOverlayView extends View {
         textPaint.setTextSize(32f);
         textPaint.setAntiAlias(true);
         textPaint.setShadowLayer(2f, 1f, 1f, Color.BLACK);
+        Paint.FontMetrics metrics = textPaint.getFontMetrics();
+        textAscent = -metrics.ascent;
+        textDescent = metrics.descent;
         
         backgroundPaint = new Paint();
         backgroundPaint.setStyle(Paint.Style.FILL);
         backgroundPaint.setAntiAlias(true);
+        backgroundPaint.setColor(Color.argb(180, 0, 0, 0));
     }
     
     private void initializeCategories() {
@@ -77,18 +141,18 @@ public class DetectionOverlayView extends View {
         ));
         
         peoplePets = new HashSet<>(Arrays.asList(
-            "person", "cat", "dog", "bird", "horse", "sheep", "cow", 
+            "person", "cat", "dog", "bird", "horse", "sheep", "cow",
             "elephant", "bear", "zebra", "giraffe"
         ));
         
         vehicles = new HashSet<>(Arrays.asList(
-            "bicycle", "car", "motorcycle", "airplane", "bus", "train", 
+            "bicycle", "car", "motorcycle", "airplane", "bus", "train",
             "truck", "boat"
         ));
         
         navigationBarriers = new HashSet<>(Arrays.asList(
             "chair", "couch", "dining table", "bed", "bench", "toilet",
-            "refrigerator", "tv", "sink", "potted plant", "backpack", 
+            "refrigerator", "tv", "sink", "potted plant", "backpack",
             "suitcase", "surfboard", "skateboard", "skis", "snowboard"
         ));
         
@@ -97,72 +161,259 @@ public class DetectionOverlayView extends View {
         ));
     }
     
+    private static Track[] newTracks() {
+        Track[] pool = new Track[MAX_BOXES];
+        for (int i = 0; i < MAX_BOXES; i++) {
+            pool[i] = new Track();
+        }
+        return pool;
+    }
+    
+    /**
+     * Match the PreviewView underneath, e.g. setScaleType(viewFinder.getScaleType())
+     */
+    public void setScaleType(PreviewView.ScaleType scaleType) {
+        this.scaleType = scaleType;
+        updateTransform();
+        invalidate();
+    }
+    
+    /**
+     * Clockwise rotation from the frame the boxes refer to onto the screen. Zero when the
+     * frames were already rotated upright before detection, as ImageUtils does.
+     */
+    public void setFrameRotation(int degrees) {
+        this.frameRotation = ((degrees % 360) + 360) % 360;
+        updateTransform();
+        invalidate();
+    }
+    
     /**
-     * Update detections and trigger redraw
+     * Update detections and trigger redraw. Boxes continuing one already on screen glide to
+     * their new place over about one detection interval.
      */
     public void updateDetections(List<Detection> newDetections) {
-        this.detections = new ArrayList<>(newDetections);
-        invalidate(); // Trigger onDraw
+        long now = SystemClock.uptimeMillis();
+        float progress = glideProgress(now);
+        for (int i = 0; i < trackCount; i++) {
+            Track track = tracks[i];
+            // Where the box is drawn right now is where its next glide starts
+            lerp(track.from, track.to, progress, track.from);
+            track.matched = false;
+        }
+        
+        int count = Math.min(newDetections.size(), MAX_BOXES);
+        for (int j = 0; j < count; j++) {
+            Detection detection = newDetections.get(j);
+            if (j == 0) {
+                setFrameSize(detection.getImageWidth(), detection.getImageHeight());
+            }
+            Track next = spareTracks[j];
+            next.to.set(detection.getLeft(), detection.getTop(), detection.getRight(), detection.getBottom());
+            next.style = styleFor(detection.getLabel());
+            next.bucket = Math.round(detection.getConfidence() * 100 / SCORE_BUCKET_PERCENT);
+            next.bucket = Math.max(0, Math.min(SCORE_BUCKETS - 1, next.bucket));
+            prepareLabel(next.style, detection.getLabel(), next.bucket);
+            
+            Track previous = bestMatch(next);
+            if (previous != null) {
+                previous.matched = true;
+                next.from.set(previous.from);
+            } else {
+                next.from.set(next.to);
+            }
+        }
+        
+        Track[] swap = tracks;
+        tracks = spareTracks;
+        spareTracks = swap;
+        trackCount = count;
+        
+        glideMs = lastUpdate == 0 ? 0 : Math.max(MIN_GLIDE_MS, Math.min(MAX_GLIDE_MS, now - lastUpdate));
+        glideStart = now;
+        lastUpdate = now;
+        postInvalidateOnAnimation();
     }
     
     /**
      * Clear all detections
      */
     public void clearDetections() {
-        this.detections.clear();
+        trackCount = 0;
+        lastUpdate = 0;
         invalidate();
     }
     
+    private Track bestMatch(Track next) {
+        Track best = null;
+        float bestIou = MATCH_IOU;
+        for (int i = 0; i < trackCount; i++) {
+            Track candidate = tracks[i];
+            if (candidate.matched || candidate.style != next.style) {
+                continue;
+            }
+            float iou = iou(candidate.from, next.to);
+            if (iou >= bestIou) {
+                bestIou = iou;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+    
+    private static float iou(RectF a, RectF b) {
+        float width = Math.min(a.right, b.right) - Math.max(a.left, b.left);
+        float height = Math.min(a.bottom, b.bottom) - Math.max(a.top, b.top);
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        float intersection = width * height;
+        float union = a.width() * a.height() + b.width() * b.height() - intersection;
+        return union > 0 ? intersection / union : 0;
+    }
+    
+    private float glideProgress(long now) {
+        if (glideMs <= 0) {
+            return 1f;
+        }
+        return Math.min(1f, (now - glideStart) / (float) glideMs);
+    }
+    
+    private static void lerp(RectF from, RectF to, float t, RectF out) {
+        out.set(from.left + (to.left - from.left) * t,
+                from.top + (to.top - from.top) * t,
+                from.right + (to.right - from.right) * t,
+                from.bottom + (to.bottom - from.bottom) * t);
+    }
+    
+    private LabelStyle styleFor(String label) {
+        LabelStyle style = labelStyles.get(label);
+        if (style == null) {
+            style = new LabelStyle(getPriorityColor(label));
+            labelStyles.put(label, style);
+        }
+        return style;
+    }
+    
+    private void prepareLabel(LabelStyle style, String label, int bucket) {
+        if (style.text[bucket] == null) {
+            String text = label + " " + (bucket * SCORE_BUCKET_PERCENT) + "%";
+            style.text[bucket] = text;
+            style.width[bucket] = textPaint.measureText(text);
+        }
+    }
+    
+    // Frame to view transform
+    
+    private void setFrameSize(float width, float height) {
+        if (width != frameWidth || height != frameHeight) {
+            frameWidth = width;
+            frameHeight = height;
+            updateTransform();
+        }
+    }
+    
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateTransform();
+    }
+    
+    /**
+     * Rotate the frame upright, scale it to fill or fit the view, and align it the way
+     * PreviewView does for the same scale type
+     */
+    private void updateTransform() {
+        frameToView.reset();
+        int viewWidth = getWidth();
+        int viewHeight = getHeight();
+        if (frameWidth <= 0 || frameHeight <= 0 || viewWidth == 0 || viewHeight == 0) {
+            return;
+        }
+        
+        frameToView.postRotate(frameRotation);
+        float rotatedWidth = frameWidth;
+        float rotatedHeight = frameHeight;
+        switch (frameRotation) {
+            case 90:
+                frameToView.postTranslate(frameHeight, 0);
+                rotatedWidth = frameHeight;
+                rotatedHeight = frameWidth;
+                break;
+            case 180:
+                frameToView.postTranslate(frameWidth, frameHeight);
+                break;
+            case 270:
+                frameToView.postTranslate(0, frameWidth);
+                rotatedWidth = frameHeight;
+                rotatedHeight = frameWidth;
+                break;
+            default:
+                break;
+        }
+        
+        float scaleX = viewWidth / rotatedWidth;
+        float scaleY = viewHeight / rotatedHeight;
+        boolean fill = scaleType == PreviewView.ScaleType.FILL_START
+                || scaleType == PreviewView.ScaleType.FILL_CENTER
+                || scaleType == PreviewView.ScaleType.FILL_END;
+        float scale = fill ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+        frameToView.postScale(scale, scale);
+        
+        float spareX = viewWidth - rotatedWidth * scale;
+        float spareY = viewHeight - rotatedHeight * scale;
+        float align;
+        if (scaleType == PreviewView.ScaleType.FILL_START || scaleType == PreviewView.ScaleType.FIT_START) {
+            align = 0f;
+        } else if (scaleType == PreviewView.ScaleType.FILL_END || scaleType == PreviewView.ScaleType.FIT_END) {
+            align = 1f;
+        } else {
+            align = 0.5f;
+        }
+        frameToView.postTranslate(spareX * align, spareY * align);
+    }
+    
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         
-        if (detections == null || detections.isEmpty()) {
+        if (trackCount == 0) {
             return;
         }
         
-        for (Detection detection : detections) {
-            drawDetection(canvas, detection);
+        float progress = glideProgress(SystemClock.uptimeMillis());
+        for (int i = 0; i < trackCount; i++) {
+            Track track = tracks[i];
+            lerp(track.from, track.to, progress, drawRect);
+            frameToView.mapRect(drawRect);
+            drawDetection(canvas, drawRect, track.style, track.bucket);
+        }
+        if (progress < 1f) {
+            postInvalidateOnAnimation();
         }
     }
     
-    private void drawDetection(Canvas canvas, Detection detection) {
-        // Get priority-based color
-        int color = getPriorityColor(detection.getLabel());
-        boundingBoxPaint.setColor(color);
+    private void drawDetection(Canvas canvas, RectF box, LabelStyle style, int bucket) {
+        // Draw bounding box in the class's priority colour
+        boundingBoxPaint.setColor(style.color);
+        canvas.drawRect(box, boundingBoxPaint);
         
-        // Draw bounding box
-        canvas.drawRect(
-            detection.getLeft(),
-            detection.getTop(),
-            detection.getRight(),
-            detection.getBottom(),
-            boundingBoxPaint
-        );
-        
-        // Prepare label text
-        String label = detection.getLabel() + " " + 
-                      String.format("%.0f%%", detection.getConfidence() * 100);
-        
-        // Calculate text background
-        Rect textBounds = new Rect();
-        textPaint.getTextBounds(label, 0, label.length(), textBounds);
-        
-        float textX = detection.getLeft();
-        float textY = detection.getTop() - 8;
+        String label = style.text[bucket];
+        float textHeight = textAscent + textDescent;
+        float textX = box.left;
+        float textY = box.top - 8;
         
         // Ensure text stays within view bounds
-        if (textY < textBounds.height()) {
-            textY = detection.getTop() + textBounds.height() + 8;
+        if (textY < textHeight) {
+            textY = box.top + textHeight + 8;
         }
         
         // Draw semi-transparent background for text
-        backgroundPaint.setColor(Color.argb(180, 0, 0, 0));
         canvas.drawRect(
             textX - 4,
-            textY - textBounds.height() - 4,
-            textX + textBounds.width() + 8,
-            textY + 4,
+            textY - textAscent - 4,
+            textX + style.width[bucket] + 8,
+            textY + textDescent + 4,
             backgroundPaint
         );
         
@@ -170,8 +421,8 @@ public class DetectionOverlayView extends View {
         canvas.drawText(label, textX, textY, textPaint);
         
         // Draw priority indicator (small colored circle)
-        float circleX = detection.getRight() - 15;
-        float circleY = detection.getTop() + 15;
+        float circleX = box.right - 15;
+        float circleY = box.top + 15;
         boundingBoxPaint.setStyle(Paint.Style.FILL);
         canvas.drawCircle(circleX, circleY, 8, boundingBoxPaint);
         boundingBoxPaint.setStyle(Paint.Style.STROKE);
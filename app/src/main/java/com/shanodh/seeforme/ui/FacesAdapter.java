@@ -7,17 +7,37 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.shanodh.seeforme.R;
+import com.shanodh.seeforme.utils.FaceThumbnailCache;
 
-import java.util.List;
+import java.util.Objects;
 
-public class FacesAdapter extends RecyclerView.Adapter<FacesAdapter.FaceViewHolder> {
+public class FacesAdapter extends ListAdapter<ViewFacesActivity.FaceItem, FacesAdapter.FaceViewHolder> {
+
+    private static final DiffUtil.ItemCallback<ViewFacesActivity.FaceItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<ViewFacesActivity.FaceItem>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull ViewFacesActivity.FaceItem oldItem,
+                                               @NonNull ViewFacesActivity.FaceItem newItem) {
+                    return Objects.equals(oldItem.getFaceId(), newItem.getFaceId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull ViewFacesActivity.FaceItem oldItem,
+                                                  @NonNull ViewFacesActivity.FaceItem newItem) {
+                    return oldItem.getTimestamp() == newItem.getTimestamp()
+                            && Objects.equals(oldItem.getName(), newItem.getName())
+                            && Objects.equals(oldItem.getRelationship(), newItem.getRelationship())
+                            && Objects.equals(oldItem.getImagePath(), newItem.getImagePath());
+                }
+            };
 
-    private List<ViewFacesActivity.FaceItem> facesList;
     private OnFaceActionListener listener;
 
     public interface OnFaceActionListener {
@@ -25,8 +45,8 @@ public class FacesAdapter extends RecyclerView.Adapter<FacesAdapter.FaceViewHold
         void onFaceClick(ViewFacesActivity.FaceItem face);
     }
 
-    public FacesAdapter(List<ViewFacesActivity.FaceItem> facesList, OnFaceActionListener listener) {
-        this.facesList = facesList;
+    public FacesAdapter(OnFaceActionListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
     }
 
@@ -39,12 +59,13 @@ public class FacesAdapter extends RecyclerView.Adapter<FacesAdapter.FaceViewHold
 
     @Override
     public void onBindViewHolder(@NonNull FaceViewHolder holder, int position) {
-        ViewFacesActivity.FaceItem face = facesList.get(position);
+        ViewFacesActivity.FaceItem face = getItem(position);
         
         holder.tvPersonName.setText(face.getName());
         holder.tvRelationship.setText(face.getRelationship());
         holder.tvAdded.setText("Added " + face.getFormattedDate());
-        holder.ivFaceImage.setImageBitmap(face.getBitmap());
+        FaceThumbnailCache.getInstance(holder.itemView.getContext())
+                .load(face.getFaceId(), face.getImagePath(), holder.ivFaceImage, R.drawable.ic_person);
 
         // Set click listeners
         holder.cardContainer.setOnClickListener(v -> {
@@ -60,11 +81,6 @@ public class FacesAdapter extends RecyclerView.Adapter<FacesAdapter.FaceViewHold
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return facesList.size();
-    }
-
     static class FaceViewHolder extends RecyclerView.ViewHolder {
         MaterialCardView cardContainer;
         ImageView ivFaceImage;
@@ -2,9 +2,6 @@ package com.shanodh.seeforme.ui;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.VibrationEffect;
@@ -24,12 +21,10 @@ import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.shanodh.seeforme.R;
-import com.shanodh.seeforme.models.FaceData;
+import com.shanodh.seeforme.data.FaceDatabaseManager;
+import com.shanodh.seeforme.data.FamiliarFace;
 
-import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -46,9 +41,7 @@ public class ViewFacesActivity extends AppCompatActivity {
     private FacesAdapter facesAdapter;
     private List<FaceItem> facesList;
     
-    // Firebase
-    private FirebaseFirestore db;
-    private FirebaseAuth auth;
+    private FaceDatabaseManager faceRepository;
     private FirebaseUser currentUser;
 
     @Override
@@ -70,12 +63,10 @@ public class ViewFacesActivity extends AppCompatActivity {
         setupRecyclerView();
         setupClickListeners();
         
-        // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
-        auth = FirebaseAuth.getInstance();
-        currentUser = auth.getCurrentUser();
-        
-        loadFaces();
+        // Faces are served from the local repository
+        currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        faceRepository = FaceDatabaseManager.getInstance(this);
+        observeFaces();
     }
 
     private void initializeViews() {
@@ -95,7 +86,7 @@ public class ViewFacesActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        facesAdapter = new FacesAdapter(facesList, new FacesAdapter.OnFaceActionListener() {
+        facesAdapter = new FacesAdapter(new FacesAdapter.OnFaceActionListener() {
             @Override
             public void onDeleteFace(FaceItem face, int position) {
                 showDeleteConfirmationDialog(face, position);
@@ -121,104 +112,44 @@ public class ViewFacesActivity extends AppCompatActivity {
         });
     }
 
-    private void loadFaces() {
+    /**
+     * Observe the local face repository. The list shows stored faces immediately; the cloud
+     * refresh runs in the background and only changed rows are re-bound.
+     */
+    private void observeFaces() {
         if (currentUser == null) {
             showEmptyState();
             Toast.makeText(this, "Please log in to view your faces", Toast.LENGTH_SHORT).show();
             return;
         }
         
-        // Show loading spinner
         showLoadingState();
-        
-        // Clear the list to prevent duplication
-        facesList.clear();
-        if (facesAdapter != null) {
-            facesAdapter.notifyDataSetChanged();
-        }
-        
-        // Log for debugging
-        android.util.Log.d("ViewFacesActivity", "Loading faces for user: " + currentUser.getUid());
-        
-        // Query Firebase for faces belonging to current user
-        db.collection("faces")
-                .whereEqualTo("userId", currentUser.getUid())
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    android.util.Log.d("ViewFacesActivity", "Query successful, found " + queryDocumentSnapshots.size() + " documents");
-                    
-                    // Clear list again to ensure no duplication
-                    facesList.clear();
-                    
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        try {
-                            FaceData faceData = document.toObject(FaceData.class);
-                            android.util.Log.d("ViewFacesActivity", "Processing face: " + faceData.getPersonName());
-                            
-                            // Load image from local path
-                            Bitmap bitmap = loadImageFromPath(faceData.getLocalImagePath());
-                            if (bitmap != null) {
-                                FaceItem faceItem = new FaceItem(
-                                    faceData.getId(),
-                                    faceData.getPersonName(),
-                                    faceData.getRelationship() != null ? faceData.getRelationship() : "Unknown",
-                                    faceData.getTimestamp(),
-                                    bitmap
-                                );
-                                facesList.add(faceItem);
-                            } else {
-                                android.util.Log.w("ViewFacesActivity", "Failed to load image for: " + faceData.getPersonName());
-                            }
-                        } catch (Exception e) {
-                            android.util.Log.e("ViewFacesActivity", "Error processing document: " + document.getId(), e);
-                        }
-                    }
-                    
-                    // Sort by timestamp (newest first) in code instead of Firestore
-                    facesList.sort((a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
-                    
-                    runOnUiThread(() -> {
-                        hideLoadingState();
-                        updateFaceCount();
-                        if (facesList.isEmpty()) {
-                            showEmptyState();
-                        } else {
-                            showFacesList();
-                        }
-                        facesAdapter.notifyDataSetChanged();
-                    });
-                })
-                .addOnFailureListener(e -> {
-                    android.util.Log.e("ViewFacesActivity", "Failed to load faces from Firebase", e);
-                    runOnUiThread(() -> {
-                        hideLoadingState();
-                        updateFaceCount(); // Update count even on failure
-                        String errorMsg = "Failed to load faces";
-                        if (e.getMessage() != null) {
-                            errorMsg += ": " + e.getMessage();
-                        }
-                        Toast.makeText(this, errorMsg, Toast.LENGTH_LONG).show();
-                        showEmptyState();
-                    });
-                });
-    }
-    
-    private Bitmap loadImageFromPath(String imagePath) {
-        if (imagePath == null || imagePath.isEmpty()) {
-            return null;
-        }
-        
-        try {
-            File imageFile = new File(imagePath);
-            if (imageFile.exists()) {
-                BitmapFactory.Options options = new BitmapFactory.Options();
-                options.inSampleSize = 4; // Reduce size for thumbnail
-                return BitmapFactory.decodeFile(imagePath, options);
+        faceRepository.getFaces().observe(this, faces -> {
+            List<FaceItem> loadedFaces = new ArrayList<>(faces.size());
+            for (FamiliarFace face : faces) {
+                // Thumbnails are decoded lazily by the adapter
+                loadedFaces.add(new FaceItem(
+                        face.getFirebaseId(),
+                        face.getName(),
+                        face.getRelationship() != null ? face.getRelationship() : "Unknown",
+                        face.getTimestamp(),
+                        face.getImagePath()
+                ));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return null;
+            
+            // The adapter diffs against the current list in the background and
+            // dispatches only the rows that changed
+            facesList = loadedFaces;
+            facesAdapter.submitList(loadedFaces, () -> {
+                hideLoadingState();
+                updateFaceCount();
+                if (facesList.isEmpty()) {
+                    showEmptyState();
+                } else {
+                    showFacesList();
+                }
+            });
+        });
     }
     
     private void showLoadingState() {
@@ -263,28 +194,9 @@ public class ViewFacesActivity extends AppCompatActivity {
     }
 
     private void deleteFace(FaceItem face, int position) {
-        // Delete image file
-        File facesDir = new File(getFilesDir(), "faces");
-        File imageFile = new File(facesDir, face.getFilename());
-        if (imageFile.exists()) {
-            imageFile.delete();
-        }
-
-        // Delete metadata
-        SharedPreferences prefs = getSharedPreferences("faces_metadata", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.remove(face.getFilename() + "_name");
-        editor.remove(face.getFilename() + "_relationship");
-        editor.remove(face.getFilename() + "_timestamp");
-        editor.apply();
-
-        // Remove from list and update UI
-        facesList.remove(position);
-        facesAdapter.notifyItemRemoved(position);
-
-        if (facesList.isEmpty()) {
-            showEmptyState();
-        }
+        // Removes the row, image, thumbnail, embedding and cloud copy in the background;
+        // the observed list then drops just this item
+        faceRepository.deleteFace(face.getFaceId());
 
         performHapticFeedback();
         Toast.makeText(this, face.getName() + " deleted", Toast.LENGTH_SHORT).show();
@@ -314,32 +226,32 @@ public class ViewFacesActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // Reload faces when returning to this activity
-        loadFaces();
+        // Reconcile with the cloud in the background; the list updates itself if anything changed
+        faceRepository.refreshFromCloud();
     }
 
     // Data class for face items
     public static class FaceItem {
-        private String filename;
+        private String faceId;
         private String name;
         private String relationship;
         private long timestamp;
-        private Bitmap bitmap;
+        private String imagePath;
 
-        public FaceItem(String filename, String name, String relationship, long timestamp, Bitmap bitmap) {
-            this.filename = filename;
+        public FaceItem(String faceId, String name, String relationship, long timestamp, String imagePath) {
+            this.faceId = faceId;
             this.name = name;
             this.relationship = relationship;
             this.timestamp = timestamp;
-            this.bitmap = bitmap;
+            this.imagePath = imagePath;
         }
 
         // Getters
-        public String getFilename() { return filename; }
+        public String getFaceId() { return faceId; }
         public String getName() { return name; }
         public String getRelationship() { return relationship; }
         public long getTimestamp() { return timestamp; }
-        public Bitmap getBitmap() { return bitmap; }
+        public String getImagePath() { return imagePath; }
 
         public String getFormattedDate() {
             return new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault()).format(new Date(timestamp));
@@ -6,6 +6,8 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -14,6 +16,7 @@ import android.view.WindowInsets;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -24,35 +27,59 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
-import androidx.lifecycle.LiveData;
+import androidx.paging.LoadState;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataAdapter;
+import androidx.paging.PagingLiveData;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.shanodh.seeforme.R;
+import com.shanodh.seeforme.data.AppDatabase;
 import com.shanodh.seeforme.data.Note;
-import com.shanodh.seeforme.firebase.FirestoreNotesManager;
+import com.shanodh.seeforme.data.NoteDao;
+import com.shanodh.seeforme.firebase.NotesFeed;
+import com.shanodh.seeforme.sync.SyncService;
+import com.shanodh.seeforme.sync.WearableNoteSync;
 import com.shanodh.seeforme.voice.TextToSpeechHelper;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+
+import kotlin.Unit;
 
 public class ViewNotesActivity extends AppCompatActivity implements TextToSpeechHelper.TtsCallback {
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int SEARCH_LIMIT = 50;
 
     private RecyclerView rvNotes;
     private TextView tvEmptyNotes;
     private Button btnAddNote;
     private View loadingSpinner;
+    private EditText etSearchNotes;
     private NotesAdapter adapter;
-    private List<Note> notesList = new ArrayList<>();
+    private NoteDao noteDao;
+    // Only the signed-in user's notes are listed; nobody's when signed out
+    private String userId = "";
+    private boolean listAnnounced = false;
     private TextToSpeechHelper ttsHelper;
-    private FirestoreNotesManager notesManager;
-    private final Executor executor = Executors.newSingleThreadExecutor();
+    private NotesFeed notesFeed;
+    private final Executor executor = AppDatabase.notesExecutor();
+    // The paged list of all notes, shown whenever the search box is empty
+    private PagingData<Note> allNotes;
+    private String searchQuery = "";
+    // Bumped on every keystroke so a slower, older search never replaces a newer one
+    private volatile int searchGeneration = 0;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -76,14 +103,20 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
             return insets;
         });
         
+        ttsHelper = new TextToSpeechHelper(this, this);
+        noteDao = AppDatabase.getInstance(this).noteDao();
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user != null) {
+            userId = user.getUid();
+        }
+
         initializeViews();
         setupRecyclerView();
+        setupSearch();
         
-        // Initialize Firebase
-        notesManager = new FirestoreNotesManager();
-        loadNotes();
-        
-        ttsHelper = new TextToSpeechHelper(this, this);
+        // The notes feed runs between onStart and onStop
+        notesFeed = new NotesFeed(noteDao, executor);
+        showLoading(true);
         
         btnAddNote.setOnClickListener(v -> {
             Intent intent = new Intent(ViewNotesActivity.this, AddNoteActivity.class);
@@ -99,47 +132,160 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
         tvEmptyNotes = findViewById(R.id.tvEmptyNotes);
         btnAddNote = findViewById(R.id.btnAddNote);
         loadingSpinner = findViewById(R.id.loadingSpinner);
+        etSearchNotes = findViewById(R.id.etSearchNotes);
     }
     
     private void setupRecyclerView() {
-        adapter = new NotesAdapter(notesList);
+        adapter = new NotesAdapter();
         rvNotes.setLayoutManager(new LinearLayoutManager(this));
         rvNotes.setAdapter(adapter);
+
+        // Page the list from the local notes table; Room invalidates it on writes and the
+        // adapter diffs each new page on a background thread, so only changed rows rebind
+        Pager<Integer, Note> pager = new Pager<>(new PagingConfig(PAGE_SIZE), () -> noteDao.getNotesPaged(userId));
+        PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), getLifecycle())
+                .observe(this, pagingData -> {
+                    allNotes = pagingData;
+                    if (searchQuery.isEmpty()) {
+                        adapter.submitData(getLifecycle(), pagingData);
+                    }
+                });
+
+        adapter.addLoadStateListener(loadStates -> {
+            if (!(loadStates.getRefresh() instanceof LoadState.Loading)) {
+                // Locally stored notes are shown straight away, without waiting for the cloud
+                if (adapter.getItemCount() > 0) {
+                    showLoading(false);
+                } else {
+                    updateEmptyState();
+                }
+            }
+            return Unit.INSTANCE;
+        });
+
+        // Page older notes in from the cloud as the user nears the end of the list
+        rvNotes.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (dy > 0 && layoutManager != null && searchQuery.isEmpty() && notesFeed.hasMore()
+                        && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    notesFeed.loadOlder(feedListener);
+                }
+            }
+        });
     }
     
-    private void loadNotes() {
-        // Show loading spinner
-        showLoading(true);
-        
-        notesManager.getUserNotes(new FirestoreNotesManager.FirestoreCallback<List<Note>>() {
+    /**
+     * Search as you type: each change queries the local full-text index on the notes executor
+     * and shows the best matches in place of the full list. Clearing the box brings it back.
+     */
+    private void setupSearch() {
+        etSearchNotes.addTextChangedListener(new TextWatcher() {
             @Override
-            public void onSuccess(List<Note> notes) {
-                // Hide loading spinner
-                showLoading(false);
-                
-                notesList.clear();
-                if (notes != null) {
-                    notesList.addAll(notes);
-                    updateEmptyState();
-                    if (notes.isEmpty()) {
-                        ttsHelper.speak("You don't have any notes yet. Tap the Add New Note button to create one.");
-                    } else {
-                        ttsHelper.speak("Showing " + notes.size() + " notes. Swipe to browse through them.");
-                    }
-                }
-                adapter.notifyDataSetChanged();
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
             }
 
             @Override
-            public void onError(String error) {
-                // Hide loading spinner
+            public void afterTextChanged(Editable s) {
+                search(s.toString().trim());
+            }
+        });
+    }
+
+    private void search(String query) {
+        if (query.equals(searchQuery)) {
+            return;
+        }
+        searchQuery = query;
+        int generation = ++searchGeneration;
+        if (query.isEmpty()) {
+            if (allNotes != null) {
+                adapter.submitData(getLifecycle(), allNotes);
+            }
+            return;
+        }
+        executor.execute(() -> {
+            if (generation != searchGeneration) {
+                // The user has typed on since
+                return;
+            }
+            List<Note> results = noteDao.search(userId, query, SEARCH_LIMIT);
+            runOnUiThread(() -> {
+                if (generation != searchGeneration || isFinishing()) {
+                    return;
+                }
+                adapter.submitData(getLifecycle(), PagingData.from(results));
+                announceForAccessibility(results.isEmpty()
+                        ? "No matching notes"
+                        : results.size() + (results.size() == 1 ? " matching note" : " matching notes"));
+            });
+        });
+    }
+
+    /**
+     * Keep the local notes table in step with Firestore while the screen is visible.
+     * The list is driven by Room, so only notes that actually changed are re-bound.
+     */
+    private void startNotesFeed() {
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null) {
+            showLoading(false);
+            return;
+        }
+        String uid = currentUser.getUid();
+        // Notes stored before they had an owner are claimed ahead of the feed's first page
+        executor.execute(() -> noteDao.claimUnownedNotes(uid));
+        notesFeed.start(uid, feedListener);
+    }
+
+    private final NotesFeed.FeedListener feedListener = new NotesFeed.FeedListener() {
+        @Override
+        public void onFeedUpdated(int changes, boolean fromCache) {
+            // Runs on the feed executor
+            if (fromCache) {
+                return;
+            }
+            if (changes > 0) {
+                // Edits made on another device reach the wearable too
+                WearableNoteSync.requestSync(getApplicationContext());
+            }
+            int count = noteDao.getNoteCountForUser(userId);
+            runOnUiThread(() -> {
+                showLoading(false);
+                announceNotes(count, changes);
+            });
+        }
+
+        @Override
+        public void onFeedError(String error) {
+            runOnUiThread(() -> {
+                // Hide loading spinner; whatever is stored locally stays on screen
                 showLoading(false);
                 
                 Toast.makeText(ViewNotesActivity.this, "Error loading notes: " + error, Toast.LENGTH_SHORT).show();
                 ttsHelper.speak("Error loading notes");
-                updateEmptyState();
-            }
-        });
+            });
+        }
+    };
+
+    /**
+     * Announce the list once, and afterwards only when the cloud refresh changed it
+     */
+    private void announceNotes(int count, int changes) {
+        if (listAnnounced && changes == 0) {
+            return;
+        }
+        listAnnounced = true;
+        if (count == 0) {
+            ttsHelper.speak("You don't have any notes yet. Tap the Add New Note button to create one.");
+        } else {
+            ttsHelper.speak("Showing " + count + " notes. Swipe to browse through them.");
+        }
     }
     
     private void showLoading(boolean show) {
@@ -154,7 +300,12 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
     }
     
     private void updateEmptyState() {
-        if (notesList.isEmpty()) {
+        if (loadingSpinner.getVisibility() == View.VISIBLE) {
+            return;
+        }
+        if (adapter.getItemCount() == 0) {
+            tvEmptyNotes.setText(searchQuery.isEmpty()
+                    ? "You don't have any notes yet" : "No notes match your search");
             tvEmptyNotes.setVisibility(View.VISIBLE);
             rvNotes.setVisibility(View.GONE);
         } else {
@@ -239,15 +390,21 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Reload notes when returning from AddNoteActivity
-        loadNotes();
+    protected void onStart() {
+        super.onStart();
+        // Cached notes are already on screen; the feed applies only what changed
+        startNotesFeed();
+    }
+
+    @Override
+    protected void onStop() {
+        notesFeed.stop();
+        super.onStop();
     }
     
     private void editNote(Note note) {
         Intent intent = new Intent(ViewNotesActivity.this, AddNoteActivity.class);
-        intent.putExtra(AddNoteActivity.EXTRA_NOTE_ID, note.getFirestoreId());
+        intent.putExtra(AddNoteActivity.EXTRA_NOTE_ID, note.getId());
         intent.putExtra(AddNoteActivity.EXTRA_NOTE_TITLE, note.getTitle());
         intent.putExtra(AddNoteActivity.EXTRA_NOTE_CONTENT, note.getContent());
         startActivity(intent);
@@ -264,14 +421,25 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
         return super.onOptionsItemSelected(item);
     }
     
-    // RecyclerView Adapter
-    class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHolder> {
+    private static final DiffUtil.ItemCallback<Note> NOTE_DIFF = new DiffUtil.ItemCallback<Note>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Note oldItem, @NonNull Note newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Note oldItem, @NonNull Note newItem) {
+            return NoteDao.sameContent(oldItem, newItem);
+        }
+    };
+
+    // Paged RecyclerView Adapter
+    class NotesAdapter extends PagingDataAdapter<Note, NotesAdapter.NoteViewHolder> {
         
-        private final List<Note> notes;
         private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
         
-        NotesAdapter(List<Note> notes) {
-            this.notes = notes;
+        NotesAdapter() {
+            super(NOTE_DIFF);
         }
         
         @NonNull
@@ -283,7 +451,10 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
         
         @Override
         public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-            Note note = notes.get(position);
+            Note note = getItem(position);
+            if (note == null) {
+                return;
+            }
             holder.tvNoteContent.setText(note.getTitle() != null && !note.getTitle().trim().isEmpty() ? 
                 note.getTitle() : note.getContent());
             
@@ -299,7 +470,7 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
             holder.btnDelete.setOnClickListener(v -> {
                 performHapticFeedback();
                 ttsHelper.speak("Deleting note");
-                deleteNote(note, position);
+                deleteNote(note);
             });
             
             // Make the entire item accessible via TalkBack
@@ -313,29 +484,16 @@ public class ViewNotesActivity extends AppCompatActivity implements TextToSpeech
             });
         }
         
-        @Override
-        public int getItemCount() {
-            return notes.size();
-        }
-        
-        private void deleteNote(Note note, int position) {
-            notesManager.deleteNote(note.getFirestoreId(), new FirestoreNotesManager.FirestoreCallback<Void>() {
-                @Override
-                public void onSuccess(Void result) {
-                    notes.remove(position);
-                    notifyItemRemoved(position);
-                    notifyItemRangeChanged(position, notes.size());
-                    updateEmptyState();
-                    Toast.makeText(ViewNotesActivity.this, "Note deleted successfully", Toast.LENGTH_SHORT).show();
-                    ttsHelper.speak("Note deleted successfully");
-                }
-
-                @Override
-                public void onError(String error) {
-                    Toast.makeText(ViewNotesActivity.this, "Failed to delete note: " + error, Toast.LENGTH_SHORT).show();
-                    ttsHelper.speak("Failed to delete note");
-                }
+        private void deleteNote(Note note) {
+            // Removing the local row lets the paged list drop just this item; the sync
+            // engine deletes the Firestore document once the device is online
+            executor.execute(() -> {
+                noteDao.deleteLocal(note);
+                SyncService.requestSync(getApplicationContext());
+                WearableNoteSync.requestSync(getApplicationContext());
             });
+            Toast.makeText(ViewNotesActivity.this, "Note deleted successfully", Toast.LENGTH_SHORT).show();
+            ttsHelper.speak("Note deleted successfully");
         }
         
         class NoteViewHolder extends RecyclerView.ViewHolder {
@@ -31,6 +31,8 @@ import com.google.firebase.auth.GoogleAuthProvider;
 import com.shanodh.seeforme.MainActivity;
 import com.shanodh.seeforme.R;
 import com.shanodh.seeforme.auth.FirebaseAuthManager;
+import com.shanodh.seeforme.ml.SimpleObjectDetectionManager;
+import com.shanodh.seeforme.sync.SyncService;
 import com.shanodh.seeforme.ui.LoginActivity;
 
 import java.util.ArrayList;
@@ -48,6 +50,8 @@ public class ProfileFragment extends Fragment {
     private SwitchMaterial switchVoiceFeedback;
     private SwitchMaterial switchVibration;
     private SwitchMaterial switchAutoStart;
+    private SwitchMaterial switchWearableInference;
+    private SwitchMaterial switchWearableCamera;
     private MaterialButton btnLogout;
     private MaterialButton btnDataSync;
     private MaterialButton btnManageFaces;
@@ -106,6 +110,8 @@ public class ProfileFragment extends Fragment {
         switchVoiceFeedback = view.findViewById(R.id.switchVoiceFeedback);
         switchVibration = view.findViewById(R.id.switchVibration);
         switchAutoStart = view.findViewById(R.id.switchAutoStart);
+        switchWearableInference = view.findViewById(R.id.switchWearableInference);
+        switchWearableCamera = view.findViewById(R.id.switchWearableCamera);
         
         // Buttons
         btnLogout = view.findViewById(R.id.btnLogout);
@@ -152,6 +158,12 @@ public class ProfileFragment extends Fragment {
         
         switchAutoStart.setOnCheckedChangeListener((buttonView, isChecked) -> 
             updateAutoStartSetting(isChecked));
+        
+        switchWearableInference.setOnCheckedChangeListener((buttonView, isChecked) -> 
+            updateWearableInferenceSetting(isChecked));
+        
+        switchWearableCamera.setOnCheckedChangeListener((buttonView, isChecked) -> 
+            updateWearableCameraSetting(isChecked));
     }
 
     private void loadUserProfile() {
@@ -217,6 +229,10 @@ public class ProfileFragment extends Fragment {
         switchVoiceFeedback.setChecked(preferences.getBoolean("voice_feedback", true));
         switchVibration.setChecked(preferences.getBoolean("vibration_feedback", true));
         switchAutoStart.setChecked(preferences.getBoolean("auto_start", false));
+        switchWearableInference.setChecked(preferences.getBoolean(
+            SimpleObjectDetectionManager.PREF_WEARABLE_INFERENCE, false));
+        switchWearableCamera.setChecked(preferences.getBoolean(
+            SimpleAssistFragment.PREF_WEARABLE_CAMERA, false));
     }
 
     private void loadFamiliarFaces() {
@@ -235,14 +251,34 @@ public class ProfileFragment extends Fragment {
         btnDataSync.setEnabled(false);
         btnDataSync.setText("Backing up...");
         
-        // Simulate sync process (in real app, this would sync with Firestore)
-        btnDataSync.postDelayed(() -> {
-            btnDataSync.setEnabled(true);
-            btnDataSync.setText("Backup Voice Notes to Cloud");
-            
-            Toast.makeText(requireContext(), "Voice notes backed up successfully!", Toast.LENGTH_SHORT).show();
-            ((MainActivity) requireActivity()).speak("All your voice notes are now safely backed up to the cloud. You can access them from any device.");
-        }, 2000);
+        SyncService.getInstance(requireContext()).syncAllData(new SyncService.SyncCallback() {
+            @Override
+            public void onSyncStarted() {
+            }
+
+            @Override
+            public void onSyncProgress(String operation) {
+            }
+
+            @Override
+            public void onSyncCompleted(boolean success, String message) {
+                if (getActivity() == null) {
+                    return;
+                }
+                requireActivity().runOnUiThread(() -> {
+                    if (!isAdded()) {
+                        return;
+                    }
+                    btnDataSync.setEnabled(true);
+                    btnDataSync.setText("Backup Voice Notes to Cloud");
+
+                    Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+                    ((MainActivity) requireActivity()).speak(success
+                            ? "All your voice notes are now safely backed up to the cloud. You can access them from any device."
+                            : "Backup could not finish. It will continue automatically when you are online.");
+                });
+            }
+        });
     }
 
     private void onManageFacesClicked() {
@@ -301,6 +337,22 @@ public class ProfileFragment extends Fragment {
             "Auto-start voice assistant disabled");
     }
 
+    private void updateWearableInferenceSetting(boolean enabled) {
+        preferences.edit().putBoolean(SimpleObjectDetectionManager.PREF_WEARABLE_INFERENCE, enabled).apply();
+        
+        ((MainActivity) requireActivity()).speak(enabled ? 
+            "Detection will use your wearable when it is faster" : 
+            "Detection will run on your phone");
+    }
+
+    private void updateWearableCameraSetting(boolean enabled) {
+        preferences.edit().putBoolean(SimpleAssistFragment.PREF_WEARABLE_CAMERA, enabled).apply();
+        
+        ((MainActivity) requireActivity()).speak(enabled ? 
+            "Detection will use the wearable's camera" : 
+            "Detection will use the phone's camera");
+    }
+
     // TODO: Implement FamiliarFacesAdapter.OnFaceClickListener when database is ready
     /*
     @Override
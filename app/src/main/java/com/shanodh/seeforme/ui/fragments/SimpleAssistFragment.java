@@ -4,6 +4,7 @@ import android.Manifest;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.os.Bundle;
+import android.preference.PreferenceManager;
 import android.util.Log;
 import android.util.Size;
 import android.view.LayoutInflater;
@@ -25,10 +26,24 @@ import androidx.fragment.app.Fragment;
 
 import com.google.android.material.button.MaterialButton;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.shanodh.seeforme.MainActivity;
 import com.shanodh.seeforme.R;
+import com.shanodh.seeforme.data.AppDatabase;
+import com.shanodh.seeforme.data.FaceDatabaseManager;
+import com.shanodh.seeforme.data.FaceEmbeddingStore;
+import com.shanodh.seeforme.data.Note;
+import com.shanodh.seeforme.data.NoteDao;
+import com.shanodh.seeforme.ml.FaceRecognitionManager;
+import com.shanodh.seeforme.ml.FrameTextSource;
+import com.shanodh.seeforme.ml.NoteDetectionEngine;
 import com.shanodh.seeforme.ml.SimpleObjectDetectionManager;
 import com.shanodh.seeforme.ml.DemoDetectionManager;
 import com.shanodh.seeforme.ml.Detection;
+import com.shanodh.seeforme.network.WearableEventStream;
+import com.shanodh.seeforme.network.WearableFrameSource;
+import com.shanodh.seeforme.network.WearableHealthMonitor;
 import com.shanodh.seeforme.ui.DetectionOverlayView;
 import com.shanodh.seeforme.utils.ImageUtils;
 
@@ -46,6 +61,8 @@ public class SimpleAssistFragment extends Fragment implements
         DemoDetectionManager.DemoCallback {
     private static final String TAG = "SimpleAssistFragment";
     private static final int CAMERA_PERMISSION_REQUEST = 101;
+    // Default SharedPreferences key for the "Use Wearable Camera" setting
+    public static final String PREF_WEARABLE_CAMERA = "wearable_camera";
     
     // UI Components
     private PreviewView viewFinder;
@@ -60,12 +77,20 @@ public class SimpleAssistFragment extends Fragment implements
     private ImageAnalysis imageAnalysis;
     private SimpleObjectDetectionManager simpleDetectionManager;
     private DemoDetectionManager demoDetectionManager;
+    private FaceRecognitionManager faceRecognitionManager;
+    // Null when nobody is signed in, since notes belong to a user
+    private NoteDetectionEngine noteDetectionEngine;
+    private FrameTextSource frameTextSource;
     private ExecutorService cameraExecutor;
+    private WearableFrameSource wearableCamera;
+    private final WearableHealthMonitor.HealthListener healthListener = this::onWearableHealthChanged;
     
     // State
     private boolean isAssisting = false;
     private boolean isModelLoaded = false;
     private boolean isDemoMode = false;
+    private boolean useWearableCamera = false;
+    private boolean wearableDown = false;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -83,15 +108,33 @@ public class SimpleAssistFragment extends Fragment implements
         statusText = view.findViewById(R.id.statusText);
         toggleAssistButton = view.findViewById(R.id.toggleAssistButton);
         demoModeButton = view.findViewById(R.id.demoModeButton);
+        // Boxes are mapped onto the preview with the same crop it uses
+        detectionOverlay.setScaleType(viewFinder.getScaleType());
 
         // Initialize executor and detection managers
         cameraExecutor = Executors.newSingleThreadExecutor();
         simpleDetectionManager = new SimpleObjectDetectionManager(requireContext());
         demoDetectionManager = new DemoDetectionManager(requireContext());
+        faceRecognitionManager = new FaceRecognitionManager(requireContext());
+        simpleDetectionManager.setFaceRecognitionManager(faceRecognitionManager);
+        simpleDetectionManager.setWearableInference(PreferenceManager.getDefaultSharedPreferences(requireContext())
+                .getBoolean(SimpleObjectDetectionManager.PREF_WEARABLE_INFERENCE, false));
+        setupNoteDetection();
+        // Decided before the camera starts, so the phone's camera is not bound only to be released
+        if (PreferenceManager.getDefaultSharedPreferences(requireContext())
+                .getBoolean(PREF_WEARABLE_CAMERA, false)) {
+            setCameraSource(true);
+        }
         
         // Setup click listeners
         toggleAssistButton.setOnClickListener(v -> toggleAssistance());
+        // Long press is a shortcut for the "Use Wearable Camera" setting
+        toggleAssistButton.setOnLongClickListener(v -> {
+            toggleCameraSource();
+            return true;
+        });
         demoModeButton.setOnClickListener(v -> toggleDemoMode());
+        WearableHealthMonitor.getInstance().addListener(healthListener);
 
         // Initialize ML model and camera
         initializeModel();
@@ -111,9 +154,16 @@ public class SimpleAssistFragment extends Fragment implements
         cameraExecutor.execute(() -> {
             boolean simpleSuccess = simpleDetectionManager.initializeModel();
             boolean demoSuccess = demoDetectionManager.initializeModel();
+            boolean faceSuccess = faceRecognitionManager.initializeModel();
+            if (!faceSuccess) {
+                Log.w(TAG, "⚠️ Face recognition unavailable - people will not be named");
+            }
             
             getActivity().runOnUiThread(() -> {
                 isModelLoaded = simpleSuccess;
+                if (faceSuccess) {
+                    observeFamiliarFaces();
+                }
                 if (simpleSuccess && demoSuccess) {
                     statusText.setText("✅ AI models ready! Choose detection mode below.");
                     Log.i(TAG, "✅ Both detection models loaded successfully");
@@ -128,6 +178,56 @@ public class SimpleAssistFragment extends Fragment implements
         });
     }
 
+    /**
+     * Enroll the user's familiar faces into the recognition gallery. Faces come from the local
+     * repository, and the gallery is rebuilt whenever a background cloud refresh changes them.
+     */
+    private void observeFamiliarFaces() {
+        if (getView() == null) {
+            return;
+        }
+        FaceEmbeddingStore embeddingStore = FaceEmbeddingStore.getInstance(requireContext());
+        
+        FaceDatabaseManager.getInstance(requireContext()).getFaces().observe(getViewLifecycleOwner(),
+                faces -> faceRecognitionManager.loadGalleryAsync(embeddingStore, faces));
+    }
+
+    /**
+     * Look for the user's undetected notes in the text the camera sees while detection runs.
+     * The matcher follows the notes table, so notes added or edited meanwhile are picked up.
+     */
+    private void setupNoteDetection() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return;
+        }
+        NoteDao noteDao = AppDatabase.getInstance(requireContext()).noteDao();
+        frameTextSource = new FrameTextSource();
+        noteDetectionEngine = new NoteDetectionEngine(noteDao, user.getUid());
+        noteDetectionEngine.setListener(this::onNoteDetected);
+        noteDao.getAllNotes(user.getUid()).observe(getViewLifecycleOwner(),
+                notes -> noteDetectionEngine.refreshNotes());
+    }
+
+    /**
+     * Called on the engine's thread
+     */
+    private void onNoteDetected(Note note, String line) {
+        if (getActivity() == null) {
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            if (!isAdded()) {
+                return;
+            }
+            String title = note.getTitle() != null ? note.getTitle() : line;
+            updateStatus("📝 Found your note: " + title);
+            if (getActivity() instanceof MainActivity) {
+                ((MainActivity) getActivity()).speak("Found your note: " + title);
+            }
+        });
+    }
+
     private boolean hasCameraPermission() {
         return ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.CAMERA) 
                 == PackageManager.PERMISSION_GRANTED;
@@ -156,7 +256,9 @@ public class SimpleAssistFragment extends Fragment implements
         cameraProviderFuture.addListener(() -> {
             try {
                 cameraProvider = cameraProviderFuture.get();
-                bindCameraUseCases();
+                if (!useWearableCamera) {
+                    bindCameraUseCases();
+                }
                 
                 if (isModelLoaded) {
                     statusText.setText("🎯 Ready! Tap 'Start Detection' to scan environment.");
@@ -194,18 +296,12 @@ public class SimpleAssistFragment extends Fragment implements
         imageAnalysis.setAnalyzer(cameraExecutor, new ImageAnalysis.Analyzer() {
             @Override
             public void analyze(@NonNull ImageProxy image) {
-                if (isAssisting && simpleDetectionManager.isReady()) {
+                if ((isAssisting && simpleDetectionManager.isReady())
+                        || (isDemoMode && demoDetectionManager.isReady())) {
                     // Convert ImageProxy to Bitmap
                     Bitmap bitmap = imageProxyToBitmap(image);
                     if (bitmap != null) {
-                        // Run simple object detection
-                        simpleDetectionManager.detectObjects(bitmap, SimpleAssistFragment.this);
-                    }
-                } else if (isDemoMode && demoDetectionManager.isReady()) {
-                    // Run demo detection
-                    Bitmap bitmap = imageProxyToBitmap(image);
-                    if (bitmap != null) {
-                        demoDetectionManager.runDemoDetection(bitmap, SimpleAssistFragment.this);
+                        processFrame(bitmap);
                     }
                 }
                 image.close();
@@ -230,6 +326,102 @@ public class SimpleAssistFragment extends Fragment implements
         }
     }
 
+    /**
+     * Run whichever detection mode is active on a frame from either camera
+     */
+    private void processFrame(Bitmap bitmap) {
+        if (isAssisting && simpleDetectionManager.isReady()) {
+            FrameTextSource textSource = frameTextSource;
+            if (textSource != null) {
+                textSource.offer(bitmap);
+            }
+            // Run simple object detection
+            simpleDetectionManager.detectObjects(bitmap, SimpleAssistFragment.this);
+        } else if (isDemoMode && demoDetectionManager.isReady()) {
+            // Run demo detection
+            demoDetectionManager.runDemoDetection(bitmap, SimpleAssistFragment.this);
+        }
+    }
+
+    /**
+     * Flip the camera source from the assist screen, remember it as the setting and say which
+     * camera is now in use
+     */
+    private void toggleCameraSource() {
+        boolean wearable = !useWearableCamera;
+        PreferenceManager.getDefaultSharedPreferences(requireContext()).edit()
+                .putBoolean(PREF_WEARABLE_CAMERA, wearable).apply();
+        setCameraSource(wearable);
+        if (getActivity() instanceof MainActivity) {
+            ((MainActivity) getActivity()).speak(wearable
+                    ? "Using the wearable's camera" : "Using the phone's camera");
+        }
+    }
+
+    /**
+     * Switch detection to the wearable's camera, so the phone can stay in a pocket, and back.
+     * The phone's camera is released while the wearable's is in use.
+     */
+    private void setCameraSource(boolean wearable) {
+        if (wearable == useWearableCamera) {
+            return;
+        }
+        useWearableCamera = wearable;
+        if (useWearableCamera) {
+            if (cameraProvider != null) {
+                cameraProvider.unbindAll();
+            }
+            wearableCamera = new WearableFrameSource(new WearableFrameSource.FrameListener() {
+                @Override
+                public void onFrame(Bitmap frame, long captureTimeMs) {
+                    processFrame(frame);
+                }
+
+                @Override
+                public void onStateChanged(WearableEventStream.State state) {
+                    if (getActivity() != null && state != WearableEventStream.State.CLOSED) {
+                        getActivity().runOnUiThread(() -> updateStatus(
+                                state == WearableEventStream.State.CONNECTED
+                                        ? "🕶️ Using the wearable's camera"
+                                        : "🕶️ Connecting to the wearable's camera..."));
+                    }
+                }
+            });
+            wearableCamera.start();
+            Log.d(TAG, "🕶️ Switched to wearable camera");
+        } else {
+            if (wearableCamera != null) {
+                Log.d(TAG, "🕶️ Wearable camera: " + wearableCamera.getStats());
+                wearableCamera.close();
+                wearableCamera = null;
+            }
+            if (hasCameraPermission()) {
+                bindCameraUseCases();
+            }
+            updateStatus("📷 Using the phone's camera");
+            Log.d(TAG, "📷 Switched to phone camera");
+        }
+    }
+
+    /**
+     * Tell the user when the wearable drops out and comes back; detection carries on on the
+     * phone in between. Called on the monitor thread.
+     */
+    private void onWearableHealthChanged(WearableHealthMonitor.LinkQuality quality) {
+        if (getActivity() == null) {
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            if (quality.health == WearableHealthMonitor.Health.DOWN) {
+                wearableDown = true;
+                updateStatus("⚠️ Wearable unreachable, using the phone");
+            } else if (wearableDown && quality.health == WearableHealthMonitor.Health.HEALTHY) {
+                wearableDown = false;
+                updateStatus("🕶️ Wearable back (" + quality.rttMs + " ms)");
+            }
+        });
+    }
+
     private Bitmap imageProxyToBitmap(ImageProxy image) {
         return ImageUtils.fastImageProxyToBitmap(image);
     }
@@ -248,12 +440,18 @@ public class SimpleAssistFragment extends Fragment implements
                 detectionOverlay.clearDetections();
             }
             
+            if (noteDetectionEngine != null) {
+                noteDetectionEngine.start(frameTextSource);
+            }
             toggleAssistButton.setText("Stop Detection");
             statusText.setText("🔍 AI Detection Active - Scanning environment...");
             detectionResults.setText("🎯 Starting detection...");
             Log.d(TAG, "🚀 Simple object detection started - fresh state");
         } else {
             // Stop immediately and clear everything
+            if (noteDetectionEngine != null) {
+                noteDetectionEngine.stop();
+            }
             toggleAssistButton.setText("Start Detection");
             statusText.setText("⏸️ Detection stopped - Ready to scan");
             detectionResults.setText("Detection stopped");
@@ -417,12 +615,27 @@ public class SimpleAssistFragment extends Fragment implements
         }
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // The setting may have been changed on the profile screen, which announced it
+        setCameraSource(PreferenceManager.getDefaultSharedPreferences(requireContext())
+                .getBoolean(PREF_WEARABLE_CAMERA, false));
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
         
         Log.d(TAG, "🧹 Cleaning up SimpleAssistFragment");
         
+        WearableHealthMonitor.getInstance().removeListener(healthListener);
+        
+        if (wearableCamera != null) {
+            wearableCamera.close();
+            wearableCamera = null;
+        }
+        
         if (simpleDetectionManager != null) {
             simpleDetectionManager.shutdown();
         }
@@ -431,6 +644,20 @@ public class SimpleAssistFragment extends Fragment implements
             demoDetectionManager.shutdown();
         }
         
+        if (faceRecognitionManager != null) {
+            faceRecognitionManager.shutdown();
+        }
+
+        if (noteDetectionEngine != null) {
+            noteDetectionEngine.shutdown();
+            noteDetectionEngine = null;
+        }
+
+        if (frameTextSource != null) {
+            frameTextSource.close();
+            frameTextSource = null;
+        }
+        
         if (cameraExecutor != null && !cameraExecutor.isShutdown()) {
             cameraExecutor.shutdown();
         }
@@ -0,0 +1,221 @@
+package com.shanodh.seeforme.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Persistent size and LRU index for FaceImageStore.
+ *
+ * Entries live in an access-ordered map, so the least recently used image is always at the
+ * head and the running byte total is kept up to date on every change. The map is persisted as
+ * an append-only journal of put / access / delete lines that is replayed on open and rewritten
+ * once it grows to twice the live entry count. A torn last line after a crash is ignored.
+ *
+ * Not thread safe; FaceImageStore serialises access.
+ */
+final class FaceImageIndex {
+    private static final String JOURNAL_NAME = "journal";
+    private static final String PUT = "P";
+    private static final String ACCESS = "A";
+    private static final String DELETE = "D";
+    private static final int MIN_LINES_FOR_COMPACTION = 256;
+
+    static final class Entry {
+        final String name;
+        final long bytes;
+        long lastAccess;
+
+        Entry(String name, long bytes, long lastAccess) {
+            this.name = name;
+            this.bytes = bytes;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final File journalFile;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private int journalLines;
+    private Writer writer;
+
+    FaceImageIndex(File directory) {
+        this.journalFile = new File(directory, JOURNAL_NAME);
+    }
+
+    /**
+     * Replay the journal. Returns false if there is none, in which case the caller rebuilds.
+     */
+    boolean load() {
+        entries.clear();
+        totalBytes = 0;
+        journalLines = 0;
+        if (!journalFile.exists()) {
+            return false;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                replay(line);
+                journalLines++;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Start over from the files actually on disk, oldest first
+     */
+    void rebuild(List<File> files) throws IOException {
+        entries.clear();
+        totalBytes = 0;
+        List<File> sorted = new ArrayList<>(files);
+        sorted.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : sorted) {
+            add(new Entry(file.getName(), file.length(), file.lastModified()));
+        }
+        compact();
+    }
+
+    boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * Record a new image, or an access if it is already indexed
+     */
+    void put(String name, long bytes, long now) throws IOException {
+        if (touch(name, now)) {
+            return;
+        }
+        add(new Entry(name, bytes, now));
+        append(PUT + ' ' + name + ' ' + bytes + ' ' + now);
+    }
+
+    /**
+     * Mark an image as most recently used. Returns false if it is not indexed.
+     */
+    boolean touch(String name, long now) throws IOException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return false;
+        }
+        entry.lastAccess = now;
+        append(ACCESS + ' ' + name + ' ' + now);
+        return true;
+    }
+
+    Entry remove(String name) throws IOException {
+        Entry entry = entries.remove(name);
+        if (entry != null) {
+            totalBytes -= entry.bytes;
+            append(DELETE + ' ' + name);
+        }
+        return entry;
+    }
+
+    long totalBytes() {
+        return totalBytes;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Entries from least to most recently used. Iterating does not count as access.
+     */
+    List<Entry> snapshot() {
+        return new ArrayList<>(entries.values());
+    }
+
+    void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Every line was already flushed
+            }
+            writer = null;
+        }
+    }
+
+    private void add(Entry entry) {
+        Entry previous = entries.put(entry.name, entry);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+        totalBytes += entry.bytes;
+    }
+
+    private void replay(String line) {
+        String[] parts = line.split(" ");
+        try {
+            if (PUT.equals(parts[0]) && parts.length == 4) {
+                Entry existing = entries.get(parts[1]);
+                if (existing != null) {
+                    existing.lastAccess = Long.parseLong(parts[3]);
+                } else {
+                    add(new Entry(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+                }
+            } else if (ACCESS.equals(parts[0]) && parts.length == 3) {
+                Entry entry = entries.get(parts[1]);
+                if (entry != null) {
+                    entry.lastAccess = Long.parseLong(parts[2]);
+                }
+            } else if (DELETE.equals(parts[0]) && parts.length == 2) {
+                Entry entry = entries.remove(parts[1]);
+                if (entry != null) {
+                    totalBytes -= entry.bytes;
+                }
+            }
+        } catch (NumberFormatException ignored) {
+            // Torn line from an interrupted write
+        }
+    }
+
+    private void append(String line) throws IOException {
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(journalFile, true), StandardCharsets.UTF_8));
+        }
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+        journalLines++;
+        if (journalLines >= MIN_LINES_FOR_COMPACTION && journalLines > entries.size() * 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrite the journal as one put line per live entry, in LRU order, and swap it in
+     */
+    private void compact() throws IOException {
+        close();
+        File tmp = new File(journalFile.getParentFile(), JOURNAL_NAME + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (Entry entry : entries.values()) {
+                out.write(PUT + ' ' + entry.name + ' ' + entry.bytes + ' ' + entry.lastAccess + '\n');
+            }
+        }
+        if (!tmp.renameTo(journalFile)) {
+            throw new IOException("Could not replace image index journal");
+        }
+        journalLines = entries.size();
+    }
+}
@@ -0,0 +1,270 @@
+package com.shanodh.seeforme.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Content-addressed store for face images.
+ *
+ * Images are downscaled, encoded as WebP at the highest quality that fits the target size and
+ * named by the SHA-256 of the encoded bytes, so saving the same picture twice stores one file.
+ * Files are written to a temp name, synced and renamed into place, so a crash never leaves a
+ * half-written image under a real name. FaceImageIndex keeps the running total and LRU order,
+ * so size and eviction queries never walk the directory.
+ *
+ * Paths handed out are absolute and stable; they are what familiar_faces.imagePath stores.
+ */
+public class FaceImageStore {
+    private static final String TAG = "FaceImageStore";
+    private static final String STORE_FOLDER = "face_store";
+    private static final String EXTENSION = ".webp";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int MAX_DIMENSION = 512;
+    private static final int TARGET_BYTES = 48 * 1024;
+    private static final int START_QUALITY = 85;
+    private static final int MIN_QUALITY = 45;
+    private static final int QUALITY_STEP = 10;
+
+    private static FaceImageStore instance;
+
+    private final File storeDir;
+    private final FaceImageIndex index;
+
+    public static synchronized FaceImageStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new FaceImageStore(new File(context.getApplicationContext().getFilesDir(), STORE_FOLDER));
+        }
+        return instance;
+    }
+
+    FaceImageStore(File storeDir) {
+        this.storeDir = storeDir;
+        if (!storeDir.exists() && !storeDir.mkdirs()) {
+            Log.w(TAG, "Could not create " + storeDir);
+        }
+        index = new FaceImageIndex(storeDir);
+        List<File> onDisk = listImageFiles();
+        // A torn journal line can lose an entry; recount from disk if the two disagree
+        if (!index.load() || index.size() != onDisk.size()) {
+            try {
+                index.rebuild(onDisk);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to rebuild image index", e);
+            }
+        }
+        deleteStrayTempFiles();
+    }
+
+    /**
+     * Store a face image and return its path, or null if it could not be written. Saving an
+     * image that is already stored returns the existing path. Must not be called on the main thread.
+     */
+    public synchronized String put(Bitmap bitmap) {
+        byte[] encoded = encode(bitmap);
+        String name = sha256Hex(encoded) + EXTENSION;
+        File file = new File(storeDir, name);
+        long now = System.currentTimeMillis();
+        try {
+            if (file.exists() && index.contains(name)) {
+                index.touch(name, now);
+                Log.d(TAG, "Image already stored: " + name);
+                return file.getAbsolutePath();
+            }
+            writeAtomically(file, encoded);
+            index.put(name, encoded.length, now);
+            Log.d(TAG, "Stored " + name + " (" + encoded.length / 1024 + " KB)");
+            return file.getAbsolutePath();
+        } catch (IOException e) {
+            Log.e(TAG, "Error storing face image", e);
+            return null;
+        }
+    }
+
+    /**
+     * Note that an image was used, keeping it off the eviction end of the LRU order
+     */
+    public synchronized void recordAccess(String path) {
+        String name = nameInStore(path);
+        if (name == null) {
+            return;
+        }
+        try {
+            index.touch(name, System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not record image access", e);
+        }
+    }
+
+    /**
+     * Delete an image. Callers must check no face still uses the path, since identical images
+     * share one file. Paths outside the store (older builds) are deleted directly.
+     */
+    public synchronized boolean delete(String path) {
+        if (path == null) {
+            return false;
+        }
+        String name = nameInStore(path);
+        if (name != null) {
+            try {
+                index.remove(name);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not journal image delete", e);
+            }
+        }
+        File file = new File(path);
+        return !file.exists() || file.delete();
+    }
+
+    public synchronized long getTotalBytes() {
+        return index.totalBytes();
+    }
+
+    public synchronized int getImageCount() {
+        return index.size();
+    }
+
+    /**
+     * Evict least recently used images until the store fits in maxBytes. Images whose path is
+     * in pinnedPaths are never evicted. Returns the evicted paths.
+     */
+    public synchronized List<String> trimToSize(long maxBytes, Set<String> pinnedPaths) {
+        return trim(maxBytes, Integer.MAX_VALUE, pinnedPaths);
+    }
+
+    /**
+     * Evict least recently used images until at most maxImages remain, sparing pinnedPaths
+     */
+    public synchronized List<String> trimToCount(int maxImages, Set<String> pinnedPaths) {
+        return trim(Long.MAX_VALUE, maxImages, pinnedPaths);
+    }
+
+    private List<String> trim(long maxBytes, int maxImages, Set<String> pinnedPaths) {
+        List<String> evicted = new ArrayList<>();
+        for (FaceImageIndex.Entry entry : index.snapshot()) {
+            if (index.totalBytes() <= maxBytes && index.size() <= maxImages) {
+                break;
+            }
+            String path = new File(storeDir, entry.name).getAbsolutePath();
+            if (!pinnedPaths.contains(path) && delete(path)) {
+                evicted.add(path);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Delete every stored image not in livePaths that has not been used since cutoff.
+     * Returns the bytes freed.
+     */
+    public synchronized long retainOnly(Set<String> livePaths, long cutoff) {
+        long freed = 0;
+        for (FaceImageIndex.Entry entry : index.snapshot()) {
+            String path = new File(storeDir, entry.name).getAbsolutePath();
+            if (entry.lastAccess < cutoff && !livePaths.contains(path) && delete(path)) {
+                freed += entry.bytes;
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Downscale to MAX_DIMENSION and step the WebP quality down until the image fits
+     * TARGET_BYTES or reaches MIN_QUALITY
+     */
+    private static byte[] encode(Bitmap bitmap) {
+        Bitmap scaled = scaleDown(bitmap);
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(TARGET_BYTES);
+        int quality = START_QUALITY;
+        while (true) {
+            out.reset();
+            scaled.compress(format, quality, out);
+            if (out.size() <= TARGET_BYTES || quality - QUALITY_STEP < MIN_QUALITY) {
+                break;
+            }
+            quality -= QUALITY_STEP;
+        }
+        if (scaled != bitmap) {
+            scaled.recycle();
+        }
+        return out.toByteArray();
+    }
+
+    private static Bitmap scaleDown(Bitmap bitmap) {
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longest <= MAX_DIMENSION) {
+            return bitmap;
+        }
+        float scale = (float) MAX_DIMENSION / longest;
+        return Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)),
+                true);
+    }
+
+    private void writeAtomically(File file, byte[] bytes) throws IOException {
+        File tmp = new File(storeDir, file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(bytes);
+            fos.getFD().sync();
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not move " + tmp.getName() + " into place");
+        }
+    }
+
+    private String nameInStore(String path) {
+        if (path == null) {
+            return null;
+        }
+        File file = new File(path);
+        return storeDir.getAbsolutePath().equals(file.getParent()) ? file.getName() : null;
+    }
+
+    private List<File> listImageFiles() {
+        File[] files = storeDir.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        return files == null ? new ArrayList<>() : Arrays.asList(files);
+    }
+
+    private void deleteStrayTempFiles() {
+        File[] temps = storeDir.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX));
+        if (temps != null) {
+            for (File temp : temps) {
+                temp.delete();
+            }
+        }
+    }
+
+    static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
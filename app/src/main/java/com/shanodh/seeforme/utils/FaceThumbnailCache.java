@@ -0,0 +1,335 @@
+package com.shanodh.seeforme.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thumbnails for the faces screens.
+ *
+ * Thumbnails are rendered once, at the exact pixel size of the 80dp face image views, and
+ * written next to the face data. Every screen keys a thumbnail by its face ID (the firebaseId
+ * of the stored face), so one file serves them all and deleting the face removes it. Binding
+ * looks in an in-memory LRU first, then decodes the thumbnail file off the main thread into a
+ * recycled bitmap (all thumbnails share one size, so any evicted bitmap can be reused with
+ * inBitmap). A missing thumbnail is regenerated from the original photo the first time it is
+ * needed.
+ *
+ * An evicted bitmap may still be on screen, so it is only decoded into once no view shows it:
+ * the cache remembers which bitmap each view was bound to, and a view counts as rebound once
+ * load() or unbind() is called for it again or it is garbage collected.
+ */
+public class FaceThumbnailCache {
+    private static final String TAG = "FaceThumbnailCache";
+    private static final String THUMBNAILS_FOLDER = "face_thumbnails";
+    private static final int THUMBNAIL_DP = 80;
+    private static final int THUMBNAIL_QUALITY = 90;
+
+    private static FaceThumbnailCache instance;
+
+    private final File thumbnailDir;
+    private final int thumbnailSize;
+    private final LruCache<String, Bitmap> memoryCache;
+    // The three below are guarded by reusableBitmaps
+    private final Set<SoftReference<Bitmap>> reusableBitmaps = new HashSet<>();
+    private final Map<ImageView, Bitmap> boundBitmaps = new WeakHashMap<>();
+    // Decoded and posted to a view, but not bound yet
+    private final Set<Bitmap> pendingBitmaps = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized FaceThumbnailCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new FaceThumbnailCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FaceThumbnailCache(Context context) {
+        thumbnailDir = new File(context.getFilesDir(), THUMBNAILS_FOLDER);
+        thumbnailSize = Math.round(THUMBNAIL_DP * context.getResources().getDisplayMetrics().density);
+
+        // Use 1/8th of the available heap for decoded thumbnails
+        int cacheSizeKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        memoryCache = new LruCache<String, Bitmap>(cacheSizeKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount() / 1024;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (evicted && oldValue.isMutable()) {
+                    synchronized (reusableBitmaps) {
+                        reusableBitmaps.add(new SoftReference<>(oldValue));
+                    }
+                }
+            }
+        };
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    /**
+     * Render and store the thumbnail for a face. Call from a background thread at save time.
+     */
+    public boolean saveThumbnail(String key, Bitmap source) {
+        Bitmap thumbnail = renderThumbnail(source);
+        boolean saved = writeThumbnail(key, thumbnail);
+        memoryCache.put(key, thumbnail);
+        return saved;
+    }
+
+    /**
+     * Bind a face thumbnail to an ImageView. The placeholder is shown until the thumbnail is
+     * decoded; a recycled view that has since been rebound is left alone.
+     */
+    public void load(String key, String sourcePath, ImageView target, int placeholderRes) {
+        target.setTag(key);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            bind(target, cached);
+            return;
+        }
+        release(target);
+        target.setImageResource(placeholderRes);
+
+        decodeExecutor.execute(() -> {
+            Bitmap bitmap = decodeThumbnail(key, sourcePath);
+            if (bitmap == null) {
+                return;
+            }
+            synchronized (reusableBitmaps) {
+                pendingBitmaps.add(bitmap);
+            }
+            memoryCache.put(key, bitmap);
+            mainHandler.post(() -> {
+                synchronized (reusableBitmaps) {
+                    pendingBitmaps.remove(bitmap);
+                }
+                if (key.equals(target.getTag())) {
+                    bind(target, bitmap);
+                }
+            });
+        });
+    }
+
+    /**
+     * Release the thumbnail shown by a view that is about to show something else without
+     * going through load(). Call from the main thread.
+     */
+    public void unbind(ImageView target) {
+        target.setTag(null);
+        release(target);
+    }
+
+    private void release(ImageView target) {
+        synchronized (reusableBitmaps) {
+            boundBitmaps.remove(target);
+        }
+    }
+
+    private void bind(ImageView target, Bitmap bitmap) {
+        synchronized (reusableBitmaps) {
+            boundBitmaps.put(target, bitmap);
+        }
+        target.setImageBitmap(bitmap);
+    }
+
+    /**
+     * Drop a face's thumbnail from both cache levels
+     */
+    public void remove(String key) {
+        memoryCache.remove(key);
+        File file = thumbnailFile(key);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete thumbnail " + file.getName());
+        }
+    }
+
+    /**
+     * Delete disk thumbnails whose key is not in liveKeys and that were last written before
+     * cutoff. Returns the bytes freed.
+     */
+    public long pruneExcept(Set<String> liveKeys, long cutoff) {
+        File[] files = thumbnailDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        Set<String> liveNames = new HashSet<>();
+        for (String key : liveKeys) {
+            liveNames.add(thumbnailFile(key).getName());
+        }
+        long freed = 0;
+        for (File file : files) {
+            if (file.lastModified() >= cutoff || liveNames.contains(file.getName())) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                freed += length;
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Bytes used by thumbnails on disk
+     */
+    public long getDiskSize() {
+        File[] files = thumbnailDir.listFiles();
+        long total = 0;
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    private Bitmap decodeThumbnail(String key, String sourcePath) {
+        File file = thumbnailFile(key);
+        if (file.exists()) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inMutable = true;
+            Bitmap reusable = takeReusableBitmap();
+            if (reusable != null) {
+                options.inBitmap = reusable;
+            }
+            try {
+                Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+                if (bitmap != null) {
+                    return bitmap;
+                }
+            } catch (IllegalArgumentException e) {
+                // inBitmap did not fit (e.g. density changed); decode into a fresh bitmap
+                options.inBitmap = null;
+                return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+            }
+        }
+
+        // No thumbnail yet (face saved before thumbnails existed): generate it once
+        Bitmap source = decodeSampled(sourcePath, thumbnailSize);
+        if (source == null) {
+            return null;
+        }
+        Bitmap thumbnail = renderThumbnail(source);
+        source.recycle();
+        writeThumbnail(key, thumbnail);
+        return thumbnail;
+    }
+
+    private Bitmap takeReusableBitmap() {
+        synchronized (reusableBitmaps) {
+            Iterator<SoftReference<Bitmap>> iterator = reusableBitmaps.iterator();
+            while (iterator.hasNext()) {
+                Bitmap candidate = iterator.next().get();
+                if (candidate != null && isShown(candidate)) {
+                    // Still on screen; leave it pooled until its view is rebound
+                    continue;
+                }
+                iterator.remove();
+                if (candidate != null && candidate.isMutable()
+                        && candidate.getWidth() == thumbnailSize && candidate.getHeight() == thumbnailSize) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Caller holds reusableBitmaps
+    private boolean isShown(Bitmap bitmap) {
+        if (pendingBitmaps.contains(bitmap)) {
+            return true;
+        }
+        for (Bitmap bound : boundBitmaps.values()) {
+            if (bound == bitmap) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Center-crop to a square at the exact thumbnail size
+     */
+    private Bitmap renderThumbnail(Bitmap source) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int left = (source.getWidth() - side) / 2;
+        int top = (source.getHeight() - side) / 2;
+
+        Bitmap thumbnail = Bitmap.createBitmap(thumbnailSize, thumbnailSize, Bitmap.Config.ARGB_8888);
+        new Canvas(thumbnail).drawBitmap(source,
+                new Rect(left, top, left + side, top + side),
+                new Rect(0, 0, thumbnailSize, thumbnailSize),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        return thumbnail;
+    }
+
+    private boolean writeThumbnail(String key, Bitmap thumbnail) {
+        if (!thumbnailDir.exists() && !thumbnailDir.mkdirs()) {
+            return false;
+        }
+        File file = thumbnailFile(key);
+        File tmp = new File(thumbnailDir, file.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, fos);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing thumbnail", e);
+            tmp.delete();
+            return false;
+        }
+        return tmp.renameTo(file);
+    }
+
+    private File thumbnailFile(String key) {
+        return new File(thumbnailDir, key.replaceAll("[^A-Za-z0-9_-]", "_") + ".jpg");
+    }
+
+    /**
+     * Decode an image file at the smallest power-of-two sample size that still covers minSize
+     */
+    static Bitmap decodeSampled(String imagePath, int minSize) {
+        if (imagePath == null || !new File(imagePath).exists()) {
+            return null;
+        }
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(imagePath, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+        int sampleSize = 1;
+        while (Math.min(bounds.outWidth, bounds.outHeight) / (sampleSize * 2) >= minSize) {
+            sampleSize *= 2;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeFile(imagePath, options);
+    }
+}
@@ -6,149 +6,93 @@ import android.graphics.BitmapFactory;
 import android.util.Log;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.UUID;
+import java.util.Collections;
 
 /**
- * Helper class for local image storage since Firebase Storage requires billing
+ * Helper class for local image storage since Firebase Storage requires billing.
+ * Images go through FaceImageStore, which deduplicates them and keeps the size index.
  */
 public class LocalImageStorage {
     private static final String TAG = "LocalImageStorage";
-    private static final String IMAGES_FOLDER = "face_images";
-    
+
     /**
      * Save a bitmap image to local storage
      * @param context Application context
      * @param bitmap Image to save
-     * @param userId User ID for organizing images
+     * @param userId User ID the image belongs to; the store is shared, identical images are stored once
      * @return Local file path of saved image
      */
     public static String saveImageLocally(Context context, Bitmap bitmap, String userId) {
-        try {
-            // Create user-specific directory
-            File userDir = new File(context.getFilesDir(), IMAGES_FOLDER + "/" + userId);
-            if (!userDir.exists()) {
-                userDir.mkdirs();
-            }
-            
-            // Create unique filename
-            String filename = UUID.randomUUID().toString() + ".jpg";
-            File imageFile = new File(userDir, filename);
-            
-            // Save bitmap to file
-            FileOutputStream fos = new FileOutputStream(imageFile);
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 85, fos);
-            fos.close();
-            
-            Log.d(TAG, "Image saved locally: " + imageFile.getAbsolutePath());
-            return imageFile.getAbsolutePath();
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error saving image locally", e);
-            return null;
+        String path = FaceImageStore.getInstance(context).put(bitmap);
+        if (path != null) {
+            Log.d(TAG, "Image saved locally for " + userId + ": " + path);
         }
+        return path;
     }
-    
+
     /**
      * Load a bitmap from local storage
      * @param imagePath Local file path
      * @return Bitmap or null if failed
      */
-    public static Bitmap loadImageFromLocal(String imagePath) {
+    public static Bitmap loadImageFromLocal(Context context, String imagePath) {
         try {
             if (imagePath == null || imagePath.isEmpty()) {
                 return null;
             }
-            
+
             File imageFile = new File(imagePath);
             if (!imageFile.exists()) {
                 Log.w(TAG, "Image file not found: " + imagePath);
                 return null;
             }
-            
+
+            FaceImageStore.getInstance(context).recordAccess(imagePath);
             return BitmapFactory.decodeFile(imagePath);
-            
+
         } catch (Exception e) {
             Log.e(TAG, "Error loading image from local storage", e);
             return null;
         }
     }
-    
+
     /**
-     * Delete an image from local storage
+     * Delete an image from local storage. Identical images share one file, so only call this
+     * once no face refers to the path any more.
      * @param imagePath Local file path
      * @return true if deleted successfully
      */
-    public static boolean deleteImageFromLocal(String imagePath) {
-        try {
-            if (imagePath == null || imagePath.isEmpty()) {
-                return false;
-            }
-            
-            File imageFile = new File(imagePath);
-            if (imageFile.exists()) {
-                boolean deleted = imageFile.delete();
-                Log.d(TAG, "Image deleted: " + imagePath + " - Success: " + deleted);
-                return deleted;
-            }
-            
-            return true; // File doesn't exist, consider it deleted
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error deleting image from local storage", e);
+    public static boolean deleteImageFromLocal(Context context, String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) {
             return false;
         }
+        boolean deleted = FaceImageStore.getInstance(context).delete(imagePath);
+        Log.d(TAG, "Image deleted: " + imagePath + " - Success: " + deleted);
+        return deleted;
     }
-    
+
     /**
-     * Get the size of all stored images for a user
+     * Get the size of all stored images, from the store's index rather than the directory
      * @param context Application context
-     * @param userId User ID
+     * @param userId Unused; images are shared between users on the device
      * @return Size in bytes
      */
     public static long getUserImagesSize(Context context, String userId) {
-        File userDir = new File(context.getFilesDir(), IMAGES_FOLDER + "/" + userId);
-        if (!userDir.exists()) {
-            return 0;
-        }
-        
-        long totalSize = 0;
-        File[] files = userDir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                totalSize += file.length();
-            }
-        }
-        
-        return totalSize;
+        return FaceImageStore.getInstance(context).getTotalBytes();
     }
-    
+
     /**
-     * Clean up old images for a user (optional - for storage management)
+     * Evict least recently used images beyond maxImages
      * @param context Application context
-     * @param userId User ID
+     * @param userId Unused; images are shared between users on the device
      * @param maxImages Maximum number of images to keep
+     * @deprecated Evicts images even if a face still uses them; StorageMaintenance removes
+     * only unreferenced images
      */
+    @Deprecated
     public static void cleanupOldImages(Context context, String userId, int maxImages) {
-        File userDir = new File(context.getFilesDir(), IMAGES_FOLDER + "/" + userId);
-        if (!userDir.exists()) {
-            return;
-        }
-        
-        File[] files = userDir.listFiles();
-        if (files == null || files.length <= maxImages) {
-            return;
-        }
-        
-        // Sort by last modified (oldest first)
-        java.util.Arrays.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
-        
-        // Delete oldest files
-        int filesToDelete = files.length - maxImages;
-        for (int i = 0; i < filesToDelete; i++) {
-            boolean deleted = files[i].delete();
-            Log.d(TAG, "Cleaned up old image: " + files[i].getName() + " - Success: " + deleted);
+        for (String path : FaceImageStore.getInstance(context).trimToCount(maxImages, Collections.emptySet())) {
+            Log.d(TAG, "Cleaned up old image: " + path);
         }
     }
 }
@@ -25,6 +25,12 @@ public class SpeechRecognitionHelper {
         void onError(int errorCode);
         void onReadyForSpeech();
         void onEndOfSpeech();
+
+        /**
+         * Called with interim hypotheses while the user is still speaking
+         */
+        default void onPartialResults(ArrayList<String> partialResults) {
+        }
     }
 
     public SpeechRecognitionHelper(Activity activity, SpeechRecognitionCallback callback) {
@@ -80,6 +86,10 @@ public class SpeechRecognitionHelper {
 
                 @Override
                 public void onPartialResults(Bundle bundle) {
+                    ArrayList<String> partial = bundle.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+                    if (callback != null && partial != null && !partial.isEmpty()) {
+                        callback.onPartialResults(partial);
+                    }
                 }
 
                 @Override
@@ -97,6 +107,7 @@ public class SpeechRecognitionHelper {
             intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
             intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
             intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 3);
+            intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
             intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, activity.getPackageName());
             intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_MINIMUM_LENGTH_MILLIS, 5000);
             intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_COMPLETE_SILENCE_LENGTH_MILLIS, 1500);
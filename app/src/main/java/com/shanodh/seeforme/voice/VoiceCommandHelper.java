@@ -5,8 +5,6 @@ import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.view.animation.AccelerateDecelerateInterpolator;
@@ -37,9 +35,11 @@ public class VoiceCommandHelper implements SpeechRecognitionHelper.SpeechRecogni
     private TextView tvRecognizedText;
     private LinearProgressIndicator progressIndicator;
     private View[] voiceWaveBars;
-    private final Handler handler = new Handler(Looper.getMainLooper());
     private final Random random = new Random();
     private final ArrayList<ValueAnimator> waveAnimators = new ArrayList<>();
+    private final VoiceCommandMatcher commandMatcher = VoiceCommandMatcher.createDefault();
+    // Set once a command has been dispatched for the current listening session
+    private boolean commandDispatched;
     
     private NavController navController;
     private VoiceCommandListener commandListener;
@@ -132,6 +132,7 @@ public class VoiceCommandHelper implements SpeechRecognitionHelper.SpeechRecogni
     
     private void startVoiceRecognition() {
         if (speechHelper != null) {
+            commandDispatched = false;
             tvRecognizedText.setText("");
             startVoiceWaveAnimations();
             progressIndicator.setVisibility(View.VISIBLE);
@@ -179,7 +180,7 @@ public class VoiceCommandHelper implements SpeechRecognitionHelper.SpeechRecogni
     
     @Override
     public void onResults(ArrayList<String> results) {
-        if (results != null && !results.isEmpty()) {
+        if (results != null && !results.isEmpty() && !commandDispatched) {
             String command = results.get(0);
             tvRecognizedText.setText(command);
             
@@ -187,13 +188,47 @@ public class VoiceCommandHelper implements SpeechRecognitionHelper.SpeechRecogni
             stopVoiceWaveAnimations();
             progressIndicator.setVisibility(View.INVISIBLE);
             
-            // Process command
-            processVoiceCommand(command);
+            // Use the first alternative the grammar understands, falling back to the top hypothesis
+            VoiceCommandMatcher.Match match = commandMatcher.match(command);
+            if (match == null || match.ambiguous) {
+                for (int i = 1; i < results.size(); i++) {
+                    VoiceCommandMatcher.Match alternativeMatch = commandMatcher.match(results.get(i));
+                    if (alternativeMatch != null && !alternativeMatch.ambiguous) {
+                        command = results.get(i);
+                        match = alternativeMatch;
+                        break;
+                    }
+                }
+            }
+            processVoiceCommand(command, match);
+        }
+    }
+    
+    @Override
+    public void onPartialResults(ArrayList<String> partialResults) {
+        if (commandDispatched || tvRecognizedText == null) {
+            return;
+        }
+        String partial = partialResults.get(0);
+        tvRecognizedText.setText(partial);
+        
+        // Act as soon as an unambiguous command is heard instead of waiting for end of speech
+        VoiceCommandMatcher.Match match = commandMatcher.match(partial);
+        if (match != null && match.isConfident()) {
+            Log.d(TAG, "Early dispatch from partial result: " + partial);
+            stopListening();
+            stopVoiceWaveAnimations();
+            progressIndicator.setVisibility(View.INVISIBLE);
+            processVoiceCommand(partial, match);
         }
     }
     
     @Override
     public void onError(int errorCode) {
+        // The recognizer often errors out after a partial result was already acted on
+        if (commandDispatched) {
+            return;
+        }
         tvRecognizedText.setText("Error in speech recognition. Please try again.");
         stopVoiceWaveAnimations();
         progressIndicator.setVisibility(View.INVISIBLE);
@@ -209,8 +244,9 @@ public class VoiceCommandHelper implements SpeechRecognitionHelper.SpeechRecogni
         tvRecognizedText.setText("Processing...");
     }
     
-    private void processVoiceCommand(String command) {
+    private void processVoiceCommand(String command, VoiceCommandMatcher.Match match) {
         Log.d(TAG, "Processing command: " + command);
+        commandDispatched = true;
         final String finalCommand = command.toLowerCase().trim();
         
         // Notify listener
@@ -218,40 +254,48 @@ public class VoiceCommandHelper implements SpeechRecognitionHelper.SpeechRecogni
             commandListener.onCommandRecognized(finalCommand);
         }
         
-        handler.postDelayed(() -> {
-            if (bottomSheetDialog != null && bottomSheetDialog.isShowing()) {
-                bottomSheetDialog.dismiss();
-            }
-            
-            // Execute command
-            if (finalCommand.contains("home") || finalCommand.contains("go to home")) {
+        if (bottomSheetDialog != null && bottomSheetDialog.isShowing()) {
+            bottomSheetDialog.dismiss();
+        }
+        
+        if (match == null || match.ambiguous) {
+            ttsHelper.speak("Command not recognized, please try again");
+            return;
+        }
+        
+        // Execute command
+        switch (match.command) {
+            case HOME:
                 if (navController != null) {
                     navController.navigate(R.id.navigation_home);
                     ttsHelper.speak("Going to home screen");
                 }
-            } else if (finalCommand.contains("assist") || finalCommand.contains("go to assist")) {
+                break;
+            case ASSIST:
                 if (navController != null) {
                     navController.navigate(R.id.navigation_assist);
                     ttsHelper.speak("Opening assist mode");
                 }
-            } else if (finalCommand.contains("profile") || finalCommand.contains("go to profile")) {
+                break;
+            case PROFILE:
                 if (navController != null) {
                     navController.navigate(R.id.navigation_profile);
                     ttsHelper.speak("Opening profile settings");
                 }
-            } else if (finalCommand.contains("add note")) {
+                break;
+            case ADD_NOTE:
                 context.startActivity(new Intent(context, AddNoteActivity.class));
                 ttsHelper.speak("Opening add note screen");
-            } else if (finalCommand.contains("add face")) {
+                break;
+            case ADD_FACE:
                 context.startActivity(new Intent(context, AddFaceActivity.class));
                 ttsHelper.speak("Opening add face screen");
-            } else if (finalCommand.contains("view notes") || finalCommand.contains("show notes")) {
+                break;
+            case VIEW_NOTES:
                 context.startActivity(new Intent(context, ViewNotesActivity.class));
                 ttsHelper.speak("Opening your notes");
-            } else {
-                ttsHelper.speak("Command not recognized, please try again");
-            }
-        }, 1000); // Delay to show the recognized command before dismissing
+                break;
+        }
     }
     
     public void destroy() {
@@ -0,0 +1,314 @@
+package com.shanodh.seeforme.voice;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiled voice command grammar.
+ *
+ * Phrases are tokenised once into a word trie. Incoming utterances are normalised, every spoken
+ * word is snapped onto the grammar vocabulary (exact, phonetic code or small edit distance) and
+ * the trie is walked from each word position, so a match costs a few microseconds and does not
+ * depend on the order commands were registered in.
+ */
+public final class VoiceCommandMatcher {
+
+    public enum Command {
+        HOME,
+        ASSIST,
+        PROFILE,
+        ADD_NOTE,
+        ADD_FACE,
+        VIEW_NOTES
+    }
+
+    /**
+     * Result of matching an utterance against the grammar
+     */
+    public static final class Match {
+        public final Command command;
+        public final String phrase;
+        public final int matchedWords;
+        public final int fuzzyWords;
+        public final boolean ambiguous;
+        /** True when no longer phrase of a different command could still extend this match */
+        public final boolean complete;
+
+        Match(Command command, String phrase, int matchedWords, int fuzzyWords,
+              boolean ambiguous, boolean complete) {
+            this.command = command;
+            this.phrase = phrase;
+            this.matchedWords = matchedWords;
+            this.fuzzyWords = fuzzyWords;
+            this.ambiguous = ambiguous;
+            this.complete = complete;
+        }
+
+        /**
+         * Whether the match is safe to act on from a partial recognition result
+         */
+        public boolean isConfident() {
+            return !ambiguous && complete && fuzzyWords * 2 <= matchedWords;
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Command command;
+        String phrase;
+        // Commands reachable from this node through longer phrases
+        final List<Command> reachable = new ArrayList<>(2);
+    }
+
+    private final Node root = new Node();
+    private final Map<String, String> vocabulary = new HashMap<>();
+    private final Map<String, String> phoneticIndex = new HashMap<>();
+    private String[] vocabularyWords = new String[0];
+
+    public static VoiceCommandMatcher createDefault() {
+        VoiceCommandMatcher matcher = new VoiceCommandMatcher();
+        matcher.add(Command.HOME, "home", "go home", "go to home", "main screen", "home screen");
+        matcher.add(Command.ASSIST, "assist", "assistant", "assistance", "assist mode",
+                "start assist", "help me see", "what is around me", "what's around me");
+        matcher.add(Command.PROFILE, "profile", "my profile", "settings", "open settings");
+        matcher.add(Command.ADD_NOTE, "add note", "add a note", "new note", "create note",
+                "write note", "add notes");
+        matcher.add(Command.ADD_FACE, "add face", "add a face", "new face", "add person",
+                "remember face", "remember this person", "add faces");
+        matcher.add(Command.VIEW_NOTES, "view notes", "show notes", "my notes", "read notes",
+                "open notes", "view my notes", "show my notes", "list notes");
+        return matcher;
+    }
+
+    /**
+     * Register one or more phrases (synonyms) for a command
+     */
+    public void add(Command command, String... phrases) {
+        for (String phrase : phrases) {
+            String[] words = tokenize(phrase);
+            if (words.length == 0) {
+                continue;
+            }
+            Node node = root;
+            for (String word : words) {
+                if (!vocabulary.containsKey(word)) {
+                    vocabulary.put(word, word);
+                    String code = phoneticCode(word);
+                    // Only keep unique phonetic codes, a collision would make the snap ambiguous
+                    if (phoneticIndex.containsKey(code) && !word.equals(phoneticIndex.get(code))) {
+                        phoneticIndex.put(code, null);
+                    } else {
+                        phoneticIndex.put(code, word);
+                    }
+                }
+                Node next = node.children.get(word);
+                if (next == null) {
+                    next = new Node();
+                    node.children.put(word, next);
+                }
+                if (!next.reachable.contains(command)) {
+                    next.reachable.add(command);
+                }
+                node = next;
+            }
+            node.command = command;
+            node.phrase = phrase;
+        }
+        vocabularyWords = vocabulary.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Match an utterance. Returns null when no phrase of the grammar occurs in it.
+     */
+    public Match match(String utterance) {
+        String[] spoken = tokenize(utterance);
+        if (spoken.length == 0) {
+            return null;
+        }
+
+        String[] snapped = new String[spoken.length];
+        boolean[] fuzzy = new boolean[spoken.length];
+        for (int i = 0; i < spoken.length; i++) {
+            String word = spoken[i];
+            String exact = vocabulary.get(word);
+            if (exact != null) {
+                snapped[i] = exact;
+            } else {
+                snapped[i] = snap(word);
+                fuzzy[i] = snapped[i] != null;
+            }
+        }
+
+        Node best = null;
+        int bestLength = 0;
+        int bestFuzzy = 0;
+        boolean ambiguous = false;
+        boolean complete = true;
+
+        for (int start = 0; start < snapped.length; start++) {
+            Node node = root;
+            int fuzzyCount = 0;
+            for (int i = start; i < snapped.length; i++) {
+                node = snapped[i] == null ? null : node.children.get(snapped[i]);
+                if (node == null) {
+                    break;
+                }
+                if (fuzzy[i]) {
+                    fuzzyCount++;
+                }
+                int length = i - start + 1;
+                boolean endsUtterance = i == snapped.length - 1;
+
+                if (node.command != null) {
+                    if (best == null || length > bestLength
+                            || (length == bestLength && fuzzyCount < bestFuzzy)) {
+                        ambiguous = false;
+                        best = node;
+                        bestLength = length;
+                        bestFuzzy = fuzzyCount;
+                        complete = !endsUtterance || !extendsToOtherCommand(node);
+                    } else if (length == bestLength && fuzzyCount == bestFuzzy
+                            && node.command != best.command) {
+                        ambiguous = true;
+                    }
+                }
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+        return new Match(best.command, best.phrase, bestLength, bestFuzzy, ambiguous, complete);
+    }
+
+    private static boolean extendsToOtherCommand(Node node) {
+        for (Node child : node.children.values()) {
+            for (Command reachable : child.reachable) {
+                if (reachable != node.command) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private String snap(String word) {
+        if (word.length() < 3) {
+            return null;
+        }
+        String phonetic = phoneticIndex.get(phoneticCode(word));
+        if (phonetic != null && Math.abs(phonetic.length() - word.length()) <= 2) {
+            return phonetic;
+        }
+
+        int maxDistance = word.length() >= 7 ? 2 : (word.length() >= 4 ? 1 : 0);
+        if (maxDistance == 0) {
+            return null;
+        }
+        String bestWord = null;
+        int bestDistance = maxDistance + 1;
+        boolean tie = false;
+        for (String candidate : vocabularyWords) {
+            if (Math.abs(candidate.length() - word.length()) > maxDistance) {
+                continue;
+            }
+            int distance = boundedEditDistance(word, candidate, maxDistance);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestWord = candidate;
+                tie = false;
+            } else if (distance == bestDistance) {
+                tie = true;
+            }
+        }
+        return tie ? null : bestWord;
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String normalized = text.toLowerCase(Locale.US).replaceAll("[^a-z0-9' ]", " ").trim();
+        if (normalized.isEmpty()) {
+            return new String[0];
+        }
+        return normalized.split("\\s+");
+    }
+
+    /**
+     * Soundex-style code: first letter plus consonant classes, vowels dropped
+     */
+    static String phoneticCode(String word) {
+        StringBuilder code = new StringBuilder(4);
+        char last = 0;
+        for (int i = 0; i < word.length() && code.length() < 4; i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            char digit = soundexDigit(c);
+            if (code.length() == 0) {
+                code.append(c);
+            } else if (digit != '0' && digit != last) {
+                code.append(digit);
+            }
+            if (c != 'h' && c != 'w') {
+                last = digit;
+            }
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+
+    private static char soundexDigit(char c) {
+        switch (c) {
+            case 'b': case 'f': case 'p': case 'v':
+                return '1';
+            case 'c': case 'g': case 'j': case 'k': case 'q': case 's': case 'x': case 'z':
+                return '2';
+            case 'd': case 't':
+                return '3';
+            case 'l':
+                return '4';
+            case 'm': case 'n':
+                return '5';
+            case 'r':
+                return '6';
+            default:
+                return '0';
+        }
+    }
+
+    /**
+     * Levenshtein distance that gives up once every cell in a row exceeds the bound
+     */
+    static int boundedEditDistance(String a, String b, int bound) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+                        previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,117 @@
+package com.shanodh.seeforme.voice;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.shanodh.seeforme.network.NotificationPayload;
+import com.shanodh.seeforme.network.NotificationResponse;
+import com.shanodh.seeforme.network.WearableEventStream;
+
+/**
+ * Speaks the wearable's live events: a note it read and a face it recognised.
+ *
+ * Owns the app's WearableEventStream. The stream is open while any of the app's screens is
+ * visible and closed when it goes to the background; each start opens a new stream against the
+ * wearable ApiClient currently points at, so a re-paired wearable is picked up on the next one.
+ * Events are queued behind whatever is already being spoken rather than cutting it off.
+ */
+public class WearableEventAnnouncer implements WearableEventStream.EventListener {
+    private static final String TAG = "WearableEventAnnouncer";
+
+    private static WearableEventAnnouncer instance;
+
+    private final Context context;
+    private TextToSpeechHelper ttsHelper;
+    private WearableEventStream stream;
+    private boolean lifecycleAttached;
+
+    public static synchronized WearableEventAnnouncer getInstance(Context context) {
+        if (instance == null) {
+            instance = new WearableEventAnnouncer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WearableEventAnnouncer(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Announce events while any of the app's screens is visible. Call from the main thread;
+     * repeated calls do nothing.
+     */
+    public void announceWhileInForeground() {
+        if (lifecycleAttached) {
+            return;
+        }
+        lifecycleAttached = true;
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                start();
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                stop();
+            }
+        });
+    }
+
+    private void start() {
+        if (stream != null) {
+            return;
+        }
+        if (ttsHelper == null) {
+            ttsHelper = new TextToSpeechHelper(context, null);
+        }
+        stream = new WearableEventStream(this, ContextCompat.getMainExecutor(context));
+        stream.start();
+    }
+
+    private void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public void onEvent(NotificationResponse event) {
+        String announcement = describe(event);
+        if (announcement != null && ttsHelper != null) {
+            ttsHelper.speakWithQueue(announcement);
+        }
+    }
+
+    @Override
+    public void onStateChanged(WearableEventStream.State state) {
+        Log.d(TAG, "Wearable event stream " + state);
+    }
+
+    /**
+     * What to say for an event, or null for events that are not announced
+     */
+    static String describe(NotificationResponse event) {
+        NotificationPayload payload = event.getPayload();
+        if (NotificationResponse.TYPE_NOTE_DETECTED.equals(event.getType())) {
+            if (payload != null && payload.getText() != null) {
+                return "Found your note: " + payload.getText();
+            }
+            return event.getMessage();
+        }
+        if (NotificationResponse.TYPE_FACE_RECOGNIZED.equals(event.getType())) {
+            if (payload != null && payload.getName() != null) {
+                return payload.getName() + " is in front of you";
+            }
+            return event.getMessage();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.shanodh.seeforme.data;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * NoteSearch's query building and matchinfo ranking, with blobs laid out the way FTS4 returns
+ * matchinfo('pcx')
+ */
+public class NoteSearchTest {
+    private static final int TITLE = 0;
+    private static final int CONTENT = 1;
+    private static final int CATEGORY = 2;
+    private static final int COLUMNS = 3;
+
+    @Test
+    public void everyWordBecomesAPrefixTerm() {
+        assertEquals("front* do*", NoteSearch.toMatchQuery("Front do"));
+        assertEquals("keys*", NoteSearch.toMatchQuery("  keys  "));
+        assertEquals("café* 2*", NoteSearch.toMatchQuery("Café 2"));
+    }
+
+    @Test
+    public void operatorsAndQuotesAreStripped() {
+        assertEquals("keys*", NoteSearch.toMatchQuery("\"keys\""));
+        assertEquals("it* s*", NoteSearch.toMatchQuery("it's"));
+        assertEquals("title* door* key*", NoteSearch.toMatchQuery("title:door -key*"));
+        // Lower-cased, so OR and NEAR are plain words rather than operators
+        assertEquals("door* or* near* 3* key*", NoteSearch.toMatchQuery("door OR NEAR/3 (key)"));
+    }
+
+    @Test
+    public void nothingSearchableGivesNoQuery() {
+        assertNull(NoteSearch.toMatchQuery(null));
+        assertNull(NoteSearch.toMatchQuery(""));
+        assertNull(NoteSearch.toMatchQuery(" \t\n "));
+        assertNull(NoteSearch.toMatchQuery("*\"-:()"));
+    }
+
+    @Test
+    public void titleHitsOutrankContentAndCategoryHits() {
+        NoteSearch.NoteMatch inCategory = match("category", 3, hits(CATEGORY, 1, 1));
+        NoteSearch.NoteMatch inContent = match("content", 2, hits(CONTENT, 1, 1));
+        NoteSearch.NoteMatch inTitle = match("title", 1, hits(TITLE, 1, 1));
+
+        List<Note> ranked = NoteSearch.rank(Arrays.asList(inCategory, inContent, inTitle), 10);
+
+        assertEquals(Arrays.asList(inTitle.note, inContent.note, inCategory.note), ranked);
+    }
+
+    @Test
+    public void rareWordsCountMoreThanCommonOnes() {
+        // Two phrases: "the" is in many notes, "keys" in one
+        NoteSearch.NoteMatch common = match("common", 2,
+                hits(CONTENT, 3, 10), hits(CONTENT, 0, 1));
+        NoteSearch.NoteMatch rare = match("rare", 1,
+                hits(CONTENT, 0, 10), hits(CONTENT, 1, 1));
+
+        List<Note> ranked = NoteSearch.rank(Arrays.asList(common, rare), 10);
+
+        assertEquals(Arrays.asList(rare.note, common.note), ranked);
+        assertEquals(0.3f, NoteSearch.score(common.matchInfo), 0.0001f);
+        assertEquals(1.0f, NoteSearch.score(rare.matchInfo), 0.0001f);
+    }
+
+    @Test
+    public void tiesGoToTheNewestNoteAndTheLimitIsKept() {
+        NoteSearch.NoteMatch older = match("older", 1, hits(CONTENT, 1, 2));
+        NoteSearch.NoteMatch newer = match("newer", 2, hits(CONTENT, 1, 2));
+        NoteSearch.NoteMatch best = match("best", 0, hits(TITLE, 1, 2));
+
+        List<Note> ranked = NoteSearch.rank(Arrays.asList(older, newer, best), 2);
+
+        assertEquals(Arrays.asList(best.note, newer.note), ranked);
+    }
+
+    @Test
+    public void malformedMatchInfoScoresZero() {
+        assertEquals(0f, NoteSearch.score(null), 0f);
+        assertEquals(0f, NoteSearch.score(new byte[4]), 0f);
+        // Header promises one phrase over three columns but the counts are missing
+        byte[] truncated = Arrays.copyOf(blob(hits(TITLE, 1, 1)), 12);
+        assertEquals(0f, NoteSearch.score(truncated), 0f);
+    }
+
+    private static NoteSearch.NoteMatch match(String title, long timestamp, int[]... phrases) {
+        Note note = new Note(title, "");
+        note.setTimestamp(timestamp);
+        NoteSearch.NoteMatch match = new NoteSearch.NoteMatch();
+        match.note = note;
+        match.matchInfo = blob(phrases);
+        return match;
+    }
+
+    /**
+     * One phrase's hits in a single column: this row's count and the count across all rows
+     */
+    private static int[] hits(int column, int thisRow, int allRows) {
+        int[] counts = new int[2 * COLUMNS];
+        counts[2 * column] = thisRow;
+        counts[2 * column + 1] = allRows;
+        return counts;
+    }
+
+    /**
+     * matchinfo('pcx'): phrase count, column count, then per phrase and column the hits in this
+     * row, hits in all rows and rows with a hit, as native-order 32-bit integers
+     */
+    private static byte[] blob(int[]... phrases) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (2 + 3 * phrases.length * COLUMNS))
+                .order(ByteOrder.nativeOrder());
+        buffer.putInt(phrases.length).putInt(COLUMNS);
+        for (int[] counts : phrases) {
+            for (int column = 0; column < COLUMNS; column++) {
+                int allRows = counts[2 * column + 1];
+                buffer.putInt(counts[2 * column]).putInt(allRows).putInt(Math.min(allRows, 1));
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,199 @@
+package com.shanodh.seeforme.ml;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Recall and latency benchmark for {@link FaceIndex}.
+ *
+ * Builds a synthetic gallery shaped like real enrollments (a few photos per person clustered
+ * around an identity centre), then queries with fresh noisy views of enrolled people and
+ * compares graph search against the exact scan. Runs on the host JVM; larger galleries can be
+ * measured by raising the sizes locally.
+ */
+public class FaceIndexBenchmarkTest {
+    private static final int DIM = 192;
+    private static final int PHOTOS_PER_PERSON = 3;
+    private static final float NOISE = 0.35f;
+    private static final float MIN_RECALL = 0.95f;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void graphSearch_findsTheExactNearestFace() {
+        for (int size : new int[] {500, 2000}) {
+            Report report = run(size, 200, 64);
+            assertTrue(report.toString(), report.recall >= MIN_RECALL);
+        }
+    }
+
+    @Test
+    public void savedIndex_answersLikeTheOriginal() throws Exception {
+        Random random = new Random(11);
+        FaceIndex index = new FaceIndex(DIM);
+        index.setExactSearchThreshold(0);
+        for (int i = 0; i < 300; i++) {
+            index.insert("face-" + i, randomUnit(random));
+        }
+        index.remove("face-7");
+
+        File file = new File(folder.getRoot(), "face_index.hnsw");
+        index.save(file);
+        FaceIndex loaded = FaceIndex.load(file);
+
+        assertNotNull(loaded);
+        assertEquals(index.size(), loaded.size());
+        assertFalse(loaded.contains("face-7"));
+        loaded.setExactSearchThreshold(0);
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomUnit(random);
+            assertEquals(index.search(query, 1).get(0).getId(), loaded.search(query, 1).get(0).getId());
+        }
+    }
+
+    @Test
+    public void remove_onlyTombstonesUntilCompacted() {
+        Random random = new Random(13);
+        FaceIndex index = new FaceIndex(DIM);
+        index.setExactSearchThreshold(0);
+        for (int i = 0; i < 10; i++) {
+            index.insert("face-" + i, randomUnit(random));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(index.remove("face-" + i));
+        }
+        assertFalse(index.needsCompaction());
+        assertTrue(index.remove("face-5"));
+        assertFalse(index.remove("face-5"));
+        assertTrue(index.needsCompaction());
+        assertEquals(4, index.size());
+        for (int q = 0; q < 20; q++) {
+            String found = index.search(randomUnit(random), 1).get(0).getId();
+            assertTrue(found, Integer.parseInt(found.substring("face-".length())) >= 6);
+        }
+
+        index.rebuild();
+        assertFalse(index.needsCompaction());
+        assertEquals(4, index.size());
+    }
+
+    private static final class Report {
+        final int gallerySize;
+        final int efSearch;
+        final double buildMs;
+        final float recall;
+        final double graphUs;
+        final double exactUs;
+
+        Report(int gallerySize, int efSearch, double buildMs, float recall, double graphUs, double exactUs) {
+            this.gallerySize = gallerySize;
+            this.efSearch = efSearch;
+            this.buildMs = buildMs;
+            this.recall = recall;
+            this.graphUs = graphUs;
+            this.exactUs = exactUs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "faces=%d ef=%d build=%.0fms recall@1=%.3f hnsw=%.1fus exact=%.1fus",
+                    gallerySize, efSearch, buildMs, recall, graphUs, exactUs);
+        }
+    }
+
+    /**
+     * Run one benchmark configuration
+     */
+    private static Report run(int gallerySize, int queryCount, int efSearch) {
+        Random random = new Random(7);
+        int people = Math.max(1, gallerySize / PHOTOS_PER_PERSON);
+        float[][] centres = new float[people][];
+        for (int p = 0; p < people; p++) {
+            centres[p] = randomUnit(random);
+        }
+
+        FaceIndex index = new FaceIndex(DIM);
+        index.setEfSearch(efSearch);
+        // Force the graph path so both searches are measured at every size
+        index.setExactSearchThreshold(0);
+
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < gallerySize; i++) {
+            index.insert("face-" + i, noisy(centres[i % people], random));
+        }
+        long buildNanos = System.nanoTime() - buildStart;
+
+        float[][] queries = new float[queryCount][];
+        for (int q = 0; q < queryCount; q++) {
+            queries[q] = noisy(centres[random.nextInt(people)], random);
+        }
+
+        // Warm up the JIT before timing
+        for (int q = 0; q < Math.min(50, queryCount); q++) {
+            index.search(queries[q], 1);
+            index.exactSearch(queries[q], 1);
+        }
+
+        int hits = 0;
+        long graphNanos = 0;
+        long exactNanos = 0;
+        for (float[] query : queries) {
+            long start = System.nanoTime();
+            List<FaceIndex.Result> approximate = index.search(query, 1);
+            graphNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<FaceIndex.Result> exact = index.exactSearch(query, 1);
+            exactNanos += System.nanoTime() - start;
+
+            if (!approximate.isEmpty() && !exact.isEmpty()
+                    && approximate.get(0).getId().equals(exact.get(0).getId())) {
+                hits++;
+            }
+        }
+
+        return new Report(gallerySize, efSearch, buildNanos / 1e6, hits / (float) queryCount,
+                graphNanos / 1e3 / queryCount, exactNanos / 1e3 / queryCount);
+    }
+
+    private static float[] randomUnit(Random random) {
+        float[] vector = new float[DIM];
+        for (int i = 0; i < DIM; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private static float[] noisy(float[] centre, Random random) {
+        float[] vector = new float[DIM];
+        float scale = NOISE / (float) Math.sqrt(DIM);
+        for (int i = 0; i < DIM; i++) {
+            vector[i] = centre[i] + (float) random.nextGaussian() * scale;
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private static void normalize(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        float inverse = (float) (1.0 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inverse;
+        }
+    }
+}
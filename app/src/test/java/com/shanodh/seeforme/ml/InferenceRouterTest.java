@@ -0,0 +1,312 @@
+package com.shanodh.seeforme.ml;
+
+import android.graphics.Bitmap;
+
+import com.shanodh.seeforme.network.ApiService;
+import com.shanodh.seeforme.network.InferenceResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * InferenceRouter's choice of backend, its deadline, and falling back to the phone when the
+ * wearable is late
+ */
+public class InferenceRouterTest {
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final long SLOW_MS = 30;
+
+    private final FakeLocal local = new FakeLocal();
+    private final FakeRemote remote = new FakeRemote();
+    private int phoneBattery = 100;
+    private boolean wearableAvailable = true;
+    private InferenceRouter router;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() {
+        router = new InferenceRouter(local, remote, () -> phoneBattery, () -> wearableAvailable);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void triesTheWearableFirst() {
+        assertEquals(InferenceRouter.Route.REMOTE, router.choose(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void staysOnThePhoneWhileTheWearableIsUnreachable() throws Exception {
+        wearableAvailable = false;
+
+        assertEquals("local", router.detect(null).get(0).getLabel());
+        assertEquals(0, remote.calls);
+    }
+
+    @Test
+    public void sendsFramesToTheFasterSide() throws Exception {
+        local.delayMs = SLOW_MS;
+        warmUp();
+        assertEquals(2, remote.calls);
+        assertEquals(1, local.calls);
+
+        assertEquals(InferenceRouter.Route.REMOTE, router.choose(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void probesTheSlowerSideEveryFewFrames() throws Exception {
+        local.delayMs = SLOW_MS;
+        warmUp();
+
+        // Frames 4 to 2 * PROBE_EVERY; the phone gets frames PROBE_EVERY and 2 * PROBE_EVERY
+        for (int frame = 4; frame <= 2 * InferenceRouter.PROBE_EVERY; frame++) {
+            router.detect(null);
+        }
+        assertEquals(1 + 2, local.calls);
+    }
+
+    @Test
+    public void busyWearableOnlyGetsProbes() throws Exception {
+        remote.response = response(InferenceRouter.MAX_REMOTE_QUEUE, 80);
+        router.detect(null);
+
+        assertProbesOnly();
+    }
+
+    @Test
+    public void lowWearableBatteryOnlyGetsProbes() throws Exception {
+        remote.response = response(0, InferenceRouter.LOW_WEARABLE_BATTERY);
+        router.detect(null);
+
+        assertProbesOnly();
+    }
+
+    @Test
+    public void lowPhoneBatteryPrefersTheWearableEvenWhenSlower() throws Exception {
+        phoneBattery = InferenceRouter.LOW_PHONE_BATTERY;
+        remote.delayMs = SLOW_MS;
+        warmUp();
+
+        for (int frame = 4; frame < InferenceRouter.PROBE_EVERY; frame++) {
+            assertEquals(InferenceRouter.Route.REMOTE, router.choose(System.currentTimeMillis()));
+        }
+    }
+
+    @Test
+    public void repeatedFailuresPauseTheWearable() throws Exception {
+        // Would otherwise always pick the wearable
+        phoneBattery = InferenceRouter.LOW_PHONE_BATTERY;
+        remote.failing = true;
+
+        for (int i = 0; i < InferenceRouter.FAILURES_BEFORE_COOLDOWN; i++) {
+            assertEquals("local", router.detect(null).get(0).getLabel());
+        }
+        assertEquals(InferenceRouter.FAILURES_BEFORE_COOLDOWN, remote.calls);
+        assertTrue(router.getStats(), router.getStats().endsWith(
+                InferenceRouter.FAILURES_BEFORE_COOLDOWN + " fallbacks"));
+
+        long now = System.currentTimeMillis();
+        assertEquals(InferenceRouter.Route.LOCAL, router.choose(now));
+        assertEquals(InferenceRouter.Route.REMOTE,
+                router.choose(now + InferenceRouter.REMOTE_COOLDOWN_MS + 1000));
+    }
+
+    @Test
+    public void deadlineStartsAtTheDefault() throws Exception {
+        assertEquals(RemoteDetectorBackend.DEFAULT_DEADLINE_MS, router.remoteDeadlineMs());
+
+        router.detect(null);
+        assertEquals(RemoteDetectorBackend.DEFAULT_DEADLINE_MS, remote.lastDeadlineMs);
+    }
+
+    @Test
+    public void deadlineIsNeverShorterThanTheMinimum() throws Exception {
+        // A round trip of a few milliseconds
+        router.detect(null);
+
+        assertEquals(InferenceRouter.MIN_DEADLINE_MS, router.remoteDeadlineMs());
+    }
+
+    @Test
+    public void deadlineIsNeverLongerThanTheMaximum() throws Exception {
+        // A miss counts as a round trip as long as the deadline, and the budget is twice that
+        remote.failing = true;
+        router.detect(null);
+
+        assertEquals(InferenceRouter.MAX_DEADLINE_MS, router.remoteDeadlineMs());
+    }
+
+    @Test
+    public void lateWearableFallsBackToThePhone() throws Exception {
+        InferenceRouter router = routerAgainstServer();
+        server.enqueue(inferReply("chair").setBodyDelay(RemoteDetectorBackend.DEFAULT_DEADLINE_MS * 2,
+                TimeUnit.MILLISECONDS));
+
+        long start = System.nanoTime();
+        List<Detection> detections = router.detect(frame());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("local", detections.get(0).getLabel());
+        assertEquals(1, local.calls);
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < RemoteDetectorBackend.DEFAULT_DEADLINE_MS * 2);
+        assertTrue(router.getStats(), router.getStats().endsWith("1 fallbacks"));
+
+        RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("/infer", request.getPath());
+        assertEquals("image/jpeg", request.getHeader("Content-Type"));
+    }
+
+    @Test
+    public void wearableDetectionsAreScaledToTheFrame() throws Exception {
+        InferenceRouter router = routerAgainstServer();
+        server.enqueue(inferReply("chair"));
+
+        List<Detection> detections = router.detect(frame());
+
+        assertEquals(1, detections.size());
+        Detection chair = detections.get(0);
+        assertEquals("chair", chair.getLabel());
+        assertEquals(0.9f, chair.getConfidence(), 0.001f);
+        assertEquals(0.5f * FRAME_WIDTH, chair.getCenterX(), 0.01f);
+        assertEquals(0.75f * FRAME_HEIGHT, chair.getCenterY(), 0.01f);
+        assertEquals(0, local.calls);
+        assertTrue(router.getStats(), router.getStats().endsWith("0 fallbacks"));
+    }
+
+    /**
+     * One frame on the wearable, one on the phone to measure it, and one more on the wearable
+     */
+    private void warmUp() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            router.detect(null);
+        }
+    }
+
+    private void assertProbesOnly() {
+        for (int frame = 2; frame <= InferenceRouter.PROBE_EVERY; frame++) {
+            InferenceRouter.Route expected = frame % InferenceRouter.PROBE_EVERY == 0
+                    ? InferenceRouter.Route.REMOTE
+                    : InferenceRouter.Route.LOCAL;
+            assertEquals("frame " + frame, expected, router.choose(System.currentTimeMillis()));
+        }
+    }
+
+    private InferenceRouter routerAgainstServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        ApiService api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiService.class);
+        return new InferenceRouter(local, new RemoteDetectorBackend(api), () -> phoneBattery);
+    }
+
+    private static MockResponse inferReply(String label) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"detections\":[{\"label\":\"" + label + "\",\"confidence\":0.9,"
+                        + "\"left\":0.25,\"top\":0.5,\"right\":0.75,\"bottom\":1.0}],"
+                        + "\"inferenceMs\":40,\"queueDepth\":0,\"batteryPercent\":80}");
+    }
+
+    private static Bitmap frame() {
+        Bitmap frame = mock(Bitmap.class);
+        when(frame.getWidth()).thenReturn(FRAME_WIDTH);
+        when(frame.getHeight()).thenReturn(FRAME_HEIGHT);
+        return frame;
+    }
+
+    private static InferenceResponse response(int queueDepth, int batteryPercent) {
+        InferenceResponse response = new InferenceResponse();
+        response.setQueueDepth(queueDepth);
+        response.setBatteryPercent(batteryPercent);
+        return response;
+    }
+
+    private static Detection detection(String label) {
+        return new Detection(label, 0.8f, 0, 0, 10, 10, FRAME_WIDTH, FRAME_HEIGHT);
+    }
+
+    /**
+     * The phone's model, taking as long as it is told to
+     */
+    private static class FakeLocal implements DetectorBackend {
+        long delayMs;
+        int calls;
+
+        @Override
+        public List<Detection> detect(Bitmap frame) {
+            calls++;
+            sleep(delayMs);
+            return Collections.singletonList(detection("local"));
+        }
+    }
+
+    /**
+     * The wearable, answering or failing as it is told to without going over the network
+     */
+    private static class FakeRemote extends RemoteDetectorBackend {
+        long delayMs;
+        boolean failing;
+        InferenceResponse response = response(0, 80);
+        int calls;
+        long lastDeadlineMs;
+
+        FakeRemote() {
+            super(null);
+        }
+
+        @Override
+        public List<Detection> detect(Bitmap frame, long deadlineMs) throws IOException {
+            calls++;
+            lastDeadlineMs = deadlineMs;
+            sleep(delayMs);
+            if (failing) {
+                throw new IOException("timeout");
+            }
+            return new ArrayList<>(Collections.singletonList(detection("remote")));
+        }
+
+        @Override
+        public InferenceResponse getLastResponse() {
+            return response;
+        }
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.shanodh.seeforme.ml;
+
+import com.shanodh.seeforme.data.Note;
+import com.shanodh.seeforme.data.NoteDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * NoteDetectionEngine fed by LocalTextSource, the stand-in for OCR
+ */
+public class NoteDetectionEngineTest {
+    private static final String USER_ID = "user-1";
+
+    private NoteDao noteDao;
+    private NoteDetectionEngine engine;
+    private final List<Note> detected = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        noteDao = mock(NoteDao.class);
+        engine = new NoteDetectionEngine(noteDao, USER_ID);
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void detectsNoteSplitOverLinesAndMarksIt() throws Exception {
+        when(noteDao.getUndetectedNotes(USER_ID)).thenReturn(List.of(note(7, "Call mom about the party")));
+        CountDownLatch found = expectDetections(1);
+
+        engine.start(new NoteDetectionEngine.LocalTextSource(
+                Arrays.asList("Shopping list", "Call m0m about", "the party"), 0));
+
+        assertTrue(found.await(2, TimeUnit.SECONDS));
+        assertEquals(7, detected.get(0).getId());
+        assertTrue(detected.get(0).isDetected());
+        verify(noteDao, timeout(1000)).markAsDetected(7);
+    }
+
+    @Test
+    public void reportsEachNoteOnce() throws Exception {
+        when(noteDao.getUndetectedNotes(USER_ID)).thenReturn(List.of(note(3, "feed the cat")));
+        CountDownLatch found = expectDetections(1);
+
+        engine.start(new NoteDetectionEngine.LocalTextSource(
+                Arrays.asList("feed the cat", "feed the cat"), 0));
+
+        assertTrue(found.await(2, TimeUnit.SECONDS));
+        verify(noteDao, timeout(1000)).markAsDetected(3);
+        flush();
+        assertEquals(1, detected.size());
+        verify(noteDao, times(1)).markAsDetected(3);
+    }
+
+    @Test
+    public void refreshNotes_picksUpNotesAddedLater() throws Exception {
+        List<Note> notes = new CopyOnWriteArrayList<>();
+        when(noteDao.getUndetectedNotes(USER_ID)).thenAnswer(invocation -> new ArrayList<>(notes));
+        ManualTextSource source = new ManualTextSource();
+        CountDownLatch found = expectDetections(1);
+        engine.start(source);
+
+        source.callback.onLine("water the plants");
+        notes.add(note(5, "water the plants"));
+        engine.refreshNotes();
+        source.callback.onLine("water the plants");
+
+        assertTrue(found.await(2, TimeUnit.SECONDS));
+        assertEquals(5, detected.get(0).getId());
+    }
+
+    @Test
+    public void sceneChange_dropsPartialMatch() throws Exception {
+        when(noteDao.getUndetectedNotes(USER_ID)).thenReturn(List.of(note(9, "spare keys in the drawer")));
+        engine.setListener((note, line) -> detected.add(note));
+        ManualTextSource source = new ManualTextSource();
+        engine.start(source);
+
+        source.callback.onLine("spare keys");
+        source.callback.onSceneChanged();
+        source.callback.onLine("in the drawer");
+        flush();
+
+        assertTrue(detected.isEmpty());
+    }
+
+    @Test
+    public void onlyMatchesTheUsersUndetectedNotes() throws Exception {
+        when(noteDao.getUndetectedNotes(USER_ID)).thenReturn(Collections.emptyList());
+        engine.setListener((note, line) -> detected.add(note));
+
+        engine.start(new NoteDetectionEngine.LocalTextSource(List.of("pay the rent"), 0));
+        flush();
+
+        assertTrue(detected.isEmpty());
+        verify(noteDao, never()).markAsDetected(anyInt());
+        verify(noteDao, atLeastOnce()).getUndetectedNotes(USER_ID);
+    }
+
+    private CountDownLatch expectDetections(int count) {
+        CountDownLatch latch = new CountDownLatch(count);
+        engine.setListener((note, line) -> {
+            detected.add(note);
+            latch.countDown();
+        });
+        return latch;
+    }
+
+    /**
+     * Wait until everything already handed to the engine's thread has run. Lines from
+     * LocalTextSource arrive on its own thread, so give it a moment to hand them over first.
+     */
+    private void flush() throws InterruptedException {
+        Thread.sleep(100);
+        CountDownLatch done = new CountDownLatch(1);
+        when(noteDao.getUndetectedNotes(USER_ID)).thenAnswer(invocation -> {
+            done.countDown();
+            return Collections.emptyList();
+        });
+        engine.refreshNotes();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Hands lines to the engine on the test thread, in a known order
+     */
+    private static class ManualTextSource implements NoteDetectionEngine.TextSource {
+        volatile NoteDetectionEngine.LineCallback callback;
+
+        @Override
+        public void start(NoteDetectionEngine.LineCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void stop() {
+            callback = null;
+        }
+    }
+
+    private static Note note(int id, String content) {
+        Note note = new Note();
+        note.setId(id);
+        note.setTitle(content);
+        note.setContent(content);
+        note.setUserId(USER_ID);
+        return note;
+    }
+}
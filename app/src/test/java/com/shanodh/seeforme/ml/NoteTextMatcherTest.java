@@ -0,0 +1,190 @@
+package com.shanodh.seeforme.ml;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Matching the user's notes against recognised text, OCR mistakes included
+ */
+public class NoteTextMatcherTest {
+    private NoteTextMatcher matcher;
+
+    @Before
+    public void setUp() {
+        matcher = new NoteTextMatcher();
+    }
+
+    @Test
+    public void tokenize_fixesDigitsMisreadInsideWords() {
+        assertArrayEquals(new String[] {"bottle", "of", "milk"}, NoteTextMatcher.tokenize("B0tt1e of MILK"));
+        assertArrayEquals(new String[] {"class", "room"}, NoteTextMatcher.tokenize("C1a55 room"));
+    }
+
+    @Test
+    public void tokenize_leavesNumbersAlone() {
+        assertArrayEquals(new String[] {"room", "1058"}, NoteTextMatcher.tokenize("Room 1058"));
+    }
+
+    @Test
+    public void tokenize_stripsAccentsAndPunctuation() {
+        assertArrayEquals(new String[] {"cafe", "au", "lait"}, NoteTextMatcher.tokenize("Café-au-lait!"));
+    }
+
+    @Test
+    public void feed_findsNoteWithOcrDigits() {
+        matcher.addNote(1, "Bottle of milk");
+
+        assertEquals(List.of(1), noteIds(matcher.feed("B0tt1e 0f milk")));
+    }
+
+    @Test
+    public void feed_findsNoteWithinOneEditPerWord() {
+        matcher.addNote(1, "Take the blue pills");
+
+        // One dropped letter and one substituted letter, in different words
+        assertEquals(List.of(1), noteIds(matcher.feed("take the blue pils")));
+        matcher.reset();
+        assertEquals(List.of(1), noteIds(matcher.feed("take the blve pills")));
+    }
+
+    @Test
+    public void feed_rejectsWordsTwoEditsAway() {
+        matcher.addNote(1, "Take the blue pills");
+
+        assertTrue(matcher.feed("take the blue pals").isEmpty());
+    }
+
+    @Test
+    public void feed_rejectsAmbiguousCorrections() {
+        matcher.addNote(1, "spare keys");
+        matcher.addNote(2, "spore keys");
+
+        // "spxre" is one edit from both words, so it matches neither
+        assertTrue(matcher.feed("spxre keys").isEmpty());
+    }
+
+    @Test
+    public void feed_findsNoteInsideLongerLine() {
+        matcher.addNote(1, "dentist appointment");
+
+        assertEquals(List.of(1), noteIds(matcher.feed("Reminder: dentist appointment on Friday")));
+    }
+
+    @Test
+    public void feed_matchesAcrossLines() {
+        matcher.addNote(1, "Call mom about the birthday party");
+
+        assertTrue(matcher.feed("Call mom about").isEmpty());
+        List<NoteTextMatcher.Hit> hits = matcher.feed("the birthday party");
+
+        assertEquals(List.of(1), noteIds(hits));
+        assertEquals(1, hits.get(0).lineIndex);
+    }
+
+    @Test
+    public void reset_dropsPartialMatchFromPreviousScene() {
+        matcher.addNote(1, "Call mom about the birthday party");
+
+        matcher.feed("Call mom about");
+        matcher.reset();
+
+        assertTrue(matcher.feed("the birthday party").isEmpty());
+    }
+
+    @Test
+    public void feed_reportsEveryNoteEndingOnTheSameWord() {
+        matcher.addNote(1, "green tea");
+        matcher.addNote(2, "tea");
+
+        List<Integer> ids = noteIds(matcher.feed("a cup of green tea"));
+
+        assertTrue(ids.contains(1));
+        assertTrue(ids.contains(2));
+    }
+
+    @Test
+    public void addNote_replacesTextOfExistingNote() {
+        matcher.addNote(1, "buy bread");
+        matcher.addNote(1, "buy butter");
+
+        assertEquals(1, matcher.size());
+        assertTrue(matcher.feed("buy bread").isEmpty());
+        matcher.reset();
+        assertEquals(List.of(1), noteIds(matcher.feed("buy butter")));
+    }
+
+    @Test
+    public void removeNote_stopsMatching() {
+        matcher.addNote(1, "water the plants");
+        matcher.addNote(2, "feed the cat");
+
+        matcher.removeNote(1);
+
+        assertTrue(matcher.feed("water the plants").isEmpty());
+        assertEquals(List.of(2), noteIds(matcher.feed("feed the cat")));
+    }
+
+    @Test
+    public void removeNote_manyRemovalsCompactAndKeepTheRest() {
+        for (int i = 0; i < 20; i++) {
+            matcher.addNote(i, "note number " + i + " text");
+        }
+        for (int i = 0; i < 18; i++) {
+            matcher.removeNote(i);
+        }
+
+        assertEquals(2, matcher.size());
+        assertTrue(matcher.feed("note number 3 text").isEmpty());
+        assertEquals(List.of(19), noteIds(matcher.feed("note number 19 text")));
+    }
+
+    @Test
+    public void sync_touchesOnlyChangedNotes() {
+        Map<Integer, String> notes = new HashMap<>();
+        notes.put(1, "pay the rent");
+        notes.put(2, "return library books");
+        matcher.sync(notes);
+
+        notes.remove(1);
+        notes.put(2, "return library card");
+        notes.put(3, "charge the phone");
+        matcher.sync(notes);
+
+        assertEquals(2, matcher.size());
+        assertTrue(matcher.feed("pay the rent").isEmpty());
+        assertTrue(matcher.feed("return library books").isEmpty());
+        assertEquals(List.of(2), noteIds(matcher.feed("return library card")));
+        assertEquals(List.of(3), noteIds(matcher.feed("charge the phone")));
+    }
+
+    @Test
+    public void addNote_ignoresTextWithoutWords() {
+        matcher.addNote(1, " -- !! ");
+
+        assertEquals(0, matcher.size());
+    }
+
+    @Test
+    public void withinOneEdit_countsInsertDeleteAndSubstitute() {
+        assertTrue(NoteTextMatcher.withinOneEdit("pills", "pils"));
+        assertTrue(NoteTextMatcher.withinOneEdit("pils", "pills"));
+        assertTrue(NoteTextMatcher.withinOneEdit("pills", "pells"));
+        assertFalse(NoteTextMatcher.withinOneEdit("pills", "pals"));
+        assertFalse(NoteTextMatcher.withinOneEdit("pills", "pi"));
+    }
+
+    private static List<Integer> noteIds(List<NoteTextMatcher.Hit> hits) {
+        List<Integer> ids = new ArrayList<>();
+        for (NoteTextMatcher.Hit hit : hits) {
+            ids.add(hit.noteId);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,104 @@
+package com.shanodh.seeforme.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * ApiService wired like ApiClient, against a fake wearable answering in CBOR or JSON
+ */
+public class CborConverterFactoryTest {
+    private MockWebServer server;
+    private ApiService api;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(CborConverterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void cborBodyIsDecodedByTheCodec() throws Exception {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(2);
+        writer.writeLong(0).writeBoolean(true);
+        writer.writeLong(1).writeString("binary");
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", WearableCodec.CONTENT_TYPE)
+                .setBody(new Buffer().write(writer.toByteArray())));
+
+        ApiResponse response = api.getStatus().execute().body();
+
+        assertTrue(response.isSuccess());
+        assertEquals("binary", response.getMessage());
+    }
+
+    @Test
+    public void jsonBodyFallsBackToGson() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody("{\"success\":true,\"message\":\"json\",\"data\":{\"name\":\"Hallway\"}}"));
+
+        ApiResponse response = api.getStatus().execute().body();
+
+        assertTrue(response.isSuccess());
+        assertEquals("json", response.getMessage());
+        assertEquals("Hallway", ((Map<?, ?>) response.getData()).get("name"));
+    }
+
+    @Test
+    public void notificationListsAreDecodedEitherWay() throws Exception {
+        Buffer cbor = new Buffer()
+                .write(new Cbor.Writer().arrayHeader(1).toByteArray())
+                .write(WearableCodec.encodeNotification(notification("Keys")));
+        server.enqueue(new MockResponse().setHeader("Content-Type", WearableCodec.CONTENT_TYPE).setBody(cbor));
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("[{\"type\":\"note_detected\",\"message\":\"Wallet\",\"timestamp\":2}]"));
+
+        List<NotificationResponse> binary = api.getNotifications().execute().body();
+        List<NotificationResponse> json = api.getNotifications().execute().body();
+
+        assertEquals("Keys", binary.get(0).getMessage());
+        assertEquals("Wallet", json.get(0).getMessage());
+        assertEquals(2, json.get(0).getTimestamp());
+    }
+
+    @Test
+    public void onlyApplicationCborCounts() {
+        assertTrue(CborConverterFactory.isCbor(MediaType.get("application/cbor")));
+        assertFalse(CborConverterFactory.isCbor(MediaType.get("application/json")));
+        assertFalse(CborConverterFactory.isCbor(MediaType.get("text/cbor")));
+        assertFalse(CborConverterFactory.isCbor(null));
+    }
+
+    private static NotificationResponse notification(String message) {
+        NotificationResponse notification = new NotificationResponse();
+        notification.setType(NotificationResponse.TYPE_NOTE_DETECTED);
+        notification.setMessage(message);
+        notification.setTimestamp(1);
+        return notification;
+    }
+}
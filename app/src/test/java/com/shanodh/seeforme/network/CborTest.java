@@ -0,0 +1,191 @@
+package com.shanodh.seeforme.network;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cbor.Writer to Cbor.Reader round-trips, plus hand-written bytes for what only the wearable
+ * sends: half floats, oversized lengths, indefinite lengths and truncation
+ */
+public class CborTest {
+
+    @Test
+    public void integersRoundTripAtEveryWidth() throws IOException {
+        long[] values = {0, 23, 24, 255, 256, 65_535, 65_536, 0xFFFF_FFFFL, 0x1_0000_0000L,
+                Long.MAX_VALUE, -1, -24, -25, -256, -257, -65_537, -0x1_0000_0001L, Long.MIN_VALUE};
+        Cbor.Writer writer = new Cbor.Writer();
+        for (long value : values) {
+            writer.writeLong(value);
+        }
+
+        Cbor.Reader reader = new Cbor.Reader(writer.toByteArray());
+        for (long value : values) {
+            assertEquals(value, reader.readLong());
+        }
+        assertFalse(reader.hasMore());
+    }
+
+    @Test
+    public void integersUseTheShortestHead() {
+        assertArrayEquals(bytes(0x17), new Cbor.Writer().writeLong(23).toByteArray());
+        assertArrayEquals(bytes(0x18, 0x18), new Cbor.Writer().writeLong(24).toByteArray());
+        assertArrayEquals(bytes(0x20), new Cbor.Writer().writeLong(-1).toByteArray());
+        assertArrayEquals(bytes(0x39, 0x01, 0x00), new Cbor.Writer().writeLong(-257).toByteArray());
+        assertArrayEquals(bytes(0x1B, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00),
+                new Cbor.Writer().writeLong(0x1_0000_0000L).toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void unsignedAboveLongMaxIsRejected() throws IOException {
+        new Cbor.Reader(bytes(0x1B, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF)).readLong();
+    }
+
+    @Test(expected = IOException.class)
+    public void negativeBelowLongMinIsRejected() throws IOException {
+        new Cbor.Reader(bytes(0x3B, 0x80, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00)).readLong();
+    }
+
+    @Test
+    public void doublesAreWrittenAsFloat32WhenExact() throws IOException {
+        byte[] exact = new Cbor.Writer().writeDouble(1.5).toByteArray();
+        byte[] inexact = new Cbor.Writer().writeDouble(0.1).toByteArray();
+
+        assertEquals(5, exact.length);
+        assertEquals(0xFA, exact[0] & 0xFF);
+        assertEquals(9, inexact.length);
+        assertEquals(0xFB, inexact[0] & 0xFF);
+        assertEquals(1.5, new Cbor.Reader(exact).readDouble(), 0);
+        assertEquals(0.1, new Cbor.Reader(inexact).readDouble(), 0);
+    }
+
+    @Test
+    public void halfFloatsDecode() throws IOException {
+        assertEquals(1.0, readDouble(0xF9, 0x3C, 0x00), 0);
+        assertEquals(-2.0, readDouble(0xF9, 0xC0, 0x00), 0);
+        assertEquals(65_504.0, readDouble(0xF9, 0x7B, 0xFF), 0);
+        // Smallest subnormal, 2^-24
+        assertEquals(5.960464477539063e-8, readDouble(0xF9, 0x00, 0x01), 0);
+        assertEquals(Double.POSITIVE_INFINITY, readDouble(0xF9, 0x7C, 0x00), 0);
+        assertTrue(Double.isNaN(readDouble(0xF9, 0x7E, 0x00)));
+    }
+
+    @Test
+    public void integersReadAsDoubles() throws IOException {
+        assertEquals(-3.0, readDouble(0x22), 0);
+        assertEquals(1000.0, readDouble(0x19, 0x03, 0xE8), 0);
+    }
+
+    @Test
+    public void nullStringsRoundTrip() throws IOException {
+        Cbor.Writer writer = new Cbor.Writer().writeString(null).writeString("").writeString("héllo");
+
+        Cbor.Reader reader = new Cbor.Reader(writer.toByteArray());
+        assertNull(reader.readString());
+        assertEquals("", reader.readString());
+        assertEquals("héllo", reader.readString());
+        assertFalse(reader.hasMore());
+    }
+
+    @Test
+    public void nestedMapsAndArraysDecodeToPlainCollections() throws IOException {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(3);
+        writer.writeString("list").arrayHeader(3)
+                .writeLong(1)
+                .writeString("two")
+                .mapHeader(1).writeString("deep").arrayHeader(0);
+        writer.writeLong(7).writeNull();
+        writer.writeString("flags").arrayHeader(2).writeBoolean(true).writeDouble(2.5);
+
+        Map<?, ?> map = (Map<?, ?>) new Cbor.Reader(writer.toByteArray()).readAny();
+
+        assertEquals(Arrays.asList("list", 7L, "flags"), Arrays.asList(map.keySet().toArray()));
+        List<?> list = (List<?>) map.get("list");
+        assertEquals(1L, list.get(0));
+        assertEquals("two", list.get(1));
+        assertEquals(0, ((List<?>) ((Map<?, ?>) list.get(2)).get("deep")).size());
+        assertTrue(map.containsKey(7L));
+        assertNull(map.get(7L));
+        assertEquals(Arrays.asList(true, 2.5), map.get("flags"));
+    }
+
+    @Test
+    public void byteStringsDecode() throws IOException {
+        Object value = new Cbor.Reader(bytes(0x43, 0x01, 0x02, 0xFF)).readAny();
+
+        assertArrayEquals(bytes(0x01, 0x02, 0xFF), (byte[]) value);
+    }
+
+    @Test
+    public void everyTruncationIsAnIOException() {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(2);
+        writer.writeString("name").writeString("Hallway");
+        writer.writeLong(0x1_0000_0000L).arrayHeader(2).writeDouble(0.1).writeLong(-300);
+        byte[] whole = writer.toByteArray();
+
+        for (int length = 0; length < whole.length; length++) {
+            try {
+                new Cbor.Reader(Arrays.copyOf(whole, length)).readAny();
+                fail("Decoded " + length + " of " + whole.length + " bytes");
+            } catch (IOException expected) {
+                // Truncated
+            }
+        }
+    }
+
+    @Test
+    public void indefiniteLengthsAreRejected() {
+        for (int initial : new int[] {0x5F, 0x7F, 0x9F, 0xBF}) {
+            try {
+                new Cbor.Reader(bytes(initial, 0xFF)).readAny();
+                fail("Accepted 0x" + Integer.toHexString(initial));
+            } catch (IOException expected) {
+                // Indefinite length
+            }
+        }
+    }
+
+    @Test
+    public void lengthsBeyondIntRangeAreRejected() {
+        int[][] items = {
+                // Text of 2^32 bytes, as an 8-byte and a 4-byte length
+                {0x7B, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00},
+                {0x7A, 0xFF, 0xFF, 0xFF, 0xFF},
+                // Bytes and array counts with the top bit set
+                {0x5B, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF},
+                {0x9B, 0x80, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},
+                // Within int range but far past the end of the buffer
+                {0x7A, 0x7F, 0xFF, 0xFF, 0xFF, 0x61},
+        };
+        for (int[] item : items) {
+            try {
+                new Cbor.Reader(bytes(item)).readAny();
+                fail("Accepted " + Arrays.toString(item));
+            } catch (IOException expected) {
+                // Too long for the buffer
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongTypeIsAnIOException() throws IOException {
+        new Cbor.Reader(new Cbor.Writer().writeLong(1).toByteArray()).readBoolean();
+    }
+
+    private static double readDouble(int... data) throws IOException {
+        return new Cbor.Reader(bytes(data)).readDouble();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,133 @@
+package com.shanodh.seeforme.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * CircuitBreaker driven by a fake clock
+ */
+public class CircuitBreakerTest {
+    private static final long INITIAL_OPEN_MS = 1_000;
+    private static final long MAX_OPEN_MS = 4_000;
+
+    private CircuitBreaker breaker;
+    private final List<CircuitBreaker.State> changes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker(INITIAL_OPEN_MS, MAX_OPEN_MS);
+        breaker.setListener(changes::add);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure(0);
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertTrue(breaker.allowRequest(0));
+        }
+
+        breaker.recordFailure(0);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(INITIAL_OPEN_MS - 1));
+    }
+
+    @Test
+    public void successInBetweenStartsTheCountAgain() {
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure(0);
+        }
+        breaker.recordSuccess();
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure(0);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void letsOneTrialThroughOnceTheOpenPeriodHasPassed() {
+        open(0);
+
+        assertTrue(breaker.allowRequest(INITIAL_OPEN_MS));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(INITIAL_OPEN_MS));
+    }
+
+    @Test
+    public void successfulTrialCloses() {
+        open(0);
+        breaker.allowRequest(INITIAL_OPEN_MS);
+
+        breaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(INITIAL_OPEN_MS));
+        assertEquals(Arrays.asList(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN,
+                CircuitBreaker.State.CLOSED), changes);
+    }
+
+    @Test
+    public void failedTrialsDoubleTheOpenPeriodUpToTheMaximum() {
+        open(0);
+        long now = INITIAL_OPEN_MS;
+        for (long expectedOpenMs : new long[] {2_000, 4_000, MAX_OPEN_MS}) {
+            assertTrue(breaker.allowRequest(now));
+            breaker.recordFailure(now);
+
+            assertFalse(breaker.allowRequest(now + expectedOpenMs - 1));
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            now += expectedOpenMs;
+        }
+        assertTrue(breaker.allowRequest(now));
+    }
+
+    @Test
+    public void closingResetsTheOpenPeriod() {
+        open(0);
+        breaker.allowRequest(INITIAL_OPEN_MS);
+        breaker.recordFailure(INITIAL_OPEN_MS);
+        breaker.recordSuccess();
+
+        open(10_000);
+
+        assertFalse(breaker.allowRequest(10_000 + INITIAL_OPEN_MS - 1));
+        assertTrue(breaker.allowRequest(10_000 + INITIAL_OPEN_MS));
+    }
+
+    @Test
+    public void ignoredTrialLetsAnotherThrough() {
+        open(0);
+        breaker.allowRequest(INITIAL_OPEN_MS);
+
+        breaker.recordIgnored();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest(INITIAL_OPEN_MS));
+    }
+
+    @Test
+    public void resetClosesAnOpenBreaker() {
+        open(0);
+
+        breaker.reset();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(0));
+    }
+
+    private void open(long now) {
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure(now);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,280 @@
+package com.shanodh.seeforme.network;
+
+import com.shanodh.seeforme.data.FamiliarFace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resumable face uploads against a fake wearable serving /uploads
+ */
+public class FaceUploaderTest {
+    // Three chunks, the last one short
+    private static final int IMAGE_SIZE = 2 * FaceUploader.CHUNK_SIZE + 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private FaceUploader uploader;
+    private final RecordingListener listener = new RecordingListener();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        OkHttpClient client = new OkHttpClient.Builder()
+                // A dropped chunk must reach FaceUploader rather than be retried underneath it
+                .retryOnConnectionFailure(false)
+                .build();
+        ApiService api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiService.class);
+        uploader = new FaceUploader(api);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsInChunksFromTheStart() throws Exception {
+        byte[] image = randomBytes(IMAGE_SIZE);
+        FamiliarFace face = face("Alice", writeImage("alice.jpg", image));
+        server.enqueue(session(0, false));
+        server.enqueue(session(FaceUploader.CHUNK_SIZE, false));
+        server.enqueue(session(2 * FaceUploader.CHUNK_SIZE, false));
+        server.enqueue(session(IMAGE_SIZE, true));
+
+        uploader.uploadBlocking(face, listener);
+
+        RecordedRequest start = server.takeRequest();
+        assertEquals("POST", start.getMethod());
+        assertEquals("/uploads", start.getPath());
+        String metadata = start.getBody().readUtf8();
+        assertTrue(metadata, metadata.contains("\"size\":" + IMAGE_SIZE));
+        assertTrue(metadata, metadata.contains("\"faceId\":\"face-Alice\""));
+        assertTrue(metadata, metadata.contains("\"contentType\":\"image/jpeg\""));
+
+        Buffer received = new Buffer();
+        for (long offset : new long[] {0, FaceUploader.CHUNK_SIZE, 2 * FaceUploader.CHUNK_SIZE}) {
+            RecordedRequest chunk = server.takeRequest();
+            assertEquals("PUT", chunk.getMethod());
+            assertEquals("/uploads/upload-1", chunk.getPath());
+            assertEquals(Long.toString(offset), chunk.getHeader("Upload-Offset"));
+            chunk.getBody().readAll(received);
+        }
+        assertArrayEquals(image, received.readByteArray());
+        assertEquals(Arrays.asList((long) FaceUploader.CHUNK_SIZE, 2L * FaceUploader.CHUNK_SIZE, (long) IMAGE_SIZE),
+                listener.progress);
+    }
+
+    @Test
+    public void resumesFromTheOffsetTheWearableAlreadyHas() throws Exception {
+        byte[] image = randomBytes(IMAGE_SIZE);
+        FamiliarFace face = face("Bob", writeImage("bob.jpg", image));
+        server.enqueue(session(2 * FaceUploader.CHUNK_SIZE, false));
+        server.enqueue(session(IMAGE_SIZE, true));
+
+        uploader.uploadBlocking(face, listener);
+
+        server.takeRequest();
+        RecordedRequest chunk = server.takeRequest();
+        assertEquals(Long.toString(2L * FaceUploader.CHUNK_SIZE), chunk.getHeader("Upload-Offset"));
+        assertArrayEquals(Arrays.copyOfRange(image, 2 * FaceUploader.CHUNK_SIZE, IMAGE_SIZE),
+                chunk.getBody().readByteArray());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void droppedChunkResumesFromTheAcknowledgedOffset() throws Exception {
+        byte[] image = randomBytes(IMAGE_SIZE);
+        FamiliarFace face = face("Carol", writeImage("carol.jpg", image));
+        server.enqueue(session(0, false));
+        server.enqueue(session(FaceUploader.CHUNK_SIZE, false));
+        // The link drops before the second chunk is acknowledged
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(session(FaceUploader.CHUNK_SIZE, false));
+        server.enqueue(session(2 * FaceUploader.CHUNK_SIZE, false));
+        server.enqueue(session(IMAGE_SIZE, true));
+
+        uploader.uploadBlocking(face, listener);
+
+        List<String> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            RecordedRequest request = server.takeRequest();
+            requests.add(request.getMethod() + " " + request.getPath() + " " + request.getHeader("Upload-Offset"));
+        }
+        assertEquals(Arrays.asList(
+                "POST /uploads null",
+                "PUT /uploads/upload-1 0",
+                "PUT /uploads/upload-1 " + FaceUploader.CHUNK_SIZE,
+                "GET /uploads/upload-1 null",
+                "PUT /uploads/upload-1 " + FaceUploader.CHUNK_SIZE,
+                "PUT /uploads/upload-1 " + 2 * FaceUploader.CHUNK_SIZE), requests);
+        assertEquals(IMAGE_SIZE, (long) listener.progress.get(listener.progress.size() - 1));
+    }
+
+    @Test
+    public void offsetConflictSkipsToTheWearablesOffset() throws Exception {
+        FamiliarFace face = face("Dan", writeImage("dan.jpg", randomBytes(IMAGE_SIZE)));
+        server.enqueue(session(0, false));
+        server.enqueue(session(FaceUploader.CHUNK_SIZE, false));
+        // Another attempt already got further than this one thinks
+        server.enqueue(new MockResponse().setResponseCode(409));
+        server.enqueue(session(2 * FaceUploader.CHUNK_SIZE, false));
+        server.enqueue(session(IMAGE_SIZE, true));
+
+        uploader.uploadBlocking(face, listener);
+
+        for (int i = 0; i < 3; i++) {
+            server.takeRequest();
+        }
+        assertEquals("GET", server.takeRequest().getMethod());
+        assertEquals(Long.toString(2L * FaceUploader.CHUNK_SIZE), server.takeRequest().getHeader("Upload-Offset"));
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    public void rejectedChunkIsNotRetried() throws Exception {
+        FamiliarFace face = face("Eve", writeImage("eve.jpg", randomBytes(IMAGE_SIZE)));
+        server.enqueue(session(0, false));
+        server.enqueue(new MockResponse().setResponseCode(400));
+
+        try {
+            uploader.uploadBlocking(face, listener);
+            fail("Expected the upload to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("400"));
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void enrollUploadsEveryFaceOverOneConnection() throws Exception {
+        int size = FaceUploader.CHUNK_SIZE / 2;
+        List<FamiliarFace> faces = Arrays.asList(
+                face("Frank", writeImage("frank.jpg", randomBytes(size))),
+                face("Missing", folder.getRoot().getPath() + "/missing.jpg"),
+                face("Grace", writeImage("grace.webp", randomBytes(size))));
+        server.enqueue(session(0, false));
+        server.enqueue(session(size, true));
+        server.enqueue(session(0, false));
+        server.enqueue(session(size, true));
+
+        uploader.enroll(faces, listener);
+
+        assertTrue(listener.finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("Frank", "Grace"), listener.uploaded);
+        assertEquals(Arrays.asList("Missing"), listener.failed);
+        assertEquals(2, listener.uploadedCount);
+        assertEquals(1, listener.failedCount);
+
+        RecordedRequest last = null;
+        for (int i = 0; i < 4; i++) {
+            last = server.takeRequest();
+        }
+        assertTrue(last.getBody().size() > 0);
+        // Every request went over the first connection
+        assertEquals(3, last.getSequenceNumber());
+    }
+
+    @Test
+    public void missingImageFailsBeforeContactingTheWearable() throws Exception {
+        FamiliarFace face = face("Heidi", null);
+
+        try {
+            uploader.uploadBlocking(face, listener);
+            fail("Expected the upload to fail");
+        } catch (FileNotFoundException expected) {
+            // No image to send
+        }
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private String writeImage(String name, byte[] bytes) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), bytes);
+        return file.getPath();
+    }
+
+    private static FamiliarFace face(String name, String imagePath) {
+        FamiliarFace face = new FamiliarFace(name, "Friend", imagePath);
+        face.setFirebaseId("face-" + name);
+        return face;
+    }
+
+    private static MockResponse session(long offset, boolean complete) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"uploadId\":\"upload-1\",\"offset\":" + offset
+                        + ",\"size\":" + IMAGE_SIZE + ",\"complete\":" + complete + "}");
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class RecordingListener implements FaceUploader.UploadListener {
+        final List<Long> progress = new CopyOnWriteArrayList<>();
+        final List<String> uploaded = new CopyOnWriteArrayList<>();
+        final List<String> failed = new CopyOnWriteArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile int uploadedCount;
+        volatile int failedCount;
+
+        @Override
+        public void onProgress(FamiliarFace face, long bytesSent, long totalBytes) {
+            progress.add(bytesSent);
+        }
+
+        @Override
+        public void onUploaded(FamiliarFace face) {
+            uploaded.add(face.getName());
+        }
+
+        @Override
+        public void onFailed(FamiliarFace face, String error) {
+            failed.add(face.getName());
+        }
+
+        @Override
+        public void onEnrollFinished(int uploaded, int failed) {
+            uploadedCount = uploaded;
+            failedCount = failed;
+            finished.countDown();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.shanodh.seeforme.network;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * WearableCodec against messages built field by field with Cbor.Writer, each with a field
+ * number from a newer wearable that must be skipped
+ */
+public class WearableCodecTest {
+    // Not a field of any type
+    private static final int UNKNOWN_FIELD = 40;
+
+    @Test
+    public void apiResponse() throws IOException {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(4);
+        writer.writeLong(UNKNOWN_FIELD).arrayHeader(2).writeLong(1).mapHeader(1).writeLong(0).writeString("x");
+        writer.writeLong(0).writeBoolean(true);
+        writer.writeLong(1).writeString("ok");
+        writer.writeLong(2).mapHeader(1).writeString("name").writeString("Hallway");
+
+        ApiResponse response = WearableCodec.decodeApiResponse(writer.toByteArray());
+
+        assertTrue(response.isSuccess());
+        assertEquals("ok", response.getMessage());
+        assertEquals("Hallway", ((Map<?, ?>) response.getData()).get("name"));
+    }
+
+    @Test
+    public void notificationRoundTrip() throws IOException {
+        NotificationResponse sent = notification("face_recognized", "Anna is here", 1_700_000_000_000L);
+        NotificationPayload payload = new NotificationPayload();
+        payload.setFaceId("face-1");
+        payload.setName("Anna");
+        payload.setNoteId(null);
+        payload.setText("Front door");
+        payload.setConfidence(0.875f);
+        sent.setPayload(payload);
+
+        NotificationResponse received = WearableCodec.decodeNotification(WearableCodec.encodeNotification(sent));
+
+        assertEquals("face_recognized", received.getType());
+        assertEquals("Anna is here", received.getMessage());
+        assertEquals(1_700_000_000_000L, received.getTimestamp());
+        NotificationPayload decoded = received.getPayload();
+        assertEquals("face-1", decoded.getFaceId());
+        assertEquals("Anna", decoded.getName());
+        assertNull(decoded.getNoteId());
+        assertEquals("Front door", decoded.getText());
+        assertEquals(0.875f, decoded.getConfidence(), 0f);
+    }
+
+    @Test
+    public void notificationWithoutPayload() throws IOException {
+        NotificationResponse received = WearableCodec.decodeNotification(
+                WearableCodec.encodeNotification(notification("heartbeat", null, 5)));
+
+        assertEquals("heartbeat", received.getType());
+        assertNull(received.getMessage());
+        assertNull(received.getPayload());
+    }
+
+    @Test
+    public void notificationSkipsUnknownFieldsAndNullPayload() throws IOException {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(4);
+        writer.writeLong(0).writeString("note_detected");
+        writer.writeLong(UNKNOWN_FIELD).writeDouble(0.1);
+        writer.writeLong(3).writeNull();
+        writer.writeLong(2).writeLong(42);
+
+        NotificationResponse received = WearableCodec.decodeNotification(writer.toByteArray());
+
+        assertEquals("note_detected", received.getType());
+        assertEquals(42, received.getTimestamp());
+        assertNull(received.getPayload());
+    }
+
+    @Test
+    public void notificationList() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new Cbor.Writer().arrayHeader(2).toByteArray());
+        out.write(WearableCodec.encodeNotification(notification("note_detected", "Keys", 1)));
+        out.write(WearableCodec.encodeNotification(notification("face_recognized", "Anna", 2)));
+
+        List<NotificationResponse> received = WearableCodec.decodeNotificationList(out.toByteArray());
+
+        assertEquals(2, received.size());
+        assertEquals("Keys", received.get(0).getMessage());
+        assertEquals(2, received.get(1).getTimestamp());
+    }
+
+    @Test
+    public void uploadSession() throws IOException {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(5);
+        writer.writeLong(0).writeString("upload-9");
+        writer.writeLong(1).writeLong(262_144);
+        writer.writeLong(UNKNOWN_FIELD).mapHeader(1).writeLong(0).arrayHeader(1).writeNull();
+        writer.writeLong(2).writeLong(5_000_000_000L);
+        writer.writeLong(3).writeBoolean(false);
+
+        UploadSession session = WearableCodec.decodeUploadSession(writer.toByteArray());
+
+        assertEquals("upload-9", session.getUploadId());
+        assertEquals(262_144, session.getOffset());
+        assertEquals(5_000_000_000L, session.getSize());
+        assertFalse(session.isComplete());
+    }
+
+    @Test
+    public void inferenceResponse() throws IOException {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(5);
+        writer.writeLong(0).arrayHeader(2);
+        box(writer, "person", 0.9, 10, 20, 110, 220);
+        // Coordinates may come as integers, and boxes carry unknown fields too
+        writer.mapHeader(3);
+        writer.writeLong(0).writeString("chair");
+        writer.writeLong(UNKNOWN_FIELD).writeString("wood");
+        writer.writeLong(2).writeLong(-5);
+        writer.writeLong(1).writeLong(38);
+        writer.writeLong(2).writeLong(3);
+        writer.writeLong(UNKNOWN_FIELD).writeBoolean(true);
+        writer.writeLong(3).writeLong(87);
+
+        InferenceResponse response = WearableCodec.decodeInferenceResponse(writer.toByteArray());
+
+        assertEquals(38, response.getInferenceMs());
+        assertEquals(3, response.getQueueDepth());
+        assertEquals(87, response.getBatteryPercent());
+        List<InferenceResponse.Box> boxes = response.getDetections();
+        assertEquals(2, boxes.size());
+        InferenceResponse.Box person = boxes.get(0);
+        assertEquals("person", person.getLabel());
+        assertEquals(0.9f, person.getConfidence(), 1e-6f);
+        assertEquals(10f, person.getLeft(), 0f);
+        assertEquals(20f, person.getTop(), 0f);
+        assertEquals(110f, person.getRight(), 0f);
+        assertEquals(220f, person.getBottom(), 0f);
+        assertEquals("chair", boxes.get(1).getLabel());
+        assertEquals(-5f, boxes.get(1).getLeft(), 0f);
+    }
+
+    @Test
+    public void noteSyncResponse() throws IOException {
+        Cbor.Writer writer = new Cbor.Writer().mapHeader(4);
+        writer.writeLong(0).writeBoolean(true);
+        writer.writeLong(1).writeString("d1g3st");
+        writer.writeLong(2).mapHeader(2)
+                .writeString("note-1").writeString("v3")
+                .writeString("note-2").writeString("v1");
+        writer.writeLong(UNKNOWN_FIELD).writeLong(-1);
+
+        NoteSyncResponse response = WearableCodec.decodeNoteSyncResponse(writer.toByteArray());
+
+        assertTrue(response.isApplied());
+        assertEquals("d1g3st", response.getDigest());
+        assertEquals(2, response.getVersions().size());
+        assertEquals("v3", response.getVersions().get("note-1"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedMessageIsAnIOException() throws IOException {
+        byte[] whole = WearableCodec.encodeNotification(notification("note_detected", "Keys", 1));
+        byte[] truncated = new byte[whole.length - 2];
+        System.arraycopy(whole, 0, truncated, 0, truncated.length);
+
+        WearableCodec.decodeNotification(truncated);
+    }
+
+    private static NotificationResponse notification(String type, String message, long timestamp) {
+        NotificationResponse notification = new NotificationResponse();
+        notification.setType(type);
+        notification.setMessage(message);
+        notification.setTimestamp(timestamp);
+        return notification;
+    }
+
+    private static void box(Cbor.Writer writer, String label, double confidence,
+                            double left, double top, double right, double bottom) {
+        writer.mapHeader(6);
+        writer.writeLong(0).writeString(label);
+        writer.writeLong(1).writeDouble(confidence);
+        writer.writeLong(2).writeDouble(left);
+        writer.writeLong(3).writeDouble(top);
+        writer.writeLong(4).writeDouble(right);
+        writer.writeLong(5).writeDouble(bottom);
+    }
+}
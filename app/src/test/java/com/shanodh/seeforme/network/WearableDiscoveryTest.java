@@ -0,0 +1,137 @@
+package com.shanodh.seeforme.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.shanodh.seeforme.models.WearableDevice;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * WearableDiscovery probing a fake wearable's /status. The context has no NSD or network
+ * services, so the only probes are the last paired device's and the ones a test makes.
+ */
+public class WearableDiscoveryTest {
+    private MockWebServer server;
+    private WearableDiscovery discovery;
+    private String host;
+    private final List<WearableDevice> found = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstFound = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        host = server.getHostName();
+
+        // The last paired device is the fake wearable
+        SharedPreferences prefs = mock(SharedPreferences.class);
+        when(prefs.getString(anyString(), any())).thenReturn(host);
+        when(prefs.getInt(anyString(), anyInt())).thenReturn(server.getPort());
+        Context context = mock(Context.class);
+        when(context.getApplicationContext()).thenReturn(context);
+        when(context.getSharedPreferences(anyString(), anyInt())).thenReturn(prefs);
+
+        discovery = new WearableDiscovery(context, new OkHttpClient(), server.getPort(), Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        discovery.stop();
+        server.shutdown();
+    }
+
+    @Test
+    public void findsTheLastPairedWearableFirst() throws Exception {
+        server.enqueue(status("{\"success\":true,\"data\":{\"name\":\"Hallway\"}}"));
+
+        start();
+
+        assertTrue(firstFound.await(2, TimeUnit.SECONDS));
+        WearableDevice device = found.get(0);
+        assertEquals("Hallway", device.getName());
+        assertEquals(host, device.getHost());
+        assertEquals(server.getPort(), device.getPort());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("GET", request.getMethod());
+        assertEquals("/status", request.getPath());
+        assertEquals("application/json", request.getHeader("Accept"));
+    }
+
+    @Test
+    public void onlyASuccessfulApiResponseCounts() throws Exception {
+        // The last paired device is not answering
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(status("<html><body>Router admin</body></html>"));
+        server.enqueue(status("{\"success\":false,\"message\":\"busy\"}"));
+        server.enqueue(status("{\"success\":true}"));
+
+        start();
+        server.takeRequest();
+        // Probes of one host run one at a time, so these are answered in order
+        for (int i = 0; i < 3; i++) {
+            discovery.probe(host, server.getPort());
+        }
+
+        assertTrue(firstFound.await(2, TimeUnit.SECONDS));
+        assertEquals(1, found.size());
+        // No name in the reply
+        assertEquals("SeeForMe", found.get(0).getName());
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void reportsEachWearableOnce() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(status("{\"success\":true,\"data\":{\"name\":\"Hallway\"}}"));
+        }
+
+        start();
+        discovery.probe(host, server.getPort());
+        discovery.probe(host, server.getPort());
+
+        assertTrue(firstFound.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(server.takeRequest(2, TimeUnit.SECONDS));
+        }
+        // The third probe is only sent once the second reply has been handled
+        Thread.sleep(100);
+        assertEquals(1, found.size());
+    }
+
+    private void start() {
+        discovery.start(new WearableDiscovery.DiscoveryListener() {
+            @Override
+            public void onDeviceFound(WearableDevice device) {
+                found.add(device);
+                firstFound.countDown();
+            }
+
+            @Override
+            public void onDiscoveryFinished(int devicesFound) {
+            }
+        });
+    }
+
+    private static MockResponse status(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(body);
+    }
+}
@@ -0,0 +1,167 @@
+package com.shanodh.seeforme.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * WearableEventStream against a fake wearable serving /events
+ */
+public class WearableEventStreamTest {
+    private MockWebServer server;
+    private WearableEventStream stream;
+    private final BlockingQueue<NotificationResponse> events = new LinkedBlockingQueue<>();
+    private final List<WearableEventStream.State> states = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        stream = new WearableEventStream(new OkHttpClient(), server.url("/").toString(),
+                new WearableEventStream.EventListener() {
+                    @Override
+                    public void onEvent(NotificationResponse event) {
+                        events.add(event);
+                    }
+
+                    @Override
+                    public void onStateChanged(WearableEventStream.State state) {
+                        states.add(state);
+                    }
+                }, Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        stream.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void deliversEventsButNotHeartbeats() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(sending(
+                event(NotificationResponse.TYPE_HEARTBEAT, 10),
+                event(NotificationResponse.TYPE_NOTE_DETECTED, 20))));
+
+        stream.start();
+
+        NotificationResponse first = events.poll(2, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals(NotificationResponse.TYPE_NOTE_DETECTED, first.getType());
+        assertEquals(20, first.getTimestamp());
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(WearableEventStream.State.CONNECTED, stream.getState());
+    }
+
+    @Test
+    public void reconnectsAfterBackoffAndAsksForEventsSinceTheLastOne() throws Exception {
+        AtomicLong closedAt = new AtomicLong();
+        AtomicLong reopenedAt = new AtomicLong();
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new FakeWearableSocket() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                webSocket.send(event(NotificationResponse.TYPE_NOTE_DETECTED, 100));
+                closedAt.set(System.nanoTime());
+                webSocket.close(1001, "going away");
+            }
+        }));
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new FakeWearableSocket() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                reopenedAt.set(System.nanoTime());
+                // The replay overlaps what was already delivered
+                webSocket.send(event(NotificationResponse.TYPE_FACE_RECOGNIZED, 50));
+                webSocket.send(event(NotificationResponse.TYPE_FACE_RECOGNIZED, 200));
+            }
+        }));
+
+        stream.start();
+
+        assertEquals(100, events.poll(2, TimeUnit.SECONDS).getTimestamp());
+        assertEquals(200, events.poll(WearableEventStream.MAX_BACKOFF_MS, TimeUnit.MILLISECONDS).getTimestamp());
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+
+        RecordedRequest first = server.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest second = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("/events", first.getPath());
+        assertEquals("/events?since=100", second.getPath());
+
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(reopenedAt.get() - closedAt.get());
+        assertTrue("reconnected after " + waitedMs + " ms", waitedMs >= WearableEventStream.INITIAL_BACKOFF_MS / 2);
+        assertTrue(states.indexOf(WearableEventStream.State.DISCONNECTED)
+                < states.lastIndexOf(WearableEventStream.State.CONNECTED));
+    }
+
+    @Test
+    public void retriesWhenTheWearableIsNotAnswering() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().withWebSocketUpgrade(sending(
+                event(NotificationResponse.TYPE_NOTE_DETECTED, 30))));
+
+        stream.start();
+
+        NotificationResponse event = events.poll(WearableEventStream.MAX_BACKOFF_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(event);
+        assertEquals(30, event.getTimestamp());
+        assertEquals(2, server.getRequestCount());
+        // Nothing had been delivered before the retry, so there is nothing to replay
+        server.takeRequest();
+        assertEquals("/events", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void closeStopsReconnecting() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(sending(
+                event(NotificationResponse.TYPE_NOTE_DETECTED, 40))));
+
+        stream.start();
+        assertNotNull(events.poll(2, TimeUnit.SECONDS));
+        stream.close();
+
+        Thread.sleep(WearableEventStream.INITIAL_BACKOFF_MS + 200);
+        assertEquals(WearableEventStream.State.CLOSED, stream.getState());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private static WebSocketListener sending(String... frames) {
+        return new FakeWearableSocket() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                for (String frame : frames) {
+                    webSocket.send(frame);
+                }
+            }
+        };
+    }
+
+    /**
+     * Server end of the socket; answers the app's close so the server can shut down
+     */
+    private static class FakeWearableSocket extends WebSocketListener {
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, null);
+        }
+    }
+
+    private static String event(String type, long timestamp) {
+        return "{\"type\":\"" + type + "\",\"message\":\"" + type + "\",\"timestamp\":" + timestamp + "}";
+    }
+}
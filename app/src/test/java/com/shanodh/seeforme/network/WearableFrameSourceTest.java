@@ -0,0 +1,182 @@
+package com.shanodh.seeforme.network;
+
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * WearableFrameSource's handling of camera messages, fed straight to onFrameMessage with a fake
+ * clock. Decoding is replaced by recording the frame, since the host has no BitmapFactory.
+ */
+public class WearableFrameSourceTest {
+    private final Bitmap bitmap = mock(Bitmap.class);
+    private final List<Long> delivered = new CopyOnWriteArrayList<>();
+    private final List<String> decoded = new CopyOnWriteArrayList<>();
+    private long now = 10_000;
+    private CountDownLatch deliveries = new CountDownLatch(1);
+    // Set to hold the decoder inside its first frame
+    private CountDownLatch decoding;
+    private CountDownLatch releaseDecoder;
+    private WearableFrameSource source;
+
+    @After
+    public void tearDown() {
+        if (releaseDecoder != null) {
+            releaseDecoder.countDown();
+        }
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    @Test
+    public void headerIsParsedBigEndian() throws Exception {
+        source = newSource();
+
+        source.onFrameMessage(frame(WearableFrameSource.FORMAT_NV21, 9_950_123, 640, 480, 7, 8, 9));
+
+        assertTrue(deliveries.await(2, TimeUnit.SECONDS));
+        // Capture time is sent in microseconds
+        assertEquals("1 9950 640x480 [7, 8, 9]", decoded.get(0));
+        assertEquals(Arrays.asList(9_950L), delivered);
+        assertEquals(1, source.received);
+    }
+
+    @Test
+    public void runtAndUnknownFormatsAreIgnored() throws Exception {
+        source = newSource();
+
+        source.onFrameMessage(ByteBuffer.allocate(WearableFrameSource.HEADER_BYTES));
+        source.onFrameMessage(frame(7, 9_950_000, 640, 480, 1));
+        source.onFrameMessage(frame(WearableFrameSource.FORMAT_JPEG, 9_960_000, 640, 480, 1));
+
+        assertTrue(deliveries.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(9_960L), delivered);
+        assertEquals(2, source.received);
+    }
+
+    @Test
+    public void frameFarBehindTheBestTransitIsDropped() throws Exception {
+        deliveries = new CountDownLatch(2);
+        source = newSource();
+
+        // 50 ms in transit sets the baseline
+        now = 1_050;
+        source.onFrameMessage(jpeg(1_000));
+        // Decoded before the next arrives, so it is not superseded
+        awaitDelivered(1);
+        // 350 ms in transit: flushed after a stall
+        now = 1_450;
+        source.onFrameMessage(jpeg(1_100));
+        // Back to 60 ms
+        now = 1_460;
+        source.onFrameMessage(jpeg(1_400));
+
+        assertTrue(deliveries.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1_000L, 1_400L), delivered);
+        assertEquals(1, source.droppedLate);
+    }
+
+    @Test
+    public void frameOlderThanTheLastOneIsDropped() throws Exception {
+        source = newSource();
+        now = 1_050;
+
+        source.onFrameMessage(jpeg(1_000));
+        source.onFrameMessage(jpeg(1_000));
+        source.onFrameMessage(jpeg(990));
+
+        assertTrue(deliveries.await(2, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(Arrays.asList(1_000L), delivered);
+        assertEquals(2, source.droppedLate);
+    }
+
+    @Test
+    public void onlyTheNewestFrameWaitsForABusyDecoder() throws Exception {
+        deliveries = new CountDownLatch(2);
+        decoding = new CountDownLatch(1);
+        releaseDecoder = new CountDownLatch(1);
+        source = newSource();
+        now = 2_050;
+
+        source.onFrameMessage(jpeg(2_000));
+        assertTrue(decoding.await(2, TimeUnit.SECONDS));
+        // The decoder is stuck on the first frame while three more arrive
+        source.onFrameMessage(jpeg(2_010));
+        source.onFrameMessage(jpeg(2_020));
+        source.onFrameMessage(jpeg(2_030));
+        releaseDecoder.countDown();
+
+        assertTrue(deliveries.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(2_000L, 2_030L), delivered);
+        assertEquals(2, source.droppedSuperseded);
+        assertEquals(0, source.droppedLate);
+    }
+
+    private void awaitDelivered(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (delivered.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, delivered.size());
+    }
+
+    private WearableFrameSource newSource() {
+        WearableFrameSource.FrameListener listener = new WearableFrameSource.FrameListener() {
+            @Override
+            public void onFrame(Bitmap frame, long captureTimeMs) {
+                assertSame(bitmap, frame);
+                delivered.add(captureTimeMs);
+                deliveries.countDown();
+            }
+
+            @Override
+            public void onStateChanged(WearableEventStream.State state) {
+            }
+        };
+        return new WearableFrameSource(new OkHttpClient(), "http://wearable.local/", listener, () -> now) {
+            @Override
+            Bitmap decode(Frame frame) {
+                decoded.add(frame.format + " " + frame.captureTimeMs + " " + frame.width + "x" + frame.height
+                        + " " + Arrays.toString(Arrays.copyOf(frame.data, frame.length)));
+                if (decoding != null && decoding.getCount() > 0) {
+                    decoding.countDown();
+                    try {
+                        releaseDecoder.await(2, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return bitmap;
+            }
+        };
+    }
+
+    private static ByteBuffer jpeg(long captureTimeMs) {
+        return frame(WearableFrameSource.FORMAT_JPEG, captureTimeMs * 1000, 640, 480, 0xFF, 0xD8);
+    }
+
+    private static ByteBuffer frame(int format, long captureTimeUs, int width, int height, int... payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(WearableFrameSource.HEADER_BYTES + payload.length);
+        buffer.put((byte) format).putLong(captureTimeUs).putShort((short) width).putShort((short) height);
+        for (int b : payload) {
+            buffer.put((byte) b);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,135 @@
+package com.shanodh.seeforme.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+/**
+ * WearableHealthMonitor's probe against a fake wearable serving /status
+ */
+public class WearableHealthMonitorTest {
+    private MockWebServer server;
+    private CircuitBreaker breaker;
+    private WearableHealthMonitor monitor;
+    private final List<WearableHealthMonitor.Health> changes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        breaker = new CircuitBreaker(WearableHealthMonitor.DEGRADED_INTERVAL_MS,
+                WearableHealthMonitor.DOWN_MAX_INTERVAL_MS);
+        monitor = new WearableHealthMonitor(new OkHttpClient(), server.url("/").toString(), breaker);
+        monitor.addListener(quality -> changes.add(quality.health));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        monitor.stop();
+        server.shutdown();
+    }
+
+    @Test
+    public void answeredProbeIsHealthy() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+        long before = System.currentTimeMillis();
+
+        WearableHealthMonitor.LinkQuality quality = monitor.probe();
+
+        assertEquals(WearableHealthMonitor.Health.HEALTHY, quality.health);
+        assertTrue(quality.rttMs >= 0);
+        assertEquals(0f, quality.loss, 0f);
+        assertTrue(quality.lastSeenMs >= before);
+        assertTrue(monitor.isAvailable());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/status", request.getPath());
+        assertEquals("application/json", request.getHeader("Accept"));
+    }
+
+    @Test
+    public void errorStatusIsDegradedButReachable() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        WearableHealthMonitor.LinkQuality quality = monitor.probe();
+
+        assertEquals(WearableHealthMonitor.Health.DEGRADED, quality.health);
+        assertEquals(0f, quality.loss, 0f);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void slowAnswerIsDegraded() {
+        server.enqueue(new MockResponse()
+                .setHeadersDelay(WearableHealthMonitor.MAX_HEALTHY_RTT_MS + 200, TimeUnit.MILLISECONDS));
+
+        WearableHealthMonitor.LinkQuality quality = monitor.probe();
+
+        assertEquals(WearableHealthMonitor.Health.DEGRADED, quality.health);
+        assertTrue("rtt " + quality.rttMs, quality.rttMs > WearableHealthMonitor.MAX_HEALTHY_RTT_MS);
+    }
+
+    @Test
+    public void unansweredProbesOpenTheBreaker() {
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        }
+
+        WearableHealthMonitor.LinkQuality quality = null;
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            quality = monitor.probe();
+        }
+
+        assertEquals(WearableHealthMonitor.Health.DOWN, quality.health);
+        assertEquals(1f, quality.loss, 0f);
+        assertEquals(-1, quality.rttMs);
+        assertFalse(monitor.isAvailable());
+        assertEquals(Arrays.asList(WearableHealthMonitor.Health.DEGRADED, WearableHealthMonitor.Health.DOWN),
+                changes);
+    }
+
+    @Test
+    public void firstAnswerAfterAnOutageClosesTheBreaker() {
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+            monitor.probe();
+        }
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+        WearableHealthMonitor.LinkQuality quality = monitor.probe();
+
+        assertTrue(monitor.isAvailable());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // Still lossy over the recent window
+        assertEquals(WearableHealthMonitor.Health.DEGRADED, quality.health);
+        assertEquals(0.75f, quality.loss, 0.001f);
+    }
+
+    @Test
+    public void lossCoversOnlyTheRecentWindow() {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        monitor.probe();
+        for (int i = 0; i < WearableHealthMonitor.LOSS_WINDOW; i++) {
+            server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+            monitor.probe();
+        }
+
+        WearableHealthMonitor.LinkQuality quality = monitor.getLinkQuality();
+
+        assertEquals(0f, quality.loss, 0f);
+        assertEquals(WearableHealthMonitor.Health.HEALTHY, quality.health);
+    }
+}
@@ -0,0 +1,315 @@
+package com.shanodh.seeforme.sync;
+
+import androidx.lifecycle.LiveData;
+
+import com.shanodh.seeforme.data.AppDatabase;
+import com.shanodh.seeforme.data.Note;
+import com.shanodh.seeforme.data.NoteDao;
+import com.shanodh.seeforme.data.SyncChange;
+import com.shanodh.seeforme.data.SyncChangeDao;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SyncEngine against an in-memory notes table and change log and a fake remote. The fakes
+ * follow the SQL of the DAO methods the engine calls.
+ */
+public class SyncEngineTest {
+    private static final String USER = "user-1";
+
+    private final Map<Integer, Note> notes = new TreeMap<>();
+    private final FakeChangeLog log = new FakeChangeLog();
+    private final FakeRemote remote = new FakeRemote();
+    private SyncEngine engine;
+
+    @Before
+    public void setUp() {
+        NoteDao noteDao = mock(NoteDao.class);
+        when(noteDao.getNotesByIds(anyList())).thenAnswer(invocation -> {
+            List<Note> found = new ArrayList<>();
+            for (Integer id : invocation.<List<Integer>>getArgument(0)) {
+                if (notes.containsKey(id)) {
+                    found.add(notes.get(id));
+                }
+            }
+            return found;
+        });
+        doAnswer(invocation -> {
+            Note note = notes.get(invocation.<Integer>getArgument(0));
+            if (note != null && note.getFirestoreId() == null) {
+                note.setFirestoreId(invocation.getArgument(1));
+            }
+            return null;
+        }).when(noteDao).assignFirestoreId(anyInt(), anyString());
+        doAnswer(invocation -> {
+            long ackedSeq = invocation.getArgument(1);
+            for (Integer id : invocation.<List<Integer>>getArgument(0)) {
+                if (notes.containsKey(id) && !log.hasNoteChangeAfter(id, ackedSeq)) {
+                    notes.get(id).setSynced(true);
+                }
+            }
+            return null;
+        }).when(noteDao).acknowledgeSynced(anyList(), anyLong());
+
+        AppDatabase database = mock(AppDatabase.class);
+        when(database.noteDao()).thenReturn(noteDao);
+        when(database.syncChangeDao()).thenReturn(log);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(database).runInTransaction(any(Runnable.class));
+
+        engine = new SyncEngine(database, remote);
+    }
+
+    @Test
+    public void severalEditsToOneNoteAreOneWrite() throws Exception {
+        Note note = addNote(1);
+        log.upsert(1);
+        log.upsert(1);
+        log.upsert(1);
+
+        int pushed = engine.pushPending(USER, null);
+
+        assertEquals(1, pushed);
+        assertEquals(1, remote.commits.size());
+        SyncRemote.Write write = remote.commits.get(0).get(0);
+        assertEquals("notes", write.collection);
+        assertEquals(note.getFirestoreId(), write.documentId);
+        assertEquals(USER, write.data.get("userId"));
+        assertTrue(note.isSynced());
+        assertEquals(0, engine.getPendingCount());
+    }
+
+    @Test
+    public void deletesAreSentForTheLoggedDocument() throws Exception {
+        Note gone = new Note("gone");
+        gone.setId(7);
+        gone.setFirestoreId("doc-gone");
+        log.insert(SyncChange.noteDeleted(gone));
+
+        engine.pushPending(USER, null);
+
+        SyncRemote.Write write = remote.commits.get(0).get(0);
+        assertTrue(write.isDelete());
+        assertEquals("doc-gone", write.documentId);
+    }
+
+    @Test
+    public void commitsNeverExceedTheBatchLimit() throws Exception {
+        int count = 2 * SyncRemote.MAX_WRITES_PER_COMMIT + 200;
+        for (int id = 1; id <= count; id++) {
+            addNote(id);
+            log.upsert(id);
+        }
+        List<Integer> remaining = new ArrayList<>();
+
+        int pushed = engine.pushPending(USER, (done, left) -> remaining.add(left));
+
+        assertEquals(count, pushed);
+        assertEquals(3, remote.commits.size());
+        for (List<SyncRemote.Write> commit : remote.commits) {
+            assertTrue(commit.size() <= SyncRemote.MAX_WRITES_PER_COMMIT);
+        }
+        assertEquals(Arrays.asList(SyncRemote.MAX_WRITES_PER_COMMIT + 200, 200, 0), remaining);
+    }
+
+    @Test
+    public void failedCommitLeavesTheLogAndResendsTheSameDocuments() throws Exception {
+        addNote(1);
+        addNote(2);
+        log.upsert(1);
+        log.upsert(2);
+        remote.failNext = true;
+
+        try {
+            engine.pushPending(USER, null);
+            fail("Expected the commit to fail");
+        } catch (Exception expected) {
+            // The remote rejected the commit
+        }
+
+        assertEquals(2, engine.getPendingCount());
+        assertTrue(log.trimmedUpTo.isEmpty());
+        assertFalse(notes.get(1).isSynced());
+        List<String> firstAttempt = documentIds(remote.attempts.get(0));
+
+        engine.pushPending(USER, null);
+
+        assertEquals(firstAttempt, documentIds(remote.commits.get(0)));
+        assertEquals(2, remote.idsIssued);
+        assertEquals(0, engine.getPendingCount());
+        assertTrue(notes.get(1).isSynced());
+    }
+
+    @Test
+    public void editLoggedAfterTheAckedChangeKeepsTheNoteUnsynced() throws Exception {
+        Note note = addNote(1);
+        log.upsert(1);
+        // The user edits the note again while the first push is in flight
+        remote.duringCommit = () -> log.upsert(1);
+        List<Boolean> syncedAfterEachRound = new ArrayList<>();
+
+        engine.pushPending(USER, (done, left) -> syncedAfterEachRound.add(note.isSynced()));
+
+        // Unsynced after the first round, synced once the second edit went out too
+        assertEquals(Arrays.asList(false, true), syncedAfterEachRound);
+        assertEquals(2, remote.commits.size());
+    }
+
+    @Test
+    public void logIsTrimmedUpToTheLastPushedChange() throws Exception {
+        addNote(1);
+        addNote(2);
+        log.upsert(1);
+        log.upsert(2);
+        long last = log.upsert(1);
+
+        engine.pushPending(USER, null);
+
+        assertEquals(Collections.singletonList(last), log.trimmedUpTo);
+        assertEquals(0, engine.getPendingCount());
+    }
+
+    @Test
+    public void notesOfAnotherAccountStayUnsynced() throws Exception {
+        Note mine = addNote(1);
+        Note theirs = addNote(2);
+        theirs.setUserId("user-2");
+        log.upsert(1);
+        log.upsert(2);
+
+        assertEquals(1, engine.pushPending(USER, null));
+
+        assertTrue(mine.isSynced());
+        assertFalse(theirs.isSynced());
+        assertNull(theirs.getFirestoreId());
+    }
+
+    private Note addNote(int id) {
+        Note note = new Note("note " + id);
+        note.setId(id);
+        note.setUserId(USER);
+        notes.put(id, note);
+        return note;
+    }
+
+    private static List<String> documentIds(List<SyncRemote.Write> writes) {
+        List<String> ids = new ArrayList<>();
+        for (SyncRemote.Write write : writes) {
+            ids.add(write.documentId);
+        }
+        return ids;
+    }
+
+    private static class FakeRemote implements SyncRemote {
+        final List<List<Write>> attempts = new ArrayList<>();
+        final List<List<Write>> commits = new ArrayList<>();
+        int idsIssued = 0;
+        boolean failNext = false;
+        Runnable duringCommit;
+
+        @Override
+        public String newNoteId() {
+            return "doc-" + (++idsIssued);
+        }
+
+        @Override
+        public void commit(List<Write> writes) throws Exception {
+            attempts.add(new ArrayList<>(writes));
+            if (failNext) {
+                failNext = false;
+                throw new Exception("commit rejected");
+            }
+            if (duringCommit != null) {
+                Runnable edit = duringCommit;
+                duringCommit = null;
+                edit.run();
+            }
+            commits.add(new ArrayList<>(writes));
+        }
+    }
+
+    private static class FakeChangeLog implements SyncChangeDao {
+        private final TreeMap<Long, SyncChange> changes = new TreeMap<>();
+        final List<Long> trimmedUpTo = new ArrayList<>();
+        private long nextSeq = 1;
+
+        long upsert(int noteId) {
+            SyncChange change = new SyncChange();
+            change.setEntityType(SyncChange.ENTITY_NOTE);
+            change.setEntityId(noteId);
+            change.setOperation(SyncChange.OP_UPSERT);
+            return insert(change);
+        }
+
+        boolean hasNoteChangeAfter(int noteId, long seq) {
+            return countChangesAfter(SyncChange.ENTITY_NOTE, noteId, seq) > 0;
+        }
+
+        @Override
+        public long insert(SyncChange change) {
+            change.setSeq(nextSeq++);
+            changes.put(change.getSeq(), change);
+            return change.getSeq();
+        }
+
+        @Override
+        public List<SyncChange> getPending(int limit) {
+            List<SyncChange> pending = new ArrayList<>();
+            for (SyncChange change : changes.values()) {
+                if (pending.size() == limit) {
+                    break;
+                }
+                pending.add(change);
+            }
+            return pending;
+        }
+
+        @Override
+        public int getPendingCount() {
+            return changes.size();
+        }
+
+        @Override
+        public LiveData<Integer> observePendingCount() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int countChangesAfter(String entityType, int entityId, long afterSeq) {
+            int count = 0;
+            for (SyncChange change : changes.tailMap(afterSeq, false).values()) {
+                if (entityType.equals(change.getEntityType()) && change.getEntityId() == entityId) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int deleteOrphanedUpserts() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteUpTo(long seq) {
+            trimmedUpTo.add(seq);
+            int before = changes.size();
+            changes.headMap(seq, true).clear();
+            return before - changes.size();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.shanodh.seeforme.voice;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * VoiceCommandMatcher's trie walk, near-miss snapping and the confidence that gates dispatch
+ * from partial results
+ */
+public class VoiceCommandMatcherTest {
+    private final VoiceCommandMatcher matcher = VoiceCommandMatcher.createDefault();
+
+    @Test
+    public void matchesAPhraseAnywhereInTheUtterance() {
+        VoiceCommandMatcher.Match match = matcher.match("could you please add a note for me");
+
+        assertEquals(VoiceCommandMatcher.Command.ADD_NOTE, match.command);
+        assertEquals("add a note", match.phrase);
+        assertEquals(3, match.matchedWords);
+        assertEquals(0, match.fuzzyWords);
+        assertTrue(match.isConfident());
+    }
+
+    @Test
+    public void longestPhraseWins() {
+        VoiceCommandMatcher.Match match = matcher.match("View my notes");
+
+        assertEquals(VoiceCommandMatcher.Command.VIEW_NOTES, match.command);
+        assertEquals("view my notes", match.phrase);
+        assertEquals(3, match.matchedWords);
+    }
+
+    @Test
+    public void prefixOfAPhraseIsNotAMatch() {
+        assertNull(matcher.match("view my"));
+        assertNull(matcher.match("remember this"));
+    }
+
+    @Test
+    public void nothingToMatch() {
+        assertNull(matcher.match(null));
+        assertNull(matcher.match("  ?! "));
+        assertNull(matcher.match("the weather tomorrow"));
+    }
+
+    @Test
+    public void phraseThatAnotherCommandExtendsIsNotCompleteAtTheEnd() {
+        VoiceCommandMatcher grammar = new VoiceCommandMatcher();
+        grammar.add(VoiceCommandMatcher.Command.ADD_NOTE, "note");
+        grammar.add(VoiceCommandMatcher.Command.VIEW_NOTES, "note list");
+
+        // The user may still be saying "note list"
+        VoiceCommandMatcher.Match partial = grammar.match("note");
+        assertEquals(VoiceCommandMatcher.Command.ADD_NOTE, partial.command);
+        assertFalse(partial.complete);
+        assertFalse(partial.isConfident());
+
+        assertTrue(grammar.match("note please").isConfident());
+        assertEquals(VoiceCommandMatcher.Command.VIEW_NOTES, grammar.match("note list").command);
+    }
+
+    @Test
+    public void soundsAlikeWordSnapsOntoTheGrammar() {
+        VoiceCommandMatcher.Match match = matcher.match("add fase");
+
+        assertEquals(VoiceCommandMatcher.Command.ADD_FACE, match.command);
+        assertEquals(1, match.fuzzyWords);
+    }
+
+    @Test
+    public void misheardLetterSnapsByEditDistance() {
+        // "jome" codes differently from "home" but is one edit away
+        assertNotEquals(VoiceCommandMatcher.phoneticCode("home"), VoiceCommandMatcher.phoneticCode("jome"));
+
+        VoiceCommandMatcher.Match match = matcher.match("go jome");
+
+        assertEquals(VoiceCommandMatcher.Command.HOME, match.command);
+        assertEquals(2, match.matchedWords);
+        assertEquals(1, match.fuzzyWords);
+    }
+
+    @Test
+    public void confidentOnlyWhenAtMostHalfTheWordsAreFuzzy() {
+        assertTrue(matcher.match("go jome").isConfident());
+        // One word, and that one a guess
+        assertFalse(matcher.match("jome").isConfident());
+    }
+
+    @Test
+    public void twoCommandsOfEqualWeightAreAmbiguous() {
+        VoiceCommandMatcher.Match match = matcher.match("home profile");
+
+        assertTrue(match.ambiguous);
+        assertFalse(match.isConfident());
+    }
+
+    @Test
+    public void phoneticCodeIsSoundex() {
+        assertEquals("r163", VoiceCommandMatcher.phoneticCode("robert"));
+        assertEquals("r163", VoiceCommandMatcher.phoneticCode("rupert"));
+        assertEquals("a000", VoiceCommandMatcher.phoneticCode("a"));
+    }
+
+    @Test
+    public void editDistanceStopsPastTheBound() {
+        assertEquals(3, VoiceCommandMatcher.boundedEditDistance("kitten", "sitting", 3));
+        assertEquals(0, VoiceCommandMatcher.boundedEditDistance("notes", "notes", 1));
+        assertEquals(3, VoiceCommandMatcher.boundedEditDistance("abcdef", "uvwxyz", 2));
+    }
+}